@@ -0,0 +1,437 @@
+package org.maplibre.maplibregl;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import io.flutter.embedding.engine.plugins.FlutterPlugin;
+import io.flutter.plugin.common.MethodChannel;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.maplibre.android.offline.OfflineManager;
+
+/**
+ * Bulk inserts the resources of a bundled resource pack (style, sprites, glyphs, tiles) into the
+ * ambient cache, so the first map frame does not have to wait for the network.
+ *
+ * <p>A pack is either a directory or a zip archive, located in the Flutter assets or at an absolute
+ * path. The mapping of URLs to files inside the pack is either passed in by the caller or read from
+ * a {@code manifest.json} at the root of the pack.
+ */
+abstract class AmbientCacheWarmer {
+  private static final String TAG = "AmbientCacheWarmer";
+  private static final String MANIFEST_NAME = "manifest.json";
+  private static final String PACK_DIRECTORY_NAME = "maplibre_resource_packs";
+  private static final String PREFERENCES_NAME = "org.maplibre.maplibregl.ambient_cache_warmer";
+  private static final int BUFFER_SIZE = 1024 * 8;
+  private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+  private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  static void warm(
+      @NonNull Context context,
+      @Nullable FlutterPlugin.FlutterAssets flutterAssets,
+      @NonNull String pack,
+      @Nullable Map<String, String> resources,
+      long maxAgeSeconds,
+      @NonNull OfflineChannelHandlerImpl channelHandler,
+      @NonNull MethodChannel.Result result) {
+    final Context appContext = context.getApplicationContext();
+    // The offline manager has to be created on the main thread, inserting into the cache is safe
+    // from any thread.
+    final OfflineManager offlineManager = OfflineManager.Companion.getInstance(appContext);
+    final ResourcePack resourcePack;
+    try {
+      resourcePack = ResourcePack.open(appContext, flutterAssets, pack);
+    } catch (IOException | IllegalStateException e) {
+      result.error("AmbientCacheWarmError", e.getMessage(), null);
+      return;
+    }
+
+    channelHandler.onStart();
+    executor.execute(
+        () -> {
+          try {
+            Map<String, Integer> summary =
+                insertResources(
+                    appContext, offlineManager, resourcePack, resources, maxAgeSeconds,
+                    channelHandler);
+            mainHandler.post(
+                () -> {
+                  channelHandler.onSuccess();
+                  result.success(summary);
+                });
+          } catch (IOException e) {
+            Log.e(TAG, "Failed to warm ambient cache from " + pack, e);
+            mainHandler.post(
+                () -> {
+                  channelHandler.onError("AmbientCacheWarmError", e.getMessage(), null);
+                  result.error("AmbientCacheWarmError", e.getMessage(), null);
+                });
+          } finally {
+            resourcePack.close();
+          }
+        });
+  }
+
+  /** Forgets which packs were inserted, e.g. after the ambient cache has been cleared. */
+  static void forgetInsertedResources(@NonNull Context context) {
+    context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE).edit().clear().apply();
+  }
+
+  private static Map<String, Integer> insertResources(
+      Context context,
+      OfflineManager offlineManager,
+      ResourcePack resourcePack,
+      @Nullable Map<String, String> resources,
+      long maxAgeSeconds,
+      OfflineChannelHandlerImpl channelHandler)
+      throws IOException {
+    if (resources == null) {
+      resources = resourcePack.readManifest();
+    }
+
+    // The pack is identified by its location, version and mapping. It is recorded once all of its
+    // entries were inserted, together with their expiry, and inserted again once they expired.
+    final String packVersion = resourcePack.version(context) + "#" + resources.hashCode();
+    final String expiresKey = resourcePack.location + ".expires";
+    final SharedPreferences preferences =
+        context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    final long modified = System.currentTimeMillis() / 1000;
+    final int total = resources.size();
+    if (packVersion.equals(preferences.getString(resourcePack.location, null))) {
+      final long packExpires = preferences.getLong(expiresKey, 0);
+      if (packExpires == 0 || modified < packExpires) {
+        final Map<String, Integer> summary = new HashMap<>(4);
+        summary.put("inserted", 0);
+        summary.put("skipped", total);
+        summary.put("failed", 0);
+        return summary;
+      }
+    }
+
+    // Invert the mapping, so a streamed zip archive can be read in a single pass.
+    final Map<String, String> urlsByPath = new HashMap<>(total);
+    for (Map.Entry<String, String> entry : resources.entrySet()) {
+      urlsByPath.put(normalizePath(entry.getValue()), entry.getKey());
+    }
+
+    final long expires = maxAgeSeconds > 0 ? modified + maxAgeSeconds : 0;
+    final int[] inserted = {0};
+    final int[] failed = {0};
+    final int progressStep = Math.max(1, total / 100);
+
+    resourcePack.forEach(
+        urlsByPath.keySet(),
+        (path, data) -> {
+          final String url = urlsByPath.get(path);
+          try {
+            offlineManager.putResourceWithUrl(url, data, modified, expires, "", false);
+            inserted[0]++;
+          } catch (RuntimeException e) {
+            Log.e(TAG, "Failed to insert " + url, e);
+            failed[0]++;
+          }
+
+          final int processed = inserted[0] + failed[0];
+          if (processed % progressStep == 0) {
+            final double progress = 100.0 * processed / total;
+            mainHandler.post(() -> channelHandler.onProgress(progress));
+          }
+        });
+
+    final int missing = urlsByPath.size() - inserted[0] - failed[0];
+    if (missing > 0) {
+      Log.w(TAG, missing + " resources listed in the manifest are missing from the pack");
+    }
+
+    // A pack with entries that failed or are missing is inserted again by the next warm up.
+    final SharedPreferences.Editor editor = preferences.edit();
+    if (failed[0] == 0 && missing == 0) {
+      editor.putString(resourcePack.location, packVersion).putLong(expiresKey, expires);
+    } else {
+      editor.remove(resourcePack.location).remove(expiresKey);
+    }
+    editor.apply();
+
+    final Map<String, Integer> summary = new HashMap<>(4);
+    summary.put("inserted", inserted[0]);
+    summary.put("skipped", 0);
+    summary.put("failed", failed[0] + missing);
+    return summary;
+  }
+
+  private static String normalizePath(String path) {
+    return path.startsWith("/") ? path.substring(1) : path;
+  }
+
+  private static byte[] readFully(InputStream input) throws IOException {
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    final byte[] buffer = new byte[BUFFER_SIZE];
+    int n;
+    while ((n = input.read(buffer, 0, BUFFER_SIZE)) != -1) {
+      output.write(buffer, 0, n);
+    }
+    return output.toByteArray();
+  }
+
+  private interface ResourceConsumer {
+    void accept(String path, byte[] data);
+  }
+
+  /** A directory or zip archive in the Flutter assets or on the file system. */
+  private abstract static class ResourcePack {
+    final String location;
+
+    ResourcePack(String location) {
+      this.location = location;
+    }
+
+    static ResourcePack open(
+        Context context, @Nullable FlutterPlugin.FlutterAssets flutterAssets, String pack)
+        throws IOException {
+      final boolean zip = pack.toLowerCase().endsWith(".zip");
+      if (pack.startsWith("/")) { // Absolute path.
+        final File file = new File(pack);
+        if (!file.exists()) {
+          throw new IOException("Resource pack " + pack + " does not exist");
+        }
+        return zip ? new ZipFilePack(file) : new DirectoryPack(file);
+      }
+
+      if (flutterAssets == null) {
+        throw new IllegalStateException("Flutter assets are not available");
+      }
+      final String assetKey = flutterAssets.getAssetFilePathByName(pack);
+      return zip ? new ZipAssetPack(context, assetKey) : new AssetDirectoryPack(context, assetKey);
+    }
+
+    @SuppressWarnings("unchecked")
+    Map<String, String> readManifest() throws IOException {
+      final byte[] manifest = read(MANIFEST_NAME);
+      if (manifest == null) {
+        throw new IOException("Resource pack " + location + " has no " + MANIFEST_NAME);
+      }
+      return JsonCodec.gson
+          .fromJson(
+              new InputStreamReader(new ByteArrayInputStream(manifest), "UTF-8"),
+              HashMap.class);
+    }
+
+    /** Returns the contents of a single entry, or null if the pack does not contain it. */
+    @Nullable
+    abstract byte[] read(String path) throws IOException;
+
+    /** Passes every entry of the pack that is contained in {@code paths} to the consumer. */
+    void forEach(Iterable<String> paths, ResourceConsumer consumer) throws IOException {
+      for (String path : paths) {
+        final byte[] data = read(path);
+        if (data != null) {
+          consumer.accept(path, data);
+        }
+      }
+    }
+
+    abstract String version(Context context);
+
+    void close() {}
+  }
+
+  private static class DirectoryPack extends ResourcePack {
+    private final File directory;
+
+    DirectoryPack(File directory) {
+      super(directory.getAbsolutePath());
+      this.directory = directory;
+    }
+
+    @Nullable
+    @Override
+    byte[] read(String path) throws IOException {
+      final File file = new File(directory, path);
+      if (!file.isFile()) {
+        return null;
+      }
+      try (InputStream input = new FileInputStream(file)) {
+        return readFully(input);
+      }
+    }
+
+    @Override
+    String version(Context context) {
+      return location + "@" + directory.lastModified();
+    }
+  }
+
+  private static class ZipFilePack extends ResourcePack {
+    private final File file;
+    private final ZipFile zipFile;
+
+    ZipFilePack(File file) throws IOException {
+      super(file.getAbsolutePath());
+      this.file = file;
+      this.zipFile = new ZipFile(file);
+    }
+
+    @Nullable
+    @Override
+    byte[] read(String path) throws IOException {
+      final ZipEntry entry = zipFile.getEntry(path);
+      if (entry == null || entry.isDirectory()) {
+        return null;
+      }
+      try (InputStream input = zipFile.getInputStream(entry)) {
+        return readFully(input);
+      }
+    }
+
+    @Override
+    String version(Context context) {
+      return location + "@" + file.lastModified() + ":" + file.length();
+    }
+
+    @Override
+    void close() {
+      try {
+        zipFile.close();
+      } catch (IOException e) {
+        Log.e(TAG, e.getMessage(), e);
+      }
+    }
+  }
+
+  /** Assets are only modified by app updates, so the install time versions them. */
+  private abstract static class AssetPack extends ResourcePack {
+    final Context context;
+
+    AssetPack(Context context, String assetKey) {
+      super(assetKey);
+      this.context = context;
+    }
+
+    @Override
+    String version(Context context) {
+      try {
+        return location
+            + "@"
+            + context
+                .getPackageManager()
+                .getPackageInfo(context.getPackageName(), 0)
+                .lastUpdateTime;
+      } catch (PackageManager.NameNotFoundException e) {
+        return location;
+      }
+    }
+  }
+
+  private static class AssetDirectoryPack extends AssetPack {
+    AssetDirectoryPack(Context context, String assetKey) {
+      super(context, assetKey);
+    }
+
+    @Nullable
+    @Override
+    byte[] read(String path) {
+      try (InputStream input = context.getAssets().open(location + "/" + path)) {
+        return readFully(input);
+      } catch (IOException e) {
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Compressed assets can only be streamed, so the archive is copied into the cache directory once
+   * per app version, and its entries are looked up in the index of the copy from then on.
+   */
+  private static class ZipAssetPack extends AssetPack {
+    @Nullable private ZipFile zipFile;
+
+    ZipAssetPack(Context context, String assetKey) {
+      super(context, assetKey);
+    }
+
+    @Nullable
+    @Override
+    byte[] read(String path) throws IOException {
+      final ZipEntry entry = zipFile().getEntry(path);
+      if (entry == null || entry.isDirectory()) {
+        return null;
+      }
+      try (InputStream input = zipFile().getInputStream(entry)) {
+        return readFully(input);
+      }
+    }
+
+    private ZipFile zipFile() throws IOException {
+      if (zipFile == null) {
+        zipFile = new ZipFile(copyToCache());
+      }
+      return zipFile;
+    }
+
+    private File copyToCache() throws IOException {
+      final File directory = new File(context.getCacheDir(), PACK_DIRECTORY_NAME);
+      final String prefix = Integer.toHexString(location.hashCode()) + "-";
+      final File file =
+          new File(directory, prefix + Integer.toHexString(version(context).hashCode()) + ".zip");
+      if (file.isFile()) {
+        return file;
+      }
+      if (!directory.isDirectory() && !directory.mkdirs()) {
+        throw new IOException("Could not create " + directory);
+      }
+      final File[] stale = directory.listFiles();
+      if (stale != null) {
+        for (File old : stale) {
+          if (old.getName().startsWith(prefix)) {
+            old.delete();
+          }
+        }
+      }
+
+      final File partial = new File(directory, file.getName() + ".tmp");
+      try (InputStream input = context.getAssets().open(location);
+          OutputStream output = new FileOutputStream(partial)) {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = input.read(buffer, 0, BUFFER_SIZE)) != -1) {
+          output.write(buffer, 0, n);
+        }
+      }
+      if (!partial.renameTo(file)) {
+        partial.delete();
+        throw new IOException("Could not copy " + location + " to " + file);
+      }
+      return file;
+    }
+
+    @Override
+    void close() {
+      if (zipFile == null) {
+        return;
+      }
+      try {
+        zipFile.close();
+      } catch (IOException e) {
+        Log.e(TAG, e.getMessage(), e);
+      }
+    }
+  }
+}
@@ -0,0 +1,230 @@
+package org.maplibre.maplibregl;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.gson.JsonObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.maplibre.geojson.Feature;
+import org.maplibre.geojson.FeatureCollection;
+import org.maplibre.geojson.Point;
+
+/**
+ * Clusters a large set of points with a {@link Supercluster} index, and only hands the clusters and
+ * points of the viewport to the map.
+ *
+ * <p>The index is built on a worker thread, and each viewport is queried there too. The features
+ * use the same properties as the clusters of a {@code GeoJsonSource} with the cluster option, so
+ * the same layers can render them: clusters have {@code cluster}, {@code cluster_id}, {@code
+ * point_count} and {@code point_count_abbreviated}, points have {@code index}, the position of the
+ * point in the coordinates the source was built from.
+ *
+ * <p>All methods except the queries must be called on the main thread.
+ */
+final class ClusteredSource {
+  private static final String TAG = "ClusteredSource";
+
+  /** How much of the viewport is added on each side, so short pans do not need a new query. */
+  private static final double VIEWPORT_PADDING = 0.25;
+
+  /**
+   * The worker shared by the sources of all maps. Building an index keeps a core busy for a while,
+   * and a thread per source would let several maps do that at once. Each source drops the results
+   * of its superseded requests, so a queue of stale viewports does not reach the map.
+   */
+  private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+  interface Listener {
+    void onFeatures(@NonNull String sourceId, @NonNull FeatureCollection features);
+  }
+
+  private final String sourceId;
+  private final Listener listener;
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  @Nullable private volatile Supercluster index;
+  private boolean disposed = false;
+  private int generation = 0;
+
+  // The last requested viewport, and the padded box and zoom level its features cover.
+  @Nullable private double[] viewport;
+  private double viewportZoom;
+  @Nullable private double[] covered;
+  private int coveredZoom = -1;
+
+  ClusteredSource(@NonNull String sourceId, @NonNull Listener listener) {
+    this.sourceId = sourceId;
+    this.listener = listener;
+  }
+
+  /** Builds the index for the given flat latitude/longitude pairs on the worker thread. */
+  void build(@NonNull double[] latLngs, @NonNull Supercluster.Options options) {
+    final int request = ++generation;
+    index = null;
+    covered = null;
+    executor.execute(
+        () -> {
+          final long start = SystemClock.elapsedRealtime();
+          final Supercluster built = new Supercluster(latLngs, options);
+          if (Log.isLoggable(TAG, Log.DEBUG)) {
+            final long millis = SystemClock.elapsedRealtime() - start;
+            Log.d(
+                TAG,
+                "Clustered " + built.size() + " points of " + sourceId + " in " + millis + " ms");
+          }
+          mainHandler.post(
+              () -> {
+                if (disposed || request != generation) {
+                  return;
+                }
+                index = built;
+                if (viewport != null) {
+                  query(viewport, viewportZoom);
+                }
+              });
+        });
+  }
+
+  /**
+   * Updates the features for the viewport, unless the features of the last query already cover
+   * it at the same zoom level.
+   */
+  void update(double west, double south, double east, double north, double zoom) {
+    viewport = new double[] {west, south, east, north};
+    viewportZoom = zoom;
+    if (index == null) {
+      return;
+    }
+    final double[] covered = this.covered;
+    if (covered != null
+        && coveredZoom == (int) Math.floor(zoom)
+        && west <= east
+        && west >= covered[0]
+        && south >= covered[1]
+        && east <= covered[2]
+        && north <= covered[3]) {
+      return;
+    }
+    query(viewport, zoom);
+  }
+
+  private void query(double[] viewport, double zoom) {
+    final Supercluster index = this.index;
+    if (index == null) {
+      return;
+    }
+    final double west = viewport[0];
+    final double east = viewport[2];
+    final double width = (east >= west ? east - west : east - west + 360) * VIEWPORT_PADDING;
+    final double height = (viewport[3] - viewport[1]) * VIEWPORT_PADDING;
+    final double[] padded = {
+      west - width,
+      Math.max(-90, viewport[1] - height),
+      east + width,
+      Math.min(90, viewport[3] + height)
+    };
+    final int request = ++generation;
+    covered = padded;
+    coveredZoom = (int) Math.floor(zoom);
+    executor.execute(
+        () -> {
+          final long start = SystemClock.elapsedRealtime();
+          final List<Feature> features = new ArrayList<>();
+          index.getClusters(
+              padded[0],
+              padded[1],
+              padded[2],
+              padded[3],
+              zoom,
+              new Supercluster.Visitor() {
+                @Override
+                public void onCluster(int clusterId, int pointCount, double lat, double lng) {
+                  final JsonObject properties = new JsonObject();
+                  properties.addProperty("cluster", true);
+                  properties.addProperty("cluster_id", clusterId);
+                  properties.addProperty("point_count", pointCount);
+                  properties.addProperty("point_count_abbreviated", abbreviate(pointCount));
+                  features.add(Feature.fromGeometry(Point.fromLngLat(lng, lat), properties));
+                }
+
+                @Override
+                public void onPoint(int index, double lat, double lng) {
+                  final JsonObject properties = new JsonObject();
+                  properties.addProperty("index", index);
+                  features.add(
+                      Feature.fromGeometry(
+                          Point.fromLngLat(lng, lat), properties, String.valueOf(index)));
+                }
+              });
+          final FeatureCollection collection = FeatureCollection.fromFeatures(features);
+          if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(
+                TAG,
+                "Found "
+                    + features.size()
+                    + " features of "
+                    + sourceId
+                    + " in "
+                    + (SystemClock.elapsedRealtime() - start)
+                    + " ms");
+          }
+          mainHandler.post(
+              () -> {
+                if (disposed || request != generation) {
+                  return;
+                }
+                listener.onFeatures(sourceId, collection);
+              });
+        });
+  }
+
+  /**
+   * Returns the zoom level at which the cluster splits up, may be called on any thread.
+   *
+   * @throws IllegalStateException if the index is not built yet
+   * @throws IllegalArgumentException if there is no cluster with the id
+   */
+  int getClusterExpansionZoom(int clusterId) {
+    return requireIndex().getClusterExpansionZoom(clusterId);
+  }
+
+  /**
+   * Returns the indices of the points of the cluster, may be called on any thread.
+   *
+   * @throws IllegalStateException if the index is not built yet
+   * @throws IllegalArgumentException if there is no cluster with the id
+   */
+  int[] getClusterLeaves(int clusterId, int limit, int offset) {
+    return requireIndex().getLeaves(clusterId, limit, offset);
+  }
+
+  void dispose() {
+    disposed = true;
+    index = null;
+  }
+
+  private Supercluster requireIndex() {
+    final Supercluster index = this.index;
+    if (index == null) {
+      throw new IllegalStateException("The clustered source " + sourceId + " is not ready yet.");
+    }
+    return index;
+  }
+
+  private static String abbreviate(int count) {
+    if (count >= 10000) {
+      return Math.round(count / 1000.0) + "k";
+    }
+    if (count >= 1000) {
+      final long tenths = Math.round(count / 100.0);
+      return tenths % 10 == 0 ? tenths / 10 + "k" : tenths / 10 + "." + tenths % 10 + "k";
+    }
+    return String.valueOf(count);
+  }
+}
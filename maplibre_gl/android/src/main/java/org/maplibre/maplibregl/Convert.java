@@ -225,6 +225,8 @@ static LocationEngineRequest toLocationEngineRequest(Object o) {
     final Object locationEngineProperties = data.get("locationEngineProperties");
     if (locationEngineProperties != null) {
       final List<?> locationEnginePropertiesList = toList(locationEngineProperties);
+      sink.setAdaptiveLocationUpdates(
+          locationEnginePropertiesList.size() > 3 && toInt(locationEnginePropertiesList.get(3)) == 1);
         sink.setLocationEngineProperties(toLocationEngineRequest(locationEnginePropertiesList));
     }
     final Object cameraTargetBounds = data.get("cameraTargetBounds");
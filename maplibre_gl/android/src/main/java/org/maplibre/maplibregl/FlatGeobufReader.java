@@ -0,0 +1,509 @@
+package org.maplibre.maplibregl;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the features of a FlatGeobuf file that intersect a bounding box, and writes them as a
+ * geojson FeatureCollection.
+ *
+ * <p>The file is memory mapped, and the packed Hilbert R-tree of the file is used to find the
+ * features, so only the index nodes and features along the way are read from disk. Files without
+ * an index are scanned. The FlatBuffers tables are read directly from the mapped file, without the
+ * FlatBuffers library. Files larger than 2 GB are not supported.
+ */
+final class FlatGeobufReader implements Closeable {
+  private static final byte[] MAGIC = {0x66, 0x67, 0x62, 0x03, 0x66, 0x67, 0x62};
+  private static final int NODE_BYTES = 40;
+
+  private static final int UNKNOWN = 0;
+  private static final int POINT = 1;
+  private static final int LINE_STRING = 2;
+  private static final int POLYGON = 3;
+  private static final int MULTI_POINT = 4;
+  private static final int MULTI_LINE_STRING = 5;
+  private static final int MULTI_POLYGON = 6;
+  private static final int GEOMETRY_COLLECTION = 7;
+  private static final String[] GEOMETRY_NAMES = {
+    null,
+    "Point",
+    "LineString",
+    "Polygon",
+    "MultiPoint",
+    "MultiLineString",
+    "MultiPolygon",
+    "GeometryCollection"
+  };
+
+  private final RandomAccessFile file;
+  private final ByteBuffer buffer;
+  private final int geometryType;
+  private final String[] columnNames;
+  private final int[] columnTypes;
+  private final long featureCount;
+  private final int nodeSize;
+  private final int indexOffset;
+  private final int featuresOffset;
+  private final long[][] levelBounds;
+  private final long nodeCount;
+
+  FlatGeobufReader(File path) throws IOException {
+    file = new RandomAccessFile(path, "r");
+    try {
+      final FileChannel channel = file.getChannel();
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("FlatGeobuf files larger than 2 GB are not supported");
+      }
+      buffer =
+          channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+              .order(ByteOrder.LITTLE_ENDIAN);
+      for (int i = 0; i < MAGIC.length; i++) {
+        if (buffer.limit() < 12 || buffer.get(i) != MAGIC[i]) {
+          throw new IOException("Not a FlatGeobuf file: " + path.getName());
+        }
+      }
+
+      final int headerSize = buffer.getInt(8);
+      final int header = indirect(12);
+      geometryType = ubyte(field(header, 2), UNKNOWN);
+      final int columns = field(header, 7);
+      final int columnCount = columns != 0 ? buffer.getInt(indirect(columns)) : 0;
+      columnNames = new String[columnCount];
+      columnTypes = new int[columnCount];
+      for (int i = 0; i < columnCount; i++) {
+        final int column = indirect(indirect(columns) + 4 + 4 * i);
+        columnNames[i] = string(field(column, 0));
+        columnTypes[i] = ubyte(field(column, 1), 0);
+      }
+      final int featureCountField = field(header, 8);
+      featureCount = featureCountField != 0 ? buffer.getLong(featureCountField) : 0;
+      final int nodeSizeField = field(header, 9);
+      nodeSize = nodeSizeField != 0 ? buffer.getShort(nodeSizeField) & 0xffff : 16;
+
+      indexOffset = 12 + headerSize;
+      if (nodeSize > 0 && featureCount > 0) {
+        levelBounds = levelBounds(featureCount, nodeSize);
+        nodeCount = levelBounds[0][1];
+      } else {
+        levelBounds = null;
+        nodeCount = 0;
+      }
+      featuresOffset = (int) (indexOffset + nodeCount * NODE_BYTES);
+    } catch (IOException | RuntimeException e) {
+      file.close();
+      throw e;
+    }
+  }
+
+  long getFeatureCount() {
+    return featureCount;
+  }
+
+  /**
+   * Returns the features that intersect the box as a geojson FeatureCollection, at most {@code
+   * maxFeatures} of them, and their number in {@code count[0]}.
+   */
+  String read(double west, double south, double east, double north, int maxFeatures, int[] count)
+      throws IOException {
+    final StringWriter out = new StringWriter();
+    final JsonWriter writer = new JsonWriter(out);
+    writer.beginObject();
+    writer.name("type").value("FeatureCollection");
+    writer.name("features").beginArray();
+    count[0] = 0;
+    if (levelBounds != null) {
+      search(west, south, east, north, maxFeatures, writer, count);
+    } else {
+      scan(west, south, east, north, maxFeatures, writer, count);
+    }
+    writer.endArray();
+    writer.endObject();
+    writer.flush();
+    return out.toString();
+  }
+
+  @Override
+  public void close() throws IOException {
+    file.close();
+  }
+
+  /** Walks the R-tree from the root to the leaves whose boxes intersect the box. */
+  private void search(
+      double west,
+      double south,
+      double east,
+      double north,
+      int maxFeatures,
+      JsonWriter writer,
+      int[] count)
+      throws IOException {
+    final long leafStart = nodeCount - featureCount;
+    final List<long[]> queue = new ArrayList<>();
+    queue.add(new long[] {0, levelBounds.length - 1});
+    while (!queue.isEmpty() && count[0] < maxFeatures) {
+      final long[] next = queue.remove(queue.size() - 1);
+      final long nodeIndex = next[0];
+      final int level = (int) next[1];
+      final boolean isLeaf = nodeIndex >= leafStart;
+      final long end = Math.min(nodeIndex + nodeSize, levelBounds[level][1]);
+      for (long pos = nodeIndex; pos < end; pos++) {
+        final int node = (int) (indexOffset + pos * NODE_BYTES);
+        if (buffer.getDouble(node) > east
+            || buffer.getDouble(node + 8) > north
+            || buffer.getDouble(node + 16) < west
+            || buffer.getDouble(node + 24) < south) {
+          continue;
+        }
+        final long offset = buffer.getLong(node + 32);
+        if (isLeaf) {
+          writeFeature((int) (featuresOffset + offset), writer);
+          if (++count[0] >= maxFeatures) {
+            return;
+          }
+        } else {
+          queue.add(new long[] {offset, level - 1});
+        }
+      }
+    }
+  }
+
+  /** Reads all features of a file without an index, keeping those whose box intersects. */
+  private void scan(
+      double west,
+      double south,
+      double east,
+      double north,
+      int maxFeatures,
+      JsonWriter writer,
+      int[] count)
+      throws IOException {
+    int pos = featuresOffset;
+    while (pos + 4 <= buffer.limit() && count[0] < maxFeatures) {
+      final int size = buffer.getInt(pos);
+      final int geometry = field(indirect(pos + 4), 0);
+      if (geometry != 0) {
+        final double[] bbox = {
+          Double.POSITIVE_INFINITY,
+          Double.POSITIVE_INFINITY,
+          Double.NEGATIVE_INFINITY,
+          Double.NEGATIVE_INFINITY
+        };
+        extend(bbox, indirect(geometry));
+        if (bbox[0] <= east && bbox[1] <= north && bbox[2] >= west && bbox[3] >= south) {
+          writeFeature(pos, writer);
+          count[0]++;
+        }
+      }
+      pos += 4 + size;
+    }
+  }
+
+  private void extend(double[] bbox, int geometry) {
+    final int xy = field(geometry, 1);
+    if (xy != 0) {
+      final int start = indirect(xy) + 4;
+      final int length = buffer.getInt(start - 4);
+      for (int i = 0; i + 1 < length; i += 2) {
+        final double x = buffer.getDouble(start + 8 * i);
+        final double y = buffer.getDouble(start + 8 * i + 8);
+        bbox[0] = Math.min(bbox[0], x);
+        bbox[1] = Math.min(bbox[1], y);
+        bbox[2] = Math.max(bbox[2], x);
+        bbox[3] = Math.max(bbox[3], y);
+      }
+    }
+    final int parts = field(geometry, 7);
+    if (parts != 0) {
+      final int start = indirect(parts) + 4;
+      final int length = buffer.getInt(start - 4);
+      for (int i = 0; i < length; i++) {
+        extend(bbox, indirect(start + 4 * i));
+      }
+    }
+  }
+
+  /** Writes the size prefixed feature at the position. */
+  private void writeFeature(int pos, JsonWriter writer) throws IOException {
+    final int feature = indirect(pos + 4);
+    writer.beginObject();
+    writer.name("type").value("Feature");
+    final int geometry = field(feature, 0);
+    writer.name("geometry");
+    if (geometry != 0) {
+      writeGeometry(indirect(geometry), geometryType, writer);
+    } else {
+      writer.nullValue();
+    }
+    writer.name("properties");
+    writeProperties(feature, writer);
+    writer.endObject();
+  }
+
+  private void writeGeometry(int geometry, int type, JsonWriter writer) throws IOException {
+    if (type == UNKNOWN) {
+      type = ubyte(field(geometry, 6), UNKNOWN);
+    }
+    if (type <= UNKNOWN || type > GEOMETRY_COLLECTION) {
+      writer.nullValue();
+      return;
+    }
+    writer.beginObject();
+    writer.name("type").value(GEOMETRY_NAMES[type]);
+    final int xy = field(geometry, 1);
+    final int z = field(geometry, 2);
+    final int points = xy != 0 ? buffer.getInt(indirect(xy)) / 2 : 0;
+    switch (type) {
+      case POINT:
+        writer.name("coordinates");
+        if (points > 0) {
+          writePosition(xy, z, 0, writer);
+        } else {
+          writer.beginArray().endArray();
+        }
+        break;
+      case MULTI_POINT:
+      case LINE_STRING:
+        writer.name("coordinates");
+        writePositions(xy, z, 0, points, writer);
+        break;
+      case MULTI_LINE_STRING:
+      case POLYGON:
+        writer.name("coordinates");
+        writeParts(geometry, xy, z, points, writer);
+        break;
+      case MULTI_POLYGON:
+        {
+          writer.name("coordinates").beginArray();
+          final int parts = field(geometry, 7);
+          final int length = parts != 0 ? buffer.getInt(indirect(parts)) : 0;
+          for (int i = 0; i < length; i++) {
+            final int part = indirect(indirect(parts) + 4 + 4 * i);
+            final int partXy = field(part, 1);
+            final int partPoints = partXy != 0 ? buffer.getInt(indirect(partXy)) / 2 : 0;
+            writeParts(part, partXy, field(part, 2), partPoints, writer);
+          }
+          writer.endArray();
+          break;
+        }
+      default:
+        {
+          writer.name("geometries").beginArray();
+          final int parts = field(geometry, 7);
+          final int length = parts != 0 ? buffer.getInt(indirect(parts)) : 0;
+          for (int i = 0; i < length; i++) {
+            writeGeometry(indirect(indirect(parts) + 4 + 4 * i), UNKNOWN, writer);
+          }
+          writer.endArray();
+        }
+    }
+    writer.endObject();
+  }
+
+  /** Writes the lines or rings of a geometry, split at its ends. */
+  private void writeParts(int geometry, int xy, int z, int points, JsonWriter writer)
+      throws IOException {
+    writer.beginArray();
+    final int ends = field(geometry, 0);
+    if (ends == 0) {
+      writePositions(xy, z, 0, points, writer);
+    } else {
+      final int start = indirect(ends) + 4;
+      final int length = buffer.getInt(start - 4);
+      int from = 0;
+      for (int i = 0; i < length; i++) {
+        final int to = buffer.getInt(start + 4 * i);
+        writePositions(xy, z, from, to, writer);
+        from = to;
+      }
+    }
+    writer.endArray();
+  }
+
+  private void writePositions(int xy, int z, int from, int to, JsonWriter writer)
+      throws IOException {
+    writer.beginArray();
+    for (int i = from; i < to; i++) {
+      writePosition(xy, z, i, writer);
+    }
+    writer.endArray();
+  }
+
+  private void writePosition(int xy, int z, int index, JsonWriter writer) throws IOException {
+    final int coordinates = indirect(xy) + 4;
+    writer.beginArray();
+    writeNumber(buffer.getDouble(coordinates + 16 * index), writer);
+    writeNumber(buffer.getDouble(coordinates + 16 * index + 8), writer);
+    if (z != 0) {
+      writeNumber(buffer.getDouble(indirect(z) + 4 + 8 * index), writer);
+    }
+    writer.endArray();
+  }
+
+  private void writeProperties(int feature, JsonWriter writer) throws IOException {
+    writer.beginObject();
+    final int properties = field(feature, 1);
+    if (properties == 0) {
+      writer.endObject();
+      return;
+    }
+    final int start = indirect(properties) + 4;
+    final int end = start + buffer.getInt(start - 4);
+    int pos = start;
+    while (pos + 2 <= end) {
+      final int column = buffer.getShort(pos) & 0xffff;
+      pos += 2;
+      if (column >= columnTypes.length) {
+        throw new IOException("Invalid FlatGeobuf property column " + column);
+      }
+      writer.name(columnNames[column]);
+      switch (columnTypes[column]) {
+        case 0: // Byte
+          writer.value(buffer.get(pos));
+          pos += 1;
+          break;
+        case 1: // UByte
+          writer.value(buffer.get(pos) & 0xff);
+          pos += 1;
+          break;
+        case 2: // Bool
+          writer.value(buffer.get(pos) != 0);
+          pos += 1;
+          break;
+        case 3: // Short
+          writer.value(buffer.getShort(pos));
+          pos += 2;
+          break;
+        case 4: // UShort
+          writer.value(buffer.getShort(pos) & 0xffff);
+          pos += 2;
+          break;
+        case 5: // Int
+          writer.value(buffer.getInt(pos));
+          pos += 4;
+          break;
+        case 6: // UInt
+          writer.value(buffer.getInt(pos) & 0xffffffffL);
+          pos += 4;
+          break;
+        case 7: // Long
+          writer.value(buffer.getLong(pos));
+          pos += 8;
+          break;
+        case 8: // ULong
+          writer.jsonValue(Long.toUnsignedString(buffer.getLong(pos)));
+          pos += 8;
+          break;
+        case 9: // Float
+          writeNumber(buffer.getFloat(pos), writer);
+          pos += 4;
+          break;
+        case 10: // Double
+          writeNumber(buffer.getDouble(pos), writer);
+          pos += 8;
+          break;
+        case 11: // String
+        case 13: // DateTime
+          {
+            final int length = buffer.getInt(pos);
+            writer.value(utf8(pos + 4, length));
+            pos += 4 + length;
+            break;
+          }
+        case 12: // Json
+          {
+            final int length = buffer.getInt(pos);
+            writer.jsonValue(utf8(pos + 4, length));
+            pos += 4 + length;
+            break;
+          }
+        default: // Binary
+          {
+            final int length = buffer.getInt(pos);
+            writer.nullValue();
+            pos += 4 + length;
+          }
+      }
+    }
+    writer.endObject();
+  }
+
+  /** Writes the number, or null for NaN and the infinities, which JSON cannot represent. */
+  private static void writeNumber(double value, JsonWriter writer) throws IOException {
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      writer.nullValue();
+    } else {
+      writer.value(value);
+    }
+  }
+
+  /** Returns the position of a field of a table, or 0 if it is not set. */
+  private int field(int table, int index) {
+    final int vtable = table - buffer.getInt(table);
+    final int vtableSize = buffer.getShort(vtable) & 0xffff;
+    final int entry = 4 + 2 * index;
+    if (entry >= vtableSize) {
+      return 0;
+    }
+    final int offset = buffer.getShort(vtable + entry) & 0xffff;
+    return offset != 0 ? table + offset : 0;
+  }
+
+  /** Follows the offset stored at the position. */
+  private int indirect(int pos) {
+    return pos + buffer.getInt(pos);
+  }
+
+  private int ubyte(int pos, int defaultValue) {
+    return pos != 0 ? buffer.get(pos) & 0xff : defaultValue;
+  }
+
+  private String string(int pos) {
+    if (pos == 0) {
+      return null;
+    }
+    final int start = indirect(pos);
+    return utf8(start + 4, buffer.getInt(start));
+  }
+
+  private String utf8(int pos, int length) {
+    final byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = buffer.get(pos + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns the first and end node index of each level of the tree, from the leaves up to the
+   * root. The root comes first in the file and the leaves last.
+   */
+  private static long[][] levelBounds(long itemCount, int nodeSize) {
+    final List<Long> levelNodeCounts = new ArrayList<>();
+    long n = itemCount;
+    long nodeCount = n;
+    levelNodeCounts.add(n);
+    do {
+      n = (n + nodeSize - 1) / nodeSize;
+      nodeCount += n;
+      levelNodeCounts.add(n);
+    } while (n != 1);
+
+    final long[][] bounds = new long[levelNodeCounts.size()][];
+    long offset = nodeCount;
+    for (int i = 0; i < bounds.length; i++) {
+      offset -= levelNodeCounts.get(i);
+      bounds[i] = new long[] {offset, offset + levelNodeCounts.get(i)};
+    }
+    return bounds;
+  }
+}
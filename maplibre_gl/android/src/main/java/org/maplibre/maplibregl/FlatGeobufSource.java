@@ -0,0 +1,135 @@
+package org.maplibre.maplibregl;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Feeds a geojson source with the features of a local FlatGeobuf file that intersect the viewport.
+ *
+ * <p>The file is opened and queried with a {@link FlatGeobufReader} on a worker thread, so only
+ * the features around the viewport are read and held in memory, however large the file is. At
+ * most {@code maxFeatures} features are handed to the map per query.
+ *
+ * <p>All methods must be called on the main thread.
+ */
+final class FlatGeobufSource {
+  private static final String TAG = "FlatGeobufSource";
+
+  /** How much of the viewport is added on each side, so short pans do not need a new query. */
+  private static final double VIEWPORT_PADDING = 0.25;
+
+  private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+  interface Listener {
+    void onFeatures(@NonNull String sourceId, @NonNull String geojson);
+  }
+
+  private final String sourceId;
+  private final File file;
+  private final int maxFeatures;
+  private final Listener listener;
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  // Only used on the worker thread.
+  @Nullable private FlatGeobufReader reader;
+
+  private boolean disposed = false;
+  private int generation = 0;
+
+  // The padded box the features of the last query cover, null if they were cut off.
+  @Nullable private double[] covered;
+
+  FlatGeobufSource(
+      @NonNull String sourceId, @NonNull File file, int maxFeatures, @NonNull Listener listener) {
+    this.sourceId = sourceId;
+    this.file = file;
+    this.maxFeatures = maxFeatures;
+    this.listener = listener;
+  }
+
+  /**
+   * Updates the features for the viewport, unless the features of the last query already cover
+   * it.
+   */
+  void update(double west, double south, double east, double north) {
+    final double[] covered = this.covered;
+    if (covered != null
+        && west <= east
+        && west >= covered[0]
+        && south >= covered[1]
+        && east <= covered[2]
+        && north <= covered[3]) {
+      return;
+    }
+
+    final double width = (east >= west ? east - west : east - west + 360) * VIEWPORT_PADDING;
+    final double height = (north - south) * VIEWPORT_PADDING;
+    final double[] padded = {
+      west - width, Math.max(-90, south - height), east + width, Math.min(90, north + height)
+    };
+    if (west > east || padded[0] < -180 || padded[2] > 180) {
+      // The data does not wrap around the antimeridian, read all longitudes instead.
+      padded[0] = -180;
+      padded[2] = 180;
+    }
+    final int request = ++generation;
+    this.covered = null;
+    executor.execute(
+        () -> {
+          final long start = SystemClock.elapsedRealtime();
+          final int[] count = {0};
+          final String geojson;
+          try {
+            if (reader == null) {
+              reader = new FlatGeobufReader(file);
+            }
+            geojson = reader.read(padded[0], padded[1], padded[2], padded[3], maxFeatures, count);
+          } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Could not read " + file.getName() + " for " + sourceId, e);
+            return;
+          }
+          if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(
+                TAG,
+                "Read "
+                    + count[0]
+                    + " features of "
+                    + sourceId
+                    + " in "
+                    + (SystemClock.elapsedRealtime() - start)
+                    + " ms");
+          }
+          mainHandler.post(
+              () -> {
+                if (disposed || request != generation) {
+                  return;
+                }
+                this.covered = count[0] < maxFeatures ? padded : null;
+                listener.onFeatures(sourceId, geojson);
+              });
+        });
+  }
+
+  void dispose() {
+    disposed = true;
+    executor.execute(
+        () -> {
+          if (reader != null) {
+            try {
+              reader.close();
+            } catch (IOException e) {
+              Log.w(TAG, "Could not close " + file.getName(), e);
+            }
+            reader = null;
+          }
+        });
+  }
+}
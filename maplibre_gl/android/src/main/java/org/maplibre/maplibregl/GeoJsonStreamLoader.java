@@ -0,0 +1,366 @@
+package org.maplibre.maplibregl;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Reads the features of a local {@code .geojson} or {@code .geojsonseq} file on a worker thread,
+ * and keeps those inside a bounding box whose properties match.
+ *
+ * <p>The file is read with a streaming {@link JsonReader}, and every kept feature is written
+ * straight to a compact FeatureCollection string, which the native geojson parser reads. Neither
+ * the whole file nor a Java object per feature is held in memory, only the kept features.
+ *
+ * <p>A {@code .geojson} file has to contain a FeatureCollection, a {@code .geojsonseq} file one
+ * feature per line, as specified by RFC 8142.
+ */
+abstract class GeoJsonStreamLoader {
+  private static final String TAG = "GeoJsonStreamLoader";
+  private static final char RECORD_SEPARATOR = '\u001e';
+
+  private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+  private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  interface Callback {
+    void onLoaded(@NonNull String geojson, int featureCount);
+
+    void onError(@NonNull Exception e);
+  }
+
+  static final class Filter {
+    /** The west, south, east and north bounds the features must intersect, or null. */
+    @Nullable double[] bbox;
+
+    /**
+     * The values the properties must have, or null. A list value means any of its values.
+     * Numbers are compared by value.
+     */
+    @Nullable Map<String, Object> properties;
+  }
+
+  /** Reads the file on the worker thread, and calls the callback on the main thread. */
+  static void load(@NonNull File file, @NonNull Filter filter, @NonNull Callback callback) {
+    executor.execute(
+        () -> {
+          final long start = SystemClock.elapsedRealtime();
+          try {
+            final int[] count = {0};
+            final String geojson = read(file, filter, count);
+            if (Log.isLoggable(TAG, Log.DEBUG)) {
+              Log.d(
+                  TAG,
+                  "Read "
+                      + count[0]
+                      + " features from "
+                      + file.getName()
+                      + " in "
+                      + (SystemClock.elapsedRealtime() - start)
+                      + " ms");
+            }
+            mainHandler.post(() -> callback.onLoaded(geojson, count[0]));
+          } catch (IOException | RuntimeException e) {
+            mainHandler.post(() -> callback.onError(e));
+          }
+        });
+  }
+
+  /** Returns the kept features as a FeatureCollection, and their number in {@code count[0]}. */
+  static String read(File file, Filter filter, int[] count) throws IOException {
+    final StringWriter out = new StringWriter();
+    out.write("{\"type\":\"FeatureCollection\",\"features\":[");
+    try (BufferedReader in =
+        new BufferedReader(
+            new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+      if (file.getName().endsWith(".geojsonseq")) {
+        readSequence(in, filter, out, count);
+      } else {
+        readCollection(in, filter, out, count);
+      }
+    }
+    out.write("]}");
+    return out.toString();
+  }
+
+  private static void readSequence(
+      BufferedReader in, Filter filter, StringWriter out, int[] count) throws IOException {
+    String line;
+    while ((line = in.readLine()) != null) {
+      int begin = 0;
+      while (begin < line.length()
+          && (line.charAt(begin) == RECORD_SEPARATOR
+              || Character.isWhitespace(line.charAt(begin)))) {
+        begin++;
+      }
+      if (begin == line.length()) {
+        continue;
+      }
+      final JsonReader reader = new JsonReader(new StringReader(line.substring(begin)));
+      appendFeature(reader, filter, out, count);
+    }
+  }
+
+  private static void readCollection(Reader in, Filter filter, StringWriter out, int[] count)
+      throws IOException {
+    final JsonReader reader = new JsonReader(in);
+    boolean hasFeatures = false;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      if (reader.nextName().equals("features")) {
+        hasFeatures = true;
+        reader.beginArray();
+        while (reader.hasNext()) {
+          appendFeature(reader, filter, out, count);
+        }
+        reader.endArray();
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    if (!hasFeatures) {
+      throw new IOException("The file does not contain a FeatureCollection");
+    }
+  }
+
+  /** Copies the feature the reader is at to the output, if it passes the filter. */
+  private static void appendFeature(
+      JsonReader reader, Filter filter, StringWriter out, int[] count) throws IOException {
+    final StringWriter feature = new StringWriter();
+    final JsonWriter writer = new JsonWriter(feature);
+    final double[] bbox = {
+      Double.POSITIVE_INFINITY,
+      Double.POSITIVE_INFINITY,
+      Double.NEGATIVE_INFINITY,
+      Double.NEGATIVE_INFINITY
+    };
+    final int[] matched = {0};
+
+    writer.beginObject();
+    writer.name("type").value("Feature");
+    reader.beginObject();
+    while (reader.hasNext()) {
+      final String name = reader.nextName();
+      switch (name) {
+        case "type":
+          reader.skipValue();
+          break;
+        case "geometry":
+          writer.name(name);
+          copyGeometry(reader, writer, bbox);
+          break;
+        case "properties":
+          writer.name(name);
+          copyProperties(reader, writer, filter.properties, matched);
+          break;
+        default:
+          writer.name(name);
+          copy(reader, writer);
+      }
+    }
+    reader.endObject();
+    writer.endObject();
+    writer.flush();
+
+    if (filter.properties != null && matched[0] < filter.properties.size()) {
+      return;
+    }
+    if (filter.bbox != null
+        && (bbox[0] > filter.bbox[2]
+            || bbox[1] > filter.bbox[3]
+            || bbox[2] < filter.bbox[0]
+            || bbox[3] < filter.bbox[1])) {
+      return;
+    }
+    if (count[0] > 0) {
+      out.write(',');
+    }
+    out.write(feature.toString());
+    count[0]++;
+  }
+
+  private static void copyGeometry(JsonReader reader, JsonWriter writer, double[] bbox)
+      throws IOException {
+    if (reader.peek() == JsonToken.NULL) {
+      reader.nextNull();
+      writer.nullValue();
+      return;
+    }
+    reader.beginObject();
+    writer.beginObject();
+    while (reader.hasNext()) {
+      final String name = reader.nextName();
+      writer.name(name);
+      if (name.equals("coordinates")) {
+        copyCoordinates(reader, writer, bbox);
+      } else if (name.equals("geometries") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+        reader.beginArray();
+        writer.beginArray();
+        while (reader.hasNext()) {
+          copyGeometry(reader, writer, bbox);
+        }
+        reader.endArray();
+        writer.endArray();
+      } else {
+        copy(reader, writer);
+      }
+    }
+    reader.endObject();
+    writer.endObject();
+  }
+
+  /** Copies nested coordinate arrays, extending the bounding box by every position. */
+  private static void copyCoordinates(JsonReader reader, JsonWriter writer, double[] bbox)
+      throws IOException {
+    if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+      copy(reader, writer);
+      return;
+    }
+    reader.beginArray();
+    writer.beginArray();
+    if (reader.hasNext() && reader.peek() == JsonToken.NUMBER) {
+      // The numbers are copied as they are, formatting them again is slower than parsing them.
+      final String lngText = reader.nextString();
+      final String latText = reader.nextString();
+      writer.jsonValue(lngText);
+      writer.jsonValue(latText);
+      final double lng = Double.parseDouble(lngText);
+      final double lat = Double.parseDouble(latText);
+      bbox[0] = Math.min(bbox[0], lng);
+      bbox[1] = Math.min(bbox[1], lat);
+      bbox[2] = Math.max(bbox[2], lng);
+      bbox[3] = Math.max(bbox[3], lat);
+      while (reader.hasNext()) {
+        copy(reader, writer);
+      }
+    } else {
+      while (reader.hasNext()) {
+        copyCoordinates(reader, writer, bbox);
+      }
+    }
+    reader.endArray();
+    writer.endArray();
+  }
+
+  /** Copies the properties, counting those that have one of the expected values. */
+  private static void copyProperties(
+      JsonReader reader,
+      JsonWriter writer,
+      @Nullable Map<String, Object> expected,
+      int[] matched)
+      throws IOException {
+    if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+      copy(reader, writer);
+      return;
+    }
+    reader.beginObject();
+    writer.beginObject();
+    while (reader.hasNext()) {
+      final String name = reader.nextName();
+      writer.name(name);
+      final Object expectedValue = expected != null ? expected.get(name) : null;
+      if (expectedValue == null) {
+        copy(reader, writer);
+        continue;
+      }
+      final Object value;
+      switch (reader.peek()) {
+        case STRING:
+          value = reader.nextString();
+          writer.value((String) value);
+          break;
+        case NUMBER:
+          final String number = reader.nextString();
+          writer.jsonValue(number);
+          value = Double.parseDouble(number);
+          break;
+        case BOOLEAN:
+          value = reader.nextBoolean();
+          writer.value((Boolean) value);
+          break;
+        default:
+          copy(reader, writer);
+          continue;
+      }
+      if (matches(value, expectedValue)) {
+        matched[0]++;
+      }
+    }
+    reader.endObject();
+    writer.endObject();
+  }
+
+  private static boolean matches(Object value, Object expected) {
+    if (expected instanceof List) {
+      for (Object item : (List<?>) expected) {
+        if (matches(value, item)) {
+          return true;
+        }
+      }
+      return false;
+    }
+    if (value instanceof Double && expected instanceof Number) {
+      return (Double) value == ((Number) expected).doubleValue();
+    }
+    return value.equals(expected);
+  }
+
+  /** Copies the value the reader is at. */
+  private static void copy(JsonReader reader, JsonWriter writer) throws IOException {
+    switch (reader.peek()) {
+      case BEGIN_ARRAY:
+        reader.beginArray();
+        writer.beginArray();
+        while (reader.hasNext()) {
+          copy(reader, writer);
+        }
+        reader.endArray();
+        writer.endArray();
+        break;
+      case BEGIN_OBJECT:
+        reader.beginObject();
+        writer.beginObject();
+        while (reader.hasNext()) {
+          writer.name(reader.nextName());
+          copy(reader, writer);
+        }
+        reader.endObject();
+        writer.endObject();
+        break;
+      case STRING:
+        writer.value(reader.nextString());
+        break;
+      case NUMBER:
+        writer.jsonValue(reader.nextString());
+        break;
+      case BOOLEAN:
+        writer.value(reader.nextBoolean());
+        break;
+      case NULL:
+        reader.nextNull();
+        writer.nullValue();
+        break;
+      default:
+        reader.skipValue();
+    }
+  }
+}
@@ -0,0 +1,425 @@
+package org.maplibre.maplibregl;
+
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.maplibre.android.geometry.LatLngBounds;
+import org.maplibre.android.style.sources.GeometryTileProvider;
+import org.maplibre.geojson.Feature;
+import org.maplibre.geojson.FeatureCollection;
+import org.maplibre.geojson.Geometry;
+import org.maplibre.geojson.GeometryCollection;
+import org.maplibre.geojson.LineString;
+import org.maplibre.geojson.MultiLineString;
+import org.maplibre.geojson.MultiPoint;
+import org.maplibre.geojson.MultiPolygon;
+import org.maplibre.geojson.Point;
+import org.maplibre.geojson.Polygon;
+
+/**
+ * Serves the features of a large geojson dataset to a {@code CustomGeometrySource}, which asks
+ * for the features of each tile on its own worker threads and tiles them natively.
+ *
+ * <p>The bounding box of every feature is kept in a grid of cells, so a tile only looks at the
+ * features of the cells it overlaps. Features larger than {@link #MAX_CELLS_PER_FEATURE} cells are
+ * checked for every tile instead. Features can be replaced and removed by id, each update returns
+ * the region whose tiles have to be invalidated.
+ *
+ * <p>A tile gets the features within its buffer too, so features crossing its edge are clipped
+ * the same way in the neighbouring tiles. The invalidated tiles are extended by the buffer as well.
+ *
+ * <p>Tiles may be requested concurrently with each other, updates wait for them to finish. The
+ * features are parsed and indexed on a worker thread shared by all indexes.
+ */
+final class GeoJsonTileIndex implements GeometryTileProvider {
+  private static final double CELL_DEGREES = 0.25;
+  private static final int MAX_CELLS_PER_FEATURE = 64;
+  private static final double TILE_SIZE = 512;
+
+  /** Zoom levels with more invalidated tiles invalidate the buffered region instead. */
+  private static final int MAX_INVALIDATED_TILES = 64;
+
+  private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+  private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  interface Callback {
+    /** Called with the region whose tiles have to be invalidated, or null if nothing changed. */
+    void onUpdated(@Nullable double[] region);
+
+    void onError(@NonNull Exception e);
+  }
+
+  /** Receives the tiles to reload after an update. */
+  interface Invalidator {
+    void invalidateTile(int zoom, int x, int y);
+
+    void invalidateRegion(double west, double south, double east, double north);
+  }
+
+  private final int minZoom;
+  private final int maxZoom;
+
+  /** The buffer around each tile, as a fraction of the tile size. */
+  private final double buffer;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<String, Integer> slotsById = new HashMap<>();
+  private final Map<Long, IntArray> cells = new HashMap<>();
+  private final IntArray largeSlots = new IntArray();
+  private final IntArray freeSlots = new IntArray();
+  private Feature[] features = new Feature[16];
+  private double[] bboxes = new double[16 * 4];
+  private int slotCount = 0;
+
+  /** Creates an index for the zoom levels and the tile buffer, in pixels, of the source. */
+  GeoJsonTileIndex(int minZoom, int maxZoom, int buffer) {
+    this.minZoom = minZoom;
+    this.maxZoom = maxZoom;
+    this.buffer = buffer / TILE_SIZE;
+  }
+
+  /**
+   * Parses the features and updates the index on the worker thread, then calls back on the main
+   * thread. Updates are applied in the order they were requested.
+   */
+  void update(
+      @Nullable String geojson, @Nullable List<String> removedIds, @NonNull Callback callback) {
+    executor.execute(
+        () -> {
+          final double[] region;
+          try {
+            region =
+                update(geojson != null ? FeatureCollection.fromJson(geojson) : null, removedIds);
+          } catch (RuntimeException e) {
+            mainHandler.post(() -> callback.onError(e));
+            return;
+          }
+          mainHandler.post(() -> callback.onUpdated(region));
+        });
+  }
+
+  /**
+   * Adds or replaces the features with the same ids, and removes the features with the given
+   * ids. Features without an id are added, and cannot be replaced or removed later.
+   *
+   * @return the region covered by the old and new features, as west, south, east and north, or
+   *     null if nothing changed
+   */
+  @Nullable
+  double[] update(@Nullable FeatureCollection collection, @Nullable List<String> removedIds) {
+    final double[] region = {
+      Double.POSITIVE_INFINITY,
+      Double.POSITIVE_INFINITY,
+      Double.NEGATIVE_INFINITY,
+      Double.NEGATIVE_INFINITY
+    };
+    lock.writeLock().lock();
+    try {
+      if (removedIds != null) {
+        for (String id : removedIds) {
+          remove(id, region);
+        }
+      }
+      final List<Feature> added = collection != null ? collection.features() : null;
+      if (added != null) {
+        for (Feature feature : added) {
+          final String id = feature.id();
+          if (id != null) {
+            remove(id, region);
+          }
+          add(id, feature, region);
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+    return region[0] <= region[2] ? region : null;
+  }
+
+  int size() {
+    lock.readLock().lock();
+    try {
+      return slotCount - freeSlots.size;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Invalidates the tiles whose buffers overlap the region. The buffers of the low zoom levels
+   * reach far beyond the region, so their tiles are invalidated one by one. From the first zoom
+   * level with more than {@link #MAX_INVALIDATED_TILES} tiles on, the region extended by the buffer
+   * of that level is invalidated instead, which covers the tiles of all higher levels.
+   */
+  void invalidate(@NonNull double[] region, @NonNull Invalidator invalidator) {
+    for (int z = minZoom; z <= maxZoom; z++) {
+      final int minX = TileCover.clampTile(TileCover.lonToTileX(region[0], z) - buffer, z);
+      final int maxX = TileCover.clampTile(TileCover.lonToTileX(region[2], z) + buffer, z);
+      final int minY = TileCover.clampTile(TileCover.latToTileY(region[3], z) - buffer, z);
+      final int maxY = TileCover.clampTile(TileCover.latToTileY(region[1], z) + buffer, z);
+      if ((long) (maxX - minX + 1) * (maxY - minY + 1) > MAX_INVALIDATED_TILES) {
+        final double[] padded = pad(region[0], region[1], region[2], region[3], z);
+        invalidator.invalidateRegion(padded[0], padded[1], padded[2], padded[3]);
+        return;
+      }
+      for (int x = minX; x <= maxX; x++) {
+        for (int y = minY; y <= maxY; y++) {
+          invalidator.invalidateTile(z, x, y);
+        }
+      }
+    }
+  }
+
+  @Override
+  public FeatureCollection getFeaturesForBounds(@NonNull LatLngBounds bounds, int zoomLevel) {
+    return FeatureCollection.fromFeatures(
+        query(
+            bounds.getLonWest(),
+            bounds.getLatSouth(),
+            bounds.getLonEast(),
+            bounds.getLatNorth(),
+            zoomLevel));
+  }
+
+  /** Returns the features of the tile bounds at the zoom level, including its buffer. */
+  List<Feature> query(double west, double south, double east, double north, int zoom) {
+    final double[] padded = pad(west, south, east, north, zoom);
+    west = padded[0];
+    south = padded[1];
+    east = padded[2];
+    north = padded[3];
+    final List<Feature> result = new ArrayList<>();
+
+    lock.readLock().lock();
+    try {
+      final int minX = cell(west);
+      final int minY = cell(south);
+      final int maxX = cell(east);
+      final int maxY = cell(north);
+      final long cellCount = (long) (maxX - minX + 1) * (maxY - minY + 1);
+
+      if (cellCount > slotCount - freeSlots.size) {
+        // Looking up the cells would take longer than checking every feature.
+        for (int slot = 0; slot < slotCount; slot++) {
+          if (features[slot] != null && intersects(slot, west, south, east, north)) {
+            result.add(features[slot]);
+          }
+        }
+        return result;
+      }
+
+      for (int x = minX; x <= maxX; x++) {
+        for (int y = minY; y <= maxY; y++) {
+          final IntArray slots = cells.get(key(x, y));
+          if (slots == null) {
+            continue;
+          }
+          for (int i = 0; i < slots.size; i++) {
+            final int slot = slots.values[i];
+            // A feature is in all cells its box overlaps, only report it in the first of them
+            // that the bounds overlap too.
+            if (x == Math.max(minX, cell(bboxes[slot * 4]))
+                && y == Math.max(minY, cell(bboxes[slot * 4 + 1]))
+                && intersects(slot, west, south, east, north)) {
+              result.add(features[slot]);
+            }
+          }
+        }
+      }
+      for (int i = 0; i < largeSlots.size; i++) {
+        final int slot = largeSlots.values[i];
+        if (intersects(slot, west, south, east, north)) {
+          result.add(features[slot]);
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    return result;
+  }
+
+  /** Returns the bounds extended by the buffer of a tile at the zoom level. */
+  private double[] pad(double west, double south, double east, double north, int zoom) {
+    final double lonBuffer = buffer * 360.0 / (1 << zoom);
+    return new double[] {
+      west - lonBuffer,
+      TileCover.tileYToLat(TileCover.latToTileY(south, zoom) + buffer, zoom),
+      east + lonBuffer,
+      TileCover.tileYToLat(TileCover.latToTileY(north, zoom) - buffer, zoom)
+    };
+  }
+
+  private void add(@Nullable String id, Feature feature, double[] region) {
+    final double[] bbox = {
+      Double.POSITIVE_INFINITY,
+      Double.POSITIVE_INFINITY,
+      Double.NEGATIVE_INFINITY,
+      Double.NEGATIVE_INFINITY
+    };
+    extend(bbox, feature.geometry());
+    if (bbox[0] > bbox[2]) {
+      return;
+    }
+
+    final int slot;
+    if (freeSlots.size > 0) {
+      slot = freeSlots.values[--freeSlots.size];
+    } else {
+      if (slotCount == features.length) {
+        features = Arrays.copyOf(features, slotCount * 2);
+        bboxes = Arrays.copyOf(bboxes, slotCount * 2 * 4);
+      }
+      slot = slotCount++;
+    }
+    features[slot] = feature;
+    System.arraycopy(bbox, 0, bboxes, slot * 4, 4);
+    if (id != null) {
+      slotsById.put(id, slot);
+    }
+    forEachCell(slot, true);
+    extendRegion(region, slot);
+  }
+
+  private void remove(String id, double[] region) {
+    final Integer slot = slotsById.remove(id);
+    if (slot == null) {
+      return;
+    }
+    extendRegion(region, slot);
+    forEachCell(slot, false);
+    features[slot] = null;
+    freeSlots.add(slot);
+  }
+
+  /** Adds the slot to or removes it from the cells its box overlaps. */
+  private void forEachCell(int slot, boolean add) {
+    final int minX = cell(bboxes[slot * 4]);
+    final int minY = cell(bboxes[slot * 4 + 1]);
+    final int maxX = cell(bboxes[slot * 4 + 2]);
+    final int maxY = cell(bboxes[slot * 4 + 3]);
+    if ((long) (maxX - minX + 1) * (maxY - minY + 1) > MAX_CELLS_PER_FEATURE) {
+      if (add) {
+        largeSlots.add(slot);
+      } else {
+        largeSlots.remove(slot);
+      }
+      return;
+    }
+    for (int x = minX; x <= maxX; x++) {
+      for (int y = minY; y <= maxY; y++) {
+        final long key = key(x, y);
+        IntArray slots = cells.get(key);
+        if (add) {
+          if (slots == null) {
+            slots = new IntArray();
+            cells.put(key, slots);
+          }
+          slots.add(slot);
+        } else if (slots != null) {
+          slots.remove(slot);
+          if (slots.size == 0) {
+            cells.remove(key);
+          }
+        }
+      }
+    }
+  }
+
+  private boolean intersects(int slot, double west, double south, double east, double north) {
+    final int k = slot * 4;
+    return bboxes[k] <= east
+        && bboxes[k + 1] <= north
+        && bboxes[k + 2] >= west
+        && bboxes[k + 3] >= south;
+  }
+
+  private void extendRegion(double[] region, int slot) {
+    final int k = slot * 4;
+    region[0] = Math.min(region[0], bboxes[k]);
+    region[1] = Math.min(region[1], bboxes[k + 1]);
+    region[2] = Math.max(region[2], bboxes[k + 2]);
+    region[3] = Math.max(region[3], bboxes[k + 3]);
+  }
+
+  private static void extend(double[] bbox, @Nullable Geometry geometry) {
+    if (geometry instanceof Point) {
+      extend(bbox, (Point) geometry);
+    } else if (geometry instanceof MultiPoint) {
+      extendAll(bbox, ((MultiPoint) geometry).coordinates());
+    } else if (geometry instanceof LineString) {
+      extendAll(bbox, ((LineString) geometry).coordinates());
+    } else if (geometry instanceof MultiLineString) {
+      for (List<Point> line : ((MultiLineString) geometry).coordinates()) {
+        extendAll(bbox, line);
+      }
+    } else if (geometry instanceof Polygon) {
+      // The outer ring contains the holes.
+      final List<List<Point>> rings = ((Polygon) geometry).coordinates();
+      if (!rings.isEmpty()) {
+        extendAll(bbox, rings.get(0));
+      }
+    } else if (geometry instanceof MultiPolygon) {
+      for (List<List<Point>> rings : ((MultiPolygon) geometry).coordinates()) {
+        if (!rings.isEmpty()) {
+          extendAll(bbox, rings.get(0));
+        }
+      }
+    } else if (geometry instanceof GeometryCollection) {
+      for (Geometry child : ((GeometryCollection) geometry).geometries()) {
+        extend(bbox, child);
+      }
+    }
+  }
+
+  private static void extendAll(double[] bbox, List<Point> points) {
+    for (Point point : points) {
+      extend(bbox, point);
+    }
+  }
+
+  private static void extend(double[] bbox, Point point) {
+    bbox[0] = Math.min(bbox[0], point.longitude());
+    bbox[1] = Math.min(bbox[1], point.latitude());
+    bbox[2] = Math.max(bbox[2], point.longitude());
+    bbox[3] = Math.max(bbox[3], point.latitude());
+  }
+
+  private static int cell(double degrees) {
+    return (int) Math.floor(degrees / CELL_DEGREES);
+  }
+
+  private static long key(int x, int y) {
+    return ((long) x << 32) | (y & 0xffffffffL);
+  }
+
+  private static final class IntArray {
+    int[] values = new int[4];
+    int size;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    void remove(int value) {
+      for (int i = 0; i < size; i++) {
+        if (values[i] == value) {
+          values[i] = values[--size];
+          return;
+        }
+      }
+    }
+  }
+}
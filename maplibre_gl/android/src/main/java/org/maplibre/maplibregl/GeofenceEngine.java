@@ -0,0 +1,313 @@
+package org.maplibre.maplibregl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracks which of a set of polygonal zones contain the user location and reports the transitions.
+ *
+ * <p>Zones are indexed in a uniform latitude/longitude grid, so a fix is only tested against the
+ * zones registered in its cell whose bounding box contains it, followed by an even-odd test over
+ * all rings of the zone. To avoid flapping at the edges, a zone is only entered or left once the
+ * fix is at least the hysteresis distance inside or outside of it. Zones with a dwell time also
+ * report a dwell transition once the user stayed inside for that long.
+ *
+ * <p>The engine has no Android dependencies and is not thread-safe.
+ */
+final class GeofenceEngine {
+  static final int ENTER = 0;
+  static final int EXIT = 1;
+  static final int DWELL = 2;
+
+  /** Size of the grid cells, in degrees. */
+  private static final double CELL_DEGREES = 0.02;
+
+  /** Zones spanning more grid cells are tested on every fix instead. */
+  private static final int MAX_CELLS_PER_ZONE = 256;
+
+  private static final double METERS_PER_DEGREE = 111320.0;
+
+  interface Listener {
+    void onTransition(String id, int transition);
+  }
+
+  private static final class Zone {
+    final String id;
+
+    /** Rings as flat latitude/longitude pairs, the first one being the outer ring. */
+    final double[][] rings;
+
+    final long dwellMillis;
+    double south = Double.POSITIVE_INFINITY;
+    double west = Double.POSITIVE_INFINITY;
+    double north = Double.NEGATIVE_INFINITY;
+    double east = Double.NEGATIVE_INFINITY;
+
+    /** Bounding box extended by the hysteresis distance, in degrees. */
+    double latMargin;
+
+    double lonMargin;
+    boolean inside;
+    boolean dwelled;
+    long enteredAt;
+    long lastSeen = -1;
+
+    Zone(String id, double[][] rings, long dwellMillis) {
+      this.id = id;
+      this.rings = rings;
+      this.dwellMillis = dwellMillis;
+      for (double[] ring : rings) {
+        for (int i = 0; i + 1 < ring.length; i += 2) {
+          south = Math.min(south, ring[i]);
+          north = Math.max(north, ring[i]);
+          west = Math.min(west, ring[i + 1]);
+          east = Math.max(east, ring[i + 1]);
+        }
+      }
+    }
+
+    boolean nearBounds(double lat, double lon) {
+      return lat >= south - latMargin
+          && lat <= north + latMargin
+          && lon >= west - lonMargin
+          && lon <= east + lonMargin;
+    }
+  }
+
+  private final Map<String, Zone> zones = new LinkedHashMap<>();
+  private final Map<Long, List<Zone>> grid = new HashMap<>();
+  private final List<Zone> largeZones = new ArrayList<>();
+  private final List<Zone> insideZones = new ArrayList<>();
+  private double hysteresisMeters = 0;
+  private double maxAccuracyMeters = 0;
+  private long updateCount = 0;
+
+  /**
+   * Sets the distance a fix has to be inside or outside of a zone to enter or leave it, and the
+   * horizontal accuracy above which fixes are ignored, or 0 to accept all fixes.
+   */
+  void setOptions(double hysteresisMeters, double maxAccuracyMeters) {
+    this.maxAccuracyMeters = Math.max(0, maxAccuracyMeters);
+    if (this.hysteresisMeters == Math.max(0, hysteresisMeters)) {
+      return;
+    }
+    this.hysteresisMeters = Math.max(0, hysteresisMeters);
+    grid.clear();
+    largeZones.clear();
+    for (Zone zone : zones.values()) {
+      index(zone);
+    }
+  }
+
+  /**
+   * Adds a zone, replacing any zone with the same id without reporting a transition.
+   *
+   * @param rings flat latitude/longitude pairs per ring, the first one being the outer ring
+   * @param dwellMillis the time after entering until a dwell transition is reported, or 0
+   */
+  void add(String id, double[][] rings, long dwellMillis) {
+    remove(id);
+    final Zone zone = new Zone(id, rings, dwellMillis);
+    if (zone.south > zone.north) {
+      throw new IllegalArgumentException("Geofence " + id + " has no coordinates");
+    }
+    zones.put(id, zone);
+    index(zone);
+  }
+
+  /** Removes a zone without reporting a transition. Returns whether the zone existed. */
+  boolean remove(String id) {
+    final Zone zone = zones.remove(id);
+    if (zone == null) {
+      return false;
+    }
+    insideZones.remove(zone);
+    if (!largeZones.remove(zone)) {
+      forEachCell(
+          zone,
+          key -> {
+            final List<Zone> cell = grid.get(key);
+            if (cell != null) {
+              cell.remove(zone);
+              if (cell.isEmpty()) {
+                grid.remove(key);
+              }
+            }
+          });
+    }
+    return true;
+  }
+
+  void clear() {
+    zones.clear();
+    grid.clear();
+    largeZones.clear();
+    insideZones.clear();
+  }
+
+  int size() {
+    return zones.size();
+  }
+
+  /** Updates the zone states with a fix and reports the resulting transitions to the listener. */
+  void update(double lat, double lon, float accuracy, long time, Listener listener) {
+    if (maxAccuracyMeters > 0 && accuracy > maxAccuracyMeters) {
+      return;
+    }
+    final long update = ++updateCount;
+
+    final List<Zone> cell = grid.get(cellKey(cellRow(lat), cellColumn(lon)));
+    if (cell != null) {
+      for (Zone zone : cell) {
+        test(zone, lat, lon, time, update, listener);
+      }
+    }
+    for (Zone zone : largeZones) {
+      test(zone, lat, lon, time, update, listener);
+    }
+
+    // Zones not near the fix are at least the hysteresis distance away.
+    final Iterator<Zone> iterator = insideZones.iterator();
+    while (iterator.hasNext()) {
+      final Zone zone = iterator.next();
+      if (zone.lastSeen != update) {
+        zone.inside = false;
+        iterator.remove();
+        listener.onTransition(zone.id, EXIT);
+      }
+    }
+  }
+
+  private void test(Zone zone, double lat, double lon, long time, long update, Listener listener) {
+    if (!zone.nearBounds(lat, lon)) {
+      return;
+    }
+    zone.lastSeen = update;
+    final boolean contained =
+        lat >= zone.south
+            && lat <= zone.north
+            && lon >= zone.west
+            && lon <= zone.east
+            && contains(zone.rings, lat, lon);
+    if (contained != zone.inside
+        && (hysteresisMeters == 0 || distanceToEdge(zone.rings, lat, lon) >= hysteresisMeters)) {
+      zone.inside = contained;
+      if (contained) {
+        zone.enteredAt = time;
+        zone.dwelled = false;
+        insideZones.add(zone);
+        listener.onTransition(zone.id, ENTER);
+      } else {
+        insideZones.remove(zone);
+        listener.onTransition(zone.id, EXIT);
+        return;
+      }
+    }
+    if (zone.inside
+        && !zone.dwelled
+        && zone.dwellMillis > 0
+        && time - zone.enteredAt >= zone.dwellMillis) {
+      zone.dwelled = true;
+      listener.onTransition(zone.id, DWELL);
+    }
+  }
+
+  private void index(Zone zone) {
+    zone.latMargin = hysteresisMeters / METERS_PER_DEGREE;
+    final double maxLat = Math.min(89, Math.max(Math.abs(zone.south), Math.abs(zone.north)));
+    zone.lonMargin = zone.latMargin / Math.cos(Math.toRadians(maxLat));
+    final long rows = cellRow(zone.north + zone.latMargin) - cellRow(zone.south - zone.latMargin);
+    final long columns =
+        cellColumn(zone.east + zone.lonMargin) - cellColumn(zone.west - zone.lonMargin);
+    if ((rows + 1) * (columns + 1) > MAX_CELLS_PER_ZONE) {
+      largeZones.add(zone);
+      return;
+    }
+    forEachCell(
+        zone,
+        key -> {
+          List<Zone> cell = grid.get(key);
+          if (cell == null) {
+            cell = new ArrayList<>(2);
+            grid.put(key, cell);
+          }
+          cell.add(zone);
+        });
+  }
+
+  private interface CellVisitor {
+    void visit(long key);
+  }
+
+  private static void forEachCell(Zone zone, CellVisitor visitor) {
+    final int row0 = cellRow(zone.south - zone.latMargin);
+    final int row1 = cellRow(zone.north + zone.latMargin);
+    final int column0 = cellColumn(zone.west - zone.lonMargin);
+    final int column1 = cellColumn(zone.east + zone.lonMargin);
+    for (int row = row0; row <= row1; row++) {
+      for (int column = column0; column <= column1; column++) {
+        visitor.visit(cellKey(row, column));
+      }
+    }
+  }
+
+  private static int cellRow(double lat) {
+    return (int) Math.floor(lat / CELL_DEGREES);
+  }
+
+  private static int cellColumn(double lon) {
+    return (int) Math.floor(lon / CELL_DEGREES);
+  }
+
+  private static long cellKey(int row, int column) {
+    return ((long) row << 32) | (column & 0xffffffffL);
+  }
+
+  /** Even-odd test over all rings, so holes are excluded. */
+  static boolean contains(double[][] rings, double lat, double lon) {
+    boolean inside = false;
+    for (double[] ring : rings) {
+      final int count = ring.length / 2;
+      for (int i = 0, j = count - 1; i < count; j = i++) {
+        final double latI = ring[2 * i];
+        final double lonI = ring[2 * i + 1];
+        final double latJ = ring[2 * j];
+        final double lonJ = ring[2 * j + 1];
+        if ((latI > lat) != (latJ > lat)
+            && lon < (lonJ - lonI) * (lat - latI) / (latJ - latI) + lonI) {
+          inside = !inside;
+        }
+      }
+    }
+    return inside;
+  }
+
+  /** Returns the distance in meters to the closest ring edge, in a local planar projection. */
+  static double distanceToEdge(double[][] rings, double lat, double lon) {
+    final double ky = METERS_PER_DEGREE;
+    final double kx = METERS_PER_DEGREE * Math.cos(Math.toRadians(lat));
+    double min = Double.POSITIVE_INFINITY;
+    for (double[] ring : rings) {
+      final int count = ring.length / 2;
+      for (int i = 0, j = count - 1; i < count; j = i++) {
+        final double ax = (ring[2 * j + 1] - lon) * kx;
+        final double ay = (ring[2 * j] - lat) * ky;
+        final double bx = (ring[2 * i + 1] - lon) * kx;
+        final double by = (ring[2 * i] - lat) * ky;
+        final double dx = bx - ax;
+        final double dy = by - ay;
+        final double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared > 0 ? -(ax * dx + ay * dy) / lengthSquared : 0;
+        t = Math.max(0, Math.min(1, t));
+        final double px = ax + t * dx;
+        final double py = ay + t * dy;
+        min = Math.min(min, px * px + py * py);
+      }
+    }
+    return Math.sqrt(min);
+  }
+}
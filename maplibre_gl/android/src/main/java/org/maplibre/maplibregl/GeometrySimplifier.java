@@ -0,0 +1,256 @@
+package org.maplibre.maplibregl;
+
+import androidx.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import org.maplibre.geojson.Feature;
+import org.maplibre.geojson.FeatureCollection;
+import org.maplibre.geojson.Geometry;
+import org.maplibre.geojson.GeometryCollection;
+import org.maplibre.geojson.LineString;
+import org.maplibre.geojson.MultiLineString;
+import org.maplibre.geojson.MultiPolygon;
+import org.maplibre.geojson.Point;
+import org.maplibre.geojson.Polygon;
+
+/**
+ * Simplifies lines and polygons with the Douglas-Peucker algorithm.
+ *
+ * <p>The tolerance is given in pixels of a 512 pixel tile at a zoom level, and distances are
+ * measured in Web Mercator, so a simplified copy looks the same as the original at that zoom level
+ * and below. The kept vertices are the original {@link Point} instances. Polygon rings that
+ * collapse to less than four vertices are dropped, as are polygons whose outer ring collapses and
+ * lines with less than two vertices.
+ */
+abstract class GeometrySimplifier {
+  private static final double TILE_SIZE = 512;
+
+  /** Returns a copy of the features simplified for the zoom level. */
+  static FeatureCollection simplify(FeatureCollection collection, double tolerance, double zoom) {
+    final double worldTolerance = tolerance / (TILE_SIZE * Math.pow(2, zoom));
+    final double sqTolerance = worldTolerance * worldTolerance;
+    final List<Feature> features = collection.features();
+    final List<Feature> simplified = new ArrayList<>(features != null ? features.size() : 0);
+    if (features != null) {
+      for (Feature feature : features) {
+        final Geometry geometry = simplify(feature.geometry(), sqTolerance);
+        if (geometry == feature.geometry()) {
+          simplified.add(feature);
+        } else if (geometry != null) {
+          simplified.add(
+              Feature.fromGeometry(geometry, feature.properties(), feature.id(), feature.bbox()));
+        }
+      }
+    }
+    return FeatureCollection.fromFeatures(simplified);
+  }
+
+  /** Counts the vertices of the lines and polygons of the features. */
+  static long countVertices(FeatureCollection collection) {
+    long count = 0;
+    final List<Feature> features = collection.features();
+    if (features != null) {
+      for (Feature feature : features) {
+        count += countVertices(feature.geometry());
+      }
+    }
+    return count;
+  }
+
+  /** Returns the simplified geometry, the same geometry if nothing changed, or null. */
+  @Nullable
+  private static Geometry simplify(@Nullable Geometry geometry, double sqTolerance) {
+    if (geometry instanceof LineString) {
+      final List<Point> line = ((LineString) geometry).coordinates();
+      final List<Point> simplified = simplify(line, sqTolerance, 2);
+      if (simplified == line) {
+        return geometry;
+      }
+      return simplified == null ? null : LineString.fromLngLats(simplified);
+    }
+    if (geometry instanceof MultiLineString) {
+      final List<List<Point>> lines = ((MultiLineString) geometry).coordinates();
+      final List<List<Point>> simplified = simplifyAll(lines, sqTolerance, 2, false);
+      if (simplified == lines) {
+        return geometry;
+      }
+      return simplified.isEmpty() ? null : MultiLineString.fromLngLats(simplified);
+    }
+    if (geometry instanceof Polygon) {
+      final List<List<Point>> rings = ((Polygon) geometry).coordinates();
+      final List<List<Point>> simplified = simplifyAll(rings, sqTolerance, 4, true);
+      if (simplified == rings) {
+        return geometry;
+      }
+      return simplified.isEmpty() ? null : Polygon.fromLngLats(simplified);
+    }
+    if (geometry instanceof MultiPolygon) {
+      final List<List<List<Point>>> polygons = ((MultiPolygon) geometry).coordinates();
+      final List<List<List<Point>>> simplified = new ArrayList<>(polygons.size());
+      boolean changed = false;
+      for (List<List<Point>> rings : polygons) {
+        final List<List<Point>> simplifiedRings = simplifyAll(rings, sqTolerance, 4, true);
+        changed |= simplifiedRings != rings;
+        if (!simplifiedRings.isEmpty()) {
+          simplified.add(simplifiedRings);
+        }
+      }
+      if (!changed) {
+        return geometry;
+      }
+      return simplified.isEmpty() ? null : MultiPolygon.fromLngLats(simplified);
+    }
+    if (geometry instanceof GeometryCollection) {
+      final List<Geometry> geometries = ((GeometryCollection) geometry).geometries();
+      final List<Geometry> simplified = new ArrayList<>(geometries.size());
+      boolean changed = false;
+      for (Geometry child : geometries) {
+        final Geometry simplifiedChild = simplify(child, sqTolerance);
+        changed |= simplifiedChild != child;
+        if (simplifiedChild != null) {
+          simplified.add(simplifiedChild);
+        }
+      }
+      if (!changed) {
+        return geometry;
+      }
+      return simplified.isEmpty() ? null : GeometryCollection.fromGeometries(simplified);
+    }
+    return geometry;
+  }
+
+  /**
+   * Simplifies each line or ring, dropping those with less than {@code minPoints} vertices left. If
+   * {@code dropAllIfFirstDropped} is set, nothing is left if the first one is dropped, as a
+   * polygon without its outer ring is gone. Returns the same list if nothing changed.
+   */
+  private static List<List<Point>> simplifyAll(
+      List<List<Point>> lines, double sqTolerance, int minPoints, boolean dropAllIfFirstDropped) {
+    final List<List<Point>> simplified = new ArrayList<>(lines.size());
+    boolean changed = false;
+    for (int i = 0; i < lines.size(); i++) {
+      final List<Point> line = lines.get(i);
+      final List<Point> simplifiedLine = simplify(line, sqTolerance, minPoints);
+      changed |= simplifiedLine != line;
+      if (simplifiedLine != null) {
+        simplified.add(simplifiedLine);
+      } else if (i == 0 && dropAllIfFirstDropped) {
+        return new ArrayList<>();
+      }
+    }
+    return changed ? simplified : lines;
+  }
+
+  /**
+   * Returns the kept vertices of the line, the same list if all are kept, or null if less than
+   * {@code minPoints} are kept.
+   */
+  @Nullable
+  private static List<Point> simplify(List<Point> line, double sqTolerance, int minPoints) {
+    final int n = line.size();
+    if (n <= 2) {
+      return n >= minPoints ? line : null;
+    }
+    final double[] xs = new double[n];
+    final double[] ys = new double[n];
+    for (int i = 0; i < n; i++) {
+      final Point point = line.get(i);
+      xs[i] = point.longitude() / 360 + 0.5;
+      final double sin = Math.sin(point.latitude() * Math.PI / 180);
+      final double y = 0.5 - 0.25 * Math.log((1 + sin) / (1 - sin)) / Math.PI;
+      ys[i] = y < 0 ? 0 : y > 1 ? 1 : y;
+    }
+
+    final boolean[] keep = new boolean[n];
+    keep[0] = true;
+    keep[n - 1] = true;
+    int kept = 2;
+    final int[] stack = new int[2 * n];
+    int top = 0;
+    stack[top++] = 0;
+    stack[top++] = n - 1;
+    while (top > 0) {
+      final int last = stack[--top];
+      final int first = stack[--top];
+      double maxSqDistance = sqTolerance;
+      int index = -1;
+      for (int i = first + 1; i < last; i++) {
+        final double sqDistance =
+            sqSegmentDistance(xs[i], ys[i], xs[first], ys[first], xs[last], ys[last]);
+        if (sqDistance > maxSqDistance) {
+          index = i;
+          maxSqDistance = sqDistance;
+        }
+      }
+      if (index >= 0) {
+        keep[index] = true;
+        kept++;
+        stack[top++] = first;
+        stack[top++] = index;
+        stack[top++] = index;
+        stack[top++] = last;
+      }
+    }
+
+    if (kept == n) {
+      return line;
+    }
+    if (kept < minPoints) {
+      return null;
+    }
+    final List<Point> simplified = new ArrayList<>(kept);
+    for (int i = 0; i < n; i++) {
+      if (keep[i]) {
+        simplified.add(line.get(i));
+      }
+    }
+    return simplified;
+  }
+
+  private static long countVertices(@Nullable Geometry geometry) {
+    long count = 0;
+    if (geometry instanceof LineString) {
+      count = ((LineString) geometry).coordinates().size();
+    } else if (geometry instanceof MultiLineString) {
+      for (List<Point> line : ((MultiLineString) geometry).coordinates()) {
+        count += line.size();
+      }
+    } else if (geometry instanceof Polygon) {
+      for (List<Point> ring : ((Polygon) geometry).coordinates()) {
+        count += ring.size();
+      }
+    } else if (geometry instanceof MultiPolygon) {
+      for (List<List<Point>> rings : ((MultiPolygon) geometry).coordinates()) {
+        for (List<Point> ring : rings) {
+          count += ring.size();
+        }
+      }
+    } else if (geometry instanceof GeometryCollection) {
+      for (Geometry child : ((GeometryCollection) geometry).geometries()) {
+        count += countVertices(child);
+      }
+    }
+    return count;
+  }
+
+  private static double sqSegmentDistance(
+      double px, double py, double ax, double ay, double bx, double by) {
+    double x = ax;
+    double y = ay;
+    double dx = bx - ax;
+    double dy = by - ay;
+    if (dx != 0 || dy != 0) {
+      final double t = ((px - ax) * dx + (py - ay) * dy) / (dx * dx + dy * dy);
+      if (t > 1) {
+        x = bx;
+        y = by;
+      } else if (t > 0) {
+        x += dx * t;
+        y += dy * t;
+      }
+    }
+    dx = px - x;
+    dy = py - y;
+    return dx * dx + dy * dy;
+  }
+}
@@ -28,6 +28,7 @@ class GlobalMethodHandler implements MethodChannel.MethodCallHandler {
   @NonNull private final BinaryMessenger messenger;
   @Nullable private FlutterPlugin.FlutterAssets flutterAssets;
   @Nullable private OfflineChannelHandlerImpl downloadOfflineRegionChannelHandler;
+  @Nullable private OfflineChannelHandlerImpl warmAmbientCacheChannelHandler;
 
 
   GlobalMethodHandler(@NonNull FlutterPlugin.FlutterPluginBinding binding) {
@@ -64,12 +65,17 @@ class GlobalMethodHandler implements MethodChannel.MethodCallHandler {
 
   @Override
   public void onMethodCall(MethodCall methodCall, MethodChannel.Result result) {
-    MapLibreUtils.getMapLibre(context);
+    if (!methodCall.method.equals("getInitStats")) {
+      MapLibreUtils.getMapLibre(context);
+    }
 
     switch (methodCall.method) {
       case "installOfflineMapTiles":
         String tilesDb = methodCall.argument("tilesdb");
         installOfflineMapTiles(tilesDb);
+        OfflineManagerUtils.invalidateRegions();
+        // The installed database replaces the ambient cache the resource packs were warmed into.
+        AmbientCacheWarmer.forgetInsertedResources(context);
         result.success(null);
         break;
       case "setOffline":
@@ -112,8 +118,124 @@ class GlobalMethodHandler implements MethodChannel.MethodCallHandler {
             result, context, definitionMap, metadataMap, downloadOfflineRegionChannelHandler);
         downloadOfflineRegionChannelHandler = null;
         break;
+      case "downloadOfflineCorridor":
+        {
+          if (downloadOfflineRegionChannelHandler == null) {
+            result.error(
+                "downloadOfflineRegion#setup NOT CALLED",
+                "The setup has not been called, please call downloadOfflineRegion#setup before",
+                null);
+            break;
+          }
+          OfflineManagerUtils.downloadCorridor(
+              result,
+              context,
+              (Map<String, Object>) methodCall.argument("definition"),
+              (Map<String, Object>) methodCall.argument("metadata"),
+              methodCall.<Number>argument("maxTilesPerRegion").longValue(),
+              downloadOfflineRegionChannelHandler);
+          downloadOfflineRegionChannelHandler = null;
+          break;
+        }
+      case "estimateOfflineRegionTiles":
+        OfflineManagerUtils.estimateTiles(
+            result, (Map<String, Object>) methodCall.argument("definition"));
+        break;
+      case "warmAmbientCache#setup":
+        warmAmbientCacheChannelHandler =
+            new OfflineChannelHandlerImpl(messenger, methodCall.argument("channelName"));
+        result.success(null);
+        break;
+      case "warmAmbientCache":
+        {
+          if (warmAmbientCacheChannelHandler == null) {
+            result.error(
+                "warmAmbientCache#setup NOT CALLED",
+                "The setup has not been called, please call warmAmbientCache#setup before",
+                null);
+            break;
+          }
+          Map<String, String> resources = (Map<String, String>) methodCall.argument("resources");
+          Number maxAge = methodCall.argument("maxAgeSeconds");
+          AmbientCacheWarmer.warm(
+              context,
+              flutterAssets,
+              methodCall.argument("pack"),
+              resources,
+              maxAge != null ? maxAge.longValue() : 0,
+              warmAmbientCacheChannelHandler,
+              result);
+          warmAmbientCacheChannelHandler = null;
+          break;
+        }
+      case "resetOfflineDatabase":
+        OfflineManagerUtils.resetDatabase(result, context);
+        break;
+      case "setStyleCacheEnabled":
+        StyleCache.setEnabled(methodCall.argument("enabled"));
+        result.success(null);
+        break;
+      case "clearStyleCache":
+        StyleCache.clear(context);
+        result.success(null);
+        break;
+      case "getStyleCacheStats":
+        result.success(StyleCache.getStats());
+        break;
+      case "setMapViewPoolSize":
+        MapViewPool.setMaxSize(context, methodCall.<Integer>argument("maxSize"));
+        result.success(null);
+        break;
+      case "prewarmMapViews":
+        result.success(MapViewPool.prewarm(context, methodCall.<Integer>argument("count")));
+        break;
+      case "getMapViewPoolStats":
+        result.success(MapViewPool.getStats());
+        break;
+      case "getCallStats":
+        result.success(MethodCallStats.getStats());
+        if (Boolean.TRUE.equals(methodCall.argument("reset"))) {
+          MethodCallStats.reset();
+        }
+        break;
+      case "getMemoryTrimStats":
+        result.success(MemoryTrimRegistry.getStats());
+        break;
+      case "snapshot":
+        SnapshotService.snapshot(context, toSnapshotRequest(methodCall), result);
+        break;
+      case "configureSnapshots":
+        SnapshotService.configure(
+            context,
+            methodCall.<Integer>argument("poolSize"),
+            methodCall.<Number>argument("cacheBytes").longValue());
+        result.success(null);
+        break;
+      case "clearSnapshotCache":
+        SnapshotService.clearCache(context);
+        result.success(null);
+        break;
+      case "getSnapshotStats":
+        result.success(SnapshotService.getStats());
+        break;
+      case "getInitStats":
+        result.success(MapLibreUtils.getInitStats());
+        break;
       case "getListOfRegions":
-        OfflineManagerUtils.regionsList(result, context);
+        {
+          final Number offset = methodCall.argument("offset");
+          final Number limit = methodCall.argument("limit");
+          OfflineManagerUtils.regionsList(
+              result,
+              context,
+              offset != null ? offset.intValue() : 0,
+              limit != null ? limit.intValue() : 0,
+              Boolean.TRUE.equals(methodCall.argument("summaryOnly")));
+          break;
+        }
+      case "getOfflineRegionMetadata":
+        OfflineManagerUtils.regionMetadata(
+            result, context, methodCall.<Number>argument("id").longValue());
         break;
       case "updateOfflineRegionMetadata":
         // Get download region arguments from caller
@@ -131,6 +253,41 @@ class GlobalMethodHandler implements MethodChannel.MethodCallHandler {
     }
   }
 
+  private SnapshotService.Request toSnapshotRequest(MethodCall methodCall) {
+    final Object camera = methodCall.argument("camera");
+    final Number pixelRatio = methodCall.argument("pixelRatio");
+    final Number quality = methodCall.argument("quality");
+    final Boolean logo = methodCall.argument("logo");
+    return new SnapshotService.Request(
+        resolveStyle(methodCall.argument("style")),
+        camera != null ? Convert.toCameraPosition(camera) : null,
+        Convert.toLatLngBounds(methodCall.argument("bounds")),
+        methodCall.<Integer>argument("width"),
+        methodCall.<Integer>argument("height"),
+        pixelRatio != null
+            ? pixelRatio.floatValue()
+            : context.getResources().getDisplayMetrics().density,
+        "webp".equals(methodCall.argument("format")),
+        quality != null ? quality.intValue() : 90,
+        logo == null || logo);
+  }
+
+  /** Returns the style as JSON or as a URL the snapshotter can load, like the map does. */
+  private String resolveStyle(String style) {
+    style = style.trim();
+    if (style.startsWith("{") || style.startsWith("[")) {
+      return style;
+    } else if (style.startsWith("/")) {
+      return "file://" + style;
+    } else if (!style.startsWith("http://")
+        && !style.startsWith("https://")
+        && !style.startsWith("mapbox://")
+        && flutterAssets != null) {
+      return "asset://" + flutterAssets.getAssetFilePathByName(style);
+    }
+    return style;
+  }
+
   private void installOfflineMapTiles(String tilesDb) {
     final File dest = new File(context.getFilesDir(), DATABASE_NAME);
     try (InputStream input = openTilesDbFile(tilesDb);
@@ -0,0 +1,181 @@
+package org.maplibre.maplibregl;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.maplibre.android.geometry.LatLngBounds;
+import org.maplibre.android.offline.OfflineGeometryRegionDefinition;
+import org.maplibre.android.offline.OfflineRegion;
+import org.maplibre.android.offline.OfflineRegionDefinition;
+import org.maplibre.geojson.Geometry;
+
+/**
+ * The JSON encoding shared by the plugin, and the serializers of the offline responses.
+ *
+ * <p>A {@link Gson} instance is thread safe and caches the type adapters it creates, so the plugin
+ * uses a single one. Offline regions are written with a {@link JsonWriter} straight into the
+ * response, without building maps of their fields first. Their metadata is stored as JSON and is
+ * copied into the response as it is, after checking that it is a JSON object.
+ */
+abstract class JsonCodec {
+  private static final String TAG = "JsonCodec";
+
+  static final Gson gson = new Gson();
+
+  /** Returns the regions as a JSON array, in the format of {@code OfflineRegion.fromMap}. */
+  static String regionsToJson(@NonNull OfflineRegion[] regions) {
+    return regionsToJson(regions, 0, regions.length, true);
+  }
+
+  /**
+   * Returns the regions from {@code from} up to {@code to} as a JSON array. Unless {@code
+   * withMetadata} is true, the regions have empty metadata and are marked with {@code summary}.
+   */
+  static String regionsToJson(
+      @NonNull OfflineRegion[] regions, int from, int to, boolean withMetadata) {
+    final StringWriter out = new StringWriter((to - from) * (withMetadata ? 256 : 160));
+    try (JsonWriter writer = new JsonWriter(out)) {
+      writer.beginArray();
+      for (int i = from; i < to; i++) {
+        final OfflineRegion region = regions[i];
+        if (withMetadata) {
+          writeRegion(writer, region.getId(), region.getDefinition(), region.getMetadata());
+        } else {
+          writeSummary(writer, region.getId(), region.getDefinition());
+        }
+      }
+      writer.endArray();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return out.toString();
+  }
+
+  /** Returns the region as JSON, with {@code metadata} instead of its stored metadata if given. */
+  static String regionToJson(@NonNull OfflineRegion region, @Nullable byte[] metadata) {
+    final StringWriter out = new StringWriter(256);
+    try (JsonWriter writer = new JsonWriter(out)) {
+      writeRegion(
+          writer,
+          region.getId(),
+          region.getDefinition(),
+          metadata != null ? metadata : region.getMetadata());
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return out.toString();
+  }
+
+  static void writeRegion(
+      JsonWriter writer, long id, OfflineRegionDefinition definition, @Nullable byte[] metadata)
+      throws IOException {
+    writer.beginObject();
+    writer.name("id").value(id);
+    writer.name("definition");
+    writeDefinition(writer, definition);
+    writer.name("metadata");
+    writeMetadata(writer, metadata);
+    writer.endObject();
+  }
+
+  /** Writes the region with empty metadata, and {@code summary} set to tell it apart. */
+  private static void writeSummary(JsonWriter writer, long id, OfflineRegionDefinition definition)
+      throws IOException {
+    writer.beginObject();
+    writer.name("id").value(id);
+    writer.name("definition");
+    writeDefinition(writer, definition);
+    writer.name("metadata").beginObject().endObject();
+    writer.name("summary").value(true);
+    writer.endObject();
+  }
+
+  private static void writeDefinition(JsonWriter writer, OfflineRegionDefinition definition)
+      throws IOException {
+    writer.beginObject();
+    writer.name("mapStyleUrl").value(definition.getStyleURL());
+    final LatLngBounds bounds = definition.getBounds();
+    writer.name("bounds").beginArray();
+    writer.beginArray().value(bounds.getLatSouth()).value(bounds.getLonWest()).endArray();
+    writer.beginArray().value(bounds.getLatNorth()).value(bounds.getLonEast()).endArray();
+    writer.endArray();
+    writer.name("minZoom").value(definition.getMinZoom());
+    writer.name("maxZoom").value(definition.getMaxZoom());
+    writer.name("includeIdeographs").value(definition.getIncludeIdeographs());
+    if (definition instanceof OfflineGeometryRegionDefinition) {
+      final Geometry geometry = ((OfflineGeometryRegionDefinition) definition).getGeometry();
+      if (geometry != null) {
+        writer.name("geometry").jsonValue(geometry.toJson());
+      }
+    }
+    writer.endObject();
+  }
+
+  /** Writes the metadata as it is stored, or an empty object if it is not a JSON object. */
+  private static void writeMetadata(JsonWriter writer, @Nullable byte[] metadata)
+      throws IOException {
+    final String json =
+        metadata != null && metadata.length > 0
+            ? new String(metadata, StandardCharsets.UTF_8)
+            : null;
+    if (json == null || !isJsonObject(json)) {
+      writer.beginObject().endObject();
+      return;
+    }
+    writer.jsonValue(json);
+  }
+
+  private static boolean isJsonObject(String json) {
+    try (JsonReader reader = new JsonReader(new StringReader(json))) {
+      if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+        return false;
+      }
+      reader.skipValue();
+      return reader.peek() == JsonToken.END_DOCUMENT;
+    } catch (IOException | IllegalStateException e) {
+      Log.w(TAG, "Ignoring region metadata that is not a JSON object", e);
+      return false;
+    }
+  }
+
+  /** Returns the stored metadata of a region as JSON, or an empty object if it is not one. */
+  static String metadataToJson(@Nullable byte[] metadata) {
+    final StringWriter out = new StringWriter(metadata != null ? metadata.length : 2);
+    try (JsonWriter writer = new JsonWriter(out)) {
+      writeMetadata(writer, metadata);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return out.toString();
+  }
+
+  /** Returns the metadata of a region as the UTF-8 JSON it is stored as. */
+  static byte[] metadataToBytes(@Nullable Map<String, Object> metadata) {
+    return (metadata != null ? gson.toJson(metadata) : "{}").getBytes(StandardCharsets.UTF_8);
+  }
+
+  /** Returns an event of a download, with its progress if it is not null. */
+  static String downloadEvent(@NonNull String status, @Nullable Double progress) {
+    final StringWriter out = new StringWriter(48);
+    try (JsonWriter writer = new JsonWriter(out)) {
+      writer.beginObject();
+      writer.name("status").value(status);
+      if (progress != null) {
+        writer.name("progress").value(progress);
+      }
+      writer.endObject();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return out.toString();
+  }
+}
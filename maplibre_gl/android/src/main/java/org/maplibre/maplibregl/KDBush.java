@@ -0,0 +1,217 @@
+package org.maplibre.maplibregl;
+
+/**
+ * A static kd-tree over 2D points, sorted in place once so range and radius queries only visit a
+ * fraction of the points. A port of the kdbush JavaScript library.
+ */
+final class KDBush {
+  interface Visitor {
+    void visit(int id);
+  }
+
+  private final int[] ids;
+  private final double[] coords;
+  private final int nodeSize;
+
+  /**
+   * Indexes the points at the given flat x/y coordinates. The ids reported by the queries are the
+   * positions of the points in the coordinate array, divided by two.
+   */
+  KDBush(double[] coords, int nodeSize) {
+    this.coords = coords;
+    this.nodeSize = nodeSize;
+    final int count = coords.length / 2;
+    this.ids = new int[count];
+    for (int i = 0; i < count; i++) {
+      ids[i] = i;
+    }
+    sort(0, count - 1, 0);
+  }
+
+  int size() {
+    return ids.length;
+  }
+
+  /**
+   * Returns the ids in the order of the tree, and from then on reports the positions in the tree
+   * as ids. Callers that reorder their data the same way get neighbouring points close together in
+   * memory.
+   */
+  int[] reorder() {
+    final int[] order = ids.clone();
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = i;
+    }
+    return order;
+  }
+
+  /** Visits all points inside the box. */
+  void range(double minX, double minY, double maxX, double maxY, Visitor visitor) {
+    if (ids.length == 0) {
+      return;
+    }
+    final int[] stack = new int[3 * 64];
+    int top = 0;
+    stack[top++] = 0;
+    stack[top++] = ids.length - 1;
+    stack[top++] = 0;
+
+    while (top > 0) {
+      final int axis = stack[--top];
+      final int right = stack[--top];
+      final int left = stack[--top];
+
+      if (right - left <= nodeSize) {
+        for (int i = left; i <= right; i++) {
+          final double x = coords[2 * i];
+          final double y = coords[2 * i + 1];
+          if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+            visitor.visit(ids[i]);
+          }
+        }
+        continue;
+      }
+
+      final int m = (left + right) >> 1;
+      final double x = coords[2 * m];
+      final double y = coords[2 * m + 1];
+      if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+        visitor.visit(ids[m]);
+      }
+      if (axis == 0 ? minX <= x : minY <= y) {
+        stack[top++] = left;
+        stack[top++] = m - 1;
+        stack[top++] = 1 - axis;
+      }
+      if (axis == 0 ? maxX >= x : maxY >= y) {
+        stack[top++] = m + 1;
+        stack[top++] = right;
+        stack[top++] = 1 - axis;
+      }
+    }
+  }
+
+  /** Visits all points within the radius of the query point. */
+  void within(double qx, double qy, double r, Visitor visitor) {
+    if (ids.length == 0) {
+      return;
+    }
+    final double r2 = r * r;
+    final int[] stack = new int[3 * 64];
+    int top = 0;
+    stack[top++] = 0;
+    stack[top++] = ids.length - 1;
+    stack[top++] = 0;
+
+    while (top > 0) {
+      final int axis = stack[--top];
+      final int right = stack[--top];
+      final int left = stack[--top];
+
+      if (right - left <= nodeSize) {
+        for (int i = left; i <= right; i++) {
+          if (squareDistance(coords[2 * i], coords[2 * i + 1], qx, qy) <= r2) {
+            visitor.visit(ids[i]);
+          }
+        }
+        continue;
+      }
+
+      final int m = (left + right) >> 1;
+      final double x = coords[2 * m];
+      final double y = coords[2 * m + 1];
+      if (squareDistance(x, y, qx, qy) <= r2) {
+        visitor.visit(ids[m]);
+      }
+      if (axis == 0 ? qx - r <= x : qy - r <= y) {
+        stack[top++] = left;
+        stack[top++] = m - 1;
+        stack[top++] = 1 - axis;
+      }
+      if (axis == 0 ? qx + r >= x : qy + r >= y) {
+        stack[top++] = m + 1;
+        stack[top++] = right;
+        stack[top++] = 1 - axis;
+      }
+    }
+  }
+
+  private void sort(int left, int right, int axis) {
+    if (right - left <= nodeSize) {
+      return;
+    }
+    final int m = (left + right) >> 1;
+    select(m, left, right, axis);
+    sort(left, m - 1, 1 - axis);
+    sort(m + 1, right, 1 - axis);
+  }
+
+  /** Floyd-Rivest selection, so the k-th point along the axis ends up at position k. */
+  private void select(int k, int left, int right, int axis) {
+    while (right > left) {
+      if (right - left > 600) {
+        final int n = right - left + 1;
+        final int m = k - left + 1;
+        final double z = Math.log(n);
+        final double s = 0.5 * Math.exp(2 * z / 3);
+        final double sd = 0.5 * Math.sqrt(z * s * (n - s) / n) * (m - n / 2.0 < 0 ? -1 : 1);
+        final int newLeft = (int) Math.max(left, Math.floor(k - m * s / n + sd));
+        final int newRight = (int) Math.min(right, Math.floor(k + (n - m) * s / n + sd));
+        select(k, newLeft, newRight, axis);
+      }
+
+      final double t = coords[2 * k + axis];
+      int i = left;
+      int j = right;
+
+      swap(left, k);
+      if (coords[2 * right + axis] > t) {
+        swap(left, right);
+      }
+
+      while (i < j) {
+        swap(i, j);
+        i++;
+        j--;
+        while (coords[2 * i + axis] < t) {
+          i++;
+        }
+        while (coords[2 * j + axis] > t) {
+          j--;
+        }
+      }
+
+      if (coords[2 * left + axis] == t) {
+        swap(left, j);
+      } else {
+        j++;
+        swap(j, right);
+      }
+
+      if (j <= k) {
+        left = j + 1;
+      }
+      if (k <= j) {
+        right = j - 1;
+      }
+    }
+  }
+
+  private void swap(int i, int j) {
+    final int id = ids[i];
+    ids[i] = ids[j];
+    ids[j] = id;
+    final double x = coords[2 * i];
+    coords[2 * i] = coords[2 * j];
+    coords[2 * j] = x;
+    final double y = coords[2 * i + 1];
+    coords[2 * i + 1] = coords[2 * j + 1];
+    coords[2 * j + 1] = y;
+  }
+
+  private static double squareDistance(double ax, double ay, double bx, double by) {
+    final double dx = ax - bx;
+    final double dy = ay - by;
+    return dx * dx + dy * dy;
+  }
+}
@@ -0,0 +1,173 @@
+package org.maplibre.maplibregl;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.maplibre.geojson.FeatureCollection;
+
+/**
+ * Keeps simplified copies of the data of a geojson source for a few zoom levels, and hands the
+ * map the copy for the current zoom level, so the map does not have to upload and tile every
+ * vertex while zoomed out.
+ *
+ * <p>The copy of a zoom level is used up to that zoom level, above the highest zoom level the
+ * original data is used. The copies are built on a pool of worker threads, the one needed for the
+ * current zoom level first. Until it is built, the map keeps the data it had. Copies dropped when
+ * memory is trimmed are built again once their zoom level is reached.
+ *
+ * <p>All methods must be called on the main thread.
+ */
+final class LevelOfDetailSource {
+  private static final String TAG = "LevelOfDetailSource";
+
+  private static final ExecutorService pool =
+      Executors.newFixedThreadPool(
+          Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)));
+
+  interface Listener {
+    void onFeatures(@NonNull String sourceId, @NonNull FeatureCollection features);
+  }
+
+  private final String sourceId;
+  private final Listener listener;
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  private double[] zooms = new double[0];
+  private double tolerance = 1;
+
+  @Nullable private FeatureCollection data;
+  private FeatureCollection[] levels = new FeatureCollection[0];
+  private boolean[] building = new boolean[0];
+  private volatile int generation = 0;
+  private double zoom;
+
+  // The level the map has, zooms.length for the original data, or -1 if it has none of them.
+  private int currentLevel = -1;
+
+  LevelOfDetailSource(@NonNull String sourceId, @NonNull Listener listener) {
+    this.sourceId = sourceId;
+    this.listener = listener;
+  }
+
+  /** Sets the zoom levels to build copies for, and the tolerance in pixels. */
+  void setLevels(@NonNull double[] zooms, double tolerance) {
+    final double[] sorted = zooms.clone();
+    Arrays.sort(sorted);
+    if (Arrays.equals(sorted, this.zooms) && tolerance == this.tolerance) {
+      return;
+    }
+    this.zooms = sorted;
+    this.tolerance = tolerance;
+    if (data != null) {
+      setData(data, zoom);
+    }
+  }
+
+  /** Replaces the original data and builds the copies of it, the one for the zoom level first. */
+  void setData(@NonNull FeatureCollection data, double zoom) {
+    this.data = data;
+    this.zoom = zoom;
+    final int request = ++generation;
+    final double[] zooms = this.zooms;
+    final double tolerance = this.tolerance;
+    levels = new FeatureCollection[zooms.length];
+    building = new boolean[zooms.length];
+    currentLevel = -1;
+
+    final int needed = levelFor(zoom);
+    if (needed == zooms.length) {
+      update(zoom);
+    } else {
+      build(request, data, needed, zooms[needed], tolerance);
+    }
+    for (int level = 0; level < zooms.length; level++) {
+      if (level != needed) {
+        build(request, data, level, zooms[level], tolerance);
+      }
+    }
+  }
+
+  /** Hands the map the copy for the zoom level, if it does not have it yet. */
+  void update(double zoom) {
+    this.zoom = zoom;
+    final int level = levelFor(zoom);
+    if (level == currentLevel || data == null) {
+      return;
+    }
+    final FeatureCollection features = level == zooms.length ? data : levels[level];
+    if (features != null) {
+      currentLevel = level;
+      listener.onFeatures(sourceId, features);
+    } else if (!building[level]) {
+      build(generation, data, level, zooms[level], tolerance);
+    }
+  }
+
+  /**
+   * Drops the copies the map does not have, and returns an estimate of the bytes released. The
+   * copies share their vertices with the original data, so only the references are counted.
+   */
+  long trim() {
+    long bytes = 0;
+    for (int level = 0; level < levels.length; level++) {
+      if (level != currentLevel && levels[level] != null) {
+        bytes += 8 * GeometrySimplifier.countVertices(levels[level]);
+        levels[level] = null;
+      }
+    }
+    return bytes;
+  }
+
+  private void build(
+      int request, FeatureCollection data, int level, double levelZoom, double tolerance) {
+    building[level] = true;
+    pool.execute(
+        () -> {
+          if (request != generation) {
+            return;
+          }
+          final long start = SystemClock.elapsedRealtime();
+          final FeatureCollection simplified =
+              GeometrySimplifier.simplify(data, tolerance, levelZoom);
+          if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(
+                TAG,
+                "Simplified "
+                    + sourceId
+                    + " for zoom "
+                    + levelZoom
+                    + " from "
+                    + GeometrySimplifier.countVertices(data)
+                    + " to "
+                    + GeometrySimplifier.countVertices(simplified)
+                    + " vertices in "
+                    + (SystemClock.elapsedRealtime() - start)
+                    + " ms");
+          }
+          mainHandler.post(
+              () -> {
+                if (request != generation) {
+                  return;
+                }
+                building[level] = false;
+                levels[level] = simplified;
+                update(zoom);
+              });
+        });
+  }
+
+  /** Returns the index of the first level at or above the zoom level. */
+  private int levelFor(double zoom) {
+    int level = 0;
+    while (level < zooms.length && zooms[level] < zoom) {
+      level++;
+    }
+    return level;
+  }
+}
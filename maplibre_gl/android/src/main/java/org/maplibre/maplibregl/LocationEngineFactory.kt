@@ -10,13 +10,49 @@ import org.maplibre.android.location.engine.LocationEngineRequest
 class LocationEngineFactory {
 
     private var locationEngineRequest: LocationEngineRequest? = null
+    private var adaptiveLocationUpdates = false
+    private var cameraTracking = false
+    private var replayTrack: String? = null
+    private var replaySpeed = 1.0
+    private var replayLoop = false
+    private var recordPath: String? = null
+    private var recordCapacity = 0
+    private var replayLocationEngine: ReplayLocationEngine? = null
+
+    /** The engine created by the last call to [getLocationEngine], if it is the GPS engine. */
+    var gpsLocationEngine: MapLibreGPSLocationEngine? = null
+        private set
 
     fun getLocationEngine(context: Context): LocationEngine {
-        if (locationEngineRequest?.priority == LocationEngineRequest.PRIORITY_HIGH_ACCURACY) {
-            return LocationEngineProxy(
-                MapLibreGPSLocationEngine(context)
-            )
+        replayLocationEngine?.dispose()
+        replayLocationEngine = null
+        val track = replayTrack
+        if (track != null) {
+            gpsLocationEngine = null
+            val engine = ReplayLocationEngine.replay(context, track, replaySpeed, replayLoop)
+            replayLocationEngine = engine
+            return LocationEngineProxy(engine)
+        }
+        val path = recordPath
+        if (path != null) {
+            val gpsEngine = MapLibreGPSLocationEngine(context)
+            gpsEngine.setAdaptive(adaptiveLocationUpdates)
+            gpsEngine.setCameraTracking(cameraTracking)
+            gpsLocationEngine = gpsEngine
+            val engine = ReplayLocationEngine.record(gpsEngine, path, recordCapacity)
+            replayLocationEngine = engine
+            return LocationEngineProxy(engine)
+        }
+        if (adaptiveLocationUpdates ||
+            locationEngineRequest?.priority == LocationEngineRequest.PRIORITY_HIGH_ACCURACY
+        ) {
+            val engine = MapLibreGPSLocationEngine(context)
+            engine.setAdaptive(adaptiveLocationUpdates)
+            engine.setCameraTracking(cameraTracking)
+            gpsLocationEngine = engine
+            return LocationEngineProxy(engine)
         }
+        gpsLocationEngine = null
         return getDefaultLocationEngine(context)
     }
 
@@ -35,4 +71,55 @@ class LocationEngineFactory {
             }
         }
     }
+
+    /**
+     * Enables the adaptive update policy of [MapLibreGPSLocationEngine], which is then used
+     * regardless of the requested priority.
+     */
+    fun setAdaptiveLocationUpdates(
+        context: Context,
+        locationComponent: LocationComponent?,
+        adaptiveLocationUpdates: Boolean
+    ) {
+        if (this.adaptiveLocationUpdates == adaptiveLocationUpdates) {
+            return
+        }
+        this.adaptiveLocationUpdates = adaptiveLocationUpdates
+        val engine = gpsLocationEngine
+        if (engine != null && adaptiveLocationUpdates) {
+            engine.setAdaptive(true)
+        } else if (locationComponent != null) {
+            locationComponent.locationEngine = getLocationEngine(context)
+        }
+    }
+
+    /**
+     * Replays [track] instead of using the device location, or stops replaying if it is null.
+     * Takes effect with the next call to [getLocationEngine].
+     */
+    fun setReplay(track: String?, speed: Double, loop: Boolean) {
+        replayTrack = track
+        replaySpeed = speed
+        replayLoop = loop
+    }
+
+    /**
+     * Records the device location into a ring-buffered track file at [path], keeping the last
+     * [capacity] fixes, or stops recording if it is null. Takes effect with the next call to
+     * [getLocationEngine].
+     */
+    fun setRecording(path: String?, capacity: Int) {
+        recordPath = path
+        recordCapacity = capacity
+    }
+
+    fun dispose() {
+        replayLocationEngine?.dispose()
+        replayLocationEngine = null
+    }
+
+    fun setCameraTracking(cameraTracking: Boolean) {
+        this.cameraTracking = cameraTracking
+        gpsLocationEngine?.setCameraTracking(cameraTracking)
+    }
 }
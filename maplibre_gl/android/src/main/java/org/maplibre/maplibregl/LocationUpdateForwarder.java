@@ -0,0 +1,108 @@
+package org.maplibre.maplibregl;
+
+import android.location.Location;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.Nullable;
+import io.flutter.plugin.common.MethodChannel;
+import java.util.Arrays;
+
+/**
+ * Forwards user location fixes to Dart, independently of the location component, which keeps
+ * receiving every fix to animate the puck.
+ *
+ * <p>Fixes closer than a minimum distance or time to the last forwarded one are dropped. The rest
+ * are packed into a flat {@code double[]} of {@link #FIELDS} values per fix and sent as a single
+ * {@code map#onUserLocationBatch} message once {@code batchSize} fixes are collected, or once the
+ * oldest fix waited for {@code maxBatchDelay} milliseconds.
+ */
+final class LocationUpdateForwarder {
+  /** latitude, longitude, altitude, bearing, speed, horizontal/vertical accuracy, timestamp. */
+  static final int FIELDS = 8;
+
+  private final MethodChannel methodChannel;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Runnable flushRunnable = this::flush;
+
+  private boolean enabled = true;
+  private float minDistance = 0;
+  private long minInterval = 0;
+  private int batchSize = 1;
+  private long maxBatchDelay = 1000;
+
+  private double[] batch = new double[FIELDS];
+  private int batchCount = 0;
+  @Nullable private Location lastForwarded;
+
+  LocationUpdateForwarder(MethodChannel methodChannel) {
+    this.methodChannel = methodChannel;
+  }
+
+  void setOptions(
+      boolean enabled, float minDistance, long minInterval, int batchSize, long maxBatchDelay) {
+    flush();
+    this.enabled = enabled;
+    this.minDistance = Math.max(0, minDistance);
+    this.minInterval = Math.max(0, minInterval);
+    this.batchSize = Math.max(1, batchSize);
+    this.maxBatchDelay = Math.max(0, maxBatchDelay);
+    if (batch.length != this.batchSize * FIELDS) {
+      batch = new double[this.batchSize * FIELDS];
+    }
+    lastForwarded = null;
+  }
+
+  void onLocation(@Nullable Location location) {
+    if (location == null) {
+      return;
+    }
+    if (!enabled) {
+      return;
+    }
+    if (lastForwarded != null
+        && (location.getTime() - lastForwarded.getTime() < minInterval
+            || location.distanceTo(lastForwarded) < minDistance)) {
+      return;
+    }
+    lastForwarded = location;
+
+    final int offset = batchCount * FIELDS;
+    batch[offset] = location.getLatitude();
+    batch[offset + 1] = location.getLongitude();
+    batch[offset + 2] = location.getAltitude();
+    batch[offset + 3] = location.getBearing();
+    batch[offset + 4] = location.getSpeed();
+    batch[offset + 5] = location.getAccuracy();
+    batch[offset + 6] =
+        Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && location.hasVerticalAccuracy()
+            ? location.getVerticalAccuracyMeters()
+            : Double.NaN;
+    batch[offset + 7] = location.getTime();
+    batchCount++;
+
+    if (batchCount >= batchSize) {
+      flush();
+    } else if (batchCount == 1) {
+      handler.postDelayed(flushRunnable, maxBatchDelay);
+    }
+  }
+
+  /** Sends the collected fixes, if any. */
+  void flush() {
+    handler.removeCallbacks(flushRunnable);
+    if (batchCount == 0) {
+      return;
+    }
+    // The message is encoded right away, so a full batch array can be reused.
+    final double[] message =
+        batchCount * FIELDS == batch.length ? batch : Arrays.copyOf(batch, batchCount * FIELDS);
+    batchCount = 0;
+    methodChannel.invokeMethod("map#onUserLocationBatch", message);
+  }
+
+  void dispose() {
+    handler.removeCallbacks(flushRunnable);
+    batchCount = 0;
+  }
+}
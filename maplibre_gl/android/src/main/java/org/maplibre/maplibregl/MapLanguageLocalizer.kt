@@ -0,0 +1,99 @@
+package org.maplibre.maplibregl
+
+import android.os.SystemClock
+import android.util.Log
+import org.maplibre.android.maps.MapLibreMap
+import org.maplibre.android.maps.Style
+import org.maplibre.android.style.expressions.Expression
+import org.maplibre.android.style.layers.PropertyFactory
+import org.maplibre.android.style.layers.PropertyValue
+import org.maplibre.android.style.layers.SymbolLayer
+
+/**
+ * Switches the language of the labels of a map.
+ *
+ * The symbol layers whose text field refers to a `name:<language>` property are found by scanning
+ * the style once, and the text field of each language is only built once. Layers are only updated
+ * when the language changes.
+ */
+internal class MapLanguageLocalizer {
+
+    private var style: Style? = null
+    private var layerIds: MutableList<String>? = null
+    private var language: String? = null
+    private val textFields = HashMap<String, PropertyValue<Expression>>()
+
+    private var scanMillis = -1L
+    private var applyMillis = -1L
+
+    /** Sets the language of the labels, returns false if there is no style or nothing changed. */
+    fun setLanguage(map: MapLibreMap, language: String): Boolean {
+        val style = map.style ?: return false
+        if (style !== this.style) {
+            this.style = style
+            this.layerIds = null
+            this.language = null
+        }
+        if (language == this.language) {
+            return false
+        }
+        val layerIds = this.layerIds ?: scan(style).also { this.layerIds = it }
+
+        val start = SystemClock.elapsedRealtime()
+        val textField = textField(language)
+        for (layerId in layerIds) {
+            (style.getLayer(layerId) as? SymbolLayer)?.setProperties(textField)
+        }
+        applyMillis = SystemClock.elapsedRealtime() - start
+        this.language = language
+        Log.d(TAG, "Localized ${layerIds.size} layers to $language in $applyMillis ms")
+        return true
+    }
+
+    /** Localizes a layer added after the style was scanned. */
+    fun onLayerAdded(layer: SymbolLayer) {
+        val layerIds = this.layerIds ?: return
+        if (!isLocalizable(layer)) {
+            return
+        }
+        layerIds.add(layer.id)
+        language?.let { layer.setProperties(textField(it)) }
+    }
+
+    fun getStats(): Map<String, Any?> =
+        mapOf(
+            "language" to language,
+            "localizableLayers" to layerIds?.size,
+            "scanMillis" to scanMillis,
+            "applyMillis" to applyMillis,
+        )
+
+    private fun scan(style: Style): MutableList<String> {
+        val start = SystemClock.elapsedRealtime()
+        val layerIds = style.layers.filterIsInstance<SymbolLayer>()
+            .filter { isLocalizable(it) }
+            .mapTo(ArrayList()) { it.id }
+        scanMillis = SystemClock.elapsedRealtime() - start
+        Log.d(TAG, "Found ${layerIds.size} localizable layers in $scanMillis ms")
+        return layerIds
+    }
+
+    private fun textField(language: String): PropertyValue<Expression> =
+        textFields.getOrPut(language) {
+            PropertyFactory.textField(
+                Expression.raw(
+                    "[\"coalesce\", [\"get\",\"name:$language\"],[\"get\",\"name:latin\"],[\"get\",\"name\"]]"
+                )
+            )
+        }
+
+    private fun isLocalizable(layer: SymbolLayer): Boolean {
+        val expression = layer.textField.expression ?: return false
+        return expression.toString().contains(LANGUAGE_REGEX)
+    }
+
+    private companion object {
+        const val TAG = "MapLanguageLocalizer"
+        val LANGUAGE_REGEX = Regex("(name:[a-z]+)")
+    }
+}
@@ -19,13 +19,72 @@ import org.maplibre.android.location.engine.LocationEngineRequest;
 import org.maplibre.android.location.engine.LocationEngineResult;
 import org.maplibre.android.location.engine.LocationEngineImpl;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class MapLibreGPSLocationEngine implements LocationEngineImpl<LocationListener> {
     private static final String TAG = "GPSLocationEngine";
+    /** Weight of a new speed sample in the smoothed speed. */
+    private static final float SPEED_SMOOTHING = 0.3f;
+    /** Number of consecutive fixes that have to agree before the speed bucket changes. */
+    private static final int BUCKET_CHANGE_FIXES = 2;
+    /** Interval used while the camera tracks the location, so the puck moves smoothly. */
+    private static final long TRACKING_INTERVAL = 1000;
+
     final LocationManager locationManager;
 
     String currentProvider = LocationManager.PASSIVE_PROVIDER;
 
+    /**
+     * Update policies of the adaptive mode, chosen by the observed speed. The interval and the
+     * minimum distance are passed to the LocationManager.
+     */
+    enum SpeedBucket {
+        STATIONARY(0.5f, 10000, 10),
+        WALKING(3f, 3000, 3),
+        CYCLING(8f, 2000, 5),
+        DRIVING(Float.MAX_VALUE, 1000, 10);
+
+        /** Upper bound of the speed in m/s. */
+        final float maxSpeed;
+        final long interval;
+        final float displacement;
+
+        SpeedBucket(float maxSpeed, long interval, float displacement) {
+            this.maxSpeed = maxSpeed;
+            this.interval = interval;
+            this.displacement = displacement;
+        }
+
+        static SpeedBucket forSpeed(float speed) {
+            for (SpeedBucket bucket : values()) {
+                if (speed < bucket.maxSpeed) {
+                    return bucket;
+                }
+            }
+            return DRIVING;
+        }
+    }
+
+    private final AtomicLong fixesReceived = new AtomicLong();
+    private final AtomicLong fixesForwarded = new AtomicLong();
+    private final AtomicLong reRegistrations = new AtomicLong();
+
+    private boolean adaptive = false;
+    private boolean cameraTracking = false;
+    private SpeedBucket bucket = SpeedBucket.WALKING;
+    private SpeedBucket candidateBucket = SpeedBucket.WALKING;
+    private int candidateFixes = 0;
+    private float smoothedSpeed = -1;
+    @Nullable private Location lastFix;
+    @Nullable private Location lastForwarded;
+
+    // The listener registered through requestLocationUpdates, re-registered when the bucket changes.
+    @Nullable private LocationEngineRequest request;
+    @Nullable private LocationListener listener;
+    @Nullable private Looper looper;
+
     public MapLibreGPSLocationEngine(@NonNull Context context) {
         locationManager = (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
     }
@@ -33,7 +92,43 @@ public class MapLibreGPSLocationEngine implements LocationEngineImpl<LocationLis
     @NonNull
     @Override
     public LocationListener createListener(LocationEngineCallback<LocationEngineResult> callback) {
-        return new AndroidLocationEngineCallbackTransport(callback);
+        return new AndroidLocationEngineCallbackTransport(callback, this);
+    }
+
+    /**
+     * Enables the adaptive mode, which chooses the update interval and minimum distance from the
+     * observed speed and from whether the camera is tracking the location, instead of using the
+     * values of the request.
+     */
+    void setAdaptive(boolean adaptive) {
+        if (this.adaptive == adaptive) {
+            return;
+        }
+        this.adaptive = adaptive;
+        reRegister();
+    }
+
+    void setCameraTracking(boolean cameraTracking) {
+        if (this.cameraTracking == cameraTracking) {
+            return;
+        }
+        this.cameraTracking = cameraTracking;
+        if (adaptive) {
+            reRegister();
+        }
+    }
+
+    /** Returns the counters of the engine, e.g. to check how many fixes the adaptive mode saves. */
+    Map<String, Object> getStats() {
+        final Map<String, Object> stats = new HashMap<>(8);
+        stats.put("fixesReceived", fixesReceived.get());
+        stats.put("fixesForwarded", fixesForwarded.get());
+        stats.put("reRegistrations", reRegistrations.get());
+        stats.put("adaptive", adaptive);
+        stats.put("bucket", bucket.name().toLowerCase());
+        stats.put("interval", currentInterval());
+        stats.put("displacement", (double) currentDisplacement());
+        return stats;
     }
 
     @Override
@@ -71,8 +166,11 @@ public class MapLibreGPSLocationEngine implements LocationEngineImpl<LocationLis
     public void requestLocationUpdates(@NonNull LocationEngineRequest request,
                                        @NonNull LocationListener listener,
                                        @Nullable Looper looper) throws SecurityException {
+        this.request = request;
+        this.listener = listener;
+        this.looper = looper;
         currentProvider = getBestProvider(request.getPriority());
-        locationManager.requestLocationUpdates(currentProvider, request.getInterval(), request.getDisplacement(),
+        locationManager.requestLocationUpdates(currentProvider, currentInterval(), currentDisplacement(),
                 listener, looper);
     }
 
@@ -91,6 +189,11 @@ public class MapLibreGPSLocationEngine implements LocationEngineImpl<LocationLis
         if (listener != null) {
             locationManager.removeUpdates(listener);
         }
+        if (listener == this.listener) {
+            this.listener = null;
+            this.request = null;
+            this.looper = null;
+        }
     }
 
     @Override
@@ -100,6 +203,88 @@ public class MapLibreGPSLocationEngine implements LocationEngineImpl<LocationLis
         }
     }
 
+    /**
+     * Called for every fix, returns whether it should be forwarded to the location component. In
+     * adaptive mode, fixes arriving faster or closer than the current bucket asks for are dropped,
+     * e.g. while the listener has not been re-registered yet.
+     */
+    boolean onFix(Location location) {
+        fixesReceived.incrementAndGet();
+        if (!adaptive) {
+            fixesForwarded.incrementAndGet();
+            return true;
+        }
+
+        updateBucket(location);
+        lastFix = location;
+        if (lastForwarded != null) {
+            final long elapsed = location.getTime() - lastForwarded.getTime();
+            if (elapsed < currentInterval() / 2
+                    && location.distanceTo(lastForwarded) < currentDisplacement()) {
+                return false;
+            }
+        }
+        lastForwarded = location;
+        fixesForwarded.incrementAndGet();
+        return true;
+    }
+
+    private void updateBucket(Location location) {
+        float speed = -1;
+        if (location.hasSpeed()) {
+            speed = location.getSpeed();
+        } else if (lastFix != null && location.getTime() > lastFix.getTime()) {
+            speed = location.distanceTo(lastFix) * 1000f / (location.getTime() - lastFix.getTime());
+        }
+        if (speed < 0) {
+            return;
+        }
+        smoothedSpeed = smoothedSpeed < 0
+                ? speed : SPEED_SMOOTHING * speed + (1 - SPEED_SMOOTHING) * smoothedSpeed;
+
+        // Require a few agreeing fixes, so a speed around a bucket boundary does not flap.
+        final SpeedBucket next = SpeedBucket.forSpeed(smoothedSpeed);
+        if (next == bucket) {
+            candidateFixes = 0;
+            return;
+        }
+        if (next != candidateBucket) {
+            candidateBucket = next;
+            candidateFixes = 0;
+        }
+        if (++candidateFixes >= BUCKET_CHANGE_FIXES) {
+            Log.d(TAG, "Speed bucket changed from " + bucket + " to " + next);
+            bucket = next;
+            candidateFixes = 0;
+            reRegister();
+        }
+    }
+
+    private long currentInterval() {
+        if (!adaptive) {
+            return request != null ? request.getInterval() : 0;
+        }
+        return cameraTracking ? Math.min(bucket.interval, TRACKING_INTERVAL) : bucket.interval;
+    }
+
+    private float currentDisplacement() {
+        if (!adaptive) {
+            return request != null ? request.getDisplacement() : 0;
+        }
+        return cameraTracking ? 0 : bucket.displacement;
+    }
+
+    @SuppressLint("MissingPermission")
+    private void reRegister() {
+        if (listener == null || request == null) {
+            return;
+        }
+        reRegistrations.incrementAndGet();
+        locationManager.removeUpdates(listener);
+        locationManager.requestLocationUpdates(currentProvider, currentInterval(), currentDisplacement(),
+                listener, looper);
+    }
+
     private String getBestProvider(int priority) {
         String provider = null;
         if (priority != LocationEngineRequest.PRIORITY_NO_POWER) {
@@ -112,13 +297,23 @@ public class MapLibreGPSLocationEngine implements LocationEngineImpl<LocationLis
     @VisibleForTesting
     static final class AndroidLocationEngineCallbackTransport implements LocationListener {
         private final LocationEngineCallback<LocationEngineResult> callback;
+        @Nullable private final MapLibreGPSLocationEngine engine;
 
         AndroidLocationEngineCallbackTransport(LocationEngineCallback<LocationEngineResult> callback) {
+            this(callback, null);
+        }
+
+        AndroidLocationEngineCallbackTransport(LocationEngineCallback<LocationEngineResult> callback,
+                                               @Nullable MapLibreGPSLocationEngine engine) {
             this.callback = callback;
+            this.engine = engine;
         }
 
         @Override
         public void onLocationChanged(Location location) {
+            if (engine != null && !engine.onFix(location)) {
+                return;
+            }
             callback.onSuccess(LocationEngineResult.create(location));
         }
 
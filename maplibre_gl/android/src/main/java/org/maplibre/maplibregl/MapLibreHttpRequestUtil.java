@@ -3,20 +3,48 @@ package org.maplibre.maplibregl;
 import org.maplibre.android.module.http.HttpRequestUtil;
 import io.flutter.plugin.common.MethodChannel;
 import java.util.Map;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 
 abstract class MapLibreHttpRequestUtil {
+  // The limit of the default client of the map.
+  private static final int MAX_REQUESTS_PER_HOST = 20;
+  private static OkHttpClient httpClient;
 
   public static void setHttpHeaders(Map<String, String> headers, MethodChannel.Result result) {
-    HttpRequestUtil.setOkHttpClient(getOkHttpClient(headers, result).build());
+    final OkHttpClient client = getOkHttpClient(headers, result).build();
+    synchronized (MapLibreHttpRequestUtil.class) {
+      HttpRequestUtil.setOkHttpClient(client);
+      httpClient = client;
+    }
     result.success(null);
   }
 
+  /**
+   * Returns the client used by the map, so requests made by the plugin itself send the same
+   * headers. Until headers are set, a client configured like the default one of the map is
+   * created and installed in the map, so the map and the plugin share its connections.
+   */
+  static synchronized OkHttpClient getHttpClient() {
+    if (httpClient == null) {
+      httpClient = newClientBuilder().build();
+      HttpRequestUtil.setOkHttpClient(httpClient);
+    }
+    return httpClient;
+  }
+
+  /** Returns a builder configured like the default client of the map. */
+  private static OkHttpClient.Builder newClientBuilder() {
+    final Dispatcher dispatcher = new Dispatcher();
+    dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+    return new OkHttpClient.Builder().dispatcher(dispatcher);
+  }
+
   private static OkHttpClient.Builder getOkHttpClient(
       Map<String, String> headers, MethodChannel.Result result) {
     try {
-      return new OkHttpClient.Builder()
+      return newClientBuilder()
           .addNetworkInterceptor(
               chain -> {
                 Request.Builder builder = chain.request().newBuilder();
@@ -25,6 +25,7 @@ class MapLibreMapBuilder implements MapLibreMapOptionsSink {
   private String styleString = "";
   private LatLngBounds bounds = null;
   private LocationEngineRequest locationEngineRequest = null;
+  private boolean adaptiveLocationUpdates = false;
 
   MapLibreMapController build(
       int id,
@@ -45,6 +46,7 @@ class MapLibreMapBuilder implements MapLibreMapOptionsSink {
       controller.setCameraTargetBounds(bounds);
     }
 
+    controller.setAdaptiveLocationUpdates(adaptiveLocationUpdates);
     if(null != locationEngineRequest ){
       controller.setLocationEngineProperties(locationEngineRequest);
     }
@@ -217,4 +219,9 @@ class MapLibreMapBuilder implements MapLibreMapOptionsSink {
   public void setLocationEngineProperties(@NonNull LocationEngineRequest locationEngineRequest) {
     this.locationEngineRequest = locationEngineRequest;
   }
+
+  @Override
+  public void setAdaptiveLocationUpdates(boolean adaptiveLocationUpdates) {
+    this.adaptiveLocationUpdates = adaptiveLocationUpdates;
+  }
 }
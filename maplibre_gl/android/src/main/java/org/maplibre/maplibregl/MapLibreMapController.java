@@ -6,6 +6,7 @@ package org.maplibre.maplibregl;
 
 import android.Manifest;
 import android.annotation.SuppressLint;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.content.res.AssetFileDescriptor;
@@ -14,7 +15,8 @@ import android.graphics.BitmapFactory;
 import android.graphics.PointF;
 import android.graphics.RectF;
 import android.location.Location;
-import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.DisplayMetrics;
 import android.util.Log;
 import android.util.Pair;
@@ -25,11 +27,11 @@ import android.view.View;
 import android.widget.FrameLayout;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.lifecycle.DefaultLifecycleObserver;
 import androidx.lifecycle.Lifecycle;
 import androidx.lifecycle.LifecycleOwner;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
@@ -74,6 +76,7 @@ import org.maplibre.android.style.layers.PropertyValue;
 import org.maplibre.android.style.layers.RasterLayer;
 import org.maplibre.android.style.layers.SymbolLayer;
 import org.maplibre.android.style.sources.CustomGeometrySource;
+import org.maplibre.android.style.sources.CustomGeometrySourceOptions;
 import org.maplibre.android.style.sources.GeoJsonSource;
 import org.maplibre.android.style.sources.ImageSource;
 import org.maplibre.android.style.sources.Source;
@@ -81,6 +84,7 @@ import org.maplibre.android.style.sources.VectorSource;
 import org.maplibre.geojson.Feature;
 import org.maplibre.geojson.FeatureCollection;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -127,6 +131,9 @@ final class MapLibreMapController
    */
   private FrameLayout mapViewContainer;
   private MapView mapView;
+  private final MapLibreMapOptions mapViewOptions;
+  private final boolean mapViewFromPool;
+  @Nullable private Object pooledMapViewOptions;
   private MapLibreMap mapLibreMap;
   private boolean trackCameraPosition = false;
   private boolean myLocationEnabled = false;
@@ -149,11 +156,43 @@ final class MapLibreMapController
   private Map<String, FeatureCollection> addedFeaturesByLayer;
 
   private LatLngBounds bounds = null;
+  @Nullable private TilePrefetcher tilePrefetcher;
+  private final LocationUpdateForwarder locationUpdateForwarder;
+  @Nullable private GeofenceEngine geofenceEngine;
+  private final StyleLayerIndex styleLayerIndex = new StyleLayerIndex();
+  private final MapLanguageLocalizer mapLanguageLocalizer = new MapLanguageLocalizer();
+  private final Map<String, ClusteredSource> clusteredSources = new HashMap<>();
+  private final ClusteredSource.Listener clusteredSourceListener = this::setSourceFeatures;
+  private final Map<String, LevelOfDetailSource> levelOfDetailSources = new HashMap<>();
+  private final LevelOfDetailSource.Listener levelOfDetailListener = this::setSourceFeatures;
+  private final Map<String, GeoJsonTileIndex> tileIndexes = new HashMap<>();
+  private final Map<String, FlatGeobufSource> flatGeobufSources = new HashMap<>();
+  private final FlatGeobufSource.Listener flatGeobufListener = this::setSourceGeoJson;
+  private final MemoryTrimRegistry.Trimmable trimmable = this::trimMemory;
+  private final RenderStats renderStats = new RenderStats();
+  private final MapView.OnDidFinishRenderingFrameListener onDidFinishRenderingFrameListener =
+      renderStats::onFrameRendered;
+  private final MapView.OnDidFinishRenderingMapListener onDidFinishRenderingMapListener =
+      renderStats::onMapRendered;
+  private final Handler renderStatsHandler = new Handler(Looper.getMainLooper());
+  private final Runnable renderStatsReporter = this::reportRenderStats;
+  private long renderStatsIntervalMillis = 0;
+  private int styleRequest = 0;
+  private long styleRequestedAt = 0;
+  private boolean styleFromCache = false;
   Style.OnStyleLoaded onStyleLoadedCallback =
       new Style.OnStyleLoaded() {
         @Override
         public void onStyleLoaded(@NonNull Style style) {
           MapLibreMapController.this.style = style;
+          styleLayerIndex.reset(style);
+          disposeClusteredSources();
+          disposeFlatGeobufSources();
+          tileIndexes.clear();
+          if (styleRequestedAt != 0) {
+            StyleCache.recordLoadTime(styleFromCache, StyleCache.now() - styleRequestedAt);
+            styleRequestedAt = 0;
+          }
 
           // commented out while cherry-picking upstream956
           // if (myLocationEnabled) {
@@ -167,9 +206,15 @@ final class MapLibreMapController
             mapLibreMap.setLatLngBoundsForCameraTarget(bounds);
           }
 
+          mapLibreMap.removeOnMapClickListener(MapLibreMapController.this);
+          mapLibreMap.removeOnMapLongClickListener(MapLibreMapController.this);
           mapLibreMap.addOnMapClickListener(MapLibreMapController.this);
           mapLibreMap.addOnMapLongClickListener(MapLibreMapController.this);
 
+          if (tilePrefetcher != null) {
+            tilePrefetcher.onStyleLoaded(style.getJson());
+          }
+
           methodChannel.invokeMethod("map#onStyleLoaded", null);
         }
       };
@@ -188,7 +233,10 @@ final class MapLibreMapController
     this.dragEnabled = dragEnabled;
     this.styleStringInitial = styleStringInitial;
     this.mapViewContainer = new FrameLayout(context);
-    this.mapView = new MapView(context, options);
+    final MapView pooledMapView = MapViewPool.acquire(context, options);
+    this.mapViewOptions = options;
+    this.mapViewFromPool = pooledMapView != null;
+    this.mapView = pooledMapView != null ? pooledMapView : MapViewPool.create(context, options);
     this.interactiveFeatureLayerIds = new HashSet<>();
     this.addedFeaturesByLayer = new HashMap<String, FeatureCollection>();
     this.density = context.getResources().getDisplayMetrics().density;
@@ -199,7 +247,20 @@ final class MapLibreMapController
 
     mapViewContainer.addView(mapView);
     methodChannel = new MethodChannel(messenger, "plugins.flutter.io/maplibre_gl_" + id);
-    methodChannel.setMethodCallHandler(this);
+    locationUpdateForwarder = new LocationUpdateForwarder(methodChannel);
+    methodChannel.setMethodCallHandler(MethodCallStats.wrap(this));
+    MemoryTrimRegistry.register("map", trimmable);
+  }
+
+  private final MapView.OnStyleImageMissingListener onStyleImageMissingListener =
+      this::onStyleImageMissing;
+
+  private void onStyleImageMissing(String id) {
+    DisplayMetrics displayMetrics = context.getResources().getDisplayMetrics();
+    final Bitmap bitmap = getScaledImage(id, displayMetrics.density);
+    if (bitmap != null) {
+      mapLibreMap.getStyle().addImage(id, bitmap);
+    }
   }
 
   @Override
@@ -212,6 +273,22 @@ final class MapLibreMapController
     mapView.getMapAsync(this);
   }
 
+  boolean isMapViewFromPool() {
+    return mapViewFromPool;
+  }
+
+  /**
+   * Applies the map options to a pooled view, which was created with the options of an earlier
+   * map, once its map is ready.
+   */
+  void setPooledMapViewOptions(Object options) {
+    if (mapLibreMap != null) {
+      Convert.interpretMapLibreMapOptions(options, this, context);
+    } else {
+      pooledMapViewOptions = options;
+    }
+  }
+
   private void moveCamera(CameraUpdate cameraUpdate) {
     mapLibreMap.moveCamera(cameraUpdate);
   }
@@ -227,6 +304,15 @@ final class MapLibreMapController
   @Override
   public void onMapReady(MapLibreMap mapLibreMap) {
     this.mapLibreMap = mapLibreMap;
+    if (mapViewFromPool) {
+      if (mapViewOptions.getCamera() != null) {
+        mapLibreMap.moveCamera(CameraUpdateFactory.newCameraPosition(mapViewOptions.getCamera()));
+      }
+      if (pooledMapViewOptions != null) {
+        Convert.interpretMapLibreMapOptions(pooledMapViewOptions, this, context);
+        pooledMapViewOptions = null;
+      }
+    }
     if (mapReadyResult != null) {
       mapReadyResult.success(null);
       mapReadyResult = null;
@@ -248,16 +334,11 @@ final class MapLibreMapController
           });
     }
 
-    mapView.addOnStyleImageMissingListener(
-        (id) -> {
-          DisplayMetrics displayMetrics = context.getResources().getDisplayMetrics();
-          final Bitmap bitmap = getScaledImage(id, displayMetrics.density);
-          if (bitmap != null) {
-            mapLibreMap.getStyle().addImage(id, bitmap);
-          }
-        });
+    mapView.addOnStyleImageMissingListener(onStyleImageMissingListener);
 
     mapView.addOnDidBecomeIdleListener(this);
+    mapView.addOnDidFinishRenderingFrameListener(onDidFinishRenderingFrameListener);
+    mapView.addOnDidFinishRenderingMapListener(onDidFinishRenderingMapListener);
 
     setStyleString(styleStringInitial);
   }
@@ -267,6 +348,9 @@ final class MapLibreMapController
     // clear old layer id from the location Component
     clearLocationComponentLayer();
     styleString = styleString.trim();
+    styleRequest++;
+    styleRequestedAt = 0;
+    renderStats.onStyleRequested();
 
     // Check if json, url, absolute path or asset path:
     if (styleString == null || styleString.isEmpty()) {
@@ -283,11 +367,50 @@ final class MapLibreMapController
       // We are assuming that the style will be loaded from an asset here.
       String key = MapLibreMapsPlugin.flutterAssets.getAssetFilePathByName(styleString);
       mapLibreMap.setStyle(new Style.Builder().fromUri("asset://" + key), onStyleLoadedCallback);
+    } else if (StyleCache.isCacheable(styleString)) {
+      loadCachedStyle(styleString);
     } else {
+      if (!styleString.startsWith("mapbox://")) {
+        styleRequestedAt = StyleCache.now();
+        styleFromCache = false;
+      }
       mapLibreMap.setStyle(new Style.Builder().fromUri(styleString), onStyleLoadedCallback);
     }
   }
 
+  /**
+   * Applies the cached JSON of a remote style, and applies the style again if revalidating it
+   * returns a different one.
+   */
+  private void loadCachedStyle(String url) {
+    final int request = styleRequest;
+    styleRequestedAt = StyleCache.now();
+    StyleCache.load(
+        context,
+        url,
+        new StyleCache.Callback() {
+          @Override
+          public void onStyle(@NonNull String json, boolean fromCache) {
+            if (disposed || request != styleRequest) {
+              return;
+            }
+            styleFromCache = fromCache;
+            clearLocationComponentLayer();
+            mapLibreMap.setStyle(new Style.Builder().fromJson(json), onStyleLoadedCallback);
+          }
+
+          @Override
+          public void onError(@NonNull Exception exception) {
+            if (disposed || request != styleRequest) {
+              return;
+            }
+            Log.w(TAG, "Failed to fetch style " + url + ", loading it from the uri", exception);
+            styleFromCache = false;
+            mapLibreMap.setStyle(new Style.Builder().fromUri(url), onStyleLoadedCallback);
+          }
+        });
+  }
+
 
 
   @SuppressWarnings({"MissingPermission"})
@@ -305,6 +428,7 @@ final class MapLibreMapController
 
       locationComponent.activateLocationComponent(options);
       locationComponent.setLocationComponentEnabled(true);
+      styleLayerIndex.reset(style);
       locationComponent.setMaxAnimationFps(30);
       updateMyLocationTrackingMode();
       updateMyLocationRenderMode();
@@ -317,24 +441,19 @@ final class MapLibreMapController
   private void updateLocationComponentLayer() {
     if (locationComponent != null && locationComponentRequiresUpdate()) {
       locationComponent.applyStyle(buildLocationComponentOptions(style));
+      styleLayerIndex.moveLocationLayersToTop();
     }
   }
 
   private void clearLocationComponentLayer() {
     if (locationComponent != null) {
       locationComponent.applyStyle(buildLocationComponentOptions(null));
+      styleLayerIndex.moveLocationLayersToTop();
     }
   }
 
   String getLastLayerOnStyle(Style style) {
-    if (style != null) {
-      final List<Layer> layers = style.getLayers();
-
-      if (layers.size() > 0) {
-        return layers.get(layers.size() - 1).getId();
-      }
-    }
-    return null;
+    return style != null ? styleLayerIndex.getLastLayerId() : null;
   }
 
   /// only update if the last layer is not the mapbox-location-bearing-layer
@@ -348,7 +467,7 @@ final class MapLibreMapController
         LocationComponentOptions.builder(context);
     optionsBuilder.trackingGesturesManagement(true);
 
-    final String lastLayerId = getLastLayerOnStyle(style);
+    final String lastLayerId = style != null ? styleLayerIndex.getLastStyleLayerId() : null;
     if (lastLayerId != null) {
       optionsBuilder.layerAbove(lastLayerId);
     }
@@ -356,36 +475,46 @@ final class MapLibreMapController
   }
 
   private void onUserLocationUpdate(Location location) {
-    if (location == null) {
+    locationUpdateForwarder.onLocation(location);
+    if (geofenceEngine != null && location != null) {
+      updateGeofences(location);
+    }
+  }
+
+  private void updateGeofences(Location location) {
+    final List<String> ids = new ArrayList<>();
+    final List<Integer> transitions = new ArrayList<>();
+    geofenceEngine.update(
+        location.getLatitude(),
+        location.getLongitude(),
+        location.getAccuracy(),
+        location.getTime(),
+        (id, transition) -> {
+          ids.add(id);
+          transitions.add(transition);
+        });
+    if (ids.isEmpty()) {
       return;
     }
-
-    final Map<String, Object> userLocation = new HashMap<>(6);
-    userLocation.put("position", new double[] {location.getLatitude(), location.getLongitude()});
-    userLocation.put("speed", location.getSpeed());
-    userLocation.put("altitude", location.getAltitude());
-    userLocation.put("bearing", location.getBearing());
-    userLocation.put("speed", location.getSpeed());
-    userLocation.put("horizontalAccuracy", location.getAccuracy());
-    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-      userLocation.put(
-          "verticalAccuracy",
-          (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O)
-              ? location.getVerticalAccuracyMeters()
-              : null);
-    }
-    userLocation.put("timestamp", location.getTime());
-
-    final Map<String, Object> arguments = new HashMap<>(1);
-    arguments.put("userLocation", userLocation);
-    methodChannel.invokeMethod("map#onUserLocationUpdated", arguments);
+    final Map<String, Object> arguments = new HashMap<>(5);
+    arguments.put("ids", ids);
+    arguments.put("transitions", transitions);
+    arguments.put("position", new double[] {location.getLatitude(), location.getLongitude()});
+    arguments.put("timestamp", location.getTime());
+    methodChannel.invokeMethod("geofence#onEvent", arguments);
   }
 
   private void addGeoJsonSource(String sourceName, String source) {
     FeatureCollection featureCollection = FeatureCollection.fromJson(source);
-    GeoJsonSource geoJsonSource = new GeoJsonSource(sourceName, featureCollection);
     addedFeaturesByLayer.put(sourceName, featureCollection);
 
+    LevelOfDetailSource levelOfDetailSource = levelOfDetailSources.get(sourceName);
+    if (levelOfDetailSource != null) {
+      style.addSource(new GeoJsonSource(sourceName));
+      levelOfDetailSource.setData(featureCollection, mapLibreMap.getCameraPosition().zoom);
+      return;
+    }
+    GeoJsonSource geoJsonSource = new GeoJsonSource(sourceName, featureCollection);
     style.addSource(geoJsonSource);
   }
 
@@ -394,9 +523,224 @@ final class MapLibreMapController
     GeoJsonSource geoJsonSource = style.getSourceAs(sourceName);
     addedFeaturesByLayer.put(sourceName, featureCollection);
 
+    LevelOfDetailSource levelOfDetailSource = levelOfDetailSources.get(sourceName);
+    if (levelOfDetailSource != null) {
+      levelOfDetailSource.setData(featureCollection, mapLibreMap.getCameraPosition().zoom);
+      return;
+    }
     geoJsonSource.setGeoJson(featureCollection);
   }
 
+  private void addTiledGeoJsonSource(
+      String sourceName,
+      String geojson,
+      GeoJsonTileIndex tileIndex,
+      CustomGeometrySourceOptions options,
+      MethodChannel.Result result) {
+    final Style requestStyle = style;
+    tileIndex.update(
+        geojson,
+        null,
+        new GeoJsonTileIndex.Callback() {
+          @Override
+          public void onUpdated(@Nullable double[] region) {
+            if (style != requestStyle) {
+              result.error("STYLE_CHANGED", "The style changed while indexing.", null);
+              return;
+            }
+            tileIndexes.put(sourceName, tileIndex);
+            style.addSource(new CustomGeometrySource(sourceName, options, tileIndex));
+            result.success(null);
+          }
+
+          @Override
+          public void onError(@NonNull Exception e) {
+            result.error("INVALID_GEOJSON", e.getMessage(), null);
+          }
+        });
+  }
+
+  private void updateTiledGeoJsonSource(
+      String sourceName,
+      GeoJsonTileIndex tileIndex,
+      @Nullable String geojson,
+      @Nullable List<String> removedIds,
+      MethodChannel.Result result) {
+    tileIndex.update(
+        geojson,
+        removedIds,
+        new GeoJsonTileIndex.Callback() {
+          @Override
+          public void onUpdated(@Nullable double[] region) {
+            final CustomGeometrySource source =
+                style != null && tileIndexes.get(sourceName) == tileIndex
+                    ? style.getSourceAs(sourceName)
+                    : null;
+            if (region != null && source != null) {
+              tileIndex.invalidate(
+                  region,
+                  new GeoJsonTileIndex.Invalidator() {
+                    @Override
+                    public void invalidateTile(int zoom, int x, int y) {
+                      source.invalidateTile(zoom, x, y);
+                    }
+
+                    @Override
+                    public void invalidateRegion(
+                        double west, double south, double east, double north) {
+                      source.invalidateRegion(LatLngBounds.from(north, east, south, west));
+                    }
+                  });
+            }
+            result.success(null);
+          }
+
+          @Override
+          public void onError(@NonNull Exception e) {
+            result.error("INVALID_GEOJSON", e.getMessage(), null);
+          }
+        });
+  }
+
+  private void setLevelsOfDetail(String sourceName, double[] zooms, double tolerance) {
+    if (zooms.length == 0) {
+      levelOfDetailSources.remove(sourceName);
+      final FeatureCollection featureCollection = addedFeaturesByLayer.get(sourceName);
+      if (featureCollection != null) {
+        setSourceFeatures(sourceName, featureCollection);
+      }
+      return;
+    }
+    LevelOfDetailSource levelOfDetailSource = levelOfDetailSources.get(sourceName);
+    if (levelOfDetailSource == null) {
+      levelOfDetailSource = new LevelOfDetailSource(sourceName, levelOfDetailListener);
+      levelOfDetailSources.put(sourceName, levelOfDetailSource);
+      levelOfDetailSource.setLevels(zooms, tolerance);
+      final FeatureCollection featureCollection = addedFeaturesByLayer.get(sourceName);
+      if (featureCollection != null) {
+        levelOfDetailSource.setData(featureCollection, mapLibreMap.getCameraPosition().zoom);
+      }
+    } else {
+      levelOfDetailSource.setLevels(zooms, tolerance);
+    }
+  }
+
+  private void addClusteredSource(
+      String sourceName, double[] latLngs, Supercluster.Options options) {
+    ClusteredSource clusteredSource = clusteredSources.get(sourceName);
+    if (clusteredSource == null) {
+      clusteredSource = new ClusteredSource(sourceName, clusteredSourceListener);
+      clusteredSources.put(sourceName, clusteredSource);
+    }
+    if (style.getSource(sourceName) == null) {
+      style.addSource(
+          new GeoJsonSource(sourceName, FeatureCollection.fromFeatures(new ArrayList<>())));
+    }
+    clusteredSource.build(latLngs, options);
+    updateClusteredSource(clusteredSource);
+  }
+
+  private void setSourceFeatures(String sourceName, FeatureCollection features) {
+    if (style == null) {
+      return;
+    }
+    GeoJsonSource geoJsonSource = style.getSourceAs(sourceName);
+    if (geoJsonSource != null) {
+      geoJsonSource.setGeoJson(features);
+    }
+  }
+
+  private void setSourceGeoJson(String sourceName, String geojson) {
+    if (style == null) {
+      return;
+    }
+    GeoJsonSource geoJsonSource = style.getSourceAs(sourceName);
+    if (geoJsonSource != null) {
+      geoJsonSource.setGeoJson(geojson);
+    }
+  }
+
+  private void updateClusteredSource(ClusteredSource clusteredSource) {
+    final LatLngBounds visibleBounds =
+        mapLibreMap.getProjection().getVisibleRegion().latLngBounds;
+    clusteredSource.update(
+        visibleBounds.getLonWest(),
+        visibleBounds.getLatSouth(),
+        visibleBounds.getLonEast(),
+        visibleBounds.getLatNorth(),
+        mapLibreMap.getCameraPosition().zoom);
+  }
+
+  private void disposeClusteredSources() {
+    for (ClusteredSource clusteredSource : clusteredSources.values()) {
+      clusteredSource.dispose();
+    }
+    clusteredSources.clear();
+  }
+
+  private void addFlatGeobufSource(String sourceName, Map<String, Object> properties) {
+    final Object maxFeatures = properties.get("maxFeatures");
+    final FlatGeobufSource flatGeobufSource =
+        new FlatGeobufSource(
+            sourceName,
+            new File(Convert.toString(properties.get("path"))),
+            maxFeatures != null ? Convert.toInt(maxFeatures) : 100000,
+            flatGeobufListener);
+    final FlatGeobufSource previous = flatGeobufSources.put(sourceName, flatGeobufSource);
+    if (previous != null) {
+      previous.dispose();
+    }
+    updateFlatGeobufSource(flatGeobufSource);
+  }
+
+  /** Sends the render stats to Flutter, and schedules the next report. */
+  private void reportRenderStats() {
+    if (disposed || renderStatsIntervalMillis <= 0) {
+      return;
+    }
+    methodChannel.invokeMethod("map#onRenderStats", renderStats.getStats());
+    renderStatsHandler.postDelayed(renderStatsReporter, renderStatsIntervalMillis);
+  }
+
+  /**
+   * Drops the simplified copies of the geojson sources once the system is low on memory, and the
+   * tiles the native map keeps in memory once the app is running critically low or is in the
+   * background list of processes to kill. Hiding the app keeps both, so the map does not rebuild
+   * them when it is shown again. Returns the bytes released by the copies.
+   */
+  private long trimMemory(int level) {
+    long bytes = 0;
+    if (MemoryTrimRegistry.isLowOnMemory(level)) {
+      for (LevelOfDetailSource levelOfDetailSource : levelOfDetailSources.values()) {
+        bytes += levelOfDetailSource.trim();
+      }
+    }
+    final boolean low =
+        level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL
+            || level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE;
+    if (low && mapView != null) {
+      mapView.onLowMemory();
+    }
+    return bytes;
+  }
+
+  private void updateFlatGeobufSource(FlatGeobufSource flatGeobufSource) {
+    final LatLngBounds visibleBounds =
+        mapLibreMap.getProjection().getVisibleRegion().latLngBounds;
+    flatGeobufSource.update(
+        visibleBounds.getLonWest(),
+        visibleBounds.getLatSouth(),
+        visibleBounds.getLonEast(),
+        visibleBounds.getLatNorth());
+  }
+
+  private void disposeFlatGeobufSources() {
+    for (FlatGeobufSource flatGeobufSource : flatGeobufSources.values()) {
+      flatGeobufSource.dispose();
+    }
+    flatGeobufSources.clear();
+  }
+
   private void setGeoJsonFeature(String sourceName, String geojsonFeature) {
     Feature feature = Feature.fromJson(geojsonFeature);
     FeatureCollection featureCollection = addedFeaturesByLayer.get(sourceName);
@@ -411,6 +755,11 @@ final class MapLibreMapController
         }
       }
 
+      LevelOfDetailSource levelOfDetailSource = levelOfDetailSources.get(sourceName);
+      if (levelOfDetailSource != null) {
+        levelOfDetailSource.setData(featureCollection, mapLibreMap.getCameraPosition().zoom);
+        return;
+      }
       geoJsonSource.setGeoJson(featureCollection);
     }
   }
@@ -444,6 +793,8 @@ final class MapLibreMapController
     } else {
       style.addLayer(symbolLayer);
     }
+    styleLayerIndex.addBelow(layerName, belowLayerId);
+    mapLanguageLocalizer.onLayerAdded(symbolLayer);
     if (enableInteraction) {
       interactiveFeatureLayerIds.add(layerName);
     }
@@ -478,6 +829,7 @@ final class MapLibreMapController
     } else {
       style.addLayer(lineLayer);
     }
+    styleLayerIndex.addBelow(layerName, belowLayerId);
     if (enableInteraction) {
       interactiveFeatureLayerIds.add(layerName);
     }
@@ -512,6 +864,7 @@ final class MapLibreMapController
     } else {
       style.addLayer(fillLayer);
     }
+    styleLayerIndex.addBelow(layerName, belowLayerId);
     if (enableInteraction) {
       interactiveFeatureLayerIds.add(layerName);
     }
@@ -546,6 +899,7 @@ final class MapLibreMapController
     } else {
       style.addLayer(fillLayer);
     }
+    styleLayerIndex.addBelow(layerName, belowLayerId);
     if (enableInteraction) {
       interactiveFeatureLayerIds.add(layerName);
     }
@@ -580,6 +934,7 @@ final class MapLibreMapController
     } else {
       style.addLayer(circleLayer);
     }
+    styleLayerIndex.addBelow(layerName, belowLayerId);
     if (enableInteraction) {
       interactiveFeatureLayerIds.add(layerName);
     }
@@ -612,6 +967,7 @@ final class MapLibreMapController
     } else {
       style.addLayer(layer);
     }
+    styleLayerIndex.addBelow(layerName, belowLayerId);
   }
 
   private void addHillshadeLayer(
@@ -635,6 +991,7 @@ final class MapLibreMapController
     } else {
       style.addLayer(layer);
     }
+    styleLayerIndex.addBelow(layerName, belowLayerId);
   }
 
   private void addHeatmapLayer(
@@ -658,14 +1015,13 @@ final class MapLibreMapController
     } else {
       style.addLayer(layer);
     }
+    styleLayerIndex.addBelow(layerName, belowLayerId);
   }
 
   private Pair<Feature, String> firstFeatureOnLayers(RectF in) {
     if (style != null) {
-      final List<Layer> layers = style.getLayers();
       final List<String> layersInOrder = new ArrayList<String>();
-      for (Layer layer : layers) {
-        String id = layer.getId();
+      for (String id : styleLayerIndex.getLayerIds()) {
         if (interactiveFeatureLayerIds.contains(id)) layersInOrder.add(id);
       }
       Collections.reverse(layersInOrder);
@@ -707,7 +1063,7 @@ final class MapLibreMapController
         {
           try {
             final Locale deviceLocale = Locale.getDefault();
-            MapLibreMapUtils.setMapLanguage(mapLibreMap, deviceLocale.getLanguage());
+            mapLanguageLocalizer.setLanguage(mapLibreMap, deviceLocale.getLanguage());
 
             result.success(null);
           } catch (RuntimeException exception) {
@@ -737,7 +1093,7 @@ final class MapLibreMapController
         {
           final String language = call.argument("language");
           try {
-            MapLibreMapUtils.setMapLanguage(mapLibreMap, language);
+            mapLanguageLocalizer.setLanguage(mapLibreMap, language);
 
             result.success(null);
           } catch (RuntimeException exception) {
@@ -746,6 +1102,30 @@ final class MapLibreMapController
           }
           break;
         }
+      case "map#getMapLanguageStats":
+        {
+          result.success(mapLanguageLocalizer.getStats());
+          break;
+        }
+      case "map#getRenderStats":
+        {
+          result.success(renderStats.getStats());
+          if (Boolean.TRUE.equals(call.argument("reset"))) {
+            renderStats.reset();
+          }
+          break;
+        }
+      case "map#setRenderStatsInterval":
+        {
+          final Number intervalMillis = call.argument("intervalMillis");
+          renderStatsIntervalMillis = intervalMillis != null ? intervalMillis.longValue() : 0;
+          renderStatsHandler.removeCallbacks(renderStatsReporter);
+          if (renderStatsIntervalMillis > 0) {
+            renderStatsHandler.postDelayed(renderStatsReporter, renderStatsIntervalMillis);
+          }
+          result.success(null);
+          break;
+        }
       case "map#getVisibleRegion":
         {
           Map<String, Object> reply = new HashMap<>();
@@ -883,7 +1263,7 @@ final class MapLibreMapController
           String[] layerIds = ((List<String>) call.argument("layerIds")).toArray(new String[0]);
 
           List<Object> filter = call.argument("filter");
-          JsonElement jsonElement = filter == null ? null : new Gson().toJsonTree(filter);
+          JsonElement jsonElement = filter == null ? null : JsonCodec.gson.toJsonTree(filter);
           JsonArray jsonArray = null;
           if (jsonElement != null && jsonElement.isJsonArray()) {
             jsonArray = jsonElement.getAsJsonArray();
@@ -949,6 +1329,7 @@ final class MapLibreMapController
                 new OfflineManager.FileSourceCallback() {
                   @Override
                   public void onSuccess() {
+                    AmbientCacheWarmer.forgetInsertedResources(context);
                     result.success(null);
                   }
 
@@ -959,6 +1340,29 @@ final class MapLibreMapController
                 });
         break;
       }
+      case "map#setTilePrefetch":
+        {
+          final boolean enabled = call.argument("enabled");
+          if (tilePrefetcher == null) {
+            if (!enabled) {
+              result.success(null);
+              break;
+            }
+            tilePrefetcher = new TilePrefetcher(context, density);
+            if (style != null) {
+              tilePrefetcher.onStyleLoaded(style.getJson());
+            }
+          }
+          final Number byteBudget = call.argument("byteBudget");
+          tilePrefetcher.setOptions(
+              enabled,
+              call.argument("maxConcurrency"),
+              byteBudget.longValue(),
+              call.argument("ringSize"),
+              call.argument("prefetchNextZoom"));
+          result.success(null);
+          break;
+        }
       case "source#addGeoJson":
         {
           final String sourceId = call.argument("sourceId");
@@ -983,6 +1387,153 @@ final class MapLibreMapController
           result.success(null);
           break;
         }
+      case "source#addClustered":
+        {
+          if (style == null) {
+            result.error(
+                "STYLE IS NULL",
+                "The style is null. Has onStyleLoaded() already been invoked?",
+                null);
+            break;
+          }
+          final String sourceId = call.argument("sourceId");
+          final double[] coordinates = call.argument("coordinates");
+          final Supercluster.Options options = new Supercluster.Options();
+          options.radius = ((Number) call.argument("radius")).doubleValue();
+          options.maxZoom = call.argument("maxZoom");
+          options.minPoints = call.argument("minPoints");
+          addClusteredSource(sourceId, coordinates, options);
+          result.success(null);
+          break;
+        }
+      case "source#addGeoJsonFile":
+        {
+          if (style == null) {
+            result.error(
+                "STYLE IS NULL",
+                "The style is null. Has onStyleLoaded() already been invoked?",
+                null);
+            break;
+          }
+          final String sourceId = call.argument("sourceId");
+          final Map<String, Object> properties = call.argument("properties");
+          final List<Double> bbox = call.argument("bbox");
+          final GeoJsonStreamLoader.Filter filter = new GeoJsonStreamLoader.Filter();
+          filter.properties = call.argument("where");
+          if (bbox != null) {
+            filter.bbox = new double[] {bbox.get(0), bbox.get(1), bbox.get(2), bbox.get(3)};
+          }
+          final Style requestStyle = style;
+          GeoJsonStreamLoader.load(
+              new File((String) call.argument("path")),
+              filter,
+              new GeoJsonStreamLoader.Callback() {
+                @Override
+                public void onLoaded(@NonNull String geojson, int featureCount) {
+                  if (style != requestStyle) {
+                    result.error("STYLE_CHANGED", "The style changed while loading.", null);
+                    return;
+                  }
+                  final Source source = style.getSource(sourceId);
+                  if (source instanceof GeoJsonSource) {
+                    ((GeoJsonSource) source).setGeoJson(geojson);
+                  } else if (source != null) {
+                    result.error(
+                        "SOURCE_TYPE_MISMATCH",
+                        "The source " + sourceId + " is not a geojson source.",
+                        null);
+                    return;
+                  } else {
+                    style.addSource(
+                        new GeoJsonSource(
+                            sourceId,
+                            geojson,
+                            SourcePropertyConverter.buildGeojsonOptions(
+                                properties != null ? properties : new HashMap<>())));
+                  }
+                  result.success(featureCount);
+                }
+
+                @Override
+                public void onError(@NonNull Exception e) {
+                  result.error("FILE_ERROR", e.getMessage(), null);
+                }
+              });
+          break;
+        }
+      case "source#addTiledGeoJson":
+        {
+          if (style == null) {
+            result.error(
+                "STYLE IS NULL",
+                "The style is null. Has onStyleLoaded() already been invoked?",
+                null);
+            break;
+          }
+          final String sourceId = call.argument("sourceId");
+          final String geojson = call.argument("geojson");
+          final int minZoom = call.argument("minzoom");
+          final int maxZoom = call.argument("maxzoom");
+          final int buffer = call.argument("buffer");
+          final CustomGeometrySourceOptions options =
+              new CustomGeometrySourceOptions()
+                  .withMinZoom(minZoom)
+                  .withMaxZoom(maxZoom)
+                  .withTolerance(((Number) call.argument("tolerance")).floatValue())
+                  .withBuffer(buffer)
+                  .withClip(true);
+          addTiledGeoJsonSource(
+              sourceId, geojson, new GeoJsonTileIndex(minZoom, maxZoom, buffer), options, result);
+          break;
+        }
+      case "source#updateTiledGeoJson":
+        {
+          final String sourceId = call.argument("sourceId");
+          final GeoJsonTileIndex tileIndex = tileIndexes.get(sourceId);
+          if (tileIndex == null) {
+            result.error("SOURCE_NOT_FOUND", "No tiled geojson source " + sourceId + ".", null);
+            break;
+          }
+          updateTiledGeoJsonSource(
+              sourceId, tileIndex, call.argument("geojson"), call.argument("removeIds"), result);
+          break;
+        }
+      case "source#setLevelsOfDetail":
+        {
+          final String sourceId = call.argument("sourceId");
+          final List<Double> zooms = call.argument("zooms");
+          final double tolerance = call.argument("tolerance");
+          final double[] levelZooms = new double[zooms.size()];
+          for (int i = 0; i < levelZooms.length; i++) {
+            levelZooms[i] = zooms.get(i);
+          }
+          setLevelsOfDetail(sourceId, levelZooms, tolerance);
+          result.success(null);
+          break;
+        }
+      case "source#getClusterExpansionZoom":
+      case "source#getClusterLeaves":
+        {
+          final String sourceId = call.argument("sourceId");
+          final ClusteredSource clusteredSource = clusteredSources.get(sourceId);
+          if (clusteredSource == null) {
+            result.error("SOURCE_NOT_FOUND", "No clustered source " + sourceId + ".", null);
+            break;
+          }
+          final int clusterId = call.argument("clusterId");
+          try {
+            if (call.method.equals("source#getClusterExpansionZoom")) {
+              result.success(clusteredSource.getClusterExpansionZoom(clusterId));
+            } else {
+              final int limit = call.argument("limit");
+              final int offset = call.argument("offset");
+              result.success(clusteredSource.getClusterLeaves(clusterId, limit, offset));
+            }
+          } catch (IllegalArgumentException | IllegalStateException e) {
+            result.error("CLUSTER_NOT_FOUND", e.getMessage(), null);
+          }
+          break;
+        }
       case "symbolLayer#add":
         {
           final String sourceId = call.argument("sourceId");
@@ -1282,6 +1833,90 @@ final class MapLibreMapController
           }
           break;
         }
+      case "locationComponent#setForwarding":
+        {
+          final Number minDistance = call.argument("minDistance");
+          final Number minInterval = call.argument("minInterval");
+          final Number maxBatchDelay = call.argument("maxBatchDelay");
+          locationUpdateForwarder.setOptions(
+              call.argument("enabled"),
+              minDistance.floatValue(),
+              minInterval.longValue(),
+              call.argument("batchSize"),
+              maxBatchDelay.longValue());
+          result.success(null);
+          break;
+        }
+      case "locationComponent#setReplay":
+        {
+          final Number speed = call.argument("speed");
+          myLocationEngineFactory.setReplay(
+              call.argument("track"), speed.doubleValue(), call.argument("loop"));
+          reloadLocationEngine();
+          result.success(null);
+          break;
+        }
+      case "locationComponent#setRecording":
+        {
+          myLocationEngineFactory.setRecording(call.argument("path"), call.argument("capacity"));
+          reloadLocationEngine();
+          result.success(null);
+          break;
+        }
+      case "geofence#add":
+        {
+          if (geofenceEngine == null) {
+            geofenceEngine = new GeofenceEngine();
+          }
+          final List<Map<String, Object>> geofences = call.argument("geofences");
+          try {
+            for (Map<String, Object> geofence : geofences) {
+              final List<double[]> rings = (List<double[]>) geofence.get("rings");
+              final Number dwell = (Number) geofence.get("dwell");
+              geofenceEngine.add(
+                  (String) geofence.get("id"),
+                  rings.toArray(new double[0][]),
+                  dwell != null ? dwell.longValue() : 0);
+            }
+          } catch (IllegalArgumentException e) {
+            result.error("GEOFENCE_INVALID", e.getMessage(), null);
+            break;
+          }
+          result.success(null);
+          break;
+        }
+      case "geofence#remove":
+        {
+          final List<String> ids = call.argument("ids");
+          if (geofenceEngine != null) {
+            if (ids == null) {
+              geofenceEngine.clear();
+            } else {
+              for (String id : ids) {
+                geofenceEngine.remove(id);
+              }
+            }
+          }
+          result.success(null);
+          break;
+        }
+      case "geofence#setOptions":
+        {
+          if (geofenceEngine == null) {
+            geofenceEngine = new GeofenceEngine();
+          }
+          final Number hysteresis = call.argument("hysteresis");
+          final Number maxAccuracy = call.argument("maxAccuracy");
+          geofenceEngine.setOptions(hysteresis.doubleValue(), maxAccuracy.doubleValue());
+          result.success(null);
+          break;
+        }
+      case "locationComponent#getStats":
+        {
+          MapLibreGPSLocationEngine engine = myLocationEngineFactory.getGpsLocationEngine();
+          result.success(engine != null ? engine.getStats() : null);
+          break;
+        }
       case "style#addImage":
         {
           if (style == null) {
@@ -1349,6 +1984,9 @@ final class MapLibreMapController
           final String id = Convert.toString(call.argument("sourceId"));
           final Map<String, Object> properties = (Map<String, Object>) call.argument("properties");
           SourcePropertyConverter.addSource(id, properties, style);
+          if ("flatgeobuf".equals(properties.get("type"))) {
+            addFlatGeobufSource(id, properties);
+          }
           result.success(null);
           break;
         }
@@ -1361,7 +1999,17 @@ final class MapLibreMapController
                 "The style is null. Has onStyleLoaded() already been invoked?",
                 null);
           }
-          style.removeSource((String) call.argument("sourceId"));
+          final String sourceId = call.argument("sourceId");
+          final ClusteredSource clusteredSource = clusteredSources.remove(sourceId);
+          if (clusteredSource != null) {
+            clusteredSource.dispose();
+          }
+          final FlatGeobufSource flatGeobufSource = flatGeobufSources.remove(sourceId);
+          if (flatGeobufSource != null) {
+            flatGeobufSource.dispose();
+          }
+          tileIndexes.remove(sourceId);
+          style.removeSource(sourceId);
           result.success(null);
           break;
         }
@@ -1421,6 +2069,7 @@ final class MapLibreMapController
           }
           String layerId = call.argument("layerId");
           style.removeLayer(layerId);
+          styleLayerIndex.remove(layerId);
           interactiveFeatureLayerIds.remove(layerId);
 
           result.success(null);
@@ -1555,7 +2204,7 @@ final class MapLibreMapController
           String sourceLayerId = (String) call.argument("sourceLayerId");
 
           List<Object> filter = call.argument("filter");
-          JsonElement jsonElement = filter == null ? null : new Gson().toJsonTree(filter);
+          JsonElement jsonElement = filter == null ? null : JsonCodec.gson.toJsonTree(filter);
           JsonArray jsonArray = null;
           if (jsonElement != null && jsonElement.isJsonArray()) {
             jsonArray = jsonElement.getAsJsonArray();
@@ -1593,10 +2242,7 @@ final class MapLibreMapController
           }
           Map<String, Object> reply = new HashMap<>();
 
-          List<String> layerIds = new ArrayList<>();
-          for (Layer layer : style.getLayers()) {
-            layerIds.add(layer.getId());
-          }
+          List<String> layerIds = new ArrayList<>(styleLayerIndex.getLayerIds());
 
           reply.put("layers", layerIds);
           result.success(reply);
@@ -1628,6 +2274,9 @@ final class MapLibreMapController
 
   @Override
   public void onCameraMoveStarted(int reason) {
+    if (tilePrefetcher != null) {
+      tilePrefetcher.cancel();
+    }
     final Map<String, Object> arguments = new HashMap<>(2);
     boolean isGesture = reason == MapLibreMap.OnCameraMoveStartedListener.REASON_API_GESTURE;
     arguments.put("isGesture", isGesture);
@@ -1651,10 +2300,26 @@ final class MapLibreMapController
       arguments.put("position", Convert.toJson(mapLibreMap.getCameraPosition()));
     }
     methodChannel.invokeMethod("camera#onIdle", arguments);
+    if (tilePrefetcher != null) {
+      tilePrefetcher.onCameraIdle(mapLibreMap);
+    }
+    for (ClusteredSource clusteredSource : clusteredSources.values()) {
+      updateClusteredSource(clusteredSource);
+    }
+    for (FlatGeobufSource flatGeobufSource : flatGeobufSources.values()) {
+      updateFlatGeobufSource(flatGeobufSource);
+    }
+    if (!levelOfDetailSources.isEmpty()) {
+      final double zoom = mapLibreMap.getCameraPosition().zoom;
+      for (LevelOfDetailSource levelOfDetailSource : levelOfDetailSources.values()) {
+        levelOfDetailSource.update(zoom);
+      }
+    }
   }
 
   @Override
   public void onCameraTrackingChanged(int currentMode) {
+    myLocationEngineFactory.setCameraTracking(currentMode != CameraMode.NONE);
     final Map<String, Object> arguments = new HashMap<>(2);
     switch (currentMode) {
         case CameraMode.NONE:
@@ -1680,6 +2345,7 @@ final class MapLibreMapController
   @Override
   public void onCameraTrackingDismissed() {
     this.myLocationTrackingMode = 0;
+    myLocationEngineFactory.setCameraTracking(false);
     methodChannel.invokeMethod("map#onCameraTrackingDismissed", new HashMap<>());
   }
 
@@ -1726,7 +2392,18 @@ final class MapLibreMapController
       return;
     }
     disposed = true;
+    renderStatsHandler.removeCallbacks(renderStatsReporter);
     methodChannel.setMethodCallHandler(null);
+    if (tilePrefetcher != null) {
+      tilePrefetcher.dispose();
+      tilePrefetcher = null;
+    }
+    locationUpdateForwarder.dispose();
+    myLocationEngineFactory.dispose();
+    geofenceEngine = null;
+    disposeClusteredSources();
+    disposeFlatGeobufSources();
+    MemoryTrimRegistry.unregister(trimmable);
     destroyMapViewIfNecessary();
     Lifecycle lifecycle = lifecycleProvider.getLifecycle();
     if (lifecycle != null) {
@@ -1812,12 +2489,35 @@ final class MapLibreMapController
 
     mapViewContainer.removeView(mapView);
 
-    mapView.onStop();
-    mapView.onDestroy();
+    if (MapViewPool.release(mapView, mapViewOptions)) {
+      removeMapViewListeners();
+    } else {
+      mapView.onStop();
+      mapView.onDestroy();
+    }
 
     mapView = null;
   }
 
+  /** Removes the listeners of this controller from a view that is kept for the next map. */
+  private void removeMapViewListeners() {
+    mapView.removeOnStyleImageMissingListener(onStyleImageMissingListener);
+    mapView.removeOnDidBecomeIdleListener(this);
+    mapView.removeOnDidFinishRenderingFrameListener(onDidFinishRenderingFrameListener);
+    mapView.removeOnDidFinishRenderingMapListener(onDidFinishRenderingMapListener);
+    mapView.setOnTouchListener(null);
+    if (mapLibreMap != null) {
+      mapLibreMap.removeOnCameraMoveStartedListener(this);
+      mapLibreMap.removeOnCameraMoveListener(this);
+      mapLibreMap.removeOnCameraIdleListener(this);
+      mapLibreMap.removeOnMapClickListener(this);
+      mapLibreMap.removeOnMapLongClickListener(this);
+    }
+    if (locationComponent != null) {
+      locationComponent.removeOnCameraTrackingChangedListener(this);
+    }
+  }
+
   @Override
   public void onCreate(@NonNull LifecycleOwner owner) {
     if (disposed) {
@@ -1882,6 +2582,12 @@ final class MapLibreMapController
     myLocationEngineFactory.initLocationComponent(context, locationComponent, locationEngineRequest);
   }
 
+  @Override
+  public void setAdaptiveLocationUpdates(boolean adaptiveLocationUpdates) {
+    myLocationEngineFactory.setAdaptiveLocationUpdates(
+        context, locationComponent, adaptiveLocationUpdates);
+  }
+
   @Override
   public void setCompassEnabled(boolean compassEnabled) {
     mapLibreMap.getUiSettings().setCompassEnabled(compassEnabled);
@@ -2073,6 +2779,18 @@ final class MapLibreMapController
     }
   }
 
+  /** Replaces the location engine, e.g. to start or stop replaying a track. */
+  private void reloadLocationEngine() {
+    if (locationComponent == null || !locationComponent.isLocationComponentActivated()) {
+      return;
+    }
+    stopListeningForLocationUpdates();
+    locationComponent.setLocationEngine(myLocationEngineFactory.getLocationEngine(context));
+    if (myLocationEnabled) {
+      startListeningForLocationUpdates();
+    }
+  }
+
   private void stopListeningForLocationUpdates() {
     if (locationEngineCallback != null
         && locationComponent != null
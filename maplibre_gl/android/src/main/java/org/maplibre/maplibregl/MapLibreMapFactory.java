@@ -43,6 +43,11 @@ public class MapLibreMapFactory extends PlatformViewFactory {
       builder.setStyleString(styleString);
     }
 
-    return builder.build(id, context, messenger, lifecycleProvider);
+    final MapLibreMapController controller =
+        builder.build(id, context, messenger, lifecycleProvider);
+    if (controller.isMapViewFromPool()) {
+      controller.setPooledMapViewOptions(params.get("options"));
+    }
+    return controller;
   }
 }
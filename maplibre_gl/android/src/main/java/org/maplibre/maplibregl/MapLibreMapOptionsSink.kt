@@ -45,4 +45,6 @@ internal interface MapLibreMapOptionsSink {
     fun setAttributionButtonMargins(x: Int, y: Int)
 
     fun setLocationEngineProperties(locationEngineRequest: LocationEngineRequest)
+
+    fun setAdaptiveLocationUpdates(adaptiveLocationUpdates: Boolean)
 }
\ No newline at end of file
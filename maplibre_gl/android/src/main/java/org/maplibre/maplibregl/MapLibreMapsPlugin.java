@@ -33,10 +33,12 @@ public class MapLibreMapsPlugin implements FlutterPlugin, ActivityAware {
   @Override
   public void onAttachedToEngine(@NonNull FlutterPluginBinding binding) {
     flutterAssets = binding.getFlutterAssets();
+    MapLibreUtils.preload();
+    MemoryTrimRegistry.attach(binding.getApplicationContext());
 
     MethodChannel methodChannel =
         new MethodChannel(binding.getBinaryMessenger(), "plugins.flutter.io/maplibre_gl");
-    methodChannel.setMethodCallHandler(new GlobalMethodHandler(binding));
+    methodChannel.setMethodCallHandler(MethodCallStats.wrap(new GlobalMethodHandler(binding)));
 
     binding
         .getPlatformViewRegistry()
@@ -55,7 +57,7 @@ public class MapLibreMapsPlugin implements FlutterPlugin, ActivityAware {
 
   @Override
   public void onDetachedFromEngine(@NonNull FlutterPluginBinding binding) {
-    // no-op
+    MemoryTrimRegistry.detach();
   }
 
   @Override
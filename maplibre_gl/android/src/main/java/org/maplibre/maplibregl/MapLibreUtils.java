@@ -1,12 +1,82 @@
 package org.maplibre.maplibregl;
 
 import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import org.maplibre.android.LibraryLoader;
 import org.maplibre.android.MapLibre;
 
 abstract class MapLibreUtils {
   private static final String TAG = "MapLibreMapController";
 
+  private static volatile MapLibre mapLibre;
+  private static FutureTask<Long> libraryLoader;
+  private static long libraryLoadMillis = -1;
+  private static long waitMillis = -1;
+  private static long initMillis = -1;
+
+  /**
+   * Starts loading the native library on a background thread. {@link MapLibre#getInstance} has to
+   * be called on the main thread, but then only has to wait for the library if it is not loaded
+   * yet.
+   */
+  static synchronized void preload() {
+    if (libraryLoader != null) {
+      return;
+    }
+    libraryLoader =
+        new FutureTask<>(
+            () -> {
+              final long start = SystemClock.elapsedRealtime();
+              LibraryLoader.load();
+              return SystemClock.elapsedRealtime() - start;
+            });
+    new Thread(libraryLoader, "MapLibreLibraryLoader").start();
+  }
+
   static MapLibre getMapLibre(Context context) {
-    return MapLibre.getInstance(context);
+    final MapLibre instance = mapLibre;
+    if (instance != null) {
+      return instance;
+    }
+    return initialize(context);
+  }
+
+  private static synchronized MapLibre initialize(Context context) {
+    if (mapLibre != null) {
+      return mapLibre;
+    }
+    preload();
+    final long waitStart = SystemClock.elapsedRealtime();
+    try {
+      libraryLoadMillis = libraryLoader.get();
+    } catch (ExecutionException e) {
+      // MapLibre.getInstance loads the library again and reports the error.
+      Log.e(TAG, "Failed to load the native library in the background", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    final long initStart = SystemClock.elapsedRealtime();
+    waitMillis = initStart - waitStart;
+    mapLibre = MapLibre.getInstance(context);
+    initMillis = SystemClock.elapsedRealtime() - initStart;
+    return mapLibre;
+  }
+
+  /**
+   * Returns the time it took to load the native library in the background, how long the main
+   * thread waited for it, and how long creating the MapLibre instance took, in milliseconds.
+   */
+  static synchronized Map<String, Object> getInitStats() {
+    final Map<String, Object> stats = new HashMap<>();
+    stats.put("initialized", mapLibre != null);
+    stats.put("libraryLoadMillis", libraryLoadMillis);
+    stats.put("waitMillis", waitMillis);
+    stats.put("initMillis", initMillis);
+    return stats;
   }
 }
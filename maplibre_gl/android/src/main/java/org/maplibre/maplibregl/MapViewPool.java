@@ -0,0 +1,193 @@
+package org.maplibre.maplibregl;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.maplibre.android.maps.MapLibreMapOptions;
+import org.maplibre.android.maps.MapView;
+
+/**
+ * Keeps the map views of disposed maps, so creating the next map does not have to construct a new
+ * view, renderer and native map.
+ *
+ * <p>Only texture mode views are pooled, as a {@code GLSurfaceView} loses its GL context when it
+ * is detached. Views are created with a {@link MutableContextWrapper}, whose base context is set
+ * to the activity while a map uses the view, and to the application context while it is pooled.
+ * A view is only reused for a map with the same creation time options, such as the pixel ratio and
+ * the local ideograph font, which the view cannot change afterwards.
+ * The pool is trimmed through the {@link MemoryTrimRegistry} when the system is low on memory,
+ * but not when the app only goes to the background.
+ *
+ * <p>All methods must be called on the main thread.
+ */
+abstract class MapViewPool {
+  private static final ArrayDeque<Entry> entries = new ArrayDeque<>();
+  private static int maxSize = 0;
+  @Nullable private static Context applicationContext;
+
+  private static long created;
+  private static long reused;
+  private static long trimmed;
+
+  private static final class Entry {
+    final MapView mapView;
+    final MutableContextWrapper context;
+    final List<Object> creationOptions;
+
+    Entry(MapView mapView, MutableContextWrapper context, MapLibreMapOptions options) {
+      this.mapView = mapView;
+      this.context = context;
+      this.creationOptions = creationOptions(options);
+    }
+  }
+
+  /** Sets the number of views to keep, or 0 to disable pooling and destroy the pooled views. */
+  static void setMaxSize(@NonNull Context context, int maxSize) {
+    registerTrimCallbacks(context);
+    MapViewPool.maxSize = Math.max(0, maxSize);
+    trimTo(MapViewPool.maxSize);
+  }
+
+  /** Creates views up to the maximum size of the pool ahead of time. */
+  static int prewarm(@NonNull Context context, int count) {
+    registerTrimCallbacks(context);
+    final MapLibreMapOptions options = defaultOptions();
+    int added = 0;
+    while (added < count && entries.size() < maxSize) {
+      final MutableContextWrapper wrapper = new MutableContextWrapper(applicationContext);
+      final MapView mapView = new MapView(wrapper, options);
+      mapView.onCreate(null);
+      created++;
+      entries.add(new Entry(mapView, wrapper, options));
+      added++;
+    }
+    return added;
+  }
+
+  /**
+   * Returns a pooled view created with the same creation time options, or null. The other options,
+   * such as the camera and the UI settings, are not applied to the view.
+   */
+  @Nullable
+  static MapView acquire(@NonNull Context context, @NonNull MapLibreMapOptions options) {
+    if (!isPoolable(options)) {
+      return null;
+    }
+    final List<Object> creationOptions = creationOptions(options);
+    final Iterator<Entry> iterator = entries.iterator();
+    while (iterator.hasNext()) {
+      final Entry entry = iterator.next();
+      if (entry.creationOptions.equals(creationOptions)) {
+        iterator.remove();
+        entry.context.setBaseContext(context);
+        reused++;
+        return entry.mapView;
+      }
+    }
+    return null;
+  }
+
+  /** Creates a view that can be released into the pool once its map is disposed. */
+  @NonNull
+  static MapView create(@NonNull Context context, @NonNull MapLibreMapOptions options) {
+    if (!isPoolable(options)) {
+      return new MapView(context, options);
+    }
+    created++;
+    return new MapView(new MutableContextWrapper(context), options);
+  }
+
+  /**
+   * Keeps a detached view for the next map. Returns false if the pool is full or the view cannot
+   * be pooled, in which case the caller destroys the view.
+   */
+  static boolean release(@NonNull MapView mapView, @NonNull MapLibreMapOptions options) {
+    if (entries.size() >= maxSize
+        || !isPoolable(options)
+        || !(mapView.getContext() instanceof MutableContextWrapper)
+        || applicationContext == null) {
+      return false;
+    }
+    final MutableContextWrapper wrapper = (MutableContextWrapper) mapView.getContext();
+    mapView.onStop();
+    wrapper.setBaseContext(applicationContext);
+    entries.add(new Entry(mapView, wrapper, options));
+    return true;
+  }
+
+  static Map<String, Object> getStats() {
+    final Map<String, Object> stats = new HashMap<>();
+    stats.put("size", entries.size());
+    stats.put("maxSize", maxSize);
+    stats.put("created", created);
+    stats.put("reused", reused);
+    stats.put("trimmed", trimmed);
+    return stats;
+  }
+
+  private static boolean isPoolable(MapLibreMapOptions options) {
+    return maxSize > 0 && options.getTextureMode();
+  }
+
+  /**
+   * Returns the options the view, its renderer and its native map are created with. The map does
+   * not apply them again when a pooled view is reused.
+   */
+  private static List<Object> creationOptions(MapLibreMapOptions options) {
+    return Arrays.asList(
+        options.getTranslucentTextureSurface(),
+        options.getRenderSurfaceOnTop(),
+        options.getPixelRatio(),
+        options.getLocalIdeographFontFamily(),
+        options.getCrossSourceCollisions(),
+        options.getForegroundLoadColor(),
+        options.getPrefetchZoomDelta(),
+        options.getDebugActive(),
+        options.getApiBaseUri());
+  }
+
+  /** The creation time options of the views created by {@link MapLibreMapBuilder}. */
+  private static MapLibreMapOptions defaultOptions() {
+    return new MapLibreMapOptions().attributionEnabled(true).logoEnabled(false).textureMode(true);
+  }
+
+  /**
+   * Destroys the oldest views until the pool has the size, and returns the bytes of their
+   * surfaces.
+   */
+  private static long trimTo(int size) {
+    long bytes = 0;
+    while (entries.size() > size) {
+      final Entry entry = entries.removeFirst();
+      bytes += 4L * entry.mapView.getWidth() * entry.mapView.getHeight();
+      entry.mapView.onDestroy();
+      trimmed++;
+    }
+    return bytes;
+  }
+
+  private static void registerTrimCallbacks(Context context) {
+    if (applicationContext != null) {
+      return;
+    }
+    applicationContext = context.getApplicationContext();
+    MemoryTrimRegistry.register(
+        "mapViewPool",
+        level -> {
+          if (MemoryTrimRegistry.isLowOnMemory(level)) {
+            return trimTo(0);
+          } else if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            return trimTo(entries.size() / 2);
+          }
+          return 0;
+        });
+  }
+}
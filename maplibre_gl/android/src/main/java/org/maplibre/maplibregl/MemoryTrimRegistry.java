@@ -0,0 +1,151 @@
+package org.maplibre.maplibregl;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Hands the memory trim levels of the system to the caches of the plugin, and counts the bytes
+ * they release.
+ *
+ * <p>The plugin registers the callbacks of this class with the application context, caches
+ * register themselves with a name and unregister once they are gone. The bytes a cache reports are
+ * an estimate, memory released by native code is not counted. Only data that can be loaded or
+ * computed again registers, the indexes of clustered and tiled geojson sources are the only copy
+ * of their features and are never trimmed.
+ *
+ * <p>All methods must be called on the main thread.
+ */
+abstract class MemoryTrimRegistry {
+  private static final String TAG = "MemoryTrimRegistry";
+
+  interface Trimmable {
+    /** Releases memory for the trim level, and returns an estimate of the bytes released. */
+    long trim(int level);
+  }
+
+  private static final Map<Trimmable, String> trimmables = new LinkedHashMap<>();
+  @Nullable private static Context applicationContext;
+  private static int attachCount = 0;
+
+  private static final Map<String, Long> trimsByLevel = new HashMap<>();
+  private static final Map<String, Long> bytesByLevel = new HashMap<>();
+  private static final Map<String, Long> bytesByCache = new HashMap<>();
+  private static int lastLevel = -1;
+  private static long lastBytes;
+
+  private static final ComponentCallbacks2 callbacks =
+      new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+          trim(level);
+        }
+
+        @Override
+        public void onConfigurationChanged(@NonNull Configuration configuration) {}
+
+        @Override
+        public void onLowMemory() {
+          trim(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        }
+      };
+
+  /** Starts receiving the trim levels of the application, once for every attached engine. */
+  static void attach(@NonNull Context context) {
+    if (attachCount++ > 0) {
+      return;
+    }
+    applicationContext = context.getApplicationContext();
+    applicationContext.registerComponentCallbacks(callbacks);
+  }
+
+  /** Stops receiving the trim levels once the last engine is detached. */
+  static void detach() {
+    if (attachCount == 0 || --attachCount > 0 || applicationContext == null) {
+      return;
+    }
+    applicationContext.unregisterComponentCallbacks(callbacks);
+    applicationContext = null;
+  }
+
+  static void register(@NonNull String name, @NonNull Trimmable trimmable) {
+    trimmables.put(trimmable, name);
+  }
+
+  static void unregister(@NonNull Trimmable trimmable) {
+    trimmables.remove(trimmable);
+  }
+
+  /** Trims every registered cache for the level. */
+  static void trim(int level) {
+    long total = 0;
+    for (Map.Entry<Trimmable, String> entry : new ArrayList<>(trimmables.entrySet())) {
+      final long bytes = entry.getKey().trim(level);
+      if (bytes > 0) {
+        add(bytesByCache, entry.getValue(), bytes);
+        total += bytes;
+      }
+    }
+    final String levelName = levelName(level);
+    add(trimsByLevel, levelName, 1);
+    add(bytesByLevel, levelName, total);
+    lastLevel = level;
+    lastBytes = total;
+    Log.d(TAG, "Released about " + total + " bytes for trim level " + levelName);
+  }
+
+  /**
+   * Returns whether the level means the system is low on memory. {@code TRIM_MEMORY_UI_HIDDEN} and
+   * {@code TRIM_MEMORY_BACKGROUND} only mean the app went to the background, dropping caches then
+   * would make the app slower when it is shown again.
+   */
+  static boolean isLowOnMemory(int level) {
+    return level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+        || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL
+        || level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE;
+  }
+
+  static Map<String, Object> getStats() {
+    final Map<String, Object> stats = new HashMap<>();
+    stats.put("caches", trimmables.size());
+    stats.put("trimsByLevel", new HashMap<>(trimsByLevel));
+    stats.put("bytesByLevel", new HashMap<>(bytesByLevel));
+    stats.put("bytesByCache", new HashMap<>(bytesByCache));
+    stats.put("lastLevel", lastLevel >= 0 ? levelName(lastLevel) : null);
+    stats.put("lastBytes", lastBytes);
+    return stats;
+  }
+
+  private static void add(Map<String, Long> counts, String key, long value) {
+    final Long count = counts.get(key);
+    counts.put(key, count != null ? count + value : value);
+  }
+
+  private static String levelName(int level) {
+    switch (level) {
+      case ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE:
+        return "runningModerate";
+      case ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW:
+        return "runningLow";
+      case ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL:
+        return "runningCritical";
+      case ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN:
+        return "uiHidden";
+      case ComponentCallbacks2.TRIM_MEMORY_BACKGROUND:
+        return "background";
+      case ComponentCallbacks2.TRIM_MEMORY_MODERATE:
+        return "moderate";
+      case ComponentCallbacks2.TRIM_MEMORY_COMPLETE:
+        return "complete";
+      default:
+        return String.valueOf(level);
+    }
+  }
+}
@@ -0,0 +1,173 @@
+package org.maplibre.maplibregl;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts the calls of every method of the plugin's method channels, with the time their handlers
+ * spent on the platform thread, the size of their arguments and their errors.
+ *
+ * <p>Handlers are wrapped with {@link #wrap}. The time of a call is measured until its handler
+ * returns, work the handler hands to other threads is not included. The counters are atomic, and
+ * the time histogram of each method is allocated with its first call.
+ */
+abstract class MethodCallStats {
+  /** The upper bounds of the buckets in microseconds, the last bucket counts longer calls. */
+  private static final long[] BUCKET_MICROS = {50, 100, 250, 500, 1000, 2500, 5000, 10000, 50000};
+
+  private static final ConcurrentHashMap<String, Counters> counters = new ConcurrentHashMap<>();
+
+  private static final class Counters {
+    final AtomicLong calls = new AtomicLong();
+    final AtomicLong errors = new AtomicLong();
+    final AtomicLong nanos = new AtomicLong();
+    final AtomicLong maxNanos = new AtomicLong();
+    final AtomicLong argumentBytes = new AtomicLong();
+    final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_MICROS.length + 1);
+  }
+
+  /** Returns a handler that counts the calls before handing them to the handler. */
+  static MethodChannel.MethodCallHandler wrap(@NonNull MethodChannel.MethodCallHandler handler) {
+    return (call, result) -> {
+      final Counters methodCounters = countersFor(call.method);
+      final long start = System.nanoTime();
+      try {
+        handler.onMethodCall(call, new CountingResult(result, methodCounters));
+      } catch (RuntimeException e) {
+        methodCounters.errors.incrementAndGet();
+        throw e;
+      } finally {
+        record(methodCounters, call, System.nanoTime() - start);
+      }
+    };
+  }
+
+  static Map<String, Object> getStats() {
+    final List<Long> bucketMicros = new ArrayList<>(BUCKET_MICROS.length);
+    for (long micros : BUCKET_MICROS) {
+      bucketMicros.add(micros);
+    }
+    final Map<String, Object> methods = new HashMap<>();
+    for (Map.Entry<String, Counters> entry : counters.entrySet()) {
+      final Counters methodCounters = entry.getValue();
+      final long calls = methodCounters.calls.get();
+      final List<Long> bucketCounts = new ArrayList<>(BUCKET_MICROS.length + 1);
+      for (int i = 0; i < methodCounters.bucketCounts.length(); i++) {
+        bucketCounts.add(methodCounters.bucketCounts.get(i));
+      }
+      final Map<String, Object> stats = new HashMap<>();
+      stats.put("calls", calls);
+      stats.put("errors", methodCounters.errors.get());
+      stats.put("totalMicros", methodCounters.nanos.get() / 1000);
+      stats.put("averageMicros", calls > 0 ? methodCounters.nanos.get() / 1000 / calls : null);
+      stats.put("maxMicros", methodCounters.maxNanos.get() / 1000);
+      stats.put("argumentBytes", methodCounters.argumentBytes.get());
+      stats.put("bucketCounts", bucketCounts);
+      methods.put(entry.getKey(), stats);
+    }
+    final Map<String, Object> stats = new HashMap<>();
+    stats.put("bucketMicros", bucketMicros);
+    stats.put("methods", methods);
+    return stats;
+  }
+
+  static void reset() {
+    counters.clear();
+  }
+
+  private static Counters countersFor(String method) {
+    final Counters existing = counters.get(method);
+    if (existing != null) {
+      return existing;
+    }
+    final Counters created = new Counters();
+    final Counters raced = counters.putIfAbsent(method, created);
+    return raced != null ? raced : created;
+  }
+
+  private static void record(Counters methodCounters, MethodCall call, long nanos) {
+    methodCounters.calls.incrementAndGet();
+    methodCounters.nanos.addAndGet(nanos);
+    long max = methodCounters.maxNanos.get();
+    while (nanos > max && !methodCounters.maxNanos.compareAndSet(max, nanos)) {
+      max = methodCounters.maxNanos.get();
+    }
+    final long micros = nanos / 1000;
+    int bucket = 0;
+    while (bucket < BUCKET_MICROS.length && micros > BUCKET_MICROS[bucket]) {
+      bucket++;
+    }
+    methodCounters.bucketCounts.incrementAndGet(bucket);
+    methodCounters.argumentBytes.addAndGet(argumentBytes(call.arguments));
+  }
+
+  /**
+   * Returns the size of the strings and typed arrays among the arguments and the top level
+   * values of a map argument, other values are not counted.
+   */
+  private static long argumentBytes(@Nullable Object arguments) {
+    if (arguments instanceof Map) {
+      long bytes = 0;
+      for (Object value : ((Map<?, ?>) arguments).values()) {
+        bytes += valueBytes(value);
+      }
+      return bytes;
+    }
+    return valueBytes(arguments);
+  }
+
+  private static long valueBytes(@Nullable Object value) {
+    if (value instanceof String) {
+      return ((String) value).length();
+    } else if (value instanceof byte[]) {
+      return ((byte[]) value).length;
+    } else if (value instanceof int[]) {
+      return 4L * ((int[]) value).length;
+    } else if (value instanceof long[]) {
+      return 8L * ((long[]) value).length;
+    } else if (value instanceof float[]) {
+      return 4L * ((float[]) value).length;
+    } else if (value instanceof double[]) {
+      return 8L * ((double[]) value).length;
+    }
+    return 0;
+  }
+
+  /** Counts the errors a handler reports, possibly after it returned. */
+  private static final class CountingResult implements MethodChannel.Result {
+    private final MethodChannel.Result result;
+    private final Counters methodCounters;
+
+    CountingResult(MethodChannel.Result result, Counters methodCounters) {
+      this.result = result;
+      this.methodCounters = methodCounters;
+    }
+
+    @Override
+    public void success(@Nullable Object value) {
+      result.success(value);
+    }
+
+    @Override
+    public void error(
+        @NonNull String errorCode, @Nullable String errorMessage, @Nullable Object errorDetails) {
+      methodCounters.errors.incrementAndGet();
+      result.error(errorCode, errorMessage, errorDetails);
+    }
+
+    @Override
+    public void notImplemented() {
+      methodCounters.errors.incrementAndGet();
+      result.notImplemented();
+    }
+  }
+}
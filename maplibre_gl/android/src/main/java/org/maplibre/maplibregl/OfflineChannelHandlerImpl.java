@@ -1,15 +1,11 @@
 package org.maplibre.maplibregl;
 
 import androidx.annotation.Nullable;
-import com.google.gson.Gson;
 import io.flutter.plugin.common.BinaryMessenger;
 import io.flutter.plugin.common.EventChannel;
-import java.util.HashMap;
-import java.util.Map;
 
 public class OfflineChannelHandlerImpl implements EventChannel.StreamHandler {
   private EventChannel.EventSink sink;
-  private Gson gson = new Gson();
 
   OfflineChannelHandlerImpl(BinaryMessenger messenger, String channelName) {
     EventChannel eventChannel = new EventChannel(messenger, channelName);
@@ -33,23 +29,16 @@ public class OfflineChannelHandlerImpl implements EventChannel.StreamHandler {
 
   void onSuccess() {
     if (sink == null) return;
-    Map<String, Object> body = new HashMap<>();
-    body.put("status", "success");
-    sink.success(gson.toJson(body));
+    sink.success(JsonCodec.downloadEvent("success", null));
   }
 
   void onStart() {
     if (sink == null) return;
-    Map<String, Object> body = new HashMap<>();
-    body.put("status", "start");
-    sink.success(gson.toJson(body));
+    sink.success(JsonCodec.downloadEvent("start", null));
   }
 
   void onProgress(double progress) {
     if (sink == null) return;
-    Map<String, Object> body = new HashMap<>();
-    body.put("status", "progress");
-    body.put("progress", progress);
-    sink.success(gson.toJson(body));
+    sink.success(JsonCodec.downloadEvent("progress", progress));
   }
 }
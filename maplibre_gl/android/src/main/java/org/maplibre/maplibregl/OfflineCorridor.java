@@ -0,0 +1,614 @@
+package org.maplibre.maplibregl;
+
+import androidx.annotation.Nullable;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.maplibre.geojson.Geometry;
+import org.maplibre.geojson.LineString;
+import org.maplibre.geojson.MultiLineString;
+import org.maplibre.geojson.MultiPoint;
+import org.maplibre.geojson.MultiPolygon;
+import org.maplibre.geojson.Point;
+import org.maplibre.geojson.Polygon;
+
+/**
+ * Geometry helpers for offline regions that follow a route: buffering lines into corridor polygons,
+ * estimating the number of tiles a geometry covers and splitting long corridors into chunks that
+ * stay below the tile count limit.
+ */
+abstract class OfflineCorridor {
+  private static final double METERS_PER_DEGREE = 111320.0;
+  private static final int MAX_SUBDIVISIONS = 16;
+
+  /** Returns the geometry of a region definition map, with lines buffered into corridors. */
+  static Geometry regionGeometry(Map<String, Object> definition) {
+    return buffer(parseGeometry(definition.get("geometry")), bufferMeters(definition));
+  }
+
+  static double bufferMeters(Map<String, Object> definition) {
+    final Object buffer = definition.get("bufferMeters");
+    return buffer instanceof Number ? ((Number) buffer).doubleValue() : 0;
+  }
+
+  static Geometry parseGeometry(Object geometry) {
+    final String json = JsonCodec.gson.toJson(geometry);
+    final JsonElement type = new JsonParser().parse(json).getAsJsonObject().get("type");
+    switch (type != null ? type.getAsString() : "") {
+      case "Point":
+        return Point.fromJson(json);
+      case "MultiPoint":
+        return MultiPoint.fromJson(json);
+      case "LineString":
+        {
+          final LineString line = LineString.fromJson(json);
+          requirePoints(line.coordinates());
+          return line;
+        }
+      case "MultiLineString":
+        {
+          final MultiLineString lines = MultiLineString.fromJson(json);
+          if (lines.coordinates().isEmpty()) {
+            throw new IllegalArgumentException("Region geometry has no lines");
+          }
+          for (List<Point> line : lines.coordinates()) {
+            requirePoints(line);
+          }
+          return lines;
+        }
+      case "Polygon":
+        return Polygon.fromJson(json);
+      case "MultiPolygon":
+        return MultiPolygon.fromJson(json);
+      default:
+        throw new IllegalArgumentException("Unsupported region geometry " + type);
+    }
+  }
+
+  private static void requirePoints(List<Point> line) {
+    if (line.isEmpty()) {
+      throw new IllegalArgumentException("Region geometry has a line without coordinates");
+    }
+  }
+
+  /** Buffers lines into corridor polygons of the given half width, other geometries are kept. */
+  static Geometry buffer(Geometry geometry, double meters) {
+    if (meters <= 0) {
+      return geometry;
+    }
+    if (geometry instanceof LineString) {
+      return toPolygon(corridorRing(toArray(((LineString) geometry).coordinates()), meters));
+    }
+    if (geometry instanceof MultiLineString) {
+      final List<Polygon> polygons = new ArrayList<>();
+      for (List<Point> line : ((MultiLineString) geometry).coordinates()) {
+        polygons.add(toPolygon(corridorRing(toArray(line), meters)));
+      }
+      return MultiPolygon.fromPolygons(polygons);
+    }
+    return geometry;
+  }
+
+  /**
+   * Splits a corridor into polygons that each cover at most {@code maxTiles} tiles between the zoom
+   * levels. Only lines can be split, other geometries are returned as a single chunk.
+   */
+  static List<Geometry> split(
+      Geometry geometry, double meters, int minZoom, int maxZoom, long maxTiles) {
+    final List<List<Point>> lines = new ArrayList<>();
+    if (geometry instanceof LineString) {
+      lines.add(((LineString) geometry).coordinates());
+    } else if (geometry instanceof MultiLineString) {
+      lines.addAll(((MultiLineString) geometry).coordinates());
+    } else {
+      return Collections.singletonList(buffer(geometry, meters));
+    }
+
+    final List<Geometry> chunks = new ArrayList<>();
+    for (List<Point> line : lines) {
+      for (double[] chunk : splitLine(toArray(line), meters, minZoom, maxZoom, maxTiles)) {
+        chunks.add(meters > 0 ? toPolygon(corridorRing(chunk, meters)) : toLineString(chunk));
+      }
+    }
+    return chunks;
+  }
+
+  /** Returns the number of tiles covering the geometry at all zoom levels between min and max. */
+  static long estimateTileCount(Geometry geometry, int minZoom, int maxZoom) {
+    final List<Shape> shapes = shapes(geometry);
+    long count = 0;
+    for (int z = minZoom; z <= maxZoom; z++) {
+      count += coverTiles(shapes, z, null);
+    }
+    return count;
+  }
+
+  /** Returns the tiles covering the geometry at a zoom level, as {@link TileCover#tileKey}s. */
+  static Set<Long> tiles(Geometry geometry, int zoom) {
+    final Set<Long> tiles = new HashSet<>();
+    coverTiles(shapes(geometry), zoom, tiles);
+    return tiles;
+  }
+
+  /** Returns the number of tiles covering the bounding box of the geometry. */
+  static long estimateBoundingBoxTileCount(Geometry geometry, int minZoom, int maxZoom) {
+    double south = Double.MAX_VALUE;
+    double west = Double.MAX_VALUE;
+    double north = -Double.MAX_VALUE;
+    double east = -Double.MAX_VALUE;
+    for (Shape shape : shapes(geometry)) {
+      for (double[] ring : shape.rings) {
+        for (int i = 0; i < ring.length; i += 2) {
+          west = Math.min(west, ring[i]);
+          east = Math.max(east, ring[i]);
+          south = Math.min(south, ring[i + 1]);
+          north = Math.max(north, ring[i + 1]);
+        }
+      }
+    }
+    if (west > east) {
+      return 0;
+    }
+    // Lines across the antimeridian continue past it, so the box may extend beyond it too.
+    if (east - west >= 360) {
+      return TileCover.countTiles(south, -180, north, 180, minZoom, maxZoom);
+    }
+    if (west < -180) {
+      return TileCover.countTiles(south, west + 360, north, 180, minZoom, maxZoom)
+          + TileCover.countTiles(south, -180, north, east, minZoom, maxZoom);
+    }
+    if (east > 180) {
+      return TileCover.countTiles(south, west, north, 180, minZoom, maxZoom)
+          + TileCover.countTiles(south, -180, north, east - 360, minZoom, maxZoom);
+    }
+    return TileCover.countTiles(south, west, north, east, minZoom, maxZoom);
+  }
+
+  private static List<double[]> splitLine(
+      double[] line, double meters, int minZoom, int maxZoom, long maxTiles) {
+    final List<double[]> points = new ArrayList<>();
+    for (int i = 0; i < line.length; i += 2) {
+      points.add(new double[] {line[i], line[i + 1]});
+    }
+
+    final List<double[]> chunks = new ArrayList<>();
+    int start = 0;
+    while (start < points.size() - 1) {
+      // A single segment that is too large is subdivided until it fits.
+      int subdivisions = 0;
+      while (subdivisions < MAX_SUBDIVISIONS
+          && !fits(points, start, start + 1, meters, minZoom, maxZoom, maxTiles)) {
+        final double[] a = points.get(start);
+        final double[] b = points.get(start + 1);
+        points.add(start + 1, new double[] {(a[0] + b[0]) / 2, (a[1] + b[1]) / 2});
+        subdivisions++;
+      }
+
+      // Grow the chunk exponentially, then narrow it down.
+      final int last = points.size() - 1;
+      int end = start + 1;
+      int step = 1;
+      while (end + step <= last
+          && fits(points, start, end + step, meters, minZoom, maxZoom, maxTiles)) {
+        end += step;
+        step *= 2;
+      }
+      while (step > 1) {
+        step /= 2;
+        if (end + step <= last
+            && fits(points, start, end + step, meters, minZoom, maxZoom, maxTiles)) {
+          end += step;
+        }
+      }
+
+      chunks.add(toArray(points, start, end));
+      start = end;
+    }
+    return chunks;
+  }
+
+  private static boolean fits(
+      List<double[]> points,
+      int start,
+      int end,
+      double meters,
+      int minZoom,
+      int maxZoom,
+      long maxTiles) {
+    final double[] line = toArray(points, start, end);
+    final Shape shape =
+        meters > 0
+            ? new Shape(Collections.singletonList(corridorRing(line, meters)), true)
+            : new Shape(Collections.singletonList(line), false);
+    final List<Shape> shapes = Collections.singletonList(shape);
+    long count = 0;
+    for (int z = minZoom; z <= maxZoom && count <= maxTiles; z++) {
+      count += coverTiles(shapes, z, null);
+    }
+    return count <= maxTiles;
+  }
+
+  /**
+   * Returns a closed ring around the line, offset by {@code meters} on both sides and extended by
+   * the same distance past both ends. Coordinates are interleaved longitude, latitude pairs.
+   */
+  static double[] corridorRing(double[] line, double meters) {
+    final double[] points = dedupe(line);
+    final int n = points.length / 2;
+    if (n == 0) {
+      throw new IllegalArgumentException("Cannot buffer a line without coordinates");
+    }
+    if (n == 1) {
+      final double lon = points[0];
+      final double lat = points[1];
+      return new double[] {
+        offsetLon(lon, lat, -meters), offsetLat(lat, -meters),
+        offsetLon(lon, lat, meters), offsetLat(lat, -meters),
+        offsetLon(lon, lat, meters), offsetLat(lat, meters),
+        offsetLon(lon, lat, -meters), offsetLat(lat, meters),
+        offsetLon(lon, lat, -meters), offsetLat(lat, -meters)
+      };
+    }
+
+    // Unit directions of the segments, in local meters.
+    final double[] ux = new double[n - 1];
+    final double[] uy = new double[n - 1];
+    for (int i = 0; i < n - 1; i++) {
+      final double cosLat =
+          Math.cos(Math.toRadians((points[2 * i + 1] + points[2 * i + 3]) / 2));
+      final double dx = (points[2 * i + 2] - points[2 * i]) * cosLat;
+      final double dy = points[2 * i + 3] - points[2 * i + 1];
+      final double length = Math.hypot(dx, dy);
+      ux[i] = dx / length;
+      uy[i] = dy / length;
+    }
+
+    final List<double[]> left = new ArrayList<>(n + 4);
+    final List<double[]> right = new ArrayList<>(n + 4);
+    addOffset(left, points, 0, -ux[0] - uy[0], -uy[0] + ux[0], meters);
+    addOffset(right, points, 0, -ux[0] + uy[0], -uy[0] - ux[0], meters);
+    for (int i = 1; i < n - 1; i++) {
+      // Normals of the previous and the next segment, pointing to the left.
+      final double pnx = -uy[i - 1];
+      final double pny = ux[i - 1];
+      final double nnx = -uy[i];
+      final double nny = ux[i];
+      final double cos = pnx * nnx + pny * nny;
+      if (cos >= 0) {
+        // Miter join, the offset of the bisector is meters / cos(angle / 2).
+        final double mx = pnx + nnx;
+        final double my = pny + nny;
+        final double scale = 2 / (mx * mx + my * my);
+        addOffset(left, points, i, mx * scale, my * scale, meters);
+        addOffset(right, points, i, -mx * scale, -my * scale, meters);
+      } else {
+        // Bevel join for sharp turns, a miter would reach too far.
+        addOffset(left, points, i, pnx, pny, meters);
+        addOffset(left, points, i, nnx, nny, meters);
+        addOffset(right, points, i, -pnx, -pny, meters);
+        addOffset(right, points, i, -nnx, -nny, meters);
+      }
+    }
+    final int e = n - 2;
+    addOffset(left, points, n - 1, ux[e] - uy[e], uy[e] + ux[e], meters);
+    addOffset(right, points, n - 1, ux[e] + uy[e], uy[e] - ux[e], meters);
+
+    final double[] ring = new double[(left.size() + right.size() + 1) * 2];
+    int k = 0;
+    for (double[] point : left) {
+      ring[k++] = point[0];
+      ring[k++] = point[1];
+    }
+    for (int i = right.size() - 1; i >= 0; i--) {
+      ring[k++] = right.get(i)[0];
+      ring[k++] = right.get(i)[1];
+    }
+    ring[k++] = ring[0];
+    ring[k] = ring[1];
+    return ring;
+  }
+
+  private static void addOffset(
+      List<double[]> side, double[] points, int index, double dx, double dy, double meters) {
+    final double lon = points[2 * index];
+    final double lat = points[2 * index + 1];
+    side.add(new double[] {offsetLon(lon, lat, dx * meters), offsetLat(lat, dy * meters)});
+  }
+
+  private static double offsetLon(double lon, double lat, double meters) {
+    final double cosLat = Math.max(0.01, Math.cos(Math.toRadians(lat)));
+    return lon + meters / (METERS_PER_DEGREE * cosLat);
+  }
+
+  private static double offsetLat(double lat, double meters) {
+    return Math.max(-90, Math.min(90, lat + meters / METERS_PER_DEGREE));
+  }
+
+  private static double[] dedupe(double[] line) {
+    final double[] result = new double[line.length];
+    int k = 0;
+    for (int i = 0; i < line.length; i += 2) {
+      if (k > 0 && result[k - 2] == line[i] && result[k - 1] == line[i + 1]) {
+        continue;
+      }
+      result[k++] = line[i];
+      result[k++] = line[i + 1];
+    }
+    return k == result.length ? result : Arrays.copyOf(result, k);
+  }
+
+  /**
+   * Counts the tiles covered by the shapes at a single zoom level, row by row: a tile is covered if
+   * an edge passes through it or its row center lies inside an area. Columns past the antimeridian
+   * wrap around. The covered tiles are added to {@code tiles} if it is not null.
+   */
+  private static long coverTiles(List<Shape> shapes, int z, @Nullable Set<Long> tiles) {
+    final List<Edge> edges = new ArrayList<>();
+    for (int s = 0; s < shapes.size(); s++) {
+      for (double[] ring : shapes.get(s).rings) {
+        for (int i = 0; i + 3 < ring.length; i += 2) {
+          edges.add(
+              new Edge(
+                  s,
+                  TileCover.lonToTileX(ring[i], z),
+                  TileCover.latToTileY(ring[i + 1], z),
+                  TileCover.lonToTileX(ring[i + 2], z),
+                  TileCover.latToTileY(ring[i + 3], z)));
+        }
+        if (ring.length == 2) { // A single point.
+          final double x = TileCover.lonToTileX(ring[0], z);
+          final double y = TileCover.latToTileY(ring[1], z);
+          edges.add(new Edge(s, x, y, x, y));
+        }
+      }
+    }
+    if (edges.isEmpty()) {
+      return 0;
+    }
+    Collections.sort(
+        edges,
+        new Comparator<Edge>() {
+          @Override
+          public int compare(Edge a, Edge b) {
+            return Double.compare(a.minY, b.minY);
+          }
+        });
+
+    final int maxTile = (1 << z) - 1;
+    double maxY = 0;
+    for (Edge edge : edges) {
+      maxY = Math.max(maxY, edge.maxY);
+    }
+    final int firstRow = TileCover.clampTile(edges.get(0).minY, z);
+    final int lastRow = TileCover.clampTile(maxY, z);
+
+    final List<Edge> active = new ArrayList<>();
+    final List<long[]> intervals = new ArrayList<>();
+    final double[] crossings = new double[edges.size()];
+    int next = 0;
+    long count = 0;
+    for (int row = firstRow; row <= lastRow; row++) {
+      final double top = row;
+      final double bottom = row + 1;
+      while (next < edges.size() && edges.get(next).minY <= bottom) {
+        active.add(edges.get(next++));
+      }
+      for (int i = active.size() - 1; i >= 0; i--) {
+        if (active.get(i).maxY < top) {
+          active.remove(i);
+        }
+      }
+
+      intervals.clear();
+      for (Edge edge : active) {
+        if (edge.minY <= bottom && edge.maxY >= top) {
+          final double[] range = edge.xRange(top, bottom);
+          intervals.add(new long[] {(long) Math.floor(range[0]), (long) Math.floor(range[1])});
+        }
+      }
+
+      // Interior spans of the areas, even-odd along the row center.
+      final double center = row + 0.5;
+      for (int s = 0; s < shapes.size(); s++) {
+        if (!shapes.get(s).area) {
+          continue;
+        }
+        int n = 0;
+        for (Edge edge : active) {
+          if (edge.shape == s && (edge.y1 <= center) != (edge.y2 <= center)) {
+            crossings[n++] =
+                edge.x1 + (center - edge.y1) / (edge.y2 - edge.y1) * (edge.x2 - edge.x1);
+          }
+        }
+        Arrays.sort(crossings, 0, n);
+        for (int i = 0; i + 1 < n; i += 2) {
+          intervals.add(
+              new long[] {(long) Math.floor(crossings[i]), (long) Math.floor(crossings[i + 1])});
+        }
+      }
+
+      for (long[] interval : union(intervals, maxTile)) {
+        count += interval[1] - interval[0] + 1;
+        if (tiles != null) {
+          for (long x = interval[0]; x <= interval[1]; x++) {
+            tiles.add(TileCover.tileKey(z, (int) x, row));
+          }
+        }
+      }
+    }
+    return count;
+  }
+
+  /** Wraps the column intervals around the antimeridian, and returns their disjoint union. */
+  private static List<long[]> union(List<long[]> intervals, int maxTile) {
+    final long columns = maxTile + 1;
+    final List<long[]> wrapped = new ArrayList<>(intervals.size() + 1);
+    for (long[] interval : intervals) {
+      if (interval[1] - interval[0] + 1 >= columns) {
+        return Collections.singletonList(new long[] {0, maxTile});
+      }
+      final long from = ((interval[0] % columns) + columns) % columns;
+      final long to = from + interval[1] - interval[0];
+      if (to <= maxTile) {
+        wrapped.add(new long[] {from, to});
+      } else {
+        wrapped.add(new long[] {from, maxTile});
+        wrapped.add(new long[] {0, to - columns});
+      }
+    }
+    Collections.sort(
+        wrapped,
+        new Comparator<long[]>() {
+          @Override
+          public int compare(long[] a, long[] b) {
+            return Long.compare(a[0], b[0]);
+          }
+        });
+    final List<long[]> union = new ArrayList<>(wrapped.size());
+    for (long[] interval : wrapped) {
+      final long[] last = union.isEmpty() ? null : union.get(union.size() - 1);
+      if (last != null && interval[0] <= last[1] + 1) {
+        last[1] = Math.max(last[1], interval[1]);
+      } else {
+        union.add(new long[] {interval[0], interval[1]});
+      }
+    }
+    return union;
+  }
+
+  private static List<Shape> shapes(Geometry geometry) {
+    final List<Shape> shapes = new ArrayList<>();
+    if (geometry instanceof Point) {
+      final Point point = (Point) geometry;
+      shapes.add(
+          new Shape(
+              Collections.singletonList(new double[] {point.longitude(), point.latitude()}),
+              false));
+    } else if (geometry instanceof MultiPoint) {
+      for (Point point : ((MultiPoint) geometry).coordinates()) {
+        shapes.add(
+            new Shape(
+                Collections.singletonList(new double[] {point.longitude(), point.latitude()}),
+                false));
+      }
+    } else if (geometry instanceof LineString) {
+      shapes.add(
+          new Shape(
+              Collections.singletonList(toArray(((LineString) geometry).coordinates())), false));
+    } else if (geometry instanceof MultiLineString) {
+      for (List<Point> line : ((MultiLineString) geometry).coordinates()) {
+        shapes.add(new Shape(Collections.singletonList(toArray(line)), false));
+      }
+    } else if (geometry instanceof Polygon) {
+      shapes.add(new Shape(toRings(((Polygon) geometry).coordinates()), true));
+    } else if (geometry instanceof MultiPolygon) {
+      for (List<List<Point>> polygon : ((MultiPolygon) geometry).coordinates()) {
+        shapes.add(new Shape(toRings(polygon), true));
+      }
+    }
+    return shapes;
+  }
+
+  private static List<double[]> toRings(List<List<Point>> rings) {
+    final List<double[]> result = new ArrayList<>(rings.size());
+    for (List<Point> ring : rings) {
+      result.add(toArray(ring));
+    }
+    return result;
+  }
+
+  /**
+   * Returns the interleaved coordinates of the points. Longitudes are unwrapped, so a line across
+   * the antimeridian continues past it instead of going around the world.
+   */
+  private static double[] toArray(List<Point> points) {
+    final double[] result = new double[points.size() * 2];
+    for (int i = 0; i < points.size(); i++) {
+      double lon = points.get(i).longitude();
+      if (i > 0) {
+        final double previous = result[2 * i - 2];
+        lon -= 360 * Math.round((lon - previous) / 360);
+      }
+      result[2 * i] = lon;
+      result[2 * i + 1] = points.get(i).latitude();
+    }
+    return result;
+  }
+
+  private static double[] toArray(List<double[]> points, int start, int end) {
+    final double[] result = new double[(end - start + 1) * 2];
+    for (int i = start; i <= end; i++) {
+      result[2 * (i - start)] = points.get(i)[0];
+      result[2 * (i - start) + 1] = points.get(i)[1];
+    }
+    return result;
+  }
+
+  private static List<Point> toPoints(double[] coordinates) {
+    final List<Point> points = new ArrayList<>(coordinates.length / 2);
+    for (int i = 0; i < coordinates.length; i += 2) {
+      points.add(Point.fromLngLat(coordinates[i], coordinates[i + 1]));
+    }
+    return points;
+  }
+
+  private static Polygon toPolygon(double[] ring) {
+    return Polygon.fromLngLats(Collections.singletonList(toPoints(ring)));
+  }
+
+  private static LineString toLineString(double[] line) {
+    return LineString.fromLngLats(toPoints(line));
+  }
+
+  /** The rings of a polygon, or the vertices of a line or point without an area. */
+  private static final class Shape {
+    final List<double[]> rings;
+    final boolean area;
+
+    Shape(List<double[]> rings, boolean area) {
+      this.rings = rings;
+      this.area = area;
+    }
+  }
+
+  /** An edge in tile coordinates of a single zoom level. */
+  private static final class Edge {
+    final int shape;
+    final double x1;
+    final double y1;
+    final double x2;
+    final double y2;
+    final double minY;
+    final double maxY;
+
+    Edge(int shape, double x1, double y1, double x2, double y2) {
+      this.shape = shape;
+      this.x1 = x1;
+      this.y1 = y1;
+      this.x2 = x2;
+      this.y2 = y2;
+      this.minY = Math.min(y1, y2);
+      this.maxY = Math.max(y1, y2);
+    }
+
+    /** Returns the range of x covered by the part of the edge between two rows. */
+    double[] xRange(double top, double bottom) {
+      if (y1 == y2) {
+        return new double[] {Math.min(x1, x2), Math.max(x1, x2)};
+      }
+      final double ta = Math.max(0, Math.min(1, (top - y1) / (y2 - y1)));
+      final double tb = Math.max(0, Math.min(1, (bottom - y1) / (y2 - y1)));
+      final double xa = x1 + ta * (x2 - x1);
+      final double xb = x1 + tb * (x2 - x1);
+      return new double[] {Math.min(xa, xb), Math.max(xa, xb)};
+    }
+  }
+}
@@ -1,10 +1,14 @@
 package org.maplibre.maplibregl;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
-import com.google.gson.Gson;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import org.maplibre.android.geometry.LatLng;
 import org.maplibre.android.geometry.LatLngBounds;
+import org.maplibre.android.offline.OfflineGeometryRegionDefinition;
 import org.maplibre.android.offline.OfflineManager;
 import org.maplibre.android.offline.OfflineRegion;
 import org.maplibre.android.offline.OfflineRegionDefinition;
@@ -17,10 +21,21 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import org.maplibre.geojson.Geometry;
 
 abstract class OfflineManagerUtils {
   private static final String TAG = "OfflineManagerUtils";
+  private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+  private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  // The last listing of the regions, dropped whenever regions are created, merged, updated or
+  // deleted. Only accessed on the main thread, where the offline manager calls back.
+  @Nullable private static OfflineRegion[] cachedRegions;
+  @Nullable private static List<OfflineManager.ListOfflineRegionsCallback> pendingListCallbacks;
+  private static int listingGeneration;
 
   static void mergeRegions(MethodChannel.Result result, Context context, String path) {
     OfflineManager.Companion.getInstance(context)
@@ -28,13 +43,9 @@ abstract class OfflineManagerUtils {
             path,
             new OfflineManager.MergeOfflineRegionsCallback() {
               public void onMerge(OfflineRegion[] offlineRegions) {
+                invalidateRegions();
                 if (result == null) return;
-                List<Map<String, Object>> regionsArgs = new ArrayList<>();
-                for (OfflineRegion offlineRegion : offlineRegions) {
-                  regionsArgs.add(offlineRegionToMap(offlineRegion));
-                }
-                String json = new Gson().toJson(regionsArgs);
-                result.success(json);
+                result.success(JsonCodec.regionsToJson(offlineRegions));
               }
 
               public void onError(String error) {
@@ -49,6 +60,28 @@ abstract class OfflineManagerUtils {
     result.success(null);
   }
 
+  /**
+   * Deletes the offline database with its regions and ambient cache, and forgets the resource
+   * packs that were warmed into it.
+   */
+  static void resetDatabase(MethodChannel.Result result, Context context) {
+    OfflineManager.Companion.getInstance(context)
+        .resetDatabase(
+            new OfflineManager.FileSourceCallback() {
+              @Override
+              public void onSuccess() {
+                invalidateRegions();
+                AmbientCacheWarmer.forgetInsertedResources(context);
+                result.success(null);
+              }
+
+              @Override
+              public void onError(@NonNull String message) {
+                result.error("ResetDatabaseError", message, null);
+              }
+            });
+  }
+
   static void downloadRegion(
       MethodChannel.Result result,
       Context context,
@@ -57,23 +90,20 @@ abstract class OfflineManagerUtils {
       OfflineChannelHandlerImpl channelHandler) {
     float pixelDensity = context.getResources().getDisplayMetrics().density;
     OfflineRegionDefinition definition = mapToRegionDefinition(definitionMap, pixelDensity);
-    String metadata = "{}";
-    if (metadataMap != null) {
-      metadata = new Gson().toJson(metadataMap);
-    }
+    final byte[] metadata = JsonCodec.metadataToBytes(metadataMap);
     AtomicBoolean isComplete = new AtomicBoolean(false);
     // Download region
     OfflineManager.Companion.getInstance(context)
         .createOfflineRegion(
             definition,
-            metadata.getBytes(),
+            metadata,
             new OfflineManager.CreateOfflineRegionCallback() {
               private OfflineRegion _offlineRegion;
 
               @Override
               public void onCreate(OfflineRegion offlineRegion) {
-                Map<String, Object> regionData = offlineRegionToMap(offlineRegion);
-                result.success(new Gson().toJson(regionData));
+                invalidateRegions();
+                result.success(JsonCodec.regionToJson(offlineRegion, null));
 
                 _offlineRegion = offlineRegion;
                 // Observe downloading state
@@ -161,115 +191,392 @@ abstract class OfflineManagerUtils {
             });
   }
 
-  static void regionsList(MethodChannel.Result result, Context context) {
+  /**
+   * Estimates the number of tiles of a region definition, together with the number of tiles of its
+   * bounding box, so callers can see how much a geometry saves over a plain bounding box.
+   */
+  static void estimateTiles(MethodChannel.Result result, Map<String, Object> definitionMap) {
+    final int minZoom = (int) Math.floor(((Number) definitionMap.get("minZoom")).doubleValue());
+    final int maxZoom = maxZoom(definitionMap);
+    executor.execute(
+        () -> {
+          final Map<String, Object> estimate = new HashMap<>(4);
+          try {
+            if (definitionMap.get("geometry") != null) {
+              Geometry geometry = OfflineCorridor.regionGeometry(definitionMap);
+              estimate.put("tiles", OfflineCorridor.estimateTileCount(geometry, minZoom, maxZoom));
+              estimate.put(
+                  "boundingBoxTiles",
+                  OfflineCorridor.estimateBoundingBoxTileCount(geometry, minZoom, maxZoom));
+            } else {
+              LatLngBounds bounds = listToBounds((List<List<Double>>) definitionMap.get("bounds"));
+              long tiles =
+                  TileCover.countTiles(
+                      bounds.getLatSouth(),
+                      bounds.getLonWest(),
+                      bounds.getLatNorth(),
+                      bounds.getLonEast(),
+                      minZoom,
+                      maxZoom);
+              estimate.put("tiles", tiles);
+              estimate.put("boundingBoxTiles", tiles);
+            }
+          } catch (RuntimeException e) {
+            mainHandler.post(
+                () -> result.error("mapboxInvalidRegionDefinition", e.getMessage(), null));
+            return;
+          }
+          mainHandler.post(() -> result.success(estimate));
+        });
+  }
+
+  /**
+   * Downloads a corridor along a line as several regions, each of them estimated to stay below
+   * {@code maxTilesPerRegion} tiles. The regions are downloaded one after the other and report
+   * their combined progress.
+   */
+  static void downloadCorridor(
+      MethodChannel.Result result,
+      Context context,
+      Map<String, Object> definitionMap,
+      Map<String, Object> metadataMap,
+      long maxTilesPerRegion,
+      OfflineChannelHandlerImpl channelHandler) {
+    final float pixelDensity = context.getResources().getDisplayMetrics().density;
+    final int minZoom = (int) Math.floor(((Number) definitionMap.get("minZoom")).doubleValue());
+    final int maxZoom = maxZoom(definitionMap);
+    executor.execute(
+        () -> {
+          final List<Geometry> chunks;
+          try {
+            chunks =
+                OfflineCorridor.split(
+                    OfflineCorridor.parseGeometry(definitionMap.get("geometry")),
+                    OfflineCorridor.bufferMeters(definitionMap),
+                    minZoom,
+                    maxZoom,
+                    maxTilesPerRegion);
+          } catch (RuntimeException e) {
+            mainHandler.post(
+                () -> {
+                  channelHandler.onError("mapboxInvalidRegionDefinition", e.getMessage(), null);
+                  result.error("mapboxInvalidRegionDefinition", e.getMessage(), null);
+                });
+            return;
+          }
+          Log.i(TAG, "Corridor split into " + chunks.size() + " regions");
+
+          final List<OfflineRegionDefinition> definitions = new ArrayList<>(chunks.size());
+          for (Geometry chunk : chunks) {
+            definitions.add(
+                new OfflineGeometryRegionDefinition(
+                    (String) definitionMap.get("mapStyleUrl"),
+                    chunk,
+                    ((Number) definitionMap.get("minZoom")).doubleValue(),
+                    ((Number) definitionMap.get("maxZoom")).doubleValue(),
+                    pixelDensity,
+                    (Boolean) definitionMap.get("includeIdeographs")));
+          }
+          mainHandler.post(
+              () ->
+                  createRegions(
+                      result,
+                      context,
+                      definitions,
+                      metadataMap,
+                      new ArrayList<>(definitions.size()),
+                      channelHandler));
+        });
+  }
+
+  private static void createRegions(
+      MethodChannel.Result result,
+      Context context,
+      List<OfflineRegionDefinition> definitions,
+      Map<String, Object> metadataMap,
+      List<OfflineRegion> created,
+      OfflineChannelHandlerImpl channelHandler) {
+    final int index = created.size();
+    if (index == definitions.size()) {
+      result.success(JsonCodec.regionsToJson(created.toArray(new OfflineRegion[0])));
+      channelHandler.onStart();
+      downloadSequentially(context, created, 0, channelHandler);
+      return;
+    }
+
+    // Every chunk carries the caller's metadata, plus its position in the corridor.
+    final Map<String, Object> metadata = new HashMap<>();
+    if (metadataMap != null) {
+      metadata.putAll(metadataMap);
+    }
+    metadata.put("corridorChunk", index);
+    metadata.put("corridorChunkCount", definitions.size());
     OfflineManager.Companion.getInstance(context)
-        .listOfflineRegions(
-            new OfflineManager.ListOfflineRegionsCallback() {
+        .createOfflineRegion(
+            definitions.get(index),
+            JsonCodec.metadataToBytes(metadata),
+            new OfflineManager.CreateOfflineRegionCallback() {
               @Override
-              public void onList(OfflineRegion[] offlineRegions) {
-                List<Map<String, Object>> regionsArgs = new ArrayList<>();
-                for (OfflineRegion offlineRegion : offlineRegions) {
-                  regionsArgs.add(offlineRegionToMap(offlineRegion));
-                }
-                result.success(new Gson().toJson(regionsArgs));
+              public void onCreate(OfflineRegion offlineRegion) {
+                invalidateRegions();
+                created.add(offlineRegion);
+                createRegions(
+                    result, context, definitions, metadataMap, created, channelHandler);
               }
 
               @Override
               public void onError(String error) {
-                result.error("RegionListError", error, null);
+                Log.e(TAG, "Error: " + error);
+                for (OfflineRegion offlineRegion : created) {
+                  deleteRegion(null, context, offlineRegion.getId());
+                }
+                channelHandler.onError("mapboxInvalidRegionDefinition", error, null);
+                result.error("mapboxInvalidRegionDefinition", error, null);
               }
             });
   }
 
+  private static void downloadSequentially(
+      Context context,
+      List<OfflineRegion> regions,
+      int index,
+      OfflineChannelHandlerImpl channelHandler) {
+    if (index == regions.size()) {
+      Log.i(TAG, "Corridor downloaded successfully.");
+      channelHandler.onSuccess();
+      return;
+    }
+    final OfflineRegion offlineRegion = regions.get(index);
+    final AtomicBoolean isComplete = new AtomicBoolean(false);
+    offlineRegion.setObserver(
+        new OfflineRegion.OfflineRegionObserver() {
+          @Override
+          public void onStatusChanged(OfflineRegionStatus status) {
+            if (status.isComplete()) {
+              offlineRegion.setDownloadState(OfflineRegion.STATE_INACTIVE);
+              if (isComplete.getAndSet(true)) return;
+              downloadSequentially(context, regions, index + 1, channelHandler);
+            } else {
+              double regionProgress =
+                  calculateDownloadingProgress(
+                      status.getRequiredResourceCount(), status.getCompletedResourceCount());
+              channelHandler.onProgress((100.0 * index + regionProgress) / regions.size());
+            }
+          }
+
+          @Override
+          public void onError(OfflineRegionError error) {
+            Log.e(TAG, "onError reason: " + error.getReason());
+            Log.e(TAG, "onError message: " + error.getMessage());
+            offlineRegion.setDownloadState(OfflineRegion.STATE_INACTIVE);
+            isComplete.set(true);
+            channelHandler.onError("Downloading error", error.getMessage(), error.getReason());
+          }
+
+          @Override
+          public void mapboxTileCountLimitExceeded(long limit) {
+            Log.e(TAG, "MapLibre tile count" + " limit exceeded: " + limit);
+            offlineRegion.setDownloadState(OfflineRegion.STATE_INACTIVE);
+            isComplete.set(true);
+            channelHandler.onError(
+                "mapboxTileCountLimitExceeded",
+                "MapLibre tile count " + "limit " + "exceeded: " + limit,
+                null);
+            deleteRegion(null, context, offlineRegion.getId());
+          }
+        });
+    offlineRegion.setDownloadState(OfflineRegion.STATE_ACTIVE);
+  }
+
+  /**
+   * Lists the regions from {@code offset}, at most {@code limit} of them if it is positive. In
+   * summary mode the metadata of the regions is left out.
+   */
+  static void regionsList(
+      MethodChannel.Result result, Context context, int offset, int limit, boolean summaryOnly) {
+    listRegions(
+        context,
+        new OfflineManager.ListOfflineRegionsCallback() {
+          @Override
+          public void onList(OfflineRegion[] offlineRegions) {
+            final int from = Math.min(Math.max(0, offset), offlineRegions.length);
+            int to = offlineRegions.length;
+            if (limit > 0) {
+              to = (int) Math.min((long) from + limit, to);
+            }
+            result.success(JsonCodec.regionsToJson(offlineRegions, from, to, !summaryOnly));
+          }
+
+          @Override
+          public void onError(String error) {
+            result.error("RegionListError", error, null);
+          }
+        });
+  }
+
+  /** Replies with the metadata of a region as JSON. */
+  static void regionMetadata(MethodChannel.Result result, Context context, long id) {
+    listRegions(
+        context,
+        new OfflineManager.ListOfflineRegionsCallback() {
+          @Override
+          public void onList(OfflineRegion[] offlineRegions) {
+            final OfflineRegion offlineRegion = findRegion(offlineRegions, id);
+            if (offlineRegion == null) {
+              result.error("RegionMetadataError", "There is no region with id " + id + ".", null);
+              return;
+            }
+            result.success(JsonCodec.metadataToJson(offlineRegion.getMetadata()));
+          }
+
+          @Override
+          public void onError(String error) {
+            result.error("RegionListError", error, null);
+          }
+        });
+  }
+
   static void updateRegionMetadata(
       MethodChannel.Result result, Context context, long id, Map<String, Object> metadataMap) {
-    OfflineManager.Companion.getInstance(context)
-        .listOfflineRegions(
-            new OfflineManager.ListOfflineRegionsCallback() {
-              @Override
-              public void onList(OfflineRegion[] offlineRegions) {
-                for (OfflineRegion offlineRegion : offlineRegions) {
-                  if (offlineRegion.getId() != id) continue;
-
-                  String metadata = "{}";
-                  if (metadataMap != null) {
-                    metadata = new Gson().toJson(metadataMap);
+    listRegions(
+        context,
+        new OfflineManager.ListOfflineRegionsCallback() {
+          @Override
+          public void onList(OfflineRegion[] offlineRegions) {
+            final OfflineRegion offlineRegion = findRegion(offlineRegions, id);
+            if (offlineRegion == null) {
+              if (result == null) return;
+              result.error(
+                  "UpdateMetadataError",
+                  "There is no " + "region with given id to " + "update.",
+                  null);
+              return;
+            }
+            offlineRegion.updateMetadata(
+                JsonCodec.metadataToBytes(metadataMap),
+                new OfflineRegion.OfflineRegionUpdateMetadataCallback() {
+                  @Override
+                  public void onUpdate(byte[] metadataBytes) {
+                    invalidateRegions();
+                    if (result == null) return;
+                    result.success(JsonCodec.regionToJson(offlineRegion, metadataBytes));
                   }
-                  offlineRegion.updateMetadata(
-                      metadata.getBytes(),
-                      new OfflineRegion.OfflineRegionUpdateMetadataCallback() {
-                        @Override
-                        public void onUpdate(byte[] metadataBytes) {
-                          Map<String, Object> regionData = offlineRegionToMap(offlineRegion);
-                          regionData.put("metadata", metadataBytesToMap(metadataBytes));
-
-                          if (result == null) return;
-                          result.success(new Gson().toJson(regionData));
-                        }
 
-                        @Override
-                        public void onError(String error) {
-                          if (result == null) return;
-                          result.error("UpdateMetadataError", error, null);
-                        }
-                      });
-                  return;
-                }
-                if (result == null) return;
-                result.error(
-                    "UpdateMetadataError",
-                    "There is no " + "region with given id to " + "update.",
-                    null);
-              }
+                  @Override
+                  public void onError(String error) {
+                    if (result == null) return;
+                    result.error("UpdateMetadataError", error, null);
+                  }
+                });
+          }
 
-              @Override
-              public void onError(String error) {
-                if (result == null) return;
-                result.error("RegionListError", error, null);
-              }
-            });
+          @Override
+          public void onError(String error) {
+            if (result == null) return;
+            result.error("RegionListError", error, null);
+          }
+        });
   }
 
   static void deleteRegion(MethodChannel.Result result, Context context, long id) {
+    listRegions(
+        context,
+        new OfflineManager.ListOfflineRegionsCallback() {
+          @Override
+          public void onList(OfflineRegion[] offlineRegions) {
+            final OfflineRegion offlineRegion = findRegion(offlineRegions, id);
+            if (offlineRegion == null) {
+              if (result == null) return;
+              result.error(
+                  "DeleteRegionError",
+                  "There is no " + "region with given id to " + "delete.",
+                  null);
+              return;
+            }
+            offlineRegion.delete(
+                new OfflineRegion.OfflineRegionDeleteCallback() {
+                  @Override
+                  public void onDelete() {
+                    invalidateRegions();
+                    if (result == null) return;
+                    result.success(null);
+                  }
+
+                  @Override
+                  public void onError(String error) {
+                    if (result == null) return;
+                    result.error("DeleteRegionError", error, null);
+                  }
+                });
+          }
+
+          @Override
+          public void onError(String error) {
+            if (result == null) return;
+            result.error("RegionListError", error, null);
+          }
+        });
+  }
+
+  /** Drops the cached listing, so the next request lists the regions again. */
+  static void invalidateRegions() {
+    cachedRegions = null;
+    listingGeneration++;
+  }
+
+  /**
+   * Hands the regions to the callback, from the cached listing if there is one. Requests made
+   * while the regions are listed share that listing.
+   */
+  private static void listRegions(
+      Context context, OfflineManager.ListOfflineRegionsCallback callback) {
+    if (cachedRegions != null) {
+      callback.onList(cachedRegions);
+      return;
+    }
+    if (pendingListCallbacks != null) {
+      pendingListCallbacks.add(callback);
+      return;
+    }
+    final List<OfflineManager.ListOfflineRegionsCallback> callbacks = new ArrayList<>();
+    callbacks.add(callback);
+    pendingListCallbacks = callbacks;
+    final int generation = listingGeneration;
     OfflineManager.Companion.getInstance(context)
         .listOfflineRegions(
             new OfflineManager.ListOfflineRegionsCallback() {
               @Override
               public void onList(OfflineRegion[] offlineRegions) {
-                for (OfflineRegion offlineRegion : offlineRegions) {
-                  if (offlineRegion.getId() != id) continue;
-
-                  offlineRegion.delete(
-                      new OfflineRegion.OfflineRegionDeleteCallback() {
-                        @Override
-                        public void onDelete() {
-                          if (result == null) return;
-                          result.success(null);
-                        }
-
-                        @Override
-                        public void onError(String error) {
-                          if (result == null) return;
-                          result.error("DeleteRegionError", error, null);
-                        }
-                      });
-                  return;
+                pendingListCallbacks = null;
+                // A listing that started before regions changed is handed out, but not kept.
+                if (generation == listingGeneration) {
+                  cachedRegions = offlineRegions;
+                }
+                for (OfflineManager.ListOfflineRegionsCallback pending : callbacks) {
+                  pending.onList(offlineRegions);
                 }
-                if (result == null) return;
-                result.error(
-                    "DeleteRegionError",
-                    "There is no " + "region with given id to " + "delete.",
-                    null);
               }
 
               @Override
               public void onError(String error) {
-                if (result == null) return;
-                result.error("RegionListError", error, null);
+                pendingListCallbacks = null;
+                for (OfflineManager.ListOfflineRegionsCallback pending : callbacks) {
+                  pending.onError(error);
+                }
               }
             });
   }
 
+  @Nullable
+  private static OfflineRegion findRegion(OfflineRegion[] offlineRegions, long id) {
+    for (OfflineRegion offlineRegion : offlineRegions) {
+      if (offlineRegion.getId() == id) {
+        return offlineRegion;
+      }
+    }
+    return null;
+  }
+
   private static double calculateDownloadingProgress(
       long requiredResourceCount, long completedResourceCount) {
     return requiredResourceCount > 0
@@ -277,12 +584,21 @@ abstract class OfflineManagerUtils {
         : 0.0;
   }
 
-  private static OfflineRegionDefinition mapToRegionDefinition(
+  static OfflineRegionDefinition mapToRegionDefinition(
       Map<String, Object> map, float pixelDensity) {
     for (Map.Entry<String, Object> entry : map.entrySet()) {
       Log.d(TAG, entry.getKey());
       Log.d(TAG, entry.getValue().toString());
     }
+    if (map.get("geometry") != null) {
+      return new OfflineGeometryRegionDefinition(
+          (String) map.get("mapStyleUrl"),
+          OfflineCorridor.regionGeometry(map),
+          ((Number) map.get("minZoom")).doubleValue(),
+          ((Number) map.get("maxZoom")).doubleValue(),
+          pixelDensity,
+          (Boolean) map.get("includeIdeographs"));
+    }
     // Create a bounding box for the offline region
     return new OfflineTilePyramidRegionDefinition(
         (String) map.get("mapStyleUrl"),
@@ -293,6 +609,12 @@ abstract class OfflineManagerUtils {
         (Boolean) map.get("includeIdeographs"));
   }
 
+  /** Returns the highest zoom level of a definition, capped to the highest level of tiles. */
+  private static int maxZoom(Map<String, Object> definitionMap) {
+    final double maxZoom = ((Number) definitionMap.get("maxZoom")).doubleValue();
+    return (int) Math.min(22, Math.ceil(maxZoom));
+  }
+
   private static LatLngBounds listToBounds(List<List<Double>> bounds) {
     return new LatLngBounds.Builder()
         .include(new LatLng(bounds.get(1).get(0), bounds.get(1).get(1))) // Northeast
@@ -300,15 +622,7 @@ abstract class OfflineManagerUtils {
         .build();
   }
 
-  private static Map<String, Object> offlineRegionToMap(OfflineRegion region) {
-    Map<String, Object> result = new HashMap();
-    result.put("id", region.getId());
-    result.put("definition", offlineRegionDefinitionToMap(region.getDefinition()));
-    result.put("metadata", metadataBytesToMap(region.getMetadata()));
-    return result;
-  }
-
-  private static Map<String, Object> offlineRegionDefinitionToMap(
+  static Map<String, Object> offlineRegionDefinitionToMap(
       OfflineRegionDefinition definition) {
     Map<String, Object> result = new HashMap();
     result.put("mapStyleUrl", definition.getStyleURL());
@@ -316,6 +630,12 @@ abstract class OfflineManagerUtils {
     result.put("minZoom", definition.getMinZoom());
     result.put("maxZoom", definition.getMaxZoom());
     result.put("includeIdeographs", definition.getIncludeIdeographs());
+    if (definition instanceof OfflineGeometryRegionDefinition) {
+      Geometry geometry = ((OfflineGeometryRegionDefinition) definition).getGeometry();
+      if (geometry != null) {
+        result.put("geometry", JsonCodec.gson.fromJson(geometry.toJson(), HashMap.class));
+      }
+    }
     return result;
   }
 
@@ -328,9 +648,9 @@ abstract class OfflineManagerUtils {
     return boundsList;
   }
 
-  private static Map<String, Object> metadataBytesToMap(byte[] metadataBytes) {
+  static Map<String, Object> metadataBytesToMap(byte[] metadataBytes) {
     if (metadataBytes != null) {
-      return new Gson().fromJson(new String(metadataBytes), HashMap.class);
+      return JsonCodec.gson.fromJson(new String(metadataBytes), HashMap.class);
     }
     return new HashMap();
   }
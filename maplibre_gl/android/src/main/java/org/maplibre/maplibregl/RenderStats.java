@@ -0,0 +1,112 @@
+package org.maplibre.maplibregl;
+
+import android.os.SystemClock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the frames a map renders in a histogram of their render times, and measures how long a
+ * style takes until its first frame and until the map is fully rendered.
+ *
+ * <p>The counts are kept in preallocated arrays, so recording a frame does not allocate. All
+ * methods must be called on the main thread.
+ */
+final class RenderStats {
+  /** The upper bounds of the buckets in milliseconds, the last bucket counts longer frames. */
+  private static final double[] BUCKET_MILLIS = {4, 8, 12, 16, 24, 33, 50, 100, 250};
+
+  private final long[] bucketCounts = new long[BUCKET_MILLIS.length + 1];
+  private long frames;
+  private long fullyRenderedFrames;
+  private double totalFrameMillis;
+  private double maxFrameMillis;
+  private long fullyRenderedMaps;
+  private long partiallyRenderedMaps;
+
+  // The time the last style was requested at, or 0 once both its times are known.
+  private long styleRequestedAt;
+  private boolean styleRendered;
+  private long timeToFirstFrameMillis = -1;
+  private long timeToFullyLoadedMillis = -1;
+
+  /** Starts measuring the times of a new style. */
+  void onStyleRequested() {
+    styleRequestedAt = SystemClock.elapsedRealtime();
+    styleRendered = false;
+    timeToFirstFrameMillis = -1;
+    timeToFullyLoadedMillis = -1;
+  }
+
+  /** Records a frame, with its encoding and rendering times in seconds. */
+  void onFrameRendered(boolean fully, double encodingSeconds, double renderingSeconds) {
+    final double millis = (encodingSeconds + renderingSeconds) * 1000;
+    int bucket = 0;
+    while (bucket < BUCKET_MILLIS.length && millis > BUCKET_MILLIS[bucket]) {
+      bucket++;
+    }
+    bucketCounts[bucket]++;
+    frames++;
+    if (fully) {
+      fullyRenderedFrames++;
+    }
+    totalFrameMillis += millis;
+    maxFrameMillis = Math.max(maxFrameMillis, millis);
+    if (styleRequestedAt != 0 && !styleRendered) {
+      styleRendered = true;
+      timeToFirstFrameMillis = SystemClock.elapsedRealtime() - styleRequestedAt;
+    }
+  }
+
+  /** Records that the map finished rendering, fully if all its tiles and resources were loaded. */
+  void onMapRendered(boolean fully) {
+    if (!fully) {
+      partiallyRenderedMaps++;
+      return;
+    }
+    fullyRenderedMaps++;
+    if (styleRequestedAt != 0 && styleRendered) {
+      timeToFullyLoadedMillis = SystemClock.elapsedRealtime() - styleRequestedAt;
+      styleRequestedAt = 0;
+    }
+  }
+
+  void reset() {
+    for (int i = 0; i < bucketCounts.length; i++) {
+      bucketCounts[i] = 0;
+    }
+    frames = 0;
+    fullyRenderedFrames = 0;
+    totalFrameMillis = 0;
+    maxFrameMillis = 0;
+    fullyRenderedMaps = 0;
+    partiallyRenderedMaps = 0;
+  }
+
+  Map<String, Object> getStats() {
+    final List<Double> bucketMillis = new ArrayList<>(BUCKET_MILLIS.length);
+    for (double millis : BUCKET_MILLIS) {
+      bucketMillis.add(millis);
+    }
+    final List<Long> counts = new ArrayList<>(bucketCounts.length);
+    for (long count : bucketCounts) {
+      counts.add(count);
+    }
+    final Map<String, Object> stats = new HashMap<>();
+    stats.put("frames", frames);
+    stats.put("fullyRenderedFrames", fullyRenderedFrames);
+    stats.put("partiallyRenderedFrames", frames - fullyRenderedFrames);
+    stats.put("averageFrameMillis", frames > 0 ? totalFrameMillis / frames : null);
+    stats.put("maxFrameMillis", maxFrameMillis);
+    stats.put("bucketMillis", bucketMillis);
+    stats.put("bucketCounts", counts);
+    stats.put("fullyRenderedMaps", fullyRenderedMaps);
+    stats.put("partiallyRenderedMaps", partiallyRenderedMaps);
+    stats.put(
+        "timeToFirstFrameMillis", timeToFirstFrameMillis >= 0 ? timeToFirstFrameMillis : null);
+    stats.put(
+        "timeToFullyLoadedMillis", timeToFullyLoadedMillis >= 0 ? timeToFullyLoadedMillis : null);
+    return stats;
+  }
+}
@@ -0,0 +1,539 @@
+package org.maplibre.maplibregl;
+
+import android.app.PendingIntent;
+import android.content.Context;
+import android.location.Location;
+import android.location.LocationListener;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.Xml;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.maplibre.android.location.engine.LocationEngineCallback;
+import org.maplibre.android.location.engine.LocationEngineImpl;
+import org.maplibre.android.location.engine.LocationEngineRequest;
+import org.maplibre.android.location.engine.LocationEngineResult;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A location engine with repeatable input, e.g. to benchmark the tracking modes.
+ *
+ * <p>In replay mode it plays back a recorded track, either a GPX file or a track in the compact
+ * binary format written by the record mode, at real time or faster, optionally in a loop. In
+ * record mode it wraps another engine and appends every fix it delivers to a ring-buffered track
+ * file, which can be replayed later.
+ *
+ * <p>The binary format starts with a header of five big-endian ints: the magic {@code MLTR}, the
+ * version, the capacity, the number of records and the index of the next record to write. It is
+ * followed by {@code capacity} records of {@link #RECORD_SIZE} bytes: the time in milliseconds,
+ * latitude, longitude and altitude as doubles, and speed, bearing and accuracy as floats.
+ */
+public class ReplayLocationEngine implements LocationEngineImpl<LocationListener> {
+    private static final String TAG = "ReplayLocationEngine";
+    static final int MAGIC = 0x4d4c5452; // "MLTR"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 20;
+    static final int RECORD_SIZE = 44;
+    /** Spacing of the fixes of a GPX track without timestamps. */
+    private static final long DEFAULT_FIX_INTERVAL = 1000;
+
+    private static final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final List<LocationListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Replay mode.
+    @Nullable private List<Location> track;
+    private final double speed;
+    private final boolean loop;
+    private int nextIndex = 0;
+    private long replayStartUptime;
+    @Nullable private Location lastLocation;
+    private final Runnable deliverNext = this::deliverNext;
+
+    // Record mode.
+    @Nullable private final LocationEngineImpl<LocationListener> delegate;
+    @Nullable private final TrackRecorder recorder;
+
+    private ReplayLocationEngine(
+            double speed,
+            boolean loop,
+            @Nullable LocationEngineImpl<LocationListener> delegate,
+            @Nullable TrackRecorder recorder) {
+        this.speed = speed > 0 ? speed : 1;
+        this.loop = loop;
+        this.delegate = delegate;
+        this.recorder = recorder;
+    }
+
+    /**
+     * Creates an engine replaying the track at an absolute path or in the Flutter assets, {@code
+     * speed} times faster than real time.
+     */
+    static ReplayLocationEngine replay(
+            @NonNull Context context, @NonNull String trackPath, double speed, boolean loop) {
+        final ReplayLocationEngine engine = new ReplayLocationEngine(speed, loop, null, null);
+        final Context appContext = context.getApplicationContext();
+        ioExecutor.execute(() -> {
+            try {
+                final List<Location> track = loadTrack(appContext, trackPath);
+                engine.handler.post(() -> engine.onTrackLoaded(track));
+            } catch (IOException | XmlPullParserException | RuntimeException e) {
+                Log.e(TAG, "Failed to load track " + trackPath, e);
+            }
+        });
+        return engine;
+    }
+
+    /** Creates an engine recording the fixes of {@code delegate} into a ring-buffered file. */
+    static ReplayLocationEngine record(
+            @NonNull LocationEngineImpl<LocationListener> delegate,
+            @NonNull String recordPath,
+            int capacity) {
+        return new ReplayLocationEngine(1, false, delegate, new TrackRecorder(recordPath, capacity));
+    }
+
+    @NonNull
+    @Override
+    public LocationListener createListener(LocationEngineCallback<LocationEngineResult> callback) {
+        if (delegate != null) {
+            return new RecordingListener(delegate.createListener(callback), recorder);
+        }
+        return new MapLibreGPSLocationEngine.AndroidLocationEngineCallbackTransport(callback);
+    }
+
+    @Override
+    public void getLastLocation(@NonNull LocationEngineCallback<LocationEngineResult> callback)
+            throws SecurityException {
+        if (delegate != null) {
+            delegate.getLastLocation(callback);
+            return;
+        }
+        Location location = lastLocation;
+        if (location == null && track != null && !track.isEmpty()) {
+            location = track.get(0);
+        }
+        if (location != null) {
+            callback.onSuccess(LocationEngineResult.create(location));
+        } else {
+            callback.onFailure(new Exception("Last location unavailable"));
+        }
+    }
+
+    @Override
+    public void requestLocationUpdates(@NonNull LocationEngineRequest request,
+                                       @NonNull LocationListener listener,
+                                       @Nullable Looper looper) throws SecurityException {
+        if (delegate != null) {
+            delegate.requestLocationUpdates(request, listener, looper);
+            return;
+        }
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+        if (listeners.size() == 1 && track != null) {
+            start();
+        }
+    }
+
+    @Override
+    public void requestLocationUpdates(@NonNull LocationEngineRequest request,
+                                       @NonNull PendingIntent pendingIntent) throws SecurityException {
+        if (delegate != null) {
+            delegate.requestLocationUpdates(request, pendingIntent);
+            return;
+        }
+        Log.w(TAG, "Updates through a PendingIntent are not supported while replaying");
+    }
+
+    @Override
+    public void removeLocationUpdates(@NonNull LocationListener listener) {
+        if (delegate != null) {
+            delegate.removeLocationUpdates(listener);
+            return;
+        }
+        listeners.remove(listener);
+        if (listeners.isEmpty()) {
+            handler.removeCallbacks(deliverNext);
+        }
+    }
+
+    @Override
+    public void removeLocationUpdates(PendingIntent pendingIntent) {
+        if (delegate != null) {
+            delegate.removeLocationUpdates(pendingIntent);
+        }
+    }
+
+    /** Stops the replay and closes the recording. */
+    void dispose() {
+        handler.removeCallbacks(deliverNext);
+        listeners.clear();
+        if (recorder != null) {
+            recorder.close();
+        }
+    }
+
+    private void onTrackLoaded(List<Location> track) {
+        Log.i(TAG, "Loaded track with " + track.size() + " fixes");
+        this.track = track;
+        if (!listeners.isEmpty()) {
+            start();
+        }
+    }
+
+    private void start() {
+        handler.removeCallbacks(deliverNext);
+        nextIndex = 0;
+        replayStartUptime = SystemClock.uptimeMillis();
+        scheduleNext();
+    }
+
+    /**
+     * Schedules the next fix relative to the start of the replay, rather than to the previous fix,
+     * so delivery delays do not accumulate and every run has the same timing.
+     */
+    private void scheduleNext() {
+        if (track == null || track.isEmpty()) {
+            return;
+        }
+        if (nextIndex >= track.size()) {
+            if (!loop) {
+                return;
+            }
+            nextIndex = 0;
+            replayStartUptime = SystemClock.uptimeMillis() + (long) (DEFAULT_FIX_INTERVAL / speed);
+        }
+        final long offset = track.get(nextIndex).getTime() - track.get(0).getTime();
+        handler.postAtTime(deliverNext, replayStartUptime + (long) (offset / speed));
+    }
+
+    private void deliverNext() {
+        if (track == null || nextIndex >= track.size()) {
+            return;
+        }
+        final Location location = new Location(track.get(nextIndex++));
+        location.setTime(System.currentTimeMillis());
+        location.setElapsedRealtimeNanos(SystemClock.elapsedRealtimeNanos());
+        lastLocation = location;
+        for (LocationListener listener : listeners) {
+            listener.onLocationChanged(location);
+        }
+        scheduleNext();
+    }
+
+    static List<Location> loadTrack(Context context, String trackPath)
+            throws IOException, XmlPullParserException {
+        final byte[] data;
+        try (InputStream input = openTrack(context, trackPath)) {
+            data = readFully(input);
+        }
+        if (data.length >= HEADER_SIZE && ByteBuffer.wrap(data).getInt(0) == MAGIC) {
+            return readBinaryTrack(ByteBuffer.wrap(data));
+        }
+        return readGpxTrack(data);
+    }
+
+    private static InputStream openTrack(Context context, String trackPath) throws IOException {
+        if (trackPath.startsWith("/")) { // Absolute path.
+            return new FileInputStream(new File(trackPath));
+        }
+        if (MapLibreMapsPlugin.flutterAssets == null) {
+            throw new IllegalStateException("Flutter assets are not available");
+        }
+        return context.getAssets().open(
+                MapLibreMapsPlugin.flutterAssets.getAssetFilePathByName(trackPath));
+    }
+
+    private static byte[] readFully(InputStream input) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int n;
+        while ((n = input.read(buffer)) != -1) {
+            output.write(buffer, 0, n);
+        }
+        return output.toByteArray();
+    }
+
+    private static List<Location> readBinaryTrack(ByteBuffer buffer) throws IOException {
+        buffer.getInt(); // Magic.
+        final int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported track version " + version);
+        }
+        final int capacity = buffer.getInt();
+        final int count = buffer.getInt();
+        final int head = buffer.getInt();
+        if (capacity <= 0 || count > capacity
+                || buffer.capacity() < HEADER_SIZE + (long) count * RECORD_SIZE) {
+            throw new IOException("Corrupt track header");
+        }
+
+        // Once the ring buffer is full, the oldest record is the next one to be overwritten.
+        final int first = count < capacity ? 0 : head;
+        final List<Location> track = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            buffer.position(HEADER_SIZE + ((first + i) % capacity) * RECORD_SIZE);
+            final Location location = new Location("replay");
+            location.setTime(buffer.getLong());
+            location.setLatitude(buffer.getDouble());
+            location.setLongitude(buffer.getDouble());
+            location.setAltitude(buffer.getDouble());
+            location.setSpeed(buffer.getFloat());
+            location.setBearing(buffer.getFloat());
+            location.setAccuracy(buffer.getFloat());
+            track.add(location);
+        }
+        return track;
+    }
+
+    private static List<Location> readGpxTrack(byte[] data)
+            throws IOException, XmlPullParserException {
+        final XmlPullParser parser = Xml.newPullParser();
+        parser.setInput(new ByteArrayInputStream(data), null);
+
+        final List<Location> track = new ArrayList<>();
+        Location point = null;
+        String text = null;
+        for (int event = parser.getEventType();
+             event != XmlPullParser.END_DOCUMENT;
+             event = parser.next()) {
+            final String name = parser.getName();
+            switch (event) {
+                case XmlPullParser.START_TAG:
+                    if ("trkpt".equals(name) || "rtept".equals(name)) {
+                        point = new Location("replay");
+                        point.setLatitude(Double.parseDouble(parser.getAttributeValue(null, "lat")));
+                        point.setLongitude(Double.parseDouble(parser.getAttributeValue(null, "lon")));
+                        point.setAccuracy(5);
+                    }
+                    text = null;
+                    break;
+                case XmlPullParser.TEXT:
+                    text = parser.getText().trim();
+                    break;
+                case XmlPullParser.END_TAG:
+                    if (point == null) {
+                        break;
+                    }
+                    if ("trkpt".equals(name) || "rtept".equals(name)) {
+                        track.add(point);
+                        point = null;
+                    } else if (text != null && !text.isEmpty()) {
+                        switch (name) {
+                            case "ele":
+                                point.setAltitude(Double.parseDouble(text));
+                                break;
+                            case "time":
+                                point.setTime(parseTime(text));
+                                break;
+                            case "speed":
+                                point.setSpeed(Float.parseFloat(text));
+                                break;
+                            case "course":
+                                point.setBearing(Float.parseFloat(text));
+                                break;
+                            case "hdop":
+                                point.setAccuracy(Float.parseFloat(text) * 5);
+                                break;
+                            default:
+                                break;
+                        }
+                    }
+                    text = null;
+                    break;
+                default:
+                    break;
+            }
+        }
+        completeTrack(track);
+        return track;
+    }
+
+    /** Fills in missing timestamps, speeds and bearings from the neighbouring fixes. */
+    private static void completeTrack(List<Location> track) {
+        for (int i = 0; i < track.size(); i++) {
+            final Location location = track.get(i);
+            if (location.getTime() == 0) {
+                location.setTime(i == 0 ? 0 : track.get(i - 1).getTime() + DEFAULT_FIX_INTERVAL);
+            }
+            if (i == 0) {
+                continue;
+            }
+            final Location previous = track.get(i - 1);
+            final long elapsed = location.getTime() - previous.getTime();
+            if (!location.hasSpeed() && elapsed > 0) {
+                location.setSpeed(previous.distanceTo(location) * 1000f / elapsed);
+            }
+            if (!location.hasBearing() && previous.distanceTo(location) > 0) {
+                float bearing = previous.bearingTo(location);
+                location.setBearing(bearing < 0 ? bearing + 360 : bearing);
+            }
+        }
+    }
+
+    /** Parses an ISO 8601 time as used by GPX, e.g. {@code 2024-05-01T12:00:00.250Z}. */
+    static long parseTime(String time) throws IOException {
+        final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        try {
+            long millis = format.parse(time.substring(0, 19)).getTime();
+            int i = 19;
+            if (i < time.length() && time.charAt(i) == '.') {
+                int start = ++i;
+                while (i < time.length() && Character.isDigit(time.charAt(i))) {
+                    i++;
+                }
+                final String fraction = (time.substring(start, i) + "000").substring(0, 3);
+                millis += Integer.parseInt(fraction);
+            }
+            if (i < time.length() && (time.charAt(i) == '+' || time.charAt(i) == '-')) {
+                final int sign = time.charAt(i) == '+' ? 1 : -1;
+                final String offset = time.substring(i + 1).replace(":", "");
+                final int hours = Integer.parseInt(offset.substring(0, 2));
+                final int minutes = offset.length() >= 4 ? Integer.parseInt(offset.substring(2, 4)) : 0;
+                millis -= sign * (hours * 60 + minutes) * 60000L;
+            }
+            return millis;
+        } catch (ParseException | RuntimeException e) {
+            throw new IOException("Invalid time " + time, e);
+        }
+    }
+
+    /** Passes fixes on to the listener of the wrapped engine, after recording them. */
+    private static final class RecordingListener implements LocationListener {
+        private final LocationListener listener;
+        private final TrackRecorder recorder;
+
+        RecordingListener(LocationListener listener, TrackRecorder recorder) {
+            this.listener = listener;
+            this.recorder = recorder;
+        }
+
+        @Override
+        public void onLocationChanged(Location location) {
+            recorder.append(location);
+            listener.onLocationChanged(location);
+        }
+
+        @Override
+        public void onStatusChanged(String s, int i, Bundle bundle) {
+            listener.onStatusChanged(s, i, bundle);
+        }
+
+        @Override
+        public void onProviderEnabled(String s) {
+            listener.onProviderEnabled(s);
+        }
+
+        @Override
+        public void onProviderDisabled(String s) {
+            listener.onProviderDisabled(s);
+        }
+    }
+
+    /** Appends fixes to a ring-buffered track file on a background thread. */
+    private static final class TrackRecorder {
+        private final String path;
+        private final int capacity;
+        @Nullable private RandomAccessFile file;
+        private int count;
+        private int head;
+
+        TrackRecorder(String path, int capacity) {
+            this.path = path;
+            this.capacity = Math.max(1, capacity);
+        }
+
+        void append(Location location) {
+            final long time = location.getTime();
+            final double latitude = location.getLatitude();
+            final double longitude = location.getLongitude();
+            final double altitude = location.getAltitude();
+            final float speed = location.getSpeed();
+            final float bearing = location.getBearing();
+            final float accuracy = location.getAccuracy();
+            ioExecutor.execute(() -> {
+                try {
+                    open();
+                    final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+                    record.putLong(time).putDouble(latitude).putDouble(longitude).putDouble(altitude)
+                            .putFloat(speed).putFloat(bearing).putFloat(accuracy);
+                    file.seek(HEADER_SIZE + (long) head * RECORD_SIZE);
+                    file.write(record.array());
+                    head = (head + 1) % capacity;
+                    count = Math.min(capacity, count + 1);
+                    file.seek(12);
+                    file.writeInt(count);
+                    file.writeInt(head);
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to record fix", e);
+                }
+            });
+        }
+
+        /** Opens the file, continuing an existing recording if it has the same capacity. */
+        private void open() throws IOException {
+            if (file != null) {
+                return;
+            }
+            file = new RandomAccessFile(path, "rw");
+            if (file.length() >= HEADER_SIZE
+                    && file.readInt() == MAGIC
+                    && file.readInt() == VERSION
+                    && file.readInt() == capacity) {
+                count = file.readInt();
+                head = file.readInt();
+                if (count <= capacity && head < capacity) {
+                    return;
+                }
+            }
+            count = 0;
+            head = 0;
+            file.setLength(0);
+            file.seek(0);
+            file.writeInt(MAGIC);
+            file.writeInt(VERSION);
+            file.writeInt(capacity);
+            file.writeInt(count);
+            file.writeInt(head);
+        }
+
+        void close() {
+            ioExecutor.execute(() -> {
+                if (file != null) {
+                    try {
+                        file.close();
+                    } catch (IOException e) {
+                        Log.e(TAG, e.getMessage(), e);
+                    }
+                    file = null;
+                }
+            });
+        }
+    }
+}
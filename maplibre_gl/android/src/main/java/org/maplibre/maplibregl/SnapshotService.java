@@ -0,0 +1,557 @@
+package org.maplibre.maplibregl;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import io.flutter.plugin.common.MethodChannel;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.maplibre.android.camera.CameraPosition;
+import org.maplibre.android.geometry.LatLngBounds;
+import org.maplibre.android.maps.Style;
+import org.maplibre.android.snapshotter.MapSnapshot;
+import org.maplibre.android.snapshotter.MapSnapshotter;
+
+/**
+ * Renders static images of maps without a map view, for thumbnails in lists.
+ *
+ * <p>Requests are queued and rendered by a small pool of {@link MapSnapshotter}s that are reused
+ * for requests with the same pixel ratio and logo option, so their style only has to be loaded
+ * again if it changed. The encoded images are kept on disk by their style, camera, size and pixel
+ * ratio, and the least recently used images are removed once the cache exceeds its size.
+ * Identical requests that are in flight at the same time are rendered once.
+ *
+ * <p>A style given by URL is identified by the URL alone. If the style behind the URL changes,
+ * the cached images and the idle snapshotters keep showing the old one until the cache is
+ * cleared, which drops both.
+ *
+ * <p>Snapshotters are used on the main thread, the cache is read and written on a background
+ * thread.
+ */
+abstract class SnapshotService {
+  private static final String TAG = "SnapshotService";
+  private static final String DIRECTORY_NAME = "maplibre_snapshot_cache";
+  private static final int DEFAULT_POOL_SIZE = 2;
+  private static final long DEFAULT_CACHE_BYTES = 50L * 1024 * 1024;
+  private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+  private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  private static final ArrayDeque<Request> queue = new ArrayDeque<>();
+  private static final List<Pooled> pool = new ArrayList<>();
+  private static final Map<String, List<MethodChannel.Result>> inFlight = new HashMap<>();
+  private static int maxPoolSize = DEFAULT_POOL_SIZE;
+  private static boolean registered;
+
+  // Only accessed on the executor.
+  @Nullable private static DiskCache cache;
+  private static long maxCacheBytes = DEFAULT_CACHE_BYTES;
+
+  private static long hits;
+  private static long misses;
+  private static long rendered;
+  private static long errors;
+  private static long created;
+  private static long reused;
+  private static volatile long cacheBytes;
+  private static volatile int cacheEntries;
+
+  /** The style, camera and size of an image. */
+  static final class Request {
+    final String style;
+    @Nullable final CameraPosition camera;
+    @Nullable final LatLngBounds bounds;
+    final int width;
+    final int height;
+    final float pixelRatio;
+    final boolean webp;
+    final int quality;
+    final boolean logo;
+    final String key;
+
+    Request(
+        @NonNull String style,
+        @Nullable CameraPosition camera,
+        @Nullable LatLngBounds bounds,
+        int width,
+        int height,
+        float pixelRatio,
+        boolean webp,
+        int quality,
+        boolean logo) {
+      this.style = style;
+      this.camera = camera;
+      this.bounds = bounds;
+      this.width = width;
+      this.height = height;
+      this.pixelRatio = pixelRatio;
+      this.webp = webp;
+      this.quality = quality;
+      this.logo = logo;
+      this.key =
+          hash(
+              style
+                  + '|'
+                  + (bounds != null ? bounds : camera)
+                  + '|'
+                  + width
+                  + 'x'
+                  + height
+                  + '@'
+                  + pixelRatio
+                  + '|'
+                  + (webp ? "webp" + quality : "png")
+                  + '|'
+                  + logo);
+    }
+
+    boolean isJson() {
+      return style.startsWith("{") || style.startsWith("[");
+    }
+  }
+
+  private static final class Pooled {
+    final MapSnapshotter snapshotter;
+    final float pixelRatio;
+    final boolean region;
+    final boolean logo;
+    String style;
+    int width;
+    int height;
+    boolean busy;
+
+    Pooled(MapSnapshotter snapshotter, Request request) {
+      this.snapshotter = snapshotter;
+      this.pixelRatio = request.pixelRatio;
+      this.region = request.bounds != null;
+      this.logo = request.logo;
+      this.style = request.style;
+    }
+  }
+
+  /**
+   * Renders the image of the request, or reads it from the cache, and replies with its encoded
+   * bytes.
+   */
+  static void snapshot(
+      @NonNull Context context, @NonNull Request request, @NonNull MethodChannel.Result result) {
+    if (!registered) {
+      registered = true;
+      MemoryTrimRegistry.register("snapshotters", SnapshotService::trim);
+    }
+    final List<MethodChannel.Result> waiting = inFlight.get(request.key);
+    if (waiting != null) {
+      waiting.add(result);
+      return;
+    }
+    final List<MethodChannel.Result> results = new ArrayList<>();
+    results.add(result);
+    inFlight.put(request.key, results);
+
+    final Context applicationContext = context.getApplicationContext();
+    executor.execute(
+        () -> {
+          final byte[] cached = cache(applicationContext).get(request.key);
+          mainHandler.post(
+              () -> {
+                if (cached != null) {
+                  hits++;
+                  complete(request.key, cached, null);
+                } else {
+                  misses++;
+                  queue.add(request);
+                  drain(applicationContext);
+                }
+              });
+        });
+  }
+
+  /** Sets the number of snapshotters to keep, and the size of the cache in bytes. */
+  static void configure(@NonNull Context context, int poolSize, long maxBytes) {
+    maxPoolSize = Math.max(1, poolSize);
+    final Context applicationContext = context.getApplicationContext();
+    executor.execute(
+        () -> {
+          maxCacheBytes = Math.max(0, maxBytes);
+          cache(applicationContext).evict();
+        });
+  }
+
+  /** Deletes the cached images, and drops the idle snapshotters with the styles they loaded. */
+  static void clearCache(@NonNull Context context) {
+    dropIdleSnapshotters();
+    final Context applicationContext = context.getApplicationContext();
+    executor.execute(() -> cache(applicationContext).clear());
+  }
+
+  static Map<String, Object> getStats() {
+    int busy = 0;
+    for (Pooled pooled : pool) {
+      if (pooled.busy) {
+        busy++;
+      }
+    }
+    final Map<String, Object> stats = new HashMap<>();
+    stats.put("hits", hits);
+    stats.put("misses", misses);
+    stats.put("rendered", rendered);
+    stats.put("errors", errors);
+    stats.put("created", created);
+    stats.put("reused", reused);
+    stats.put("snapshotters", pool.size());
+    stats.put("busy", busy);
+    stats.put("queued", queue.size());
+    stats.put("cacheBytes", cacheBytes);
+    stats.put("cacheEntries", cacheEntries);
+    return stats;
+  }
+
+  /** Starts queued requests while there are snapshotters to render them. */
+  private static void drain(Context context) {
+    while (!queue.isEmpty()) {
+      final Request request = queue.peek();
+      Pooled pooled = idleSnapshotter(request);
+      if (pooled == null && pool.size() >= maxPoolSize) {
+        // Replaces an idle snapshotter that cannot render the request.
+        pooled = idleSnapshotter(null);
+        if (pooled == null) {
+          return;
+        }
+        pooled.snapshotter.cancel();
+        pool.remove(pooled);
+        pooled = null;
+      }
+      queue.poll();
+      if (pooled == null) {
+        pooled = create(context, request);
+        pool.add(pooled);
+      } else {
+        reuse(pooled, request);
+      }
+      start(context, pooled, request);
+    }
+  }
+
+  /**
+   * Returns an idle snapshotter that can render the request, preferring one with its style, or
+   * any idle snapshotter if the request is null.
+   */
+  @Nullable
+  private static Pooled idleSnapshotter(@Nullable Request request) {
+    Pooled match = null;
+    for (Pooled pooled : pool) {
+      if (pooled.busy) {
+        continue;
+      }
+      if (request == null) {
+        return pooled;
+      }
+      if (pooled.pixelRatio == request.pixelRatio
+          && pooled.region == (request.bounds != null)
+          && pooled.logo == request.logo) {
+        if (pooled.style.equals(request.style)) {
+          return pooled;
+        }
+        match = pooled;
+      }
+    }
+    return match;
+  }
+
+  private static Pooled create(Context context, Request request) {
+    final Style.Builder style =
+        request.isJson()
+            ? new Style.Builder().fromJson(request.style)
+            : new Style.Builder().fromUri(request.style);
+    final MapSnapshotter.Options options =
+        new MapSnapshotter.Options(request.width, request.height)
+            .withStyleBuilder(style)
+            .withPixelRatio(request.pixelRatio)
+            .withLogo(request.logo);
+    if (request.bounds != null) {
+      options.withRegion(request.bounds);
+    } else {
+      options.withCameraPosition(request.camera);
+    }
+    created++;
+    final Pooled pooled = new Pooled(new MapSnapshotter(context, options), request);
+    pooled.width = request.width;
+    pooled.height = request.height;
+    return pooled;
+  }
+
+  private static void reuse(Pooled pooled, Request request) {
+    reused++;
+    if (!pooled.style.equals(request.style)) {
+      if (request.isJson()) {
+        pooled.snapshotter.setStyleJson(request.style);
+      } else {
+        pooled.snapshotter.setStyleUrl(request.style);
+      }
+      pooled.style = request.style;
+    }
+    if (pooled.width != request.width || pooled.height != request.height) {
+      pooled.snapshotter.setSize(request.width, request.height);
+      pooled.width = request.width;
+      pooled.height = request.height;
+    }
+    if (request.bounds != null) {
+      pooled.snapshotter.setRegion(request.bounds);
+    } else {
+      pooled.snapshotter.setCameraPosition(request.camera);
+    }
+  }
+
+  private static void start(Context context, Pooled pooled, Request request) {
+    pooled.busy = true;
+    pooled.snapshotter.start(
+        (MapSnapshot snapshot) -> {
+          rendered++;
+          final Bitmap bitmap = snapshot.getBitmap();
+          executor.execute(() -> encode(context, request, bitmap));
+          release(context, pooled);
+        },
+        (String error) -> {
+          errors++;
+          complete(request.key, null, error);
+          release(context, pooled);
+        });
+  }
+
+  /**
+   * Marks the snapshotter as idle once its callback returned, as the snapshotter resets its
+   * callbacks after calling them.
+   */
+  private static void release(Context context, Pooled pooled) {
+    mainHandler.post(
+        () -> {
+          pooled.busy = false;
+          drain(context);
+        });
+  }
+
+  private static void encode(Context context, Request request, Bitmap bitmap) {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final Bitmap.CompressFormat format;
+    if (!request.webp) {
+      format = Bitmap.CompressFormat.PNG;
+    } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+      format = Bitmap.CompressFormat.WEBP_LOSSY;
+    } else {
+      format = Bitmap.CompressFormat.WEBP;
+    }
+    if (!bitmap.compress(format, request.quality, out)) {
+      bitmap.recycle();
+      mainHandler.post(
+          () -> {
+            errors++;
+            complete(request.key, null, "Cannot encode the snapshot");
+          });
+      return;
+    }
+    bitmap.recycle();
+    final byte[] bytes = out.toByteArray();
+    cache(context).put(request.key, bytes);
+    mainHandler.post(() -> complete(request.key, bytes, null));
+  }
+
+  private static void complete(String key, @Nullable byte[] bytes, @Nullable String error) {
+    final List<MethodChannel.Result> results = inFlight.remove(key);
+    if (results == null) {
+      return;
+    }
+    for (MethodChannel.Result result : results) {
+      if (bytes != null) {
+        result.success(bytes);
+      } else {
+        result.error("SNAPSHOT_FAILED", error, null);
+      }
+    }
+  }
+
+  private static long trim(int level) {
+    return MemoryTrimRegistry.isLowOnMemory(level) ? dropIdleSnapshotters() : 0;
+  }
+
+  /** Drops the idle snapshotters, and returns an estimate of the bytes of their images. */
+  private static long dropIdleSnapshotters() {
+    long bytes = 0;
+    final Iterator<Pooled> iterator = pool.iterator();
+    while (iterator.hasNext()) {
+      final Pooled pooled = iterator.next();
+      if (!pooled.busy) {
+        pooled.snapshotter.cancel();
+        bytes +=
+            (long) (4 * pooled.width * pooled.height * pooled.pixelRatio * pooled.pixelRatio);
+        iterator.remove();
+      }
+    }
+    return bytes;
+  }
+
+  private static DiskCache cache(Context context) {
+    if (cache == null) {
+      cache = new DiskCache(new File(context.getCacheDir(), DIRECTORY_NAME));
+    }
+    return cache;
+  }
+
+  private static String hash(String value) {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      final byte[] hash = digest.digest(value.getBytes(StandardCharsets.UTF_8));
+      final StringBuilder name = new StringBuilder(hash.length * 2);
+      for (byte b : hash) {
+        name.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      }
+      return name.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * The encoded images on disk, in the order they were last used. The order is restored from the
+   * modification times of the files, which are updated when an image is read.
+   */
+  private static final class DiskCache {
+    private final File directory;
+    private final LinkedHashMap<String, Long> sizes = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    DiskCache(File directory) {
+      this.directory = directory;
+      final File[] files = directory.listFiles();
+      if (files == null) {
+        return;
+      }
+      Arrays.sort(
+          files,
+          new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+              return Long.compare(a.lastModified(), b.lastModified());
+            }
+          });
+      for (File file : files) {
+        if (file.getName().endsWith(".tmp")) {
+          file.delete();
+          continue;
+        }
+        sizes.put(file.getName(), file.length());
+        bytes += file.length();
+      }
+      updateStats();
+    }
+
+    @Nullable
+    byte[] get(String key) {
+      // Reading the size marks the image as used.
+      if (sizes.get(key) == null) {
+        return null;
+      }
+      final File file = new File(directory, key);
+      try (InputStream in = new FileInputStream(file)) {
+        final byte[] data = new byte[(int) file.length()];
+        int offset = 0;
+        int n;
+        while (offset < data.length && (n = in.read(data, offset, data.length - offset)) != -1) {
+          offset += n;
+        }
+        if (offset != data.length) {
+          throw new IOException("Truncated " + file);
+        }
+        file.setLastModified(System.currentTimeMillis());
+        return data;
+      } catch (IOException e) {
+        Log.w(TAG, "Dropping unreadable snapshot " + key, e);
+        remove(key);
+        return null;
+      }
+    }
+
+    void put(String key, byte[] data) {
+      if (data.length > maxCacheBytes) {
+        return;
+      }
+      if (!directory.isDirectory() && !directory.mkdirs()) {
+        Log.w(TAG, "Cannot create " + directory);
+        return;
+      }
+      final File file = new File(directory, key);
+      final File temporary = new File(directory, key + ".tmp");
+      try (OutputStream out = new FileOutputStream(temporary)) {
+        out.write(data);
+      } catch (IOException e) {
+        Log.w(TAG, "Cannot write snapshot " + key, e);
+        temporary.delete();
+        return;
+      }
+      if (!temporary.renameTo(file)) {
+        temporary.delete();
+        return;
+      }
+      final Long previous = sizes.put(key, (long) data.length);
+      bytes += data.length - (previous != null ? previous : 0);
+      evict();
+    }
+
+    /** Removes the least recently used images until the cache fits its size. */
+    void evict() {
+      final Iterator<Map.Entry<String, Long>> iterator = sizes.entrySet().iterator();
+      while (bytes > maxCacheBytes && iterator.hasNext()) {
+        final Map.Entry<String, Long> entry = iterator.next();
+        new File(directory, entry.getKey()).delete();
+        bytes -= entry.getValue();
+        iterator.remove();
+      }
+      updateStats();
+    }
+
+    void clear() {
+      for (String key : sizes.keySet()) {
+        new File(directory, key).delete();
+      }
+      sizes.clear();
+      bytes = 0;
+      updateStats();
+    }
+
+    private void remove(String key) {
+      final Long size = sizes.remove(key);
+      if (size != null) {
+        bytes -= size;
+      }
+      new File(directory, key).delete();
+      updateStats();
+    }
+
+    private void updateStats() {
+      cacheBytes = bytes;
+      cacheEntries = sizes.size();
+    }
+  }
+}
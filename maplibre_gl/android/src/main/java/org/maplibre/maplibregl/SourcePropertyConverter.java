@@ -1,8 +1,6 @@
 package org.maplibre.maplibregl;
 
 import android.net.Uri;
-import com.google.gson.Gson;
-import org.maplibre.geojson.FeatureCollection;
 import org.maplibre.android.geometry.LatLng;
 import org.maplibre.android.geometry.LatLngQuad;
 import org.maplibre.android.maps.Style;
@@ -121,10 +119,10 @@ class SourcePropertyConverter {
         } catch (URISyntaxException e) {
         }
       } else {
-        Gson gson = new Gson();
-        String geojson = gson.toJson(data);
-        final FeatureCollection featureCollection = FeatureCollection.fromJson(geojson);
-        return new GeoJsonSource(id, featureCollection, options);
+        // The native parser reads the json, building a FeatureCollection first would
+        // materialize the data a second time.
+        String geojson = JsonCodec.gson.toJson(data);
+        return new GeoJsonSource(id, geojson, options);
       }
     }
     return null;
@@ -220,6 +218,10 @@ class SourcePropertyConverter {
         case "geojson":
           source = buildGeojsonSource(id, properties);
           break;
+        case "flatgeobuf":
+          // Starts out empty, the features are read from the file for the viewport.
+          source = new GeoJsonSource(id, buildGeojsonOptions(properties));
+          break;
         default:
           // unsupported source type
       }
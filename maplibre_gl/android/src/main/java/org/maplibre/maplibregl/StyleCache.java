@@ -0,0 +1,277 @@
+package org.maplibre.maplibregl;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Keeps the JSON of remote styles on disk, so a map can be opened from the cached style without
+ * waiting for the network.
+ *
+ * <p>The cached style is handed out right away and then revalidated in the background with its
+ * {@code ETag} and {@code Last-Modified} headers. The style is only handed out a second time if
+ * the server returned a different one. Styles are applied from their JSON, so they must not refer
+ * to sprites, glyphs or sources with relative URLs.
+ */
+abstract class StyleCache {
+  private static final String TAG = "StyleCache";
+  private static final String DIRECTORY_NAME = "maplibre_style_cache";
+  private static final int FORMAT_VERSION = 1;
+  private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+  private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  private static volatile boolean enabled = false;
+
+  private static long hits;
+  private static long misses;
+  private static long notModified;
+  private static long updated;
+  private static long errors;
+  private static long cachedLoads;
+  private static long cachedLoadMillis;
+  private static long networkLoads;
+  private static long networkLoadMillis;
+
+  interface Callback {
+    /**
+     * Called on the main thread with the style JSON, first from the cache if there is an entry,
+     * and again from the network if the style changed or was not cached.
+     */
+    void onStyle(@NonNull String json, boolean fromCache);
+
+    /** Called on the main thread if there is no cached style and it could not be fetched. */
+    void onError(@NonNull Exception exception);
+  }
+
+  static void setEnabled(boolean enabled) {
+    StyleCache.enabled = enabled;
+  }
+
+  static boolean isCacheable(@NonNull String styleString) {
+    return enabled && (styleString.startsWith("http://") || styleString.startsWith("https://"));
+  }
+
+  /** Loads the style at the url from the cache and revalidates it in the background. */
+  static void load(@NonNull Context context, @NonNull String url, @NonNull Callback callback) {
+    final File file = entryFile(context, url);
+    executor.execute(
+        () -> {
+          Entry entry = null;
+          try {
+            entry = Entry.read(file);
+          } catch (IOException e) {
+            Log.w(TAG, "Dropping unreadable style cache entry for " + url, e);
+            file.delete();
+          }
+          if (entry != null) {
+            final String json = entry.json;
+            countHit(true);
+            mainHandler.post(() -> callback.onStyle(json, true));
+          } else {
+            countHit(false);
+          }
+          revalidate(file, url, entry, callback);
+        });
+  }
+
+  private static void revalidate(
+      File file, String url, @Nullable Entry entry, Callback callback) {
+    final Request.Builder builder = new Request.Builder().url(url);
+    if (entry != null && !entry.etag.isEmpty()) {
+      builder.header("If-None-Match", entry.etag);
+    }
+    if (entry != null && !entry.lastModified.isEmpty()) {
+      builder.header("If-Modified-Since", entry.lastModified);
+    }
+    try (Response response =
+        MapLibreHttpRequestUtil.getHttpClient().newCall(builder.build()).execute()) {
+      if (response.code() == 304 && entry != null) {
+        count(Outcome.NOT_MODIFIED);
+        return;
+      }
+      final ResponseBody body = response.body();
+      if (!response.isSuccessful() || body == null) {
+        throw new IOException("Unexpected response " + response.code() + " for " + url);
+      }
+      final String json = body.string();
+      final Entry fetched =
+          new Entry(
+              headerOrEmpty(response, "ETag"), headerOrEmpty(response, "Last-Modified"), json);
+      fetched.write(file);
+      if (entry != null && entry.json.equals(json)) {
+        count(Outcome.NOT_MODIFIED);
+        return;
+      }
+      count(Outcome.UPDATED);
+      mainHandler.post(() -> callback.onStyle(json, false));
+    } catch (IOException e) {
+      count(Outcome.ERROR);
+      if (entry == null) {
+        mainHandler.post(() -> callback.onError(e));
+      } else {
+        Log.w(TAG, "Failed to revalidate style " + url, e);
+      }
+    }
+  }
+
+  /** Records the time from requesting a style until it was loaded, to compare both sources. */
+  static synchronized void recordLoadTime(boolean fromCache, long millis) {
+    if (fromCache) {
+      cachedLoads++;
+      cachedLoadMillis += millis;
+    } else {
+      networkLoads++;
+      networkLoadMillis += millis;
+    }
+  }
+
+  static synchronized Map<String, Object> getStats() {
+    final Map<String, Object> stats = new HashMap<>();
+    stats.put("enabled", enabled);
+    stats.put("hits", hits);
+    stats.put("misses", misses);
+    stats.put("notModified", notModified);
+    stats.put("updated", updated);
+    stats.put("errors", errors);
+    stats.put("averageCachedLoadMillis", cachedLoads > 0 ? cachedLoadMillis / cachedLoads : null);
+    stats.put(
+        "averageNetworkLoadMillis", networkLoads > 0 ? networkLoadMillis / networkLoads : null);
+    return stats;
+  }
+
+  static void clear(@NonNull Context context) {
+    final File directory = new File(context.getCacheDir(), DIRECTORY_NAME);
+    executor.execute(
+        () -> {
+          final File[] files = directory.listFiles();
+          if (files != null) {
+            for (File file : files) {
+              file.delete();
+            }
+          }
+        });
+  }
+
+  /** Returns a monotonic timestamp to measure load times with. */
+  static long now() {
+    return SystemClock.elapsedRealtime();
+  }
+
+  private enum Outcome {
+    NOT_MODIFIED,
+    UPDATED,
+    ERROR
+  }
+
+  private static synchronized void countHit(boolean hit) {
+    if (hit) {
+      hits++;
+    } else {
+      misses++;
+    }
+  }
+
+  private static synchronized void count(Outcome outcome) {
+    switch (outcome) {
+      case NOT_MODIFIED:
+        notModified++;
+        break;
+      case UPDATED:
+        updated++;
+        break;
+      case ERROR:
+        errors++;
+        break;
+    }
+  }
+
+  private static String headerOrEmpty(Response response, String name) {
+    final String value = response.header(name);
+    return value != null ? value : "";
+  }
+
+  private static File entryFile(Context context, String url) {
+    final File directory = new File(context.getCacheDir(), DIRECTORY_NAME);
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      final byte[] hash = digest.digest(url.getBytes(StandardCharsets.UTF_8));
+      final StringBuilder name = new StringBuilder(hash.length * 2 + 5);
+      for (byte b : hash) {
+        name.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      }
+      return new File(directory, name.append(".json").toString());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static final class Entry {
+    final String etag;
+    final String lastModified;
+    final String json;
+
+    Entry(String etag, String lastModified, String json) {
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.json = json;
+    }
+
+    @Nullable
+    static Entry read(File file) throws IOException {
+      if (!file.exists()) {
+        return null;
+      }
+      try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+        if (in.readInt() != FORMAT_VERSION) {
+          return null;
+        }
+        final String etag = in.readUTF();
+        final String lastModified = in.readUTF();
+        final byte[] json = new byte[in.readInt()];
+        in.readFully(json);
+        return new Entry(etag, lastModified, new String(json, StandardCharsets.UTF_8));
+      }
+    }
+
+    /** Writes the entry to a temporary file first, so a reader never sees a partial entry. */
+    void write(File file) throws IOException {
+      final File directory = file.getParentFile();
+      if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+        throw new IOException("Cannot create " + directory);
+      }
+      final File temporary = new File(file.getPath() + ".tmp");
+      try (DataOutputStream out = new DataOutputStream(new FileOutputStream(temporary))) {
+        final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(etag);
+        out.writeUTF(lastModified);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+      if (!temporary.renameTo(file)) {
+        temporary.delete();
+        throw new IOException("Cannot write " + file);
+      }
+    }
+  }
+}
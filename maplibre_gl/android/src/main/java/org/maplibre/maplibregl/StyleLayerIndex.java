@@ -0,0 +1,92 @@
+package org.maplibre.maplibregl;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.maplibre.android.maps.Style;
+import org.maplibre.android.style.layers.Layer;
+
+/**
+ * Mirrors the order of the layers of the style, so the controller does not have to list all
+ * layers through JNI whenever it needs the topmost layer.
+ *
+ * <p>The order is read from the style once it is loaded and once the location component added its
+ * layers. After that it is updated by the controller whenever it adds or removes a layer.
+ */
+final class StyleLayerIndex {
+  private static final String LOCATION_LAYER_PREFIX = "mapbox-location-";
+
+  private final List<String> layerIds = new ArrayList<>();
+
+  /** Reads the layer order from the style. */
+  void reset(@Nullable Style style) {
+    layerIds.clear();
+    if (style != null) {
+      for (Layer layer : style.getLayers()) {
+        layerIds.add(layer.getId());
+      }
+    }
+  }
+
+  /** Records a layer added on top of all other layers. */
+  void add(@NonNull String layerId) {
+    layerIds.remove(layerId);
+    layerIds.add(layerId);
+  }
+
+  /** Records a layer added below another layer, or on top if there is no such layer. */
+  void addBelow(@NonNull String layerId, @Nullable String belowLayerId) {
+    layerIds.remove(layerId);
+    final int index = belowLayerId != null ? layerIds.indexOf(belowLayerId) : -1;
+    if (index >= 0) {
+      layerIds.add(index, layerId);
+    } else {
+      layerIds.add(layerId);
+    }
+  }
+
+  void remove(@NonNull String layerId) {
+    layerIds.remove(layerId);
+  }
+
+  /**
+   * Records that the location component re-added its layers on top of all other layers, keeping
+   * their order.
+   */
+  void moveLocationLayersToTop() {
+    final List<String> locationLayerIds = new ArrayList<>();
+    for (int i = layerIds.size() - 1; i >= 0; i--) {
+      if (isLocationLayer(layerIds.get(i))) {
+        locationLayerIds.add(0, layerIds.remove(i));
+      }
+    }
+    layerIds.addAll(locationLayerIds);
+  }
+
+  @Nullable
+  String getLastLayerId() {
+    return layerIds.isEmpty() ? null : layerIds.get(layerIds.size() - 1);
+  }
+
+  /** Returns the topmost layer that does not belong to the location component. */
+  @Nullable
+  String getLastStyleLayerId() {
+    for (int i = layerIds.size() - 1; i >= 0; i--) {
+      if (!isLocationLayer(layerIds.get(i))) {
+        return layerIds.get(i);
+      }
+    }
+    return null;
+  }
+
+  /** Returns the layer ids from bottom to top. */
+  List<String> getLayerIds() {
+    return Collections.unmodifiableList(layerIds);
+  }
+
+  private static boolean isLocationLayer(String layerId) {
+    return layerId.startsWith(LOCATION_LAYER_PREFIX);
+  }
+}
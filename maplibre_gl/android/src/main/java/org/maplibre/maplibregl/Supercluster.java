@@ -0,0 +1,387 @@
+package org.maplibre.maplibregl;
+
+import java.util.Arrays;
+
+/**
+ * A point clustering index, a port of the supercluster JavaScript library.
+ *
+ * <p>The points are clustered once for every zoom level from {@code maxZoom} down to {@code
+ * minZoom}, and every level is indexed with a {@link KDBush}, so the clusters of a viewport can be
+ * looked up without touching the other points. Building the index is expensive and should be done
+ * on a worker thread; the built index is immutable and can be queried from any thread.
+ */
+final class Supercluster {
+  static final class Options {
+    int minZoom = 0;
+    int maxZoom = 16;
+    int minPoints = 2;
+    double radius = 40;
+    double extent = 512;
+    int nodeSize = 64;
+  }
+
+  /** Receives the clusters and points returned by a query. */
+  interface Visitor {
+    void onCluster(int clusterId, int pointCount, double lat, double lng);
+
+    void onPoint(int index, double lat, double lng);
+  }
+
+  // A cluster or point of a zoom level is a row of six values.
+  private static final int STRIDE = 6;
+  private static final int OFFSET_ZOOM = 2;
+  private static final int OFFSET_ID = 3;
+  private static final int OFFSET_PARENT = 4;
+  private static final int OFFSET_NUM = 5;
+
+  private final Options options;
+  private final double[] latLngs;
+  private final int pointCount;
+  private final KDBush[] trees;
+  private final double[][] levels;
+
+  /** Clusters the points at the given flat latitude/longitude pairs. */
+  Supercluster(double[] latLngs, Options options) {
+    this.options = options;
+    this.latLngs = latLngs;
+    this.pointCount = latLngs.length / 2;
+    this.trees = new KDBush[options.maxZoom + 2];
+    this.levels = new double[options.maxZoom + 2][];
+
+    double[] data = new double[pointCount * STRIDE];
+    for (int i = 0; i < pointCount; i++) {
+      final int k = i * STRIDE;
+      data[k] = lngX(latLngs[2 * i + 1]);
+      data[k + 1] = latY(latLngs[2 * i]);
+      data[k + OFFSET_ZOOM] = Double.POSITIVE_INFINITY;
+      data[k + OFFSET_ID] = i;
+      data[k + OFFSET_PARENT] = -1;
+      data[k + OFFSET_NUM] = 1;
+    }
+    index(options.maxZoom + 1, data);
+
+    for (int z = options.maxZoom; z >= options.minZoom; z--) {
+      data = cluster(z + 1, z);
+      index(z, data);
+    }
+  }
+
+  int size() {
+    return pointCount;
+  }
+
+  /** Visits the clusters and points inside the box at the zoom level. */
+  void getClusters(
+      double west, double south, double east, double north, double zoom, Visitor visitor) {
+    double minLng = ((west + 180) % 360 + 360) % 360 - 180;
+    double maxLng = east == 180 ? 180 : ((east + 180) % 360 + 360) % 360 - 180;
+    final double minLat = Math.max(-90, Math.min(90, south));
+    final double maxLat = Math.max(-90, Math.min(90, north));
+
+    if (east - west >= 360) {
+      minLng = -180;
+      maxLng = 180;
+    } else if (minLng > maxLng) {
+      getClusters(minLng, minLat, 180, maxLat, zoom, visitor);
+      getClusters(-180, minLat, maxLng, maxLat, zoom, visitor);
+      return;
+    }
+
+    final int z = limitZoom(zoom);
+    final double[] data = levels[z];
+    trees[z].range(
+        lngX(minLng),
+        latY(maxLat),
+        lngX(maxLng),
+        latY(minLat),
+        id -> visit(data, id * STRIDE, visitor));
+  }
+
+  /**
+   * Returns the zoom level at which the cluster splits into several children.
+   *
+   * @throws IllegalArgumentException if there is no cluster with the id
+   */
+  int getClusterExpansionZoom(int clusterId) {
+    int expansionZoom = getOriginZoom(clusterId) - 1;
+    while (expansionZoom <= options.maxZoom) {
+      final int[] onlyChild = {-1};
+      final int children =
+          forEachChild(
+              clusterId,
+              new Visitor() {
+                @Override
+                public void onCluster(int id, int pointCount, double lat, double lng) {
+                  onlyChild[0] = id;
+                }
+
+                @Override
+                public void onPoint(int index, double lat, double lng) {
+                  onlyChild[0] = -1;
+                }
+              });
+      expansionZoom++;
+      if (children != 1 || onlyChild[0] < 0) {
+        break;
+      }
+      clusterId = onlyChild[0];
+    }
+    return expansionZoom;
+  }
+
+  /**
+   * Returns the indices of the points of the cluster, skipping the first {@code offset} points.
+   *
+   * @throws IllegalArgumentException if there is no cluster with the id
+   */
+  int[] getLeaves(int clusterId, int limit, int offset) {
+    final IntArray leaves = new IntArray();
+    final int[] skipped = {0};
+    appendLeaves(clusterId, leaves, limit, offset, skipped);
+    return Arrays.copyOf(leaves.values, leaves.size);
+  }
+
+  private void appendLeaves(
+      int clusterId, IntArray leaves, int limit, int offset, int[] skipped) {
+    forEachChild(
+        clusterId,
+        new Visitor() {
+          @Override
+          public void onCluster(int id, int pointCount, double lat, double lng) {
+            if (leaves.size >= limit) {
+              return;
+            }
+            if (skipped[0] + pointCount <= offset) {
+              skipped[0] += pointCount;
+            } else {
+              appendLeaves(id, leaves, limit, offset, skipped);
+            }
+          }
+
+          @Override
+          public void onPoint(int index, double lat, double lng) {
+            if (leaves.size >= limit) {
+              return;
+            }
+            if (skipped[0] < offset) {
+              skipped[0]++;
+            } else {
+              leaves.add(index);
+            }
+          }
+        });
+  }
+
+  /** Visits the children of the cluster one zoom level below it, returns their count. */
+  private int forEachChild(int clusterId, Visitor visitor) {
+    final int originId = getOriginId(clusterId);
+    final int originZoom = getOriginZoom(clusterId);
+    if (originId < 0 || originZoom < options.minZoom || originZoom > options.maxZoom + 1) {
+      throw new IllegalArgumentException("No cluster with the specified id.");
+    }
+    final double[] data = levels[originZoom];
+    if (data == null || originId * STRIDE >= data.length) {
+      throw new IllegalArgumentException("No cluster with the specified id.");
+    }
+
+    final double r = options.radius / (options.extent * Math.pow(2, originZoom - 1));
+    final double x = data[originId * STRIDE];
+    final double y = data[originId * STRIDE + 1];
+    final int[] count = {0};
+    trees[originZoom].within(
+        x,
+        y,
+        r,
+        id -> {
+          final int k = id * STRIDE;
+          if (data[k + OFFSET_PARENT] == clusterId) {
+            visit(data, k, visitor);
+            count[0]++;
+          }
+        });
+    if (count[0] == 0) {
+      throw new IllegalArgumentException("No cluster with the specified id.");
+    }
+    return count[0];
+  }
+
+  private void visit(double[] data, int k, Visitor visitor) {
+    final int numPoints = (int) data[k + OFFSET_NUM];
+    if (numPoints > 1) {
+      visitor.onCluster(
+          (int) data[k + OFFSET_ID], numPoints, yLat(data[k + 1]), xLng(data[k]));
+    } else {
+      final int index = (int) data[k + OFFSET_ID];
+      visitor.onPoint(index, latLngs[2 * index], latLngs[2 * index + 1]);
+    }
+  }
+
+  /**
+   * Indexes the rows of a zoom level. The rows are stored in the order of the tree, so clustering
+   * the level visits neighbouring rows one after another.
+   */
+  private void index(int zoom, double[] data) {
+    final int count = data.length / STRIDE;
+    final double[] coords = new double[count * 2];
+    for (int i = 0; i < count; i++) {
+      coords[2 * i] = data[i * STRIDE];
+      coords[2 * i + 1] = data[i * STRIDE + 1];
+    }
+    final KDBush tree = new KDBush(coords, options.nodeSize);
+    final int[] order = tree.reorder();
+    final double[] sorted = new double[data.length];
+    for (int i = 0; i < count; i++) {
+      System.arraycopy(data, order[i] * STRIDE, sorted, i * STRIDE, STRIDE);
+    }
+    levels[zoom] = sorted;
+    trees[zoom] = tree;
+  }
+
+  /** Clusters the points of a zoom level into the next lower zoom level. */
+  private double[] cluster(int fromZoom, int zoom) {
+    final double[] data = levels[fromZoom];
+    final KDBush tree = trees[fromZoom];
+    final double r = options.radius / (options.extent * Math.pow(2, zoom));
+    final IntArray neighbors = new IntArray();
+    final DoubleArray next = new DoubleArray(data.length);
+
+    for (int i = 0; i < data.length; i += STRIDE) {
+      if (data[i + OFFSET_ZOOM] <= zoom) {
+        continue;
+      }
+      data[i + OFFSET_ZOOM] = zoom;
+
+      final double x = data[i];
+      final double y = data[i + 1];
+      neighbors.clear();
+      tree.within(x, y, r, neighbors::add);
+
+      final double numPointsOrigin = data[i + OFFSET_NUM];
+      double numPoints = numPointsOrigin;
+      for (int n = 0; n < neighbors.size; n++) {
+        final int k = neighbors.values[n] * STRIDE;
+        if (data[k + OFFSET_ZOOM] > zoom) {
+          numPoints += data[k + OFFSET_NUM];
+        }
+      }
+
+      if (numPoints > numPointsOrigin && numPoints >= options.minPoints) {
+        double wx = x * numPointsOrigin;
+        double wy = y * numPointsOrigin;
+        // The id encodes the row and zoom level the cluster originates from.
+        final int id = ((i / STRIDE) << 5) + (zoom + 1) + pointCount;
+
+        for (int n = 0; n < neighbors.size; n++) {
+          final int k = neighbors.values[n] * STRIDE;
+          if (data[k + OFFSET_ZOOM] <= zoom) {
+            continue;
+          }
+          data[k + OFFSET_ZOOM] = zoom;
+          final double numPoints2 = data[k + OFFSET_NUM];
+          wx += data[k] * numPoints2;
+          wy += data[k + 1] * numPoints2;
+          data[k + OFFSET_PARENT] = id;
+        }
+
+        data[i + OFFSET_PARENT] = id;
+        next.add(wx / numPoints, wy / numPoints, Double.POSITIVE_INFINITY, id, -1, numPoints);
+      } else {
+        next.addRow(data, i);
+        if (numPoints > 1) {
+          for (int n = 0; n < neighbors.size; n++) {
+            final int k = neighbors.values[n] * STRIDE;
+            if (data[k + OFFSET_ZOOM] <= zoom) {
+              continue;
+            }
+            data[k + OFFSET_ZOOM] = zoom;
+            next.addRow(data, k);
+          }
+        }
+      }
+    }
+    return next.toArray();
+  }
+
+  private int getOriginId(int clusterId) {
+    return (clusterId - pointCount) >> 5;
+  }
+
+  private int getOriginZoom(int clusterId) {
+    return (clusterId - pointCount) % 32;
+  }
+
+  private int limitZoom(double zoom) {
+    return (int) Math.max(options.minZoom, Math.min(Math.floor(zoom), options.maxZoom + 1));
+  }
+
+  private static double lngX(double lng) {
+    return lng / 360 + 0.5;
+  }
+
+  private static double latY(double lat) {
+    final double sin = Math.sin(lat * Math.PI / 180);
+    final double y = 0.5 - 0.25 * Math.log((1 + sin) / (1 - sin)) / Math.PI;
+    return y < 0 ? 0 : y > 1 ? 1 : y;
+  }
+
+  private static double xLng(double x) {
+    return (x - 0.5) * 360;
+  }
+
+  private static double yLat(double y) {
+    final double y2 = (180 - y * 360) * Math.PI / 180;
+    return 360 * Math.atan(Math.exp(y2)) / Math.PI - 90;
+  }
+
+  private static final class IntArray {
+    int[] values = new int[64];
+    int size;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    void clear() {
+      size = 0;
+    }
+  }
+
+  private static final class DoubleArray {
+    private double[] values;
+    private int size;
+
+    DoubleArray(int capacity) {
+      values = new double[Math.max(capacity, STRIDE)];
+    }
+
+    void add(double x, double y, double zoom, double id, double parent, double num) {
+      ensureCapacity();
+      values[size] = x;
+      values[size + 1] = y;
+      values[size + OFFSET_ZOOM] = zoom;
+      values[size + OFFSET_ID] = id;
+      values[size + OFFSET_PARENT] = parent;
+      values[size + OFFSET_NUM] = num;
+      size += STRIDE;
+    }
+
+    void addRow(double[] data, int k) {
+      ensureCapacity();
+      System.arraycopy(data, k, values, size, STRIDE);
+      size += STRIDE;
+    }
+
+    double[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+
+    private void ensureCapacity() {
+      if (size + STRIDE > values.length) {
+        values = Arrays.copyOf(values, values.length * 2);
+      }
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package org.maplibre.maplibregl;
+
+/** Web mercator tile math shared by the prefetching and offline helpers. */
+abstract class TileCover {
+  static final double MAX_LATITUDE = 85.0511287798066;
+
+  /** Returns the fractional tile column of a longitude at the given zoom level. */
+  static double lonToTileX(double lon, int zoom) {
+    return (lon + 180.0) / 360.0 * (1 << zoom);
+  }
+
+  /** Returns the fractional tile row of a latitude at the given zoom level. */
+  static double latToTileY(double lat, int zoom) {
+    final double clamped = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, lat));
+    final double sin = Math.sin(Math.toRadians(clamped));
+    final double y = 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    return y * (1 << zoom);
+  }
+
+  static double tileXToLon(double x, int zoom) {
+    return x / (1 << zoom) * 360.0 - 180.0;
+  }
+
+  static double tileYToLat(double y, int zoom) {
+    final double n = Math.PI - 2.0 * Math.PI * y / (1 << zoom);
+    return Math.toDegrees(Math.atan(Math.sinh(n)));
+  }
+
+  /** Clamps a tile row or column to the valid range of the zoom level. */
+  static int clampTile(double value, int zoom) {
+    return (int) Math.max(0, Math.min((1 << zoom) - 1, Math.floor(value)));
+  }
+
+  /** Wraps a tile column around the antimeridian. */
+  static int wrapTileX(int x, int zoom) {
+    final int count = 1 << zoom;
+    return ((x % count) + count) % count;
+  }
+
+  /** Packs a tile id into a single long, e.g. to deduplicate tiles in a hash set. */
+  static long tileKey(int zoom, int x, int y) {
+    return ((long) zoom << 58) | ((long) x << 29) | y;
+  }
+
+  /** Returns the number of tiles covering the bounds at all zoom levels between min and max. */
+  static long countTiles(
+      double south, double west, double north, double east, int minZoom, int maxZoom) {
+    long count = 0;
+    for (int z = minZoom; z <= maxZoom; z++) {
+      final int x0 = clampTile(lonToTileX(west, z), z);
+      final int x1 = clampTile(lonToTileX(east, z), z);
+      final int y0 = clampTile(latToTileY(north, z), z);
+      final int y1 = clampTile(latToTileY(south, z), z);
+      count += (long) (x1 - x0 + 1) * (y1 - y0 + 1);
+    }
+    return count;
+  }
+
+  /** Returns the quadkey of a tile, as used by Bing style tile URLs. */
+  static String quadkey(int zoom, int x, int y) {
+    final StringBuilder builder = new StringBuilder(zoom);
+    for (int i = zoom; i > 0; i--) {
+      int digit = 0;
+      final int mask = 1 << (i - 1);
+      if ((x & mask) != 0) {
+        digit++;
+      }
+      if ((y & mask) != 0) {
+        digit += 2;
+      }
+      builder.append(digit);
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,527 @@
+package org.maplibre.maplibregl;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.Call;
+import okhttp3.CacheControl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.maplibre.android.geometry.LatLngBounds;
+import org.maplibre.android.maps.MapLibreMap;
+import org.maplibre.android.offline.OfflineManager;
+
+/**
+ * Warms the ambient cache with the tiles the user is most likely to need next, once the camera
+ * became idle: the ring of tiles just outside the viewport and the tiles of the next zoom level.
+ *
+ * <p>A prefetch pass is cancelled as soon as the camera moves again, and is limited by a byte
+ * budget, so it never competes with the tiles the renderer is waiting for.
+ *
+ * <p>The recently fetched URLs and the resolved tile sources are dropped through the {@link
+ * MemoryTrimRegistry} when the system is low on memory.
+ */
+final class TilePrefetcher {
+  private static final String TAG = "TilePrefetcher";
+  private static final int TILE_SIZE = 512;
+  private static final int RECENT_URL_CAPACITY = 4096;
+
+  private final OfflineManager offlineManager;
+  private final float pixelRatio;
+  private final ExecutorService planner = Executors.newSingleThreadExecutor();
+  private final AtomicInteger generation = new AtomicInteger();
+  private final List<Call> inFlight = new ArrayList<>();
+  private final MemoryTrimRegistry.Trimmable trimmable = this::trim;
+
+  /** URLs fetched recently, so panning back and forth does not download the same tiles twice. */
+  private final Map<String, Boolean> recentUrls =
+      new LinkedHashMap<String, Boolean>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+          return size() > RECENT_URL_CAPACITY;
+        }
+      };
+
+  /** Tile sources of the current style, resolved lazily on the planner thread. */
+  @Nullable private volatile List<TileSource> tileSources;
+  @Nullable private volatile String styleJson;
+
+  private ThreadPoolExecutor fetcher;
+  private boolean enabled = false;
+  private int maxConcurrency = 2;
+  private long byteBudget = 4 * 1024 * 1024;
+  private int ringSize = 1;
+  private boolean prefetchNextZoom = true;
+
+  TilePrefetcher(@NonNull Context context, float pixelRatio) {
+    this.offlineManager = OfflineManager.Companion.getInstance(context.getApplicationContext());
+    this.pixelRatio = pixelRatio;
+    MemoryTrimRegistry.register("tilePrefetcher", trimmable);
+  }
+
+  void setOptions(
+      boolean enabled,
+      int maxConcurrency,
+      long byteBudget,
+      int ringSize,
+      boolean prefetchNextZoom) {
+    this.enabled = enabled;
+    this.byteBudget = Math.max(0, byteBudget);
+    this.ringSize = Math.max(0, ringSize);
+    this.prefetchNextZoom = prefetchNextZoom;
+    final int concurrency = Math.max(1, maxConcurrency);
+    if (fetcher == null || this.maxConcurrency != concurrency) {
+      this.maxConcurrency = concurrency;
+      shutdownFetcher();
+    }
+    if (!enabled) {
+      cancel();
+    }
+  }
+
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Drops the resolved sources, they are resolved again from the new style on the next pass. */
+  void onStyleLoaded(@NonNull String styleJson) {
+    this.styleJson = styleJson;
+    this.tileSources = null;
+  }
+
+  /** Starts a prefetch pass for the current camera, cancelling the previous one. */
+  void onCameraIdle(@NonNull MapLibreMap mapLibreMap) {
+    if (!enabled || styleJson == null) {
+      return;
+    }
+    cancel();
+    if (fetcher == null) {
+      fetcher =
+          new ThreadPoolExecutor(
+              maxConcurrency,
+              maxConcurrency,
+              30,
+              TimeUnit.SECONDS,
+              new LinkedBlockingQueue<Runnable>());
+      fetcher.allowCoreThreadTimeOut(true);
+    }
+
+    final LatLngBounds bounds = mapLibreMap.getProjection().getVisibleRegion().latLngBounds;
+    final double zoom = mapLibreMap.getCameraPosition().zoom;
+    final Pass pass =
+        new Pass(
+            generation.get(), bounds, zoom, ringSize, prefetchNextZoom, byteBudget, fetcher);
+    planner.execute(pass::plan);
+  }
+
+  /** Cancels the running prefetch pass, e.g. because the camera started moving again. */
+  void cancel() {
+    generation.incrementAndGet();
+    final List<Call> calls;
+    synchronized (inFlight) {
+      calls = new ArrayList<>(inFlight);
+      inFlight.clear();
+    }
+    for (Call call : calls) {
+      call.cancel();
+    }
+  }
+
+  void dispose() {
+    MemoryTrimRegistry.unregister(trimmable);
+    enabled = false;
+    cancel();
+    shutdownFetcher();
+    planner.shutdownNow();
+  }
+
+  /**
+   * Forgets the recently fetched URLs and the resolved tile sources, and returns an estimate of the
+   * bytes of the URLs. The next pass resolves the sources again, and may download tiles it already
+   * fetched before.
+   */
+  private long trim(int level) {
+    if (!MemoryTrimRegistry.isLowOnMemory(level)) {
+      return 0;
+    }
+    tileSources = null;
+    long bytes = 0;
+    synchronized (recentUrls) {
+      for (String url : recentUrls.keySet()) {
+        // The characters of the URL, and the entry and string objects around them.
+        bytes += 2 * url.length() + 80;
+      }
+      recentUrls.clear();
+    }
+    return bytes;
+  }
+
+  private void shutdownFetcher() {
+    if (fetcher != null) {
+      fetcher.shutdownNow();
+      fetcher = null;
+    }
+  }
+
+  /** A single prefetch pass, started for one idle camera position. */
+  private final class Pass {
+    private final int passGeneration;
+    private final LatLngBounds bounds;
+    private final double zoom;
+    private final int ringSize;
+    private final boolean nextZoom;
+    private final long budget;
+    private final ExecutorService executor;
+    private final AtomicLong bytesFetched = new AtomicLong();
+
+    Pass(
+        int passGeneration,
+        LatLngBounds bounds,
+        double zoom,
+        int ringSize,
+        boolean nextZoom,
+        long budget,
+        ExecutorService executor) {
+      this.passGeneration = passGeneration;
+      this.bounds = bounds;
+      this.zoom = zoom;
+      this.ringSize = ringSize;
+      this.nextZoom = nextZoom;
+      this.budget = budget;
+      this.executor = executor;
+    }
+
+    boolean isCancelled() {
+      return generation.get() != passGeneration || bytesFetched.get() >= budget;
+    }
+
+    void plan() {
+      if (isCancelled()) {
+        return;
+      }
+      final long start = System.nanoTime();
+      final List<String> urls = new ArrayList<>();
+      final Set<String> planned = new HashSet<>();
+      for (TileSource source : resolveTileSources()) {
+        final int z = source.coveringZoom(zoom);
+        if (ringSize > 0) {
+          addTiles(source, z, ringSize, true, planned, urls);
+        }
+        if (nextZoom && z + 1 <= source.maxZoom) {
+          addTiles(source, z + 1, 0, false, planned, urls);
+        }
+      }
+      Log.d(
+          TAG,
+          "Planned "
+              + urls.size()
+              + " tiles in "
+              + (System.nanoTime() - start) / 1000000
+              + "ms");
+
+      try {
+        for (String url : urls) {
+          executor.execute(() -> fetch(url));
+        }
+      } catch (RejectedExecutionException e) {
+        // The options changed or the map was disposed while planning.
+      }
+    }
+
+    /**
+     * Adds the tiles covering the visible bounds at zoom level {@code z}, grown by {@code ring}
+     * tiles in every direction. If {@code ringOnly} is set, the visible tiles themselves are
+     * skipped, since the renderer is already loading them.
+     */
+    private void addTiles(
+        TileSource source,
+        int z,
+        int ring,
+        boolean ringOnly,
+        Set<String> planned,
+        List<String> urls) {
+      final int x0 = (int) Math.floor(TileCover.lonToTileX(bounds.getLonWest(), z));
+      int x1 = (int) Math.floor(TileCover.lonToTileX(bounds.getLonEast(), z));
+      if (x1 < x0) { // The bounds cross the antimeridian.
+        x1 += 1 << z;
+      }
+      final int y0 = TileCover.clampTile(TileCover.latToTileY(bounds.getLatNorth(), z), z);
+      final int y1 = TileCover.clampTile(TileCover.latToTileY(bounds.getLatSouth(), z), z);
+      final int maxY = (1 << z) - 1;
+
+      for (int y = Math.max(0, y0 - ring); y <= Math.min(maxY, y1 + ring); y++) {
+        for (int x = x0 - ring; x <= x1 + ring; x++) {
+          if (ringOnly && x >= x0 && x <= x1 && y >= y0 && y <= y1) {
+            continue;
+          }
+          final String url = source.tileUrl(z, TileCover.wrapTileX(x, z), y, pixelRatio);
+          if (planned.add(url)) {
+            urls.add(url);
+          }
+        }
+      }
+    }
+
+    private void fetch(String url) {
+      if (isCancelled()) {
+        return;
+      }
+      // Only fetched tiles are recorded, so failed fetches are tried again by the next pass.
+      synchronized (recentUrls) {
+        if (recentUrls.containsKey(url)) {
+          return;
+        }
+      }
+
+      final OkHttpClient client = MapLibreHttpRequestUtil.getHttpClient();
+      Call call = null;
+      try {
+        call = client.newCall(new Request.Builder().url(url).build());
+        synchronized (inFlight) {
+          if (isCancelled()) {
+            return;
+          }
+          inFlight.add(call);
+        }
+        try (Response response = call.execute()) {
+          final ResponseBody body = response.body();
+          if (!response.isSuccessful() || body == null) {
+            return;
+          }
+          final byte[] data = body.bytes();
+          bytesFetched.addAndGet(data.length);
+          putResource(url, response, data);
+          synchronized (recentUrls) {
+            recentUrls.put(url, Boolean.TRUE);
+          }
+        }
+      } catch (IOException e) {
+        // Cancelled or offline, the renderer will request the tile itself when needed.
+      } catch (RuntimeException e) {
+        // A URL OkHttp cannot request, or a failure storing the tile.
+        Log.w(TAG, "Failed to prefetch " + url, e);
+      } finally {
+        if (call != null) {
+          synchronized (inFlight) {
+            inFlight.remove(call);
+          }
+        }
+      }
+    }
+  }
+
+  private void putResource(String url, Response response, byte[] data) {
+    final long now = System.currentTimeMillis() / 1000;
+    final Date lastModified = response.headers().getDate("Last-Modified");
+    final Date expiresDate = response.headers().getDate("Expires");
+    final CacheControl cacheControl = response.cacheControl();
+    long expires = 0;
+    if (cacheControl.maxAgeSeconds() >= 0) {
+      expires = now + cacheControl.maxAgeSeconds();
+    } else if (expiresDate != null) {
+      expires = expiresDate.getTime() / 1000;
+    }
+    final String etag = response.header("ETag");
+    offlineManager.putResourceWithUrl(
+        url,
+        data,
+        lastModified != null ? lastModified.getTime() / 1000 : now,
+        expires,
+        etag != null ? etag : "",
+        cacheControl.mustRevalidate());
+  }
+
+  private List<TileSource> resolveTileSources() {
+    List<TileSource> sources = tileSources;
+    if (sources == null) {
+      sources = parseTileSources(styleJson);
+      tileSources = sources;
+    }
+    return sources;
+  }
+
+  /** Reads the vector and raster sources of the style, fetching their TileJSON if necessary. */
+  private static List<TileSource> parseTileSources(@Nullable String styleJson) {
+    final List<TileSource> result = new ArrayList<>();
+    if (styleJson == null) {
+      return result;
+    }
+    final JsonObject sources;
+    try {
+      sources =
+          new JsonParser().parse(styleJson).getAsJsonObject().getAsJsonObject("sources");
+    } catch (RuntimeException e) {
+      Log.e(TAG, "Failed to parse style", e);
+      return result;
+    }
+    if (sources == null) {
+      return result;
+    }
+
+    for (Map.Entry<String, JsonElement> entry : sources.entrySet()) {
+      if (!entry.getValue().isJsonObject()) {
+        continue;
+      }
+      JsonObject source = entry.getValue().getAsJsonObject();
+      final String type = getString(source, "type", "");
+      final boolean raster = type.equals("raster") || type.equals("raster-dem");
+      if (!raster && !type.equals("vector")) {
+        continue;
+      }
+      final int tileSize = getInt(source, "tileSize", raster ? 512 : TILE_SIZE);
+      if (!source.has("tiles")) {
+        final String tileJsonUrl = getString(source, "url", "");
+        if (!isHttpUrl(tileJsonUrl)) {
+          continue;
+        }
+        source = fetchTileJson(tileJsonUrl);
+        if (source == null || !source.has("tiles")) {
+          continue;
+        }
+      }
+
+      final JsonArray tiles = source.getAsJsonArray("tiles");
+      if (tiles == null || tiles.size() == 0 || !tiles.get(0).isJsonPrimitive()) {
+        continue;
+      }
+      // Only tiles served over HTTP can be prefetched, not mbtiles://, asset:// or mapbox:// ones.
+      final String template = tiles.get(0).getAsString();
+      if (!isHttpUrl(template)) {
+        continue;
+      }
+      result.add(
+          new TileSource(
+              template,
+              raster,
+              tileSize,
+              getInt(source, "minzoom", 0),
+              getInt(source, "maxzoom", 22),
+              "tms".equals(getString(source, "scheme", "xyz"))));
+    }
+    return result;
+  }
+
+  private static boolean isHttpUrl(String url) {
+    return url.startsWith("http://") || url.startsWith("https://");
+  }
+
+  @Nullable
+  private static JsonObject fetchTileJson(String url) {
+    try {
+      final Request request = new Request.Builder().url(url).build();
+      try (Response response =
+          MapLibreHttpRequestUtil.getHttpClient().newCall(request).execute()) {
+        final ResponseBody body = response.body();
+        if (!response.isSuccessful() || body == null) {
+          return null;
+        }
+        return new JsonParser().parse(body.string()).getAsJsonObject();
+      }
+    } catch (IOException | RuntimeException e) {
+      Log.e(TAG, "Failed to fetch TileJSON " + url, e);
+      return null;
+    }
+  }
+
+  private static String getString(JsonObject object, String key, String fallback) {
+    final JsonElement element = object.get(key);
+    return element != null && element.isJsonPrimitive() ? element.getAsString() : fallback;
+  }
+
+  private static int getInt(JsonObject object, String key, int fallback) {
+    final JsonElement element = object.get(key);
+    return element != null && element.isJsonPrimitive() ? (int) element.getAsDouble() : fallback;
+  }
+
+  /** The tile URL template and zoom range of a single style source. */
+  private static final class TileSource {
+    final String template;
+    final boolean raster;
+    final int tileSize;
+    final int minZoom;
+    final int maxZoom;
+    final boolean tms;
+
+    TileSource(
+        String template, boolean raster, int tileSize, int minZoom, int maxZoom, boolean tms) {
+      this.template = template;
+      this.raster = raster;
+      this.tileSize = tileSize;
+      this.minZoom = minZoom;
+      this.maxZoom = maxZoom;
+      this.tms = tms;
+    }
+
+    /** Returns the zoom level of the tiles the renderer shows at the camera zoom. */
+    int coveringZoom(double zoom) {
+      final double adjusted = zoom + Math.log(TILE_SIZE / (double) tileSize) / Math.log(2);
+      final int z = (int) (raster ? Math.round(adjusted) : Math.floor(adjusted));
+      return Math.max(minZoom, Math.min(maxZoom, z));
+    }
+
+    String tileUrl(int z, int x, int y, float pixelRatio) {
+      final Map<String, String> tokens = new HashMap<>(8);
+      tokens.put("z", String.valueOf(z));
+      tokens.put("x", String.valueOf(x));
+      tokens.put("y", String.valueOf(tms ? (1 << z) - 1 - y : y));
+      tokens.put("ratio", raster && pixelRatio > 1 ? "@2x" : "");
+      if (template.contains("{quadkey}")) {
+        tokens.put("quadkey", TileCover.quadkey(z, x, y));
+      }
+      if (template.contains("{prefix}")) {
+        tokens.put("prefix", Integer.toHexString(x % 16) + Integer.toHexString(y % 16));
+      }
+      if (template.contains("{bbox-epsg-3857}")) {
+        tokens.put("bbox-epsg-3857", bbox3857(z, x, y));
+      }
+
+      final StringBuilder url = new StringBuilder(template.length() + 16);
+      int i = 0;
+      while (i < template.length()) {
+        final int open = template.indexOf('{', i);
+        final int close = open < 0 ? -1 : template.indexOf('}', open);
+        if (close < 0) {
+          url.append(template, i, template.length());
+          break;
+        }
+        final String value = tokens.get(template.substring(open + 1, close));
+        url.append(template, i, open);
+        url.append(value != null ? value : template.substring(open, close + 1));
+        i = close + 1;
+      }
+      return url.toString();
+    }
+
+    private static String bbox3857(int z, int x, int y) {
+      final double size = 2 * Math.PI * 6378137 / (1 << z);
+      final double origin = Math.PI * 6378137;
+      final double minX = x * size - origin;
+      final double maxY = origin - y * size;
+      return minX + "," + (maxY - size) + "," + (minX + size) + "," + maxY;
+    }
+  }
+}
@@ -0,0 +1,203 @@
+package org.maplibre.maplibregl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Builds the arguments the Flutter side sends for the conversion benchmarks, in the shapes the
+ * standard message codec decodes them to.
+ */
+abstract class BenchmarkFixtures {
+  private static final long SEED = 42;
+
+  /**
+   * Returns line layer properties as JSON strings, with a data driven color matching {@code
+   * matchCount} classes and zoom interpolated widths.
+   */
+  static Map<String, String> lineLayerProperties(int matchCount) {
+    final StringBuilder color = new StringBuilder("[\"match\",[\"get\",\"class\"]");
+    for (int i = 0; i < matchCount; i++) {
+      color
+          .append(",\"class-")
+          .append(i)
+          .append("\",\"")
+          .append(String.format(Locale.ROOT, "#%06x", (i * 2654435761L) & 0xffffff))
+          .append('"');
+    }
+    color.append(",\"#888888\"]");
+
+    final Map<String, String> properties = new HashMap<>();
+    properties.put("line-color", color.toString());
+    properties.put(
+        "line-width",
+        "[\"interpolate\",[\"exponential\",1.5],[\"zoom\"],5,0.5,10,1.5,14,4,18,16,22,64]");
+    properties.put(
+        "line-opacity", "[\"case\",[\"boolean\",[\"feature-state\",\"hover\"],false],1,0.8]");
+    properties.put("line-translate", "[0,2]");
+    properties.put("line-dasharray", "[\"literal\",[2,1]]");
+    properties.put("line-cap", "\"round\"");
+    properties.put("line-join", "\"round\"");
+    properties.put("line-blur", "0.5");
+    properties.put("visibility", "\"visible\"");
+    return properties;
+  }
+
+  /** Returns symbol layer properties as JSON strings, with a format expression for the text. */
+  static Map<String, String> symbolLayerProperties() {
+    final Map<String, String> properties = new HashMap<>();
+    properties.put(
+        "text-field",
+        "[\"format\",[\"coalesce\",[\"get\",\"name:de\"],[\"get\",\"name\"]],{},\"\\n\",{},"
+            + "[\"get\",\"ref\"],{\"font-scale\":0.8}]");
+    properties.put(
+        "text-font", "[\"literal\",[\"Open Sans Regular\",\"Arial Unicode MS Regular\"]]");
+    properties.put(
+        "text-size", "[\"interpolate\",[\"linear\"],[\"zoom\"],8,10,12,12,16,14,20,18]");
+    properties.put("text-color", "\"#333333\"");
+    properties.put("text-halo-color", "\"rgba(255,255,255,0.8)\"");
+    properties.put("text-halo-width", "1.5");
+    properties.put("text-offset", "[0,1.2]");
+    properties.put("text-anchor", "\"top\"");
+    properties.put("icon-image", "[\"concat\",[\"get\",\"class\"],\"-15\"]");
+    properties.put("icon-size", "[\"step\",[\"zoom\"],0.6,12,0.8,16,1]");
+    properties.put("icon-allow-overlap", "false");
+    properties.put("symbol-placement", "\"point\"");
+    return properties;
+  }
+
+  /** Returns the properties of a vector source with tiles. */
+  static Map<String, Object> tilesetProperties() {
+    final Map<String, Object> properties = new HashMap<>();
+    properties.put(
+        "tiles",
+        Arrays.asList(
+            "https://a.tiles.example.com/{z}/{x}/{y}.pbf",
+            "https://b.tiles.example.com/{z}/{x}/{y}.pbf",
+            "https://c.tiles.example.com/{z}/{x}/{y}.pbf"));
+    properties.put("bounds", Arrays.asList(-180.0, -85.0511, 180.0, 85.0511));
+    properties.put("scheme", "xyz");
+    properties.put("minzoom", 0.0);
+    properties.put("maxzoom", 14.0);
+    properties.put("attribution", "\u00a9 Example contributors");
+    return properties;
+  }
+
+  /** Returns the properties of a clustered geojson source. */
+  static Map<String, Object> geojsonProperties() {
+    final Map<String, Object> properties = new HashMap<>();
+    properties.put("buffer", 64.0);
+    properties.put("cluster", true);
+    properties.put("clusterMaxZoom", 14.0);
+    properties.put("clusterRadius", 50.0);
+    properties.put("lineMetrics", false);
+    properties.put("maxZoom", 18.0);
+    properties.put("minZoom", 0.0);
+    properties.put("tolerance", 0.375);
+    return properties;
+  }
+
+  /** Returns camera updates of all kinds that do not need a map, as the camera API sends them. */
+  static List<List<Object>> cameraUpdates(int count) {
+    final Random random = new Random(SEED);
+    final List<List<Object>> updates = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      final List<Double> target = Arrays.asList(latitude(random), longitude(random));
+      switch (i % 6) {
+        case 0:
+          {
+            final Map<String, Object> position = new HashMap<>();
+            position.put("bearing", random.nextDouble() * 360);
+            position.put("target", target);
+            position.put("tilt", random.nextDouble() * 60);
+            position.put("zoom", random.nextDouble() * 20);
+            updates.add(Arrays.asList("newCameraPosition", position));
+            break;
+          }
+        case 1:
+          updates.add(Arrays.asList("newLatLng", target));
+          break;
+        case 2:
+          updates.add(
+              Arrays.asList(
+                  "newLatLngBounds",
+                  Arrays.asList(
+                      target,
+                      Arrays.asList(
+                          Math.min(85, target.get(0) + 1), Math.min(180, target.get(1) + 1))),
+                  16,
+                  16,
+                  16,
+                  16));
+          break;
+        case 3:
+          updates.add(Arrays.asList("newLatLngZoom", target, random.nextDouble() * 20));
+          break;
+        case 4:
+          updates.add(Arrays.asList("zoomBy", random.nextDouble() * 2 - 1));
+          break;
+        default:
+          updates.add(Arrays.asList("bearingTo", random.nextDouble() * 360));
+      }
+    }
+    return updates;
+  }
+
+  /** Returns a FeatureCollection of points with a few properties each, as a JSON string. */
+  static String pointCollection(int count) {
+    final Random random = new Random(SEED);
+    final StringBuilder json = new StringBuilder(count * 120);
+    json.append("{\"type\":\"FeatureCollection\",\"features\":[");
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      json.append("{\"type\":\"Feature\",\"id\":\"")
+          .append(i)
+          .append("\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[")
+          .append(longitude(random))
+          .append(',')
+          .append(latitude(random))
+          .append("]},\"properties\":{\"class\":\"class-")
+          .append(i % 50)
+          .append("\",\"rank\":")
+          .append(i % 7)
+          .append(",\"name\":\"Feature ")
+          .append(i)
+          .append("\"}}");
+    }
+    return json.append("]}").toString();
+  }
+
+  /** Returns the definition of a tile pyramid region, as the offline API sends it. */
+  static Map<String, Object> offlineRegionDefinition() {
+    final Map<String, Object> definition = new HashMap<>();
+    definition.put("mapStyleUrl", "https://tiles.example.com/styles/streets/style.json");
+    definition.put(
+        "bounds", Arrays.asList(Arrays.asList(47.3, 8.4), Arrays.asList(47.45, 8.65)));
+    definition.put("minZoom", 6.0);
+    definition.put("maxZoom", 16.0);
+    definition.put("includeIdeographs", false);
+    return definition;
+  }
+
+  /** Returns region metadata of the kind apps attach to regions, as UTF-8 JSON. */
+  static byte[] offlineRegionMetadata() {
+    return ("{\"name\":\"Zurich\",\"createdAt\":1700000000000,\"tags\":[\"city\",\"commute\"],"
+            + "\"owner\":{\"id\":\"user-1\",\"plan\":\"pro\"}}")
+        .getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static double latitude(Random random) {
+    return random.nextDouble() * 170 - 85;
+  }
+
+  private static double longitude(Random random) {
+    return random.nextDouble() * 360 - 180;
+  }
+}
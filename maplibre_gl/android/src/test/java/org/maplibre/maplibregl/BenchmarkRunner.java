@@ -0,0 +1,41 @@
+package org.maplibre.maplibregl;
+
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import org.junit.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks of the unit test source set, with the GC profiler for the bytes
+ * allocated per operation ({@code gc.alloc.rate.norm}).
+ *
+ * <p>The benchmarks only run with {@code ./gradlew test -Pbenchmark}, or {@code
+ * -Pbenchmark=<regex>} for the matching benchmarks, and write their results to {@code
+ * build/reports/benchmarks.json}. They run in the test JVM, as forked JVMs would not get the
+ * classpath of the Android unit tests.
+ */
+public class BenchmarkRunner {
+  @Test
+  public void runBenchmarks() throws RunnerException {
+    final String include = System.getProperty("benchmark", "");
+    assumeTrue("Benchmarks are only run with -Pbenchmark", !include.isEmpty());
+
+    final File report = new File("build/reports/benchmarks.json");
+    report.getParentFile().mkdirs();
+    final Options options =
+        new OptionsBuilder()
+            .include(include)
+            .forks(0)
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON)
+            .result(report.getPath())
+            .build();
+    new Runner(options).run();
+  }
+}
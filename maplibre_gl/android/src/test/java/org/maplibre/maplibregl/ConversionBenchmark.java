@@ -0,0 +1,139 @@
+package org.maplibre.maplibregl;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.maplibre.android.offline.OfflineRegionDefinition;
+import org.maplibre.android.style.layers.PropertyValue;
+import org.maplibre.android.style.sources.GeoJsonOptions;
+import org.maplibre.android.style.sources.TileSet;
+import org.maplibre.geojson.FeatureCollection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the conversions of the method call arguments that run on the main thread, with
+ * arguments of realistic size. Run with {@code ./gradlew test -Pbenchmark}, see {@link
+ * BenchmarkRunner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ConversionBenchmark {
+  private static final int REGION_COUNT = 1000;
+
+  private Map<String, String> lineProperties;
+  private Map<String, String> symbolProperties;
+  private Map<String, Object> tilesetProperties;
+  private Map<String, Object> geojsonProperties;
+  private List<List<Object>> cameraUpdates;
+  private String features;
+  private Map<String, Object> regionDefinition;
+  private byte[] regionMetadata;
+  private OfflineRegionDefinition parsedRegionDefinition;
+
+  @Setup
+  public void setUp() {
+    lineProperties = BenchmarkFixtures.lineLayerProperties(500);
+    symbolProperties = BenchmarkFixtures.symbolLayerProperties();
+    tilesetProperties = BenchmarkFixtures.tilesetProperties();
+    geojsonProperties = BenchmarkFixtures.geojsonProperties();
+    cameraUpdates = BenchmarkFixtures.cameraUpdates(1000);
+    features = BenchmarkFixtures.pointCollection(100000);
+    regionDefinition = BenchmarkFixtures.offlineRegionDefinition();
+    regionMetadata = BenchmarkFixtures.offlineRegionMetadata();
+    parsedRegionDefinition = OfflineManagerUtils.mapToRegionDefinition(regionDefinition, 2.75f);
+  }
+
+  @Benchmark
+  public PropertyValue[] lineLayerProperties() {
+    return LayerPropertyConverter.interpretLineLayerProperties(lineProperties);
+  }
+
+  @Benchmark
+  public PropertyValue[] symbolLayerProperties() {
+    return LayerPropertyConverter.interpretSymbolLayerProperties(symbolProperties);
+  }
+
+  @Benchmark
+  public TileSet tileset() {
+    return SourcePropertyConverter.buildTileset(tilesetProperties);
+  }
+
+  @Benchmark
+  public GeoJsonOptions geojsonOptions() {
+    return SourcePropertyConverter.buildGeojsonOptions(geojsonProperties);
+  }
+
+  /** Converts 1000 camera updates. */
+  @Benchmark
+  public void cameraUpdates(Blackhole blackhole) {
+    for (List<Object> update : cameraUpdates) {
+      blackhole.consume(Convert.toCameraUpdate(update, null, 2.75f));
+    }
+  }
+
+  /** Parses 100k point features, as adding or setting a geojson source does. */
+  @Benchmark
+  @Warmup(iterations = 2, time = 5)
+  @Measurement(iterations = 3, time = 5)
+  public FeatureCollection featureCollection() {
+    return FeatureCollection.fromJson(features);
+  }
+
+  @Benchmark
+  public Map<String, Object> offlineRegionDefinition() {
+    final OfflineRegionDefinition definition =
+        OfflineManagerUtils.mapToRegionDefinition(regionDefinition, 2.75f);
+    return OfflineManagerUtils.offlineRegionDefinitionToMap(definition);
+  }
+
+  @Benchmark
+  public Map<String, Object> offlineRegionMetadata() {
+    return OfflineManagerUtils.metadataBytesToMap(regionMetadata);
+  }
+
+  /** Lists 1000 regions by building maps of their fields and serializing them with Gson. */
+  @Benchmark
+  public String offlineRegionListingTree() {
+    final List<Map<String, Object>> regions = new ArrayList<>(REGION_COUNT);
+    for (int i = 0; i < REGION_COUNT; i++) {
+      final Map<String, Object> region = new HashMap<>();
+      region.put("id", (long) i);
+      region.put(
+          "definition", OfflineManagerUtils.offlineRegionDefinitionToMap(parsedRegionDefinition));
+      region.put("metadata", OfflineManagerUtils.metadataBytesToMap(regionMetadata));
+      regions.add(region);
+    }
+    return JsonCodec.gson.toJson(regions);
+  }
+
+  /** Lists 1000 regions by writing them straight into the response, as the plugin does. */
+  @Benchmark
+  public String offlineRegionListing() throws IOException {
+    final StringWriter out = new StringWriter(REGION_COUNT * 256);
+    try (JsonWriter writer = new JsonWriter(out)) {
+      writer.beginArray();
+      for (int i = 0; i < REGION_COUNT; i++) {
+        JsonCodec.writeRegion(writer, i, parsedRegionDefinition, regionMetadata);
+      }
+      writer.endArray();
+    }
+    return out.toString();
+  }
+}
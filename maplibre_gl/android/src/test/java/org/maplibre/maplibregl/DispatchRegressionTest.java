@@ -0,0 +1,248 @@
+package org.maplibre.maplibregl;
+
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import android.content.Context;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import io.flutter.plugin.common.BinaryMessenger;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.maplibre.android.maps.MapLibreMapOptions;
+import org.maplibre.geojson.FeatureCollection;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+/**
+ * Replays the method call traces in {@code traces/} through {@link
+ * MapLibreMapController#onMethodCall}, with the native parts of the SDK replaced by {@link
+ * FakeMapLibre}, and fails if a trace needs more native calls, allocates more or takes longer
+ * than its baseline allows.
+ *
+ * <p>The native calls of a trace do not depend on the machine and must not grow at all. Their
+ * baselines are kept in {@code traces/baseline.json}, which {@code ./gradlew test
+ * -PupdateDispatchBaseline} writes from the native calls of the run, to be committed with the
+ * change that explains them. A trace without a baseline, such as a new one, is only reported
+ * until that file is generated and committed.
+ *
+ * <p>The bytes allocated and the time are measured on the test thread, include the work of the
+ * fakes and depend on the machine. Every measurement is written to {@code
+ * build/reports/dispatch.json}, and {@code -PdispatchMachineBaseline=<file>} checks them against
+ * such a report kept from an earlier run on the same machine.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class DispatchRegressionTest {
+  private static final String STYLE = "{\"version\":8,\"sources\":{},\"layers\":[]}";
+  private static final String BASELINE_RESOURCE = "traces/baseline.json";
+  private static final File BASELINE = new File("src/test/resources/" + BASELINE_RESOURCE);
+  private static final File REPORT = new File("build/reports/dispatch.json");
+  private static final int WARMUP_REPLAYS = 5;
+
+  // The factors a measurement may exceed its baseline by.
+  private static final double NATIVE_CALL_TOLERANCE = 1.0;
+  private static final double ALLOCATION_TOLERANCE = 1.25;
+  private static final double TIME_TOLERANCE = 2.0;
+
+  private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+  private static final Map<String, Measurement> measurements = new TreeMap<>();
+
+  private FakeMapLibre fake;
+  private MapLibreMapController controller;
+
+  static class NativeCalls {
+    long nativeCalls;
+    Map<String, Long> nativeCallsByMethod;
+  }
+
+  static final class Measurement extends NativeCalls {
+    long allocatedBytes;
+    long medianMicros;
+  }
+
+  @Before
+  public void setUp() {
+    fake = new FakeMapLibre();
+    final Context context = RuntimeEnvironment.getApplication();
+    controller =
+        new MapLibreMapController(
+            0,
+            context,
+            mock(BinaryMessenger.class),
+            mock(MapLibreMapsPlugin.LifecycleProvider.class),
+            new MapLibreMapOptions(),
+            STYLE,
+            false);
+    controller.onMapReady(fake.map);
+    controller.onStyleLoadedCallback.onStyleLoaded(fake.style);
+  }
+
+  @After
+  public void tearDown() {
+    controller.dispose();
+    fake.close();
+  }
+
+  @AfterClass
+  public static void writeMeasurements() throws IOException {
+    write(REPORT, measurements);
+    if (Boolean.getBoolean("updateDispatchBaseline")) {
+      final Map<String, NativeCalls> baselines = readBaselines();
+      for (Map.Entry<String, Measurement> entry : measurements.entrySet()) {
+        final NativeCalls baseline = new NativeCalls();
+        baseline.nativeCalls = entry.getValue().nativeCalls;
+        baseline.nativeCallsByMethod = entry.getValue().nativeCallsByMethod;
+        baselines.put(entry.getKey(), baseline);
+      }
+      write(BASELINE, baselines);
+    }
+  }
+
+  @Test
+  public void layerAdds() throws IOException {
+    check("layer_adds");
+  }
+
+  @Test
+  public void geojsonUpdates() throws IOException {
+    check("geojson_updates");
+  }
+
+  @Test
+  public void queries() throws IOException {
+    check("queries");
+  }
+
+  private void check(String name) throws IOException {
+    final Measurement measurement = measure(MethodCallTrace.load(name));
+    measurements.put(name, measurement);
+
+    if (Boolean.getBoolean("updateDispatchBaseline")) {
+      return;
+    }
+    final NativeCalls baseline = readBaselines().get(name);
+    final List<String> regressions = new ArrayList<>();
+    if (baseline != null
+        && measurement.nativeCalls > baseline.nativeCalls * NATIVE_CALL_TOLERANCE) {
+      regressions.add(
+          "native calls "
+              + baseline.nativeCalls
+              + " -> "
+              + measurement.nativeCalls
+              + ", by method "
+              + baseline.nativeCallsByMethod
+              + " -> "
+              + measurement.nativeCallsByMethod);
+    }
+    final Measurement machineBaseline = readMachineBaselines().get(name);
+    if (machineBaseline != null) {
+      if (measurement.allocatedBytes > machineBaseline.allocatedBytes * ALLOCATION_TOLERANCE) {
+        regressions.add(
+            "allocated bytes "
+                + machineBaseline.allocatedBytes
+                + " -> "
+                + measurement.allocatedBytes);
+      }
+      if (measurement.medianMicros > machineBaseline.medianMicros * TIME_TOLERANCE) {
+        regressions.add(
+            "median micros " + machineBaseline.medianMicros + " -> " + measurement.medianMicros);
+      }
+    }
+    if (!regressions.isEmpty()) {
+      fail("Trace " + name + " regressed: " + String.join("; ", regressions));
+    }
+  }
+
+  /** Replays the calls of the trace, and returns the measurements of a single replay. */
+  private Measurement measure(MethodCallTrace trace) {
+    if (trace.renderedFeatures != null) {
+      fake.setRenderedFeatures(FeatureCollection.fromJson(trace.renderedFeatures).features());
+    }
+    trace.replaySetup(controller);
+    for (int i = 0; i < WARMUP_REPLAYS; i++) {
+      trace.replayCalls(controller);
+    }
+
+    final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    final long thread = Thread.currentThread().getId();
+    final long[] nanos = new long[trace.repeat];
+    fake.resetNativeCalls();
+    final long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+    for (int i = 0; i < trace.repeat; i++) {
+      final long start = System.nanoTime();
+      trace.replayCalls(controller);
+      nanos[i] = System.nanoTime() - start;
+    }
+    final long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+
+    Arrays.sort(nanos);
+    final Measurement measurement = new Measurement();
+    measurement.nativeCalls = fake.getNativeCallCount() / trace.repeat;
+    measurement.allocatedBytes = allocated / trace.repeat;
+    measurement.medianMicros = nanos[nanos.length / 2] / 1000;
+    measurement.nativeCallsByMethod = new TreeMap<>();
+    for (Map.Entry<String, Long> entry : fake.getNativeCalls().entrySet()) {
+      measurement.nativeCallsByMethod.put(entry.getKey(), entry.getValue() / trace.repeat);
+    }
+    return measurement;
+  }
+
+  private static Map<String, NativeCalls> readBaselines() throws IOException {
+    final InputStream input =
+        DispatchRegressionTest.class.getClassLoader().getResourceAsStream(BASELINE_RESOURCE);
+    if (input == null) {
+      return new TreeMap<>();
+    }
+    return read(input, new TypeToken<TreeMap<String, NativeCalls>>() {}.getType());
+  }
+
+  /** Returns the measurements of the report given by {@code -PdispatchMachineBaseline}. */
+  private static Map<String, Measurement> readMachineBaselines() throws IOException {
+    final String path = System.getProperty("dispatchMachineBaseline", "");
+    if (path.isEmpty()) {
+      return new TreeMap<>();
+    }
+    return read(
+        new FileInputStream(path), new TypeToken<TreeMap<String, Measurement>>() {}.getType());
+  }
+
+  private static <T> Map<String, T> read(InputStream input, Type type) throws IOException {
+    try (Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8)) {
+      final Map<String, T> values = gson.fromJson(reader, type);
+      return values != null ? values : new TreeMap<>();
+    }
+  }
+
+  private static void write(File file, Map<String, ? extends NativeCalls> values)
+      throws IOException {
+    file.getParentFile().mkdirs();
+    try (Writer writer =
+        new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+      gson.toJson(values, writer);
+    }
+  }
+}
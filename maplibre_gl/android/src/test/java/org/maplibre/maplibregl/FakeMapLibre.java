@@ -0,0 +1,217 @@
+package org.maplibre.maplibregl;
+
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+import android.graphics.PointF;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.maplibre.android.camera.CameraPosition;
+import org.maplibre.android.geometry.LatLng;
+import org.maplibre.android.maps.MapLibreMap;
+import org.maplibre.android.maps.MapView;
+import org.maplibre.android.maps.Projection;
+import org.maplibre.android.maps.Style;
+import org.maplibre.android.style.layers.CircleLayer;
+import org.maplibre.android.style.layers.FillLayer;
+import org.maplibre.android.style.layers.Layer;
+import org.maplibre.android.style.layers.LineLayer;
+import org.maplibre.android.style.layers.SymbolLayer;
+import org.maplibre.android.style.sources.GeoJsonSource;
+import org.maplibre.android.style.sources.Source;
+import org.maplibre.geojson.Feature;
+import org.mockito.MockSettings;
+import org.mockito.MockedConstruction;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Stands in for the native parts of the MapLibre SDK, so a {@link MapLibreMapController} can run
+ * on a JVM without a device or GPU.
+ *
+ * <p>The map, its style and projection are fakes, and the views, sources and layers the
+ * controller creates while this is open are fakes too. The style keeps its sources and layers by
+ * id. Every call on a fake would be a call into native code on a device, and is counted by the
+ * declaring class and name of its method.
+ *
+ * <p>Must be created and closed on the thread of the test, as the construction and static mocks
+ * only apply to that thread.
+ */
+final class FakeMapLibre implements AutoCloseable {
+  private final Map<String, Long> nativeCalls = new TreeMap<>();
+  private final Map<Object, String> ids = new IdentityHashMap<>();
+  private final Map<String, Source> sources = new LinkedHashMap<>();
+  private final Map<String, Layer> layers = new LinkedHashMap<>();
+  private final List<MockedConstruction<?>> constructions = new ArrayList<>();
+  private final MockedStatic<MapLibreUtils> mapLibreUtils;
+  private List<Feature> renderedFeatures = Collections.emptyList();
+
+  final MapLibreMap map;
+  final Style style;
+  final Projection projection;
+
+  FakeMapLibre() {
+    mapLibreUtils = Mockito.mockStatic(MapLibreUtils.class, settings(RETURNS_DEFAULTS));
+    construct(MapView.class);
+    construct(GeoJsonSource.class);
+    construct(LineLayer.class);
+    construct(FillLayer.class);
+    construct(CircleLayer.class);
+    construct(SymbolLayer.class);
+
+    final CameraPosition camera =
+        new CameraPosition.Builder().target(new LatLng(47.35, 8.6)).zoom(13).build();
+    projection = mock(Projection.class, settings(this::answerProjection));
+    style = mock(Style.class, settings(this::answerStyle));
+    map =
+        mock(
+            MapLibreMap.class,
+            settings(
+                invocation -> {
+                  switch (invocation.getMethod().getName()) {
+                    case "getStyle":
+                      return style;
+                    case "getProjection":
+                      return projection;
+                    case "getCameraPosition":
+                      return camera;
+                    case "queryRenderedFeatures":
+                      return new ArrayList<>(renderedFeatures);
+                    default:
+                      return RETURNS_DEFAULTS.answer(invocation);
+                  }
+                }));
+  }
+
+  /** Sets the features every query of rendered features returns. */
+  void setRenderedFeatures(List<Feature> features) {
+    renderedFeatures = features;
+  }
+
+  /** Returns the calls since the last reset, by the declaring class and name of their methods. */
+  Map<String, Long> getNativeCalls() {
+    return new TreeMap<>(nativeCalls);
+  }
+
+  long getNativeCallCount() {
+    long count = 0;
+    for (long calls : nativeCalls.values()) {
+      count += calls;
+    }
+    return count;
+  }
+
+  void resetNativeCalls() {
+    nativeCalls.clear();
+  }
+
+  @Override
+  public void close() {
+    for (MockedConstruction<?> construction : constructions) {
+      construction.close();
+    }
+    mapLibreUtils.close();
+  }
+
+  private <T> void construct(Class<T> type) {
+    constructions.add(
+        Mockito.mockConstruction(
+            type,
+            context ->
+                settings(
+                    invocation ->
+                        "getId".equals(invocation.getMethod().getName())
+                            ? ids.get(invocation.getMock())
+                            : RETURNS_DEFAULTS.answer(invocation)),
+            (mock, context) -> {
+              final List<?> arguments = context.arguments();
+              if (!arguments.isEmpty() && arguments.get(0) instanceof String) {
+                ids.put(mock, (String) arguments.get(0));
+              }
+            }));
+  }
+
+  /** Returns settings for a fake that counts its calls, without recording them. */
+  private MockSettings settings(Answer<?> answer) {
+    return withSettings()
+        .stubOnly()
+        .defaultAnswer(
+            invocation -> {
+              count(invocation.getMethod());
+              return answer.answer(invocation);
+            });
+  }
+
+  private void count(Method method) {
+    final String name = method.getDeclaringClass().getSimpleName() + "#" + method.getName();
+    final Long calls = nativeCalls.get(name);
+    nativeCalls.put(name, calls != null ? calls + 1 : 1);
+  }
+
+  private Object answerProjection(InvocationOnMock invocation) throws Throwable {
+    switch (invocation.getMethod().getName()) {
+      case "toScreenLocation":
+        {
+          final LatLng latLng = invocation.getArgument(0);
+          return new PointF(
+              (float) ((latLng.getLongitude() - 8.5) * 5000),
+              (float) ((47.4 - latLng.getLatitude()) * 5000));
+        }
+      case "fromScreenLocation":
+        {
+          final PointF point = invocation.getArgument(0);
+          return new LatLng(47.4 - point.y / 5000.0, 8.5 + point.x / 5000.0);
+        }
+      default:
+        return RETURNS_DEFAULTS.answer(invocation);
+    }
+  }
+
+  private Object answerStyle(InvocationOnMock invocation) throws Throwable {
+    final Object[] arguments = invocation.getArguments();
+    switch (invocation.getMethod().getName()) {
+      case "addSource":
+        sources.put(ids.get(arguments[0]), (Source) arguments[0]);
+        return null;
+      case "getSource":
+      case "getSourceAs":
+        return sources.get((String) arguments[0]);
+      case "getSources":
+        return new ArrayList<>(sources.values());
+      case "removeSource":
+        return sources.remove(
+                arguments[0] instanceof String ? (String) arguments[0] : ids.get(arguments[0]))
+            != null;
+      case "addLayer":
+      case "addLayerBelow":
+      case "addLayerAbove":
+      case "addLayerAt":
+        layers.put(ids.get(arguments[0]), (Layer) arguments[0]);
+        return null;
+      case "getLayer":
+      case "getLayerAs":
+        return layers.get((String) arguments[0]);
+      case "getLayers":
+        return new ArrayList<>(layers.values());
+      case "removeLayer":
+        return layers.remove(
+                arguments[0] instanceof String ? (String) arguments[0] : ids.get(arguments[0]))
+            != null;
+      case "isFullyLoaded":
+        return true;
+      case "getJson":
+        return "{\"version\":8,\"sources\":{},\"layers\":[]}";
+      default:
+        return RETURNS_DEFAULTS.answer(invocation);
+    }
+  }
+}
@@ -0,0 +1,212 @@
+package org.maplibre.maplibregl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * Checks the features read from two FlatGeobuf files in {@code flatgeobuf/}, which hold the same
+ * five features, with a packed R-tree of node size 2 and without an index:
+ *
+ * <ul>
+ *   <li>{@code a}, a point at (1, 1) with a value in every column but the json one,
+ *   <li>{@code b}, a point at (2, 2) with a z value,
+ *   <li>{@code c}, a line from (10, 10) to (12, 11) with infinite properties and a NaN z value,
+ *   <li>{@code d}, a polygon from (20, 20) to (24, 24) with a hole,
+ *   <li>{@code e}, a multi polygon of two squares from (-10, -10) to (-7, -9).
+ * </ul>
+ */
+public class FlatGeobufReaderTest {
+  private static final String INDEXED = "places.fgb";
+  private static final String UNINDEXED = "places_unindexed.fgb";
+
+  @Test
+  public void readsTheHeader() throws IOException {
+    try (FlatGeobufReader reader = open(INDEXED)) {
+      assertEquals(5, reader.getFeatureCount());
+    }
+    try (FlatGeobufReader reader = open(UNINDEXED)) {
+      assertEquals(5, reader.getFeatureCount());
+    }
+  }
+
+  @Test
+  public void rejectsOtherFiles() throws IOException {
+    final File file = File.createTempFile("places", ".fgb");
+    try (OutputStream out = new FileOutputStream(file)) {
+      out.write("{\"type\":\"FeatureCollection\"}".getBytes(StandardCharsets.UTF_8));
+    }
+    try {
+      new FlatGeobufReader(file).close();
+      fail("Expected the file to be rejected");
+    } catch (IOException expected) {
+      // The file does not start with the FlatGeobuf magic bytes.
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void searchesTheIndex() throws IOException {
+    assertEquals(Arrays.asList("a", "b"), names(read(INDEXED, 0, 0, 3, 3, 100)));
+    assertEquals(Arrays.asList("c", "d"), names(read(INDEXED, 11, 10.5, 21, 21, 100)));
+    assertEquals(Arrays.asList("e"), names(read(INDEXED, -7.5, -9.5, -7.5, -9.5, 100)));
+    assertEquals(Collections.emptyList(), names(read(INDEXED, 100, 0, 110, 10, 100)));
+    assertEquals(
+        Arrays.asList("a", "b", "c", "d", "e"), names(read(INDEXED, -180, -90, 180, 90, 100)));
+  }
+
+  @Test
+  public void scanFindsTheSameFeaturesAsTheIndex() throws IOException {
+    final double[][] boxes = {
+      {0, 0, 3, 3}, {2, 2, 10, 10}, {11, 10.5, 21, 21}, {-9.5, -9.5, 1, 1}, {30, 30, 40, 40}
+    };
+    for (double[] box : boxes) {
+      assertEquals(
+          names(read(INDEXED, box[0], box[1], box[2], box[3], 100)),
+          names(read(UNINDEXED, box[0], box[1], box[2], box[3], 100)));
+    }
+  }
+
+  @Test
+  public void stopsAtTheMaximumNumberOfFeatures() throws IOException {
+    for (String name : new String[] {INDEXED, UNINDEXED}) {
+      try (FlatGeobufReader reader = open(name)) {
+        final int[] count = {0};
+        final String geojson = reader.read(-180, -90, 180, 90, 2, count);
+        assertEquals(2, count[0]);
+        assertEquals(2, features(geojson).size());
+      }
+    }
+  }
+
+  @Test
+  public void decodesProperties() throws IOException {
+    final Map<String, JsonObject> properties = properties(read(INDEXED, -180, -90, 180, 90, 100));
+
+    final JsonObject a = properties.get("a");
+    assertEquals(-1, a.get("rank").getAsInt());
+    assertEquals(0.5, a.get("ratio").getAsDouble(), 0);
+    assertTrue(a.get("flag").getAsBoolean());
+    assertEquals(200, a.get("code").getAsInt());
+    // The largest unsigned long, which does not fit a signed one.
+    assertEquals(
+        new BigInteger("18446744073709551615"), a.get("population").getAsBigInteger());
+    assertTrue(a.get("area").isJsonNull());
+
+    assertEquals(42, properties.get("b").get("population").getAsLong());
+    assertEquals(1.25, properties.get("b").get("area").getAsDouble(), 0);
+    assertEquals(Arrays.asList("name", "population", "area"), keys(properties.get("b")));
+
+    // Infinite values are written as null.
+    assertTrue(properties.get("c").get("area").isJsonNull());
+    assertTrue(properties.get("c").get("ratio").isJsonNull());
+
+    assertFalse(properties.get("d").get("flag").getAsBoolean());
+    assertEquals(JsonParser.parseString("{\"k\":[1,2]}"), properties.get("e").get("tags"));
+  }
+
+  @Test
+  public void writesGeometries() throws IOException {
+    final Map<String, JsonObject> geometries = new HashMap<>();
+    for (JsonElement feature : features(read(UNINDEXED, -180, -90, 180, 90, 100))) {
+      final JsonObject object = feature.getAsJsonObject();
+      geometries.put(
+          object.getAsJsonObject("properties").get("name").getAsString(),
+          object.getAsJsonObject("geometry"));
+    }
+
+    assertEquals(geometry("Point", "[1.0,1.0]"), geometries.get("a"));
+    assertEquals(geometry("Point", "[2.0,2.0,10.0]"), geometries.get("b"));
+    // The NaN z value is written as null.
+    assertEquals(
+        geometry("LineString", "[[10.0,10.0,null],[12.0,11.0,3.0]]"), geometries.get("c"));
+    assertEquals(
+        geometry(
+            "Polygon",
+            "[[[20,20],[24,20],[24,24],[20,24],[20,20]],[[21,21],[22,21],[22,22],[21,21]]]"),
+        geometries.get("d"));
+    assertEquals(
+        geometry(
+            "MultiPolygon",
+            "[[[[-10,-10],[-9,-10],[-9,-9],[-10,-9],[-10,-10]]],"
+                + "[[[-8,-10],[-7,-10],[-7,-9],[-8,-9],[-8,-10]]]]"),
+        geometries.get("e"));
+  }
+
+  private static FlatGeobufReader open(String name) throws IOException {
+    final URL url = FlatGeobufReaderTest.class.getClassLoader().getResource("flatgeobuf/" + name);
+    if (url == null) {
+      throw new IOException("Missing fixture " + name);
+    }
+    try {
+      return new FlatGeobufReader(new File(url.toURI()));
+    } catch (URISyntaxException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static String read(
+      String name, double west, double south, double east, double north, int maxFeatures)
+      throws IOException {
+    try (FlatGeobufReader reader = open(name)) {
+      final int[] count = {0};
+      final String geojson = reader.read(west, south, east, north, maxFeatures, count);
+      assertEquals(features(geojson).size(), count[0]);
+      return geojson;
+    }
+  }
+
+  private static JsonArray features(String geojson) {
+    return JsonParser.parseString(geojson).getAsJsonObject().getAsJsonArray("features");
+  }
+
+  /** Returns the properties of the features by their names. */
+  private static Map<String, JsonObject> properties(String geojson) {
+    final Map<String, JsonObject> properties = new HashMap<>();
+    for (JsonElement feature : features(geojson)) {
+      final JsonObject object = feature.getAsJsonObject().getAsJsonObject("properties");
+      properties.put(object.get("name").getAsString(), object);
+    }
+    return properties;
+  }
+
+  /** Returns the sorted names of the features. */
+  private static List<String> names(String geojson) {
+    final List<String> names = new ArrayList<>(properties(geojson).keySet());
+    Collections.sort(names);
+    return names;
+  }
+
+  private static List<String> keys(JsonObject object) {
+    return new ArrayList<>(object.keySet());
+  }
+
+  private static JsonObject geometry(String type, String coordinates) {
+    final JsonObject geometry = new JsonObject();
+    geometry.addProperty("type", type);
+    geometry.add("coordinates", JsonParser.parseString(coordinates));
+    return geometry;
+  }
+}
@@ -0,0 +1,158 @@
+package org.maplibre.maplibregl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Test;
+
+/** Checks which features the streaming reader keeps, and that it copies them unchanged. */
+public class GeoJsonStreamLoaderTest {
+  private static final String FEATURES =
+      "{\"type\":\"Feature\",\"id\":\"park\",\"geometry\":{\"type\":\"Point\","
+          + "\"coordinates\":[13.40,52.50]},\"properties\":{\"kind\":\"park\",\"level\":1}},"
+          + "{\"type\":\"Feature\",\"id\":\"river\",\"geometry\":{\"type\":\"LineString\","
+          + "\"coordinates\":[[10,50],[20,55]]},\"properties\":{\"kind\":\"river\",\"level\":2}},"
+          + "{\"type\":\"Feature\",\"id\":\"lake\",\"geometry\":{\"type\":\"Polygon\","
+          + "\"coordinates\":[[[-70,-30],[-69,-30],[-69,-29],[-70,-30]]]},"
+          + "\"properties\":{\"kind\":\"lake\",\"level\":3,\"name\":null}}";
+
+  private final List<File> files = new ArrayList<>();
+
+  @After
+  public void deleteFiles() {
+    for (File file : files) {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void readsAllFeaturesOfACollection() throws IOException {
+    final File file =
+        file(".geojson", "{\"name\":\"places\",\"features\":[" + FEATURES + "],\"type\":\"X\"}");
+    final int[] count = {0};
+    final String geojson = GeoJsonStreamLoader.read(file, new GeoJsonStreamLoader.Filter(), count);
+
+    assertEquals(3, count[0]);
+    assertEquals(Arrays.asList("park", "river", "lake"), ids(geojson));
+    final JsonObject collection = JsonParser.parseString(geojson).getAsJsonObject();
+    assertEquals("FeatureCollection", collection.get("type").getAsString());
+    // Numbers are copied as they are written in the file.
+    assertTrue(geojson.contains("[13.40,52.50]"));
+  }
+
+  @Test
+  public void readsSequencesWithRecordSeparators() throws IOException {
+    final String[] features = FEATURES.split("(?<=}}),");
+    final File file =
+        file(
+            ".geojsonseq",
+            "\u001e" + features[0] + "\n\n  \u001e" + features[1] + "\r\n" + features[2] + "\n");
+
+    final int[] count = {0};
+    final String geojson = GeoJsonStreamLoader.read(file, new GeoJsonStreamLoader.Filter(), count);
+    assertEquals(3, count[0]);
+    assertEquals(Arrays.asList("park", "river", "lake"), ids(geojson));
+  }
+
+  @Test
+  public void keepsFeaturesIntersectingTheBoundingBox() throws IOException {
+    final File file = file(".geojson", "{\"features\":[" + FEATURES + "]}");
+
+    // Features are kept by their bounding box, the river has no vertex inside this one.
+    assertEquals(Arrays.asList("park", "river"), read(file, bbox(13, 52, 14, 53), null));
+    assertEquals(Arrays.asList("river"), read(file, bbox(19, 54, 25, 60), null));
+    assertEquals(Arrays.asList("lake"), read(file, bbox(-69, -29, -60, -20), null));
+    assertEquals(new ArrayList<String>(), read(file, bbox(100, 0, 110, 10), null));
+  }
+
+  @Test
+  public void keepsFeaturesWhosePropertiesMatch() throws IOException {
+    final File file = file(".geojson", "{\"features\":[" + FEATURES + "]}");
+
+    assertEquals(Arrays.asList("river"), read(file, null, where("kind", "river")));
+    // Numbers match by value, and a list matches any of its values.
+    assertEquals(Arrays.asList("park"), read(file, null, where("level", 1L)));
+    assertEquals(
+        Arrays.asList("park", "lake"), read(file, null, where("level", Arrays.asList(1.0, 3))));
+    // A missing or null property does not match.
+    assertEquals(new ArrayList<String>(), read(file, null, where("name", "lake")));
+
+    final Map<String, Object> both = where("kind", Arrays.asList("park", "river"));
+    both.put("level", 2);
+    assertEquals(Arrays.asList("river"), read(file, bbox(0, 0, 30, 60), both));
+  }
+
+  @Test
+  public void featuresWithoutGeometryOnlyPassWithoutBoundingBox() throws IOException {
+    final File file =
+        file(
+            ".geojsonseq",
+            "{\"type\":\"Feature\",\"id\":\"empty\",\"geometry\":null,\"properties\":{}}\n");
+
+    assertEquals(Arrays.asList("empty"), read(file, null, null));
+    assertEquals(new ArrayList<String>(), read(file, bbox(-180, -90, 180, 90), null));
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsFilesWithoutFeatures() throws IOException {
+    final File file = file(".geojson", "{\"type\":\"Point\",\"coordinates\":[0,0]}");
+    GeoJsonStreamLoader.read(file, new GeoJsonStreamLoader.Filter(), new int[1]);
+  }
+
+  private File file(String extension, String content) throws IOException {
+    final File file = File.createTempFile("features", extension);
+    files.add(file);
+    try (Writer writer =
+        new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+      writer.write(content);
+    }
+    return file;
+  }
+
+  private static List<String> read(File file, double[] bbox, Map<String, Object> properties)
+      throws IOException {
+    final GeoJsonStreamLoader.Filter filter = new GeoJsonStreamLoader.Filter();
+    filter.bbox = bbox;
+    filter.properties = properties;
+    final int[] count = {0};
+    final List<String> ids = ids(GeoJsonStreamLoader.read(file, filter, count));
+    assertEquals(ids.size(), count[0]);
+    return ids;
+  }
+
+  private static double[] bbox(double west, double south, double east, double north) {
+    return new double[] {west, south, east, north};
+  }
+
+  private static Map<String, Object> where(String name, Object value) {
+    final Map<String, Object> properties = new HashMap<>();
+    properties.put(name, value);
+    return properties;
+  }
+
+  private static List<String> ids(String geojson) {
+    final JsonArray features =
+        JsonParser.parseString(geojson).getAsJsonObject().getAsJsonArray("features");
+    final List<String> ids = new ArrayList<>();
+    for (JsonElement feature : features) {
+      ids.add(feature.getAsJsonObject().get("id").getAsString());
+    }
+    return ids;
+  }
+}
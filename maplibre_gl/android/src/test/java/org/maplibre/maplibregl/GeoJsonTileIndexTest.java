@@ -0,0 +1,178 @@
+package org.maplibre.maplibregl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import org.maplibre.geojson.Feature;
+import org.maplibre.geojson.FeatureCollection;
+import org.maplibre.geojson.LineString;
+import org.maplibre.geojson.Point;
+
+/** Checks the features the tile index hands to each tile, and the tiles an update invalidates. */
+public class GeoJsonTileIndexTest {
+  private static final int BUFFER = 128;
+
+  // Tile 550/335 at zoom level 10, and its buffer of a quarter tile.
+  private static final double TILE_WEST = 13.359375;
+  private static final double TILE_EAST = 13.7109375;
+  private static final double TILE_BUFFER = 0.087890625;
+
+  @Test
+  public void queriesTheFeaturesOfATile() {
+    final GeoJsonTileIndex index = new GeoJsonTileIndex(0, 20, 0);
+    index.update(
+        collection(
+            point("inside", 13.5, 52.5),
+            point("west", 13.3, 52.5),
+            line("crossing", 13.3, 52.5, 13.8, 52.5),
+            point("far", -70, -30)),
+        null);
+
+    assertEquals(Arrays.asList("crossing", "inside"), ids(queryTile(index)));
+    assertEquals(
+        Arrays.asList("crossing", "far", "inside", "west"),
+        ids(index.query(-180, -85, 180, 85, 0)));
+  }
+
+  @Test
+  public void queriesIncludeTheTileBuffer() {
+    final GeoJsonTileIndex index = new GeoJsonTileIndex(0, 20, BUFFER);
+    index.update(
+        collection(
+            point("inside", 13.5, 52.5),
+            point("buffer", TILE_EAST + TILE_BUFFER * 0.9, 52.5),
+            point("outside", TILE_EAST + TILE_BUFFER * 1.1, 52.5),
+            point("westBuffer", TILE_WEST - TILE_BUFFER * 0.9, 52.5)),
+        null);
+
+    assertEquals(Arrays.asList("buffer", "inside", "westBuffer"), ids(queryTile(index)));
+  }
+
+  @Test
+  public void reportsFeaturesSpanningManyCellsOnce() {
+    final GeoJsonTileIndex index = new GeoJsonTileIndex(0, 20, 0);
+    index.update(
+        collection(
+            // Spans 5 by 5 cells, and 401 by 5 cells.
+            line("medium", 13, 52, 14, 53),
+            line("large", -50, 52, 50, 53)),
+        null);
+
+    assertEquals(Arrays.asList("large", "medium"), ids(index.query(13, 52, 14, 53, 8)));
+    assertEquals(Arrays.asList("large", "medium"), ids(index.query(13.4, 52.4, 13.6, 52.6, 12)));
+    assertEquals(Collections.singletonList("large"), ids(index.query(0, 52, 1, 53, 8)));
+  }
+
+  @Test
+  public void replacesAndRemovesFeaturesById() {
+    final GeoJsonTileIndex index = new GeoJsonTileIndex(0, 20, 0);
+    index.update(collection(point("a", 1, 1), point("b", 2, 2), point(null, 3, 3)), null);
+    assertEquals(3, index.size());
+
+    // The region covers the old and the new position of the replaced feature.
+    assertArrayEquals(
+        new double[] {1, 1, 5, 5},
+        index.update(collection(point("a", 5, 5)), null),
+        0);
+    assertEquals(Collections.singletonList("a"), ids(index.query(4, 4, 6, 6, 20)));
+    assertEquals(Collections.emptyList(), ids(index.query(0.5, 0.5, 1.5, 1.5, 20)));
+
+    assertArrayEquals(
+        new double[] {2, 2, 2, 2},
+        index.update(null, Arrays.asList("b", "unknown")),
+        0);
+    assertEquals(2, index.size());
+
+    assertNull(index.update(null, Collections.singletonList("b")));
+    // Features without an id are always added.
+    index.update(collection(point(null, 3, 3)), null);
+    assertEquals(3, index.size());
+  }
+
+  @Test
+  public void invalidatesTheTilesWhoseBufferOverlapsTheRegion() {
+    final GeoJsonTileIndex index = new GeoJsonTileIndex(10, 12, BUFFER);
+    final List<String> invalidated = new ArrayList<>();
+
+    index.invalidate(new double[] {13.4, 52.5, 13.45, 52.52}, recorder(invalidated));
+
+    assertEquals(
+        Arrays.asList(
+            "10/549/335", "10/549/336", "10/550/335", "10/550/336",
+            "11/1099/671", "11/1099/672", "11/1100/671", "11/1100/672",
+            "12/2200/1343", "12/2201/1343"),
+        invalidated);
+  }
+
+  @Test
+  public void invalidatesTheBufferedRegionAtHighZoomLevels() {
+    final GeoJsonTileIndex index = new GeoJsonTileIndex(6, 14, BUFFER);
+    final List<String> invalidated = new ArrayList<>();
+
+    index.invalidate(new double[] {13, 52, 14, 53}, recorder(invalidated));
+
+    // 2, 4, 6, 12 and 30 tiles up to zoom level 10, then the region with the buffer of level 11.
+    assertEquals(2 + 4 + 6 + 12 + 30 + 1, invalidated.size());
+    assertEquals("10/552/338", invalidated.get(invalidated.size() - 2));
+    final String[] region = invalidated.get(invalidated.size() - 1).split(" ");
+    assertEquals("region", region[0]);
+    assertEquals(12.9560546875, Double.parseDouble(region[1]), 1e-9);
+    assertEquals(51.97293638732358, Double.parseDouble(region[2]), 1e-9);
+    assertEquals(14.0439453125, Double.parseDouble(region[3]), 1e-9);
+    assertEquals(53.026438849991436, Double.parseDouble(region[4]), 1e-9);
+  }
+
+  private static List<Feature> queryTile(GeoJsonTileIndex index) {
+    return index.query(
+        TILE_WEST,
+        TileCover.tileYToLat(336, 10),
+        TILE_EAST,
+        TileCover.tileYToLat(335, 10),
+        10);
+  }
+
+  private static GeoJsonTileIndex.Invalidator recorder(List<String> invalidated) {
+    return new GeoJsonTileIndex.Invalidator() {
+      @Override
+      public void invalidateTile(int zoom, int x, int y) {
+        invalidated.add(zoom + "/" + x + "/" + y);
+      }
+
+      @Override
+      public void invalidateRegion(double west, double south, double east, double north) {
+        invalidated.add("region " + west + " " + south + " " + east + " " + north);
+      }
+    };
+  }
+
+  private static List<String> ids(List<Feature> features) {
+    final List<String> ids = new ArrayList<>();
+    for (Feature feature : features) {
+      ids.add(feature.id());
+    }
+    Collections.sort(ids);
+    return ids;
+  }
+
+  private static FeatureCollection collection(Feature... features) {
+    return FeatureCollection.fromFeatures(Arrays.asList(features));
+  }
+
+  private static Feature point(String id, double lng, double lat) {
+    return Feature.fromGeometry(Point.fromLngLat(lng, lat), null, id);
+  }
+
+  private static Feature line(String id, double... lngLats) {
+    final List<Point> points = new ArrayList<>();
+    for (int i = 0; i < lngLats.length; i += 2) {
+      points.add(Point.fromLngLat(lngLats[i], lngLats[i + 1]));
+    }
+    return Feature.fromGeometry(LineString.fromLngLats(points), null, id);
+  }
+}
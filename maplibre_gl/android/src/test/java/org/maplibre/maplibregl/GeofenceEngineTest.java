@@ -0,0 +1,190 @@
+package org.maplibre.maplibregl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Checks the transitions the geofence engine reports for sequences of location fixes. */
+public class GeofenceEngineTest {
+  private static final double METERS_PER_DEGREE = 111320.0;
+  private static final String[] NAMES = {"enter", "exit", "dwell"};
+
+  private GeofenceEngine engine;
+  private final List<String> transitions = new ArrayList<>();
+  private final GeofenceEngine.Listener listener =
+      (id, transition) -> transitions.add(id + ":" + NAMES[transition]);
+
+  @Before
+  public void setUp() {
+    engine = new GeofenceEngine();
+  }
+
+  @Test
+  public void entersAndExits() {
+    engine.add("a", square(0.01, 0.01, 0.03, 0.03), 0);
+
+    assertTransitions(0.005, 0.005);
+    assertTransitions(0.015, 0.015, "a:enter");
+    assertTransitions(0.016, 0.016);
+    assertTransitions(0.035, 0.015, "a:exit");
+    assertTransitions(0.015, 0.015, "a:enter");
+  }
+
+  @Test
+  public void exitsWhenTheFixJumpsFarAway() {
+    engine.add("a", square(0.01, 0.01, 0.03, 0.03), 0);
+
+    assertTransitions(0.015, 0.015, "a:enter");
+    // The zone is not registered in the cell of this fix.
+    assertTransitions(10, 10, "a:exit");
+    assertTransitions(11, 11);
+  }
+
+  @Test
+  public void followsTheFixAcrossGridCells() {
+    // The zone spans the four cells around (0.02, 0.02).
+    engine.add("a", square(0.01, 0.01, 0.03, 0.03), 0);
+
+    assertTransitions(0.015, 0.015, "a:enter");
+    assertTransitions(0.025, 0.015);
+    assertTransitions(0.025, 0.025);
+    assertTransitions(0.02, 0.02);
+    assertTransitions(0.015, 0.025);
+    assertTransitions(0.015, 0.035, "a:exit");
+  }
+
+  @Test
+  public void zoneEndingOnACellBoundary() {
+    engine.add("a", square(0, 0, 0.02, 0.02), 0);
+
+    assertTransitions(0.019999, 0.019999, "a:enter");
+    assertTransitions(0.020001, 0.019999, "a:exit");
+    assertTransitions(0.019999, 0.019999, "a:enter");
+    assertTransitions(0.019999, 0.020001, "a:exit");
+  }
+
+  @Test
+  public void sharedEdgeBelongsToOneZone() {
+    engine.add("south", square(0.01, 0.01, 0.02, 0.03), 0);
+    engine.add("north", square(0.02, 0.01, 0.03, 0.03), 0);
+    engine.add("west", square(0.04, 0.01, 0.05, 0.02), 0);
+    engine.add("east", square(0.04, 0.02, 0.05, 0.03), 0);
+
+    // Zones contain their southern and western edges, but not their northern and eastern ones.
+    assertTransitions(0.02, 0.015, "north:enter");
+    assertTransitions(0.045, 0.02, "east:enter", "north:exit");
+  }
+
+  @Test
+  public void excludesHoles() {
+    final double[] outer = square(0.01, 0.01, 0.05, 0.05)[0];
+    final double[] hole = square(0.02, 0.02, 0.04, 0.04)[0];
+    engine.add("a", new double[][] {outer, hole}, 0);
+
+    assertTransitions(0.015, 0.015, "a:enter");
+    assertTransitions(0.03, 0.03, "a:exit");
+    assertTransitions(0.045, 0.03, "a:enter");
+  }
+
+  @Test
+  public void containsConcavePolygons() {
+    // An L shape, whose bounding box contains the missing upper right quarter.
+    final double[][] rings = {
+      {0.01, 0.01, 0.01, 0.03, 0.02, 0.03, 0.02, 0.02, 0.03, 0.02, 0.03, 0.01, 0.01, 0.01}
+    };
+    assertTrue(GeofenceEngine.contains(rings, 0.015, 0.025));
+    assertTrue(GeofenceEngine.contains(rings, 0.025, 0.015));
+    assertFalse(GeofenceEngine.contains(rings, 0.025, 0.025));
+    assertFalse(GeofenceEngine.contains(rings, 0.005, 0.015));
+  }
+
+  @Test
+  public void appliesHysteresis() {
+    engine.setOptions(100, 0);
+    engine.add("a", square(0, 0, 0.1, 0.1), 0);
+    final double edge = 0.1;
+
+    assertTransitions(edge - meters(50), 0.05);
+    assertTransitions(edge - meters(150), 0.05, "a:enter");
+    assertTransitions(edge + meters(50), 0.05);
+    assertTransitions(edge - meters(50), 0.05);
+    assertTransitions(edge + meters(150), 0.05, "a:exit");
+    // Still near the bounds, so the zone is tested and stays outside.
+    assertTransitions(edge - meters(50), 0.05);
+  }
+
+  @Test
+  public void reportsDwellOnce() {
+    engine.add("a", square(0.01, 0.01, 0.03, 0.03), 60000);
+
+    assertTransitions(0.015, 0.015, 0, "a:enter");
+    assertTransitions(0.015, 0.015, 30000);
+    assertTransitions(0.015, 0.015, 60000, "a:dwell");
+    assertTransitions(0.015, 0.015, 120000);
+    assertTransitions(0.035, 0.015, 130000, "a:exit");
+    assertTransitions(0.015, 0.015, 140000, "a:enter");
+    assertTransitions(0.015, 0.015, 190000);
+    assertTransitions(0.015, 0.015, 200000, "a:dwell");
+  }
+
+  @Test
+  public void ignoresInaccurateFixes() {
+    engine.setOptions(0, 50);
+    engine.add("a", square(0.01, 0.01, 0.03, 0.03), 0);
+
+    engine.update(0.015, 0.015, 100, 0, listener);
+    assertEquals(Collections.emptyList(), transitions);
+    assertTransitions(0.015, 0.015, "a:enter");
+  }
+
+  @Test
+  public void testsLargeZonesOnEveryFix() {
+    engine.add("a", square(-1, -1, 1, 1), 0);
+
+    assertTransitions(0.5, 0.5, "a:enter");
+    assertTransitions(-0.5, -0.5);
+    assertTransitions(1.5, 0.5, "a:exit");
+  }
+
+  @Test
+  public void removesAndReplacesZonesSilently() {
+    engine.add("a", square(0.01, 0.01, 0.03, 0.03), 0);
+    assertTransitions(0.015, 0.015, "a:enter");
+
+    engine.add("a", square(0.01, 0.01, 0.03, 0.03), 0);
+    assertTransitions(0.015, 0.015, "a:enter");
+
+    assertTrue(engine.remove("a"));
+    assertFalse(engine.remove("a"));
+    assertTransitions(0.035, 0.015);
+    assertEquals(0, engine.size());
+  }
+
+  private void assertTransitions(double lat, double lon, String... expected) {
+    assertTransitions(lat, lon, 0, expected);
+  }
+
+  private void assertTransitions(double lat, double lon, long time, String... expected) {
+    transitions.clear();
+    engine.update(lat, lon, 10, time, listener);
+    assertEquals(Arrays.asList(expected), transitions);
+  }
+
+  private static double meters(double meters) {
+    return meters / METERS_PER_DEGREE;
+  }
+
+  /** Returns the ring of a latitude/longitude box, as the engine takes it. */
+  private static double[][] square(double south, double west, double north, double east) {
+    return new double[][] {
+      {south, west, south, east, north, east, north, west, south, west}
+    };
+  }
+}
@@ -0,0 +1,207 @@
+package org.maplibre.maplibregl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import org.maplibre.geojson.Feature;
+import org.maplibre.geojson.FeatureCollection;
+import org.maplibre.geojson.Geometry;
+import org.maplibre.geojson.GeometryCollection;
+import org.maplibre.geojson.LineString;
+import org.maplibre.geojson.MultiLineString;
+import org.maplibre.geojson.MultiPolygon;
+import org.maplibre.geojson.Point;
+import org.maplibre.geojson.Polygon;
+
+/** Checks which vertices the Douglas-Peucker simplification keeps and which shapes it drops. */
+public class GeometrySimplifierTest {
+  private static final double ZOOM = 10;
+
+  /** Two pixels of a 512 pixel tile at zoom level 10, in degrees of latitude at the equator. */
+  private static final double TWO_PIXELS = 2 * 360 / (512 * Math.pow(2, ZOOM));
+
+  @Test
+  public void dropsVerticesWithinTheTolerance() {
+    final List<Point> line = points(0, 0, 0.5, TWO_PIXELS, 1, 0);
+    final Feature feature = Feature.fromGeometry(LineString.fromLngLats(line));
+
+    assertSame(feature, simplifyOne(feature, 1.5, ZOOM));
+    final List<Point> simplified = coordinates(simplifyOne(feature, 2.5, ZOOM));
+    assertEquals(2, simplified.size());
+    assertSame(line.get(0), simplified.get(0));
+    assertSame(line.get(2), simplified.get(1));
+  }
+
+  @Test
+  public void toleranceScalesWithTheZoomLevel() {
+    final Feature feature =
+        Feature.fromGeometry(LineString.fromLngLats(points(0, 0, 0.5, TWO_PIXELS, 1, 0)));
+
+    // The vertex is one pixel off the line at the next lower zoom level.
+    assertSame(feature, simplifyOne(feature, 1.5, ZOOM));
+    assertEquals(2, coordinates(simplifyOne(feature, 1.5, ZOOM - 1)).size());
+    assertSame(feature, simplifyOne(feature, 1.5, ZOOM + 5));
+  }
+
+  @Test
+  public void keepsTheFarthestVertices() {
+    final List<Point> line = points(0, 0, 0.25, 0.5, 0.5, 1, 0.75, 0.5, 1, 0);
+    final Feature feature = Feature.fromGeometry(LineString.fromLngLats(line));
+
+    final List<Point> simplified = coordinates(simplifyOne(feature, 2, ZOOM));
+    assertEquals(Arrays.asList(line.get(0), line.get(2), line.get(4)), simplified);
+  }
+
+  @Test
+  public void keepsPropertiesAndIds() {
+    final JsonObject properties = new JsonObject();
+    properties.addProperty("name", "line");
+    final Feature feature =
+        Feature.fromGeometry(
+            LineString.fromLngLats(points(0, 0, 0.5, 0, 1, 0)), properties, "id");
+
+    final Feature simplified = simplifyOne(feature, 1, ZOOM);
+    assertEquals(2, coordinates(simplified).size());
+    assertSame(properties, simplified.properties());
+    assertEquals("id", simplified.id());
+  }
+
+  @Test
+  public void closedRingsKeepTheirCorners() {
+    // A square with a vertex in the middle of every side.
+    final List<Point> ring = points(0, 0, 0.5, 0, 1, 0, 1, 0.5, 1, 1, 0.5, 1, 0, 1, 0, 0.5, 0, 0);
+    final Feature feature =
+        Feature.fromGeometry(Polygon.fromLngLats(Collections.singletonList(ring)));
+
+    final List<List<Point>> rings = rings(simplifyOne(feature, 2, ZOOM));
+    assertEquals(1, rings.size());
+    assertEquals(
+        Arrays.asList(ring.get(0), ring.get(2), ring.get(4), ring.get(6), ring.get(8)),
+        rings.get(0));
+  }
+
+  @Test
+  public void dropsRingsWithLessThanFourVertices() {
+    // A sliver, whose third vertex is within the tolerance of the first side.
+    final List<Point> sliver = points(0, 0, 1, 0, 0.5, TWO_PIXELS / 4, 0, 0);
+    final List<Point> outer = points(-1, -1, 2, -1, 2, 2, -1, 2, -1, -1);
+    final List<Point> hole = points(0.2, 0.2, 0.2001, 0.2, 0.2, 0.2001, 0.2, 0.2);
+
+    final Feature withHole = Feature.fromGeometry(Polygon.fromLngLats(Arrays.asList(outer, hole)));
+    final List<List<Point>> rings = rings(simplifyOne(withHole, 2, ZOOM));
+    assertEquals(Collections.singletonList(outer), rings);
+
+    final Feature collapsed =
+        Feature.fromGeometry(Polygon.fromLngLats(Arrays.asList(sliver, outer)));
+    assertTrue(simplify(collapsed, 2, ZOOM).isEmpty());
+  }
+
+  @Test
+  public void dropsCollapsedPolygonsOfMultiPolygons() {
+    final List<Point> square = points(0, 0, 1, 0, 1, 1, 0, 1, 0, 0);
+    final List<Point> sliver = points(0, 0, 1, 0, 0.5, TWO_PIXELS / 4, 0, 0);
+    final Feature feature =
+        Feature.fromGeometry(
+            MultiPolygon.fromLngLats(
+                Arrays.asList(
+                    Collections.singletonList(sliver), Collections.singletonList(square))));
+
+    final Geometry geometry = simplifyOne(feature, 2, ZOOM).geometry();
+    assertEquals(
+        Collections.singletonList(Collections.singletonList(square)),
+        ((MultiPolygon) geometry).coordinates());
+  }
+
+  @Test
+  public void degenerateLines() {
+    final Feature twoPoints = Feature.fromGeometry(LineString.fromLngLats(points(0, 0, 1, 1)));
+    assertSame(twoPoints, simplifyOne(twoPoints, 100, ZOOM));
+
+    final Feature onePoint = Feature.fromGeometry(LineString.fromLngLats(points(0, 0)));
+    assertTrue(simplify(onePoint, 1, ZOOM).isEmpty());
+
+    final List<Point> repeated = points(1, 1, 1, 1, 1, 1);
+    final Feature samePoints = Feature.fromGeometry(LineString.fromLngLats(repeated));
+    assertEquals(
+        Arrays.asList(repeated.get(0), repeated.get(2)),
+        coordinates(simplifyOne(samePoints, 1, ZOOM)));
+
+    final Feature lines =
+        Feature.fromGeometry(
+            MultiLineString.fromLngLats(Arrays.asList(points(0, 0), points(0, 0, 1, 1))));
+    assertEquals(
+        Collections.singletonList(2),
+        sizes(((MultiLineString) simplifyOne(lines, 1, ZOOM).geometry()).coordinates()));
+  }
+
+  @Test
+  public void simplifiesGeometryCollections() {
+    final Geometry point = Point.fromLngLat(0, 0);
+    final Geometry line = LineString.fromLngLats(points(0, 0, 0.5, 0, 1, 0));
+    final Feature feature =
+        Feature.fromGeometry(GeometryCollection.fromGeometries(Arrays.asList(point, line)));
+
+    final List<Geometry> geometries =
+        ((GeometryCollection) simplifyOne(feature, 1, ZOOM).geometry()).geometries();
+    assertSame(point, geometries.get(0));
+    assertEquals(2, ((LineString) geometries.get(1)).coordinates().size());
+  }
+
+  @Test
+  public void countsVertices() {
+    final FeatureCollection collection =
+        FeatureCollection.fromFeatures(
+            Arrays.asList(
+                Feature.fromGeometry(Point.fromLngLat(0, 0)),
+                Feature.fromGeometry(LineString.fromLngLats(points(0, 0, 1, 1, 2, 2))),
+                Feature.fromGeometry(
+                    Polygon.fromLngLats(
+                        Collections.singletonList(points(0, 0, 1, 0, 1, 1, 0, 0))))));
+
+    assertEquals(3 + 4, GeometrySimplifier.countVertices(collection));
+  }
+
+  private static List<Feature> simplify(Feature feature, double tolerance, double zoom) {
+    return GeometrySimplifier.simplify(
+            FeatureCollection.fromFeatures(Collections.singletonList(feature)), tolerance, zoom)
+        .features();
+  }
+
+  private static Feature simplifyOne(Feature feature, double tolerance, double zoom) {
+    final List<Feature> features = simplify(feature, tolerance, zoom);
+    assertEquals(1, features.size());
+    return features.get(0);
+  }
+
+  private static List<Point> coordinates(Feature feature) {
+    return ((LineString) feature.geometry()).coordinates();
+  }
+
+  private static List<List<Point>> rings(Feature feature) {
+    return ((Polygon) feature.geometry()).coordinates();
+  }
+
+  private static List<Integer> sizes(List<List<Point>> lines) {
+    final List<Integer> sizes = new ArrayList<>();
+    for (List<Point> line : lines) {
+      sizes.add(line.size());
+    }
+    return sizes;
+  }
+
+  /** Returns the points at the interleaved longitude and latitude pairs. */
+  private static List<Point> points(double... lngLats) {
+    final List<Point> points = new ArrayList<>();
+    for (int i = 0; i < lngLats.length; i += 2) {
+      points.add(Point.fromLngLat(lngLats[i], lngLats[i + 1]));
+    }
+    return points;
+  }
+}
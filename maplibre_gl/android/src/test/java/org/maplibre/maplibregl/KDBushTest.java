@@ -0,0 +1,126 @@
+package org.maplibre.maplibregl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/** Checks the kd-tree queries against a linear scan over the same points. */
+public class KDBushTest {
+  private static final int NODE_SIZE = 4;
+
+  @Test
+  public void rangeFindsThePointsInsideTheBox() {
+    final double[] points = randomPoints(1000);
+    final KDBush tree = new KDBush(points.clone(), NODE_SIZE);
+
+    assertEquals(scanRange(points, 20, 30, 50, 70), range(tree, 20, 30, 50, 70));
+    assertEquals(scanRange(points, 0, 0, 100, 100), range(tree, 0, 0, 100, 100));
+    assertEquals(Collections.emptyList(), range(tree, 200, 200, 300, 300));
+  }
+
+  @Test
+  public void rangeIncludesTheEdgesOfTheBox() {
+    final double[] grid = new double[10 * 10 * 2];
+    for (int i = 0; i < 100; i++) {
+      grid[2 * i] = i % 10;
+      grid[2 * i + 1] = i / 10;
+    }
+    final KDBush tree = new KDBush(grid, NODE_SIZE);
+
+    assertEquals(Arrays.asList(22, 23, 32, 33), range(tree, 2, 2, 3, 3));
+  }
+
+  @Test
+  public void withinFindsThePointsInsideTheRadius() {
+    final double[] points = randomPoints(1000);
+    final KDBush tree = new KDBush(points.clone(), NODE_SIZE);
+
+    assertEquals(scanWithin(points, 50, 50, 20), within(tree, 50, 50, 20));
+    assertEquals(scanWithin(points, 0, 0, 30), within(tree, 0, 0, 30));
+    assertEquals(scanWithin(points, 50, 50, 0.001), within(tree, 50, 50, 0.001));
+  }
+
+  @Test
+  public void reorderReportsTreePositions() {
+    final double[] points = randomPoints(100);
+    final KDBush tree = new KDBush(points.clone(), NODE_SIZE);
+    final int[] order = tree.reorder();
+
+    // Position i of the tree holds the original point order[i].
+    final List<Integer> expected = new ArrayList<>();
+    for (int original : scanRange(points, 10, 10, 60, 60)) {
+      for (int i = 0; i < order.length; i++) {
+        if (order[i] == original) {
+          expected.add(i);
+        }
+      }
+    }
+    Collections.sort(expected);
+    assertEquals(expected, range(tree, 10, 10, 60, 60));
+  }
+
+  @Test
+  public void handlesEmptyAndDuplicatePoints() {
+    final KDBush empty = new KDBush(new double[0], NODE_SIZE);
+    assertEquals(0, empty.size());
+    assertEquals(Collections.emptyList(), range(empty, 0, 0, 1, 1));
+
+    final double[] same = new double[20 * 2];
+    final KDBush duplicates = new KDBush(same, NODE_SIZE);
+    assertEquals(20, within(duplicates, 0, 0, 0).size());
+  }
+
+  private static double[] randomPoints(int count) {
+    final Random random = new Random(42);
+    final double[] points = new double[count * 2];
+    for (int i = 0; i < points.length; i++) {
+      points[i] = random.nextDouble() * 100;
+    }
+    return points;
+  }
+
+  private static List<Integer> range(
+      KDBush tree, double minX, double minY, double maxX, double maxY) {
+    final List<Integer> ids = new ArrayList<>();
+    tree.range(minX, minY, maxX, maxY, ids::add);
+    Collections.sort(ids);
+    return ids;
+  }
+
+  private static List<Integer> within(KDBush tree, double x, double y, double r) {
+    final List<Integer> ids = new ArrayList<>();
+    tree.within(x, y, r, ids::add);
+    Collections.sort(ids);
+    return ids;
+  }
+
+  private static List<Integer> scanRange(
+      double[] points, double minX, double minY, double maxX, double maxY) {
+    final List<Integer> ids = new ArrayList<>();
+    for (int i = 0; i < points.length / 2; i++) {
+      final double x = points[2 * i];
+      final double y = points[2 * i + 1];
+      if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+        ids.add(i);
+      }
+    }
+    return ids;
+  }
+
+  private static List<Integer> scanWithin(double[] points, double x, double y, double r) {
+    final List<Integer> ids = new ArrayList<>();
+    for (int i = 0; i < points.length / 2; i++) {
+      final double dx = points[2 * i] - x;
+      final double dy = points[2 * i + 1] - y;
+      if (dx * dx + dy * dy <= r * r) {
+        ids.add(i);
+      }
+    }
+    return ids;
+  }
+}
@@ -0,0 +1,85 @@
+package org.maplibre.maplibregl;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.gson.Gson;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A sequence of method calls of a map channel, read from a JSON resource in {@code traces/}.
+ *
+ * <p>A trace has {@code setup} calls that are replayed once, and {@code calls} that are replayed
+ * {@code repeat} times for a measurement. Each call has a {@code method} and its {@code
+ * arguments}. Numbers are read as doubles, the type the standard message codec decodes Dart
+ * doubles to. {@code renderedFeatures} is an optional feature collection the fake map returns
+ * for queries of rendered features.
+ */
+final class MethodCallTrace {
+  static final class Call {
+    String method;
+    Map<String, Object> arguments;
+  }
+
+  String description;
+  int repeat = 1;
+  @Nullable String renderedFeatures;
+  List<Call> setup = Collections.emptyList();
+  List<Call> calls = Collections.emptyList();
+
+  static MethodCallTrace load(String name) throws IOException {
+    final InputStream input =
+        MethodCallTrace.class.getClassLoader().getResourceAsStream("traces/" + name + ".json");
+    if (input == null) {
+      throw new IOException("Missing trace " + name);
+    }
+    try (Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8)) {
+      return new Gson().fromJson(reader, MethodCallTrace.class);
+    }
+  }
+
+  void replaySetup(MethodChannel.MethodCallHandler handler) {
+    replay(setup, handler);
+  }
+
+  void replayCalls(MethodChannel.MethodCallHandler handler) {
+    replay(calls, handler);
+  }
+
+  /** Hands the calls to the handler, and throws if one of them fails. */
+  private static void replay(List<Call> calls, MethodChannel.MethodCallHandler handler) {
+    for (Call call : calls) {
+      handler.onMethodCall(new MethodCall(call.method, call.arguments), new FailingResult(call));
+    }
+  }
+
+  private static final class FailingResult implements MethodChannel.Result {
+    private final Call call;
+
+    FailingResult(Call call) {
+      this.call = call;
+    }
+
+    @Override
+    public void success(@Nullable Object result) {}
+
+    @Override
+    public void error(
+        @NonNull String errorCode, @Nullable String errorMessage, @Nullable Object errorDetails) {
+      throw new AssertionError(call.method + " failed with " + errorCode + ": " + errorMessage);
+    }
+
+    @Override
+    public void notImplemented() {
+      throw new AssertionError(call.method + " is not implemented");
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package org.maplibre.maplibregl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+import org.maplibre.geojson.Geometry;
+import org.maplibre.geojson.LineString;
+import org.maplibre.geojson.Point;
+
+/** Checks the tiles covered by buffered corridors, which the offline downloads are split by. */
+public class OfflineCorridorTest {
+  private static final double BUFFER_METERS = 1000;
+
+  @Test
+  public void straightCorridor() {
+    final Geometry corridor = corridor(Point.fromLngLat(1, 1), Point.fromLngLat(12, 12.5));
+
+    assertEquals(
+        tiles(6, 32, 30, 32, 31, 33, 29, 33, 30, 34, 29), OfflineCorridor.tiles(corridor, 6));
+    assertEquals(tiles(5, 16, 14, 16, 15, 17, 14), OfflineCorridor.tiles(corridor, 5));
+    assertEquals(5, OfflineCorridor.estimateTileCount(corridor, 6, 6));
+    assertEquals(3 + 5, OfflineCorridor.estimateTileCount(corridor, 5, 6));
+    assertEquals(9, OfflineCorridor.estimateBoundingBoxTileCount(corridor, 6, 6));
+  }
+
+  @Test
+  public void corridorAcrossTheAntimeridian() {
+    final Geometry corridor = corridor(Point.fromLngLat(179.5, 0.5), Point.fromLngLat(-179.5, 0.5));
+
+    assertEquals(tiles(8, 255, 127, 0, 127), OfflineCorridor.tiles(corridor, 8));
+    assertEquals(2, OfflineCorridor.estimateTileCount(corridor, 8, 8));
+    assertEquals(2, OfflineCorridor.estimateBoundingBoxTileCount(corridor, 8, 8));
+  }
+
+  @Test
+  public void corridorAcrossTheAntimeridianWestwards() {
+    final Geometry corridor =
+        corridor(Point.fromLngLat(-179.5, 0.5), Point.fromLngLat(179.5, 0.5));
+
+    assertEquals(tiles(8, 255, 127, 0, 127), OfflineCorridor.tiles(corridor, 8));
+    assertEquals(2, OfflineCorridor.estimateBoundingBoxTileCount(corridor, 8, 8));
+  }
+
+  @Test
+  public void boundingBoxTileCount() {
+    assertEquals(1 + 4 + 16, TileCover.countTiles(-85, -180, 85, 180, 0, 2));
+    assertEquals(3 * 3, TileCover.countTiles(1, 1, 12, 12, 6, 6));
+  }
+
+  private static Geometry corridor(Point from, Point to) {
+    return OfflineCorridor.buffer(LineString.fromLngLats(Arrays.asList(from, to)), BUFFER_METERS);
+  }
+
+  /** Returns the tile keys of the zoom level and the interleaved column and row pairs. */
+  private static Set<Long> tiles(int zoom, int... columnsAndRows) {
+    final Set<Long> tiles = new HashSet<>();
+    for (int i = 0; i < columnsAndRows.length; i += 2) {
+      tiles.add(TileCover.tileKey(zoom, columnsAndRows[i], columnsAndRows[i + 1]));
+    }
+    return tiles;
+  }
+}
@@ -0,0 +1,199 @@
+package org.maplibre.maplibregl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Checks the clusters of a small set of points, whose groups merge at zoom levels that follow from
+ * the default radius of 40 pixels at an extent of 512.
+ */
+public class SuperclusterTest {
+  // Three points 0.0001 degrees apart near (10, 10), two near (10, 20), and one far away. The
+  // groups only split above the maximum zoom level, and both groups merge below zoom level 2.
+  private static final double[] POINTS = {
+    10, 10, 10, 10.0001, 10, 10.0002, 10, 20, 10, 20.0001, -40, -60,
+  };
+
+  @Test
+  public void clustersPerZoomLevel() {
+    final Supercluster index = new Supercluster(POINTS, new Supercluster.Options());
+
+    assertEquals(Arrays.asList("cluster 5", "point 5"), clusters(index, 0));
+    assertEquals(Arrays.asList("cluster 5", "point 5"), clusters(index, 1));
+    assertEquals(Arrays.asList("cluster 2", "cluster 3", "point 5"), clusters(index, 2));
+    assertEquals(Arrays.asList("cluster 2", "cluster 3", "point 5"), clusters(index, 16));
+    assertEquals(
+        Arrays.asList("point 0", "point 1", "point 2", "point 3", "point 4", "point 5"),
+        clusters(index, 17));
+    assertEquals(clusters(index, 17), clusters(index, 22));
+  }
+
+  @Test
+  public void clusterIdsEncodeTheirOriginZoom() {
+    final Supercluster index = new Supercluster(POINTS, new Supercluster.Options());
+    final int pointCount = POINTS.length / 2;
+
+    // Clusters keep the id of the zoom level they were formed at, one above the level they are in.
+    assertEquals(2, (clusterId(index, 0, 5) - pointCount) % 32);
+    assertEquals(clusterId(index, 0, 5), clusterId(index, 1, 5));
+    assertEquals(17, (clusterId(index, 2, 3) - pointCount) % 32);
+    assertEquals(clusterId(index, 2, 3), clusterId(index, 16, 3));
+  }
+
+  @Test
+  public void clusterPositionIsWeightedByPointCount() {
+    final Supercluster index = new Supercluster(POINTS, new Supercluster.Options());
+    final double[] position = new double[2];
+    index.getClusters(
+        -180,
+        -90,
+        180,
+        90,
+        0,
+        new Supercluster.Visitor() {
+          @Override
+          public void onCluster(int clusterId, int pointCount, double lat, double lng) {
+            position[0] = lat;
+            position[1] = lng;
+          }
+
+          @Override
+          public void onPoint(int index, double lat, double lng) {}
+        });
+
+    assertEquals(10, position[0], 1e-9);
+    assertEquals((3 * 10.0001 + 2 * 20.00005) / 5, position[1], 1e-9);
+  }
+
+  @Test
+  public void expansionZoom() {
+    final Supercluster index = new Supercluster(POINTS, new Supercluster.Options());
+
+    assertEquals(2, index.getClusterExpansionZoom(clusterId(index, 0, 5)));
+    assertEquals(17, index.getClusterExpansionZoom(clusterId(index, 2, 3)));
+    assertEquals(17, index.getClusterExpansionZoom(clusterId(index, 2, 2)));
+  }
+
+  @Test
+  public void leaves() {
+    final Supercluster index = new Supercluster(POINTS, new Supercluster.Options());
+    final int all = clusterId(index, 0, 5);
+
+    assertArrayEquals(new int[] {0, 1, 2, 3, 4}, sorted(index.getLeaves(all, 10, 0)));
+    assertArrayEquals(new int[] {3, 4}, sorted(index.getLeaves(clusterId(index, 2, 2), 10, 0)));
+
+    // Pages of leaves add up to all of them.
+    final int[] first = index.getLeaves(all, 2, 0);
+    final int[] second = index.getLeaves(all, 2, 2);
+    final int[] third = index.getLeaves(all, 2, 4);
+    assertEquals(2, first.length);
+    assertEquals(2, second.length);
+    assertEquals(1, third.length);
+    final int[] pages = new int[5];
+    System.arraycopy(first, 0, pages, 0, 2);
+    System.arraycopy(second, 0, pages, 2, 2);
+    System.arraycopy(third, 0, pages, 4, 1);
+    assertArrayEquals(new int[] {0, 1, 2, 3, 4}, sorted(pages));
+  }
+
+  @Test
+  public void unknownClusterIds() {
+    final Supercluster index = new Supercluster(POINTS, new Supercluster.Options());
+    for (int id : new int[] {0, 5, clusterId(index, 0, 5) + 32 * 100}) {
+      try {
+        index.getLeaves(id, 10, 0);
+        fail("Expected no cluster with id " + id);
+      } catch (IllegalArgumentException expected) {
+        // The id is not a cluster.
+      }
+    }
+  }
+
+  @Test
+  public void minPoints() {
+    final Supercluster.Options options = new Supercluster.Options();
+    options.minPoints = 3;
+    final Supercluster index = new Supercluster(POINTS, options);
+
+    // The pair near (10, 20) is too small to form a cluster on its own.
+    assertEquals(Arrays.asList("cluster 3", "point 3", "point 4", "point 5"), clusters(index, 2));
+    assertEquals(Arrays.asList("cluster 5", "point 5"), clusters(index, 0));
+  }
+
+  @Test
+  public void queriesAcrossTheAntimeridian() {
+    final double[] points = {0, 179.5, 0, -179.5, 0, 0};
+    final Supercluster index = new Supercluster(points, new Supercluster.Options());
+
+    assertEquals(Arrays.asList("point 0", "point 1"), clusters(index, 170, -10, -170, 10, 17));
+    assertEquals(
+        Arrays.asList("point 0", "point 1", "point 2"),
+        clusters(index, -540, -10, 540, 10, 17));
+  }
+
+  private static List<String> clusters(Supercluster index, double zoom) {
+    return clusters(index, -180, -90, 180, 90, zoom);
+  }
+
+  /** Returns the clusters with their point counts and the points with their indices, sorted. */
+  private static List<String> clusters(
+      Supercluster index, double west, double south, double east, double north, double zoom) {
+    final List<String> result = new ArrayList<>();
+    index.getClusters(
+        west,
+        south,
+        east,
+        north,
+        zoom,
+        new Supercluster.Visitor() {
+          @Override
+          public void onCluster(int clusterId, int pointCount, double lat, double lng) {
+            result.add("cluster " + pointCount);
+          }
+
+          @Override
+          public void onPoint(int index, double lat, double lng) {
+            result.add("point " + index);
+          }
+        });
+    Collections.sort(result);
+    return result;
+  }
+
+  /** Returns the id of the cluster with the point count at the zoom level. */
+  private static int clusterId(Supercluster index, double zoom, int count) {
+    final List<Integer> ids = new ArrayList<>();
+    index.getClusters(
+        -180,
+        -90,
+        180,
+        90,
+        zoom,
+        new Supercluster.Visitor() {
+          @Override
+          public void onCluster(int clusterId, int pointCount, double lat, double lng) {
+            if (pointCount == count) {
+              ids.add(clusterId);
+            }
+          }
+
+          @Override
+          public void onPoint(int index, double lat, double lng) {}
+        });
+    assertEquals(1, ids.size());
+    return ids.get(0);
+  }
+
+  private static int[] sorted(int[] values) {
+    final int[] sorted = values.clone();
+    Arrays.sort(sorted);
+    return sorted;
+  }
+}
@@ -59,6 +59,10 @@ export 'package:maplibre_gl_platform_interface/maplibre_gl_platform_interface.da
         CompassViewPosition,
         Fill,
         FillOptions,
+        FlatGeobufSourceProperties,
+        Geofence,
+        GeofenceEvent,
+        GeofenceTransition,
         GeojsonSourceProperties,
         ImageSourceProperties,
         LatLng,
@@ -176,6 +176,8 @@ class MapLibreMapController extends ChangeNotifier {
     _maplibrePlatform.onUserLocationUpdatedPlatform.add((location) {
       onUserLocationUpdated?.call(location);
     });
+    _maplibrePlatform.onGeofenceEventPlatform.add(onGeofenceEvent.call);
+    _maplibrePlatform.onRenderStatsPlatform.add(onRenderStats.call);
   }
 
   FillManager? fillManager;
@@ -196,6 +198,16 @@ class MapLibreMapController extends ChangeNotifier {
 
   final OnMapIdleCallback? onMapIdle;
 
+  /// Callbacks to receive the transitions of the geofences added with
+  /// [addGeofences].
+  final ArgumentCallbacks<GeofenceEvent> onGeofenceEvent =
+      ArgumentCallbacks<GeofenceEvent>();
+
+  /// Callbacks to receive the render stats periodically, once an interval is
+  /// set with [setRenderStatsInterval].
+  final ArgumentCallbacks<Map<String, dynamic>> onRenderStats =
+      ArgumentCallbacks<Map<String, dynamic>>();
+
   /// Callbacks to receive tap events for symbols placed on this map.
   final ArgumentCallbacks<Symbol> onSymbolTapped = ArgumentCallbacks<Symbol>();
 
@@ -349,6 +361,151 @@ class MapLibreMapController extends ChangeNotifier {
         sourceId, geojsonFeature);
   }
 
+  /// Renders simplified copies of the lines and polygons of a geojson source
+  /// while zoomed out.
+  ///
+  /// A copy is simplified for each zoom level in [zooms] and used up to that
+  /// zoom level, above the highest zoom level the original data is used. The
+  /// copies are rebuilt in the background whenever the data of the source is
+  /// set with [addGeoJsonSource], [setGeoJsonSource] or [setGeoJsonFeature],
+  /// and the map switches between them once the camera becomes idle.
+  /// [tolerance] is the largest distance in pixels a removed vertex may have
+  /// from the simplified line. An empty [zooms] list turns simplification off.
+  ///
+  /// This may be called before the source is added.
+  ///
+  /// This is only supported on Android.
+  Future<void> setGeoJsonSourceLevelsOfDetail(
+      String sourceId, List<double> zooms, {double tolerance = 1}) async {
+    await _maplibrePlatform.setGeoJsonSourceLevelsOfDetail(
+        sourceId, zooms, tolerance);
+  }
+
+  /// Adds a source that keeps a large geojson dataset in a native tile index.
+  ///
+  /// The map asks the index for the features of each tile it needs and tiles
+  /// them on its own worker threads, so the dataset is not uploaded and tiled
+  /// as a whole. Update it with [updateTiledGeoJsonSource], which only
+  /// reloads the tiles of the changed features.
+  ///
+  /// The json in [geojson] has to comply with the schema for FeatureCollection
+  /// as specified in https://datatracker.ietf.org/doc/html/rfc7946#section-3.3
+  /// Features without an id are kept, but cannot be replaced or removed later.
+  ///
+  /// [tolerance] is the simplification tolerance and [buffer] the tile buffer,
+  /// as for geojson sources. The features are parsed and indexed off the
+  /// main thread.
+  ///
+  /// This is only supported on Android.
+  Future<void> addTiledGeoJsonSource(
+    String sourceId,
+    Map<String, dynamic> geojson, {
+    int minzoom = 0,
+    int maxzoom = 18,
+    double tolerance = 0.375,
+    int buffer = 128,
+  }) async {
+    await _maplibrePlatform.addTiledGeoJsonSource(sourceId, geojson,
+        minzoom: minzoom,
+        maxzoom: maxzoom,
+        tolerance: tolerance,
+        buffer: buffer);
+  }
+
+  /// Changes the features of a source added with [addTiledGeoJsonSource].
+  ///
+  /// The features of the FeatureCollection in [geojson] replace the features
+  /// with the same id, or are added, and the features with the ids in
+  /// [removeIds] are removed. Features without an id are always added. Only
+  /// the tiles whose buffers overlap the old or new features are reloaded.
+  /// The features are parsed and indexed off the main thread, one update
+  /// after another.
+  ///
+  /// This is only supported on Android.
+  Future<void> updateTiledGeoJsonSource(String sourceId,
+      {Map<String, dynamic>? geojson, List<String>? removeIds}) async {
+    await _maplibrePlatform.updateTiledGeoJsonSource(sourceId,
+        geojson: geojson, removeIds: removeIds);
+  }
+
+  /// Adds a geojson source with the features of a local `.geojson` or
+  /// `.geojsonseq` file, or replaces the data of an existing geojson source.
+  ///
+  /// The file is read in the background without loading it into memory as a
+  /// whole, so only the features that are kept take up memory. A `.geojson`
+  /// file has to contain a FeatureCollection, a `.geojsonseq` file one feature
+  /// per line.
+  ///
+  /// If [bounds] is set, only the features that intersect it are kept. If
+  /// [where] is set, only the features whose properties have the given values
+  /// are kept, where a list of values matches any of them.
+  ///
+  /// The returned [Future] completes with the number of kept features. It
+  /// fails if a source with [sourceId] exists that is not a geojson source.
+  ///
+  /// This is only supported on Android.
+  Future<int> addGeoJsonFileSource(String sourceId, String path,
+      {LatLngBounds? bounds,
+      Map<String, dynamic>? where,
+      GeojsonSourceProperties? properties}) {
+    return _maplibrePlatform.addGeoJsonFileSource(sourceId, path,
+        bbox: bounds != null
+            ? [
+                bounds.southwest.longitude,
+                bounds.southwest.latitude,
+                bounds.northeast.longitude,
+                bounds.northeast.latitude,
+              ]
+            : null,
+        where: where,
+        properties: properties?.toJson());
+  }
+
+  /// Adds a geojson source that clusters a large number of points natively.
+  ///
+  /// [coordinates] holds the latitude and longitude of each point, one after
+  /// the other. Unlike a clustered [addGeoJsonSource], the points are
+  /// clustered once in the background, and the source only receives the
+  /// clusters and points of the visible region whenever the camera becomes
+  /// idle.
+  ///
+  /// The features have the same properties as the clusters of a geojson
+  /// source: clusters have `cluster`, `cluster_id`, `point_count` and
+  /// `point_count_abbreviated`, so the same layers can render them. Points
+  /// have `index`, the position of the point in [coordinates].
+  ///
+  /// Calling it again with the same [sourceId] replaces the points.
+  ///
+  /// This is only supported on Android.
+  Future<void> addClusteredSource(
+    String sourceId,
+    Float64List coordinates, {
+    int radius = 50,
+    int maxZoom = 14,
+    int minPoints = 2,
+  }) async {
+    await _maplibrePlatform.addClusteredSource(sourceId, coordinates,
+        radius: radius, maxZoom: maxZoom, minPoints: minPoints);
+  }
+
+  /// Returns the zoom level at which the cluster with [clusterId] of a source
+  /// added with [addClusteredSource] splits up.
+  ///
+  /// This is only supported on Android.
+  Future<int> getClusterExpansionZoom(String sourceId, int clusterId) {
+    return _maplibrePlatform.getClusterExpansionZoom(sourceId, clusterId);
+  }
+
+  /// Returns the `index` of the points in the cluster with [clusterId] of a
+  /// source added with [addClusteredSource], skipping the first [offset].
+  ///
+  /// This is only supported on Android.
+  Future<List<int>> getClusterLeaves(String sourceId, int clusterId,
+      {int limit = 10, int offset = 0}) {
+    return _maplibrePlatform.getClusterLeaves(
+        sourceId, clusterId, limit, offset);
+  }
+
   /// Add a symbol layer to the map with the given properties
   ///
   /// Consider using [addLayer] for an unified layer api.
@@ -705,6 +862,44 @@ class MapLibreMapController extends ChangeNotifier {
     return _maplibrePlatform.setMapLanguage(language);
   }
 
+  /// Returns the current `language` of the labels, the number of
+  /// `localizableLayers` found in the style, and how long finding them
+  /// (`scanMillis`) and updating them (`applyMillis`) took in milliseconds.
+  ///
+  /// The style is only scanned once, so switching the language again only
+  /// updates the localizable layers.
+  ///
+  /// This is only supported on Android.
+  Future<Map<String, dynamic>?> getMapLanguageStats() async {
+    return _maplibrePlatform.getMapLanguageStats();
+  }
+
+  /// Returns the number of `frames` the map rendered, split into
+  /// `fullyRenderedFrames` and `partiallyRenderedFrames`, with their
+  /// `averageFrameMillis` and `maxFrameMillis`.
+  ///
+  /// The frame times are counted in a histogram: `bucketCounts[i]` is the
+  /// number of frames that took up to `bucketMillis[i]` milliseconds, the
+  /// last count is for longer frames. `fullyRenderedMaps` and
+  /// `partiallyRenderedMaps` count how often the map finished rendering.
+  /// `timeToFirstFrameMillis` and `timeToFullyLoadedMillis` are measured from
+  /// the last style change, and are null until they are known.
+  ///
+  /// If [reset] is true, the counts start over after this call.
+  ///
+  /// This is only supported on Android.
+  Future<Map<String, dynamic>?> getRenderStats({bool reset = false}) async {
+    return _maplibrePlatform.getRenderStats(reset);
+  }
+
+  /// Sends the render stats to [onRenderStats] every [interval], or stops
+  /// sending them if [interval] is null.
+  ///
+  /// This is only supported on Android.
+  Future<void> setRenderStatsInterval(Duration? interval) async {
+    return _maplibrePlatform.setRenderStatsInterval(interval);
+  }
+
   /// Enables or disables the collection of anonymized telemetry data.
   ///
   /// The returned [Future] completes after the change has been made on the
@@ -1116,6 +1311,32 @@ class MapLibreMapController extends ChangeNotifier {
     return _maplibrePlatform.clearAmbientCache();
   }
 
+  /// Enables or disables prefetching of the tiles around the camera.
+  ///
+  /// Once the camera is idle, the tiles in a ring of [ringSize] tiles around
+  /// the viewport and, if [prefetchNextZoom] is set, the tiles of the next
+  /// zoom level are downloaded into the ambient cache, so they are available
+  /// immediately when the user pans or zooms in. At most [maxConcurrency]
+  /// tiles are downloaded at the same time, and a single prefetch stops after
+  /// [byteBudget] bytes. Prefetching is cancelled when the camera moves again.
+  ///
+  /// This is only supported on Android.
+  Future<void> setTilePrefetch({
+    required bool enabled,
+    int maxConcurrency = 2,
+    int byteBudget = 4 * 1024 * 1024,
+    int ringSize = 1,
+    bool prefetchNextZoom = true,
+  }) async {
+    return _maplibrePlatform.setTilePrefetch(
+      enabled: enabled,
+      maxConcurrency: maxConcurrency,
+      byteBudget: byteBudget,
+      ringSize: ringSize,
+      prefetchNextZoom: prefetchNextZoom,
+    );
+  }
+
   /// Get last my location
   ///
   /// Return last latlng, nullable
@@ -1123,6 +1344,121 @@ class MapLibreMapController extends ChangeNotifier {
     return _maplibrePlatform.requestMyLocationLatLng();
   }
 
+  /// Returns the counters of the GPS location engine: the number of fixes
+  /// received from the system (`fixesReceived`) and forwarded to the map
+  /// (`fixesForwarded`), and the current update policy.
+  ///
+  /// Returns null if the GPS location engine is not used, i.e. unless
+  /// [LocationPriority.highAccuracy] or
+  /// [LocationEngineAndroidProperties.adaptive] is set. This is only supported
+  /// on Android.
+  Future<Map<String, dynamic>?> getLocationEngineStats() async {
+    return _maplibrePlatform.getLocationEngineStats();
+  }
+
+  /// Replays a recorded track instead of using the device location, e.g. to
+  /// test or benchmark the tracking modes with repeatable input.
+  ///
+  /// [track] is a GPX file or a track recorded with [startLocationRecording],
+  /// given as a Flutter asset path or as an absolute path on the file system.
+  /// The track is replayed [speed] times faster than it was recorded, and
+  /// restarts at the end if [loop] is set.
+  ///
+  /// This is only supported on Android.
+  Future<void> startLocationReplay(
+    String track, {
+    double speed = 1,
+    bool loop = false,
+  }) async {
+    return _maplibrePlatform.setLocationReplay(track, speed, loop);
+  }
+
+  /// Stops replaying a track and returns to the device location.
+  Future<void> stopLocationReplay() async {
+    return _maplibrePlatform.setLocationReplay(null, 1, false);
+  }
+
+  /// Records the device location into the file at the absolute [path], which
+  /// keeps the last [capacity] fixes. The file can be replayed with
+  /// [startLocationReplay].
+  ///
+  /// This is only supported on Android.
+  Future<void> startLocationRecording(String path, {int capacity = 86400}) {
+    return _maplibrePlatform.setLocationRecording(path, capacity);
+  }
+
+  /// Stops recording the device location.
+  Future<void> stopLocationRecording() {
+    return _maplibrePlatform.setLocationRecording(null, 0);
+  }
+
+  /// Configures how user location updates are delivered to
+  /// [onUserLocationUpdated]. The location puck on the map keeps updating at
+  /// the full rate regardless.
+  ///
+  /// Updates closer than [minDistance] meters or [minInterval] to the last
+  /// delivered one are dropped. Up to [batchSize] updates are sent together,
+  /// but no update waits longer than [maxBatchDelay]. If [enabled] is false,
+  /// no updates are delivered at all.
+  ///
+  /// This is only supported on Android.
+  Future<void> setUserLocationForwarding({
+    bool enabled = true,
+    double minDistance = 0,
+    Duration minInterval = Duration.zero,
+    int batchSize = 1,
+    Duration maxBatchDelay = const Duration(seconds: 1),
+  }) async {
+    return _maplibrePlatform.setUserLocationForwarding(
+      enabled: enabled,
+      minDistance: minDistance,
+      minInterval: minInterval,
+      batchSize: batchSize,
+      maxBatchDelay: maxBatchDelay,
+    );
+  }
+
+  /// Adds zones whose enter, exit and dwell transitions are reported to
+  /// [onGeofenceEvent], replacing zones with the same id.
+  ///
+  /// The zones are tested natively against every user location fix, so only
+  /// the transitions are sent to Dart. Fixes are only received while
+  /// `myLocationEnabled` is set.
+  ///
+  /// This is only supported on Android.
+  Future<void> addGeofences(List<Geofence> geofences) async {
+    return _maplibrePlatform.addGeofences(geofences);
+  }
+
+  /// Removes the zones with the given [ids] without reporting transitions.
+  Future<void> removeGeofences(List<String> ids) async {
+    return _maplibrePlatform.removeGeofences(ids);
+  }
+
+  /// Removes all zones without reporting transitions.
+  Future<void> clearGeofences() async {
+    return _maplibrePlatform.removeGeofences(null);
+  }
+
+  /// Configures the geofence transitions.
+  ///
+  /// A zone is only entered or left once the user location is at least
+  /// [hysteresis] meters inside or outside of it, so that an inaccurate
+  /// location close to the edge does not cause repeated transitions. Fixes
+  /// with a horizontal accuracy worse than [maxAccuracy] meters are ignored,
+  /// unless it is 0.
+  ///
+  /// This is only supported on Android.
+  Future<void> setGeofenceOptions({
+    double hysteresis = 0,
+    double maxAccuracy = 0,
+  }) async {
+    return _maplibrePlatform.setGeofenceOptions(
+      hysteresis: hysteresis,
+      maxAccuracy: maxAccuracy,
+    );
+  }
+
   /// This method returns the boundaries of the region currently displayed in the map.
   Future<LatLngBounds> getVisibleRegion() async {
     return _maplibrePlatform.getVisibleRegion();
@@ -46,15 +46,46 @@ Future<List<OfflineRegion>> mergeOfflineRegions(String path) async {
   return regions.map((region) => OfflineRegion.fromMap(region)).toList();
 }
 
-Future<List<OfflineRegion>> getListOfRegions() async {
+/// Returns the downloaded regions.
+///
+/// The regions from [offset] are returned, at most [limit] of them if it is
+/// given. If [summaryOnly] is true, the regions are returned with empty
+/// metadata and [OfflineRegion.isSummary] set, their metadata can be fetched
+/// with [getOfflineRegionMetadata] instead.
+///
+/// Paging and [summaryOnly] are only supported on Android, other platforms
+/// return all regions with their metadata.
+Future<List<OfflineRegion>> getListOfRegions({
+  int offset = 0,
+  int? limit,
+  bool summaryOnly = false,
+}) async {
   final String regionsJson = await _globalChannel.invokeMethod(
     'getListOfRegions',
-    <String, dynamic>{},
+    <String, dynamic>{
+      'offset': offset,
+      'limit': limit,
+      'summaryOnly': summaryOnly,
+    },
   );
   final Iterable regions = json.decode(regionsJson);
   return regions.map((region) => OfflineRegion.fromMap(region)).toList();
 }
 
+/// Returns the metadata of the region with [id].
+///
+/// This is only supported on Android, on iOS and the web it throws a
+/// [MissingPluginException].
+Future<Map<String, dynamic>> getOfflineRegionMetadata(int id) async {
+  final String metadataJson = await _globalChannel.invokeMethod(
+    'getOfflineRegionMetadata',
+    <String, dynamic>{
+      'id': id,
+    },
+  );
+  return (json.decode(metadataJson) as Map).cast<String, dynamic>();
+}
+
 Future<OfflineRegion> updateOfflineRegionMetadata(
     int id, Map<String, dynamic> metadata) async {
   final regionJson = await _globalChannel.invokeMethod(
@@ -97,31 +128,7 @@ Future<OfflineRegion> downloadOfflineRegion(
   });
 
   if (onEvent != null) {
-    EventChannel(channelName).receiveBroadcastStream().handleError((error) {
-      if (error is PlatformException) {
-        onEvent(Error(error));
-        return Error(error);
-      }
-      final unknownError = Error(
-        PlatformException(
-          code: 'UnknowException',
-          message:
-              'This error is unhandled by plugin. Please contact us if needed.',
-          details: error,
-        ),
-      );
-      onEvent(unknownError);
-      return unknownError;
-    }).listen((data) {
-      final Map<String, Object?> jsonData = json.decode(data);
-      final status = switch (jsonData['status']) {
-        'start' => InProgress(0.0),
-        'progress' => InProgress((jsonData['progress']! as num).toDouble()),
-        'success' => Success(),
-        _ => throw Exception('Invalid event status ${jsonData['status']}'),
-      };
-      onEvent(status);
-    });
+    _listenToDownloadEvents(channelName, onEvent);
   }
 
   final result = await _globalChannel
@@ -132,3 +139,355 @@ Future<OfflineRegion> downloadOfflineRegion(
 
   return OfflineRegion.fromMap(json.decode(result));
 }
+
+/// Downloads the corridor described by [definition] as several offline
+/// regions, each estimated to stay below [maxTilesPerRegion] tiles, so long
+/// routes do not exceed the offline tile count limit.
+///
+/// The geometry of the definition must be a `LineString` or
+/// `MultiLineString`, e.g. created with [OfflineRegionDefinition.corridor].
+/// The regions are downloaded one after the other and [onEvent] reports their
+/// combined progress. Each region's metadata contains [metadata] plus its
+/// `corridorChunk` index and the `corridorChunkCount`.
+///
+/// This is only supported on Android.
+Future<List<OfflineRegion>> downloadOfflineCorridor(
+  OfflineRegionDefinition definition, {
+  int maxTilesPerRegion = 6000,
+  Map<String, dynamic> metadata = const {},
+  Function(DownloadRegionStatus event)? onEvent,
+}) async {
+  final channelName =
+      'downloadOfflineRegion_${DateTime.now().microsecondsSinceEpoch}';
+
+  await _globalChannel
+      .invokeMethod('downloadOfflineRegion#setup', <String, dynamic>{
+    'channelName': channelName,
+  });
+
+  if (onEvent != null) {
+    _listenToDownloadEvents(channelName, onEvent);
+  }
+
+  final String regionsJson = await _globalChannel
+      .invokeMethod('downloadOfflineCorridor', <String, dynamic>{
+    'definition': definition.toMap(),
+    'metadata': metadata,
+    'maxTilesPerRegion': maxTilesPerRegion,
+  });
+  final Iterable regions = json.decode(regionsJson);
+  return regions.map((region) => OfflineRegion.fromMap(region)).toList();
+}
+
+/// Estimates the number of tiles per tileset that downloading [definition]
+/// requires.
+///
+/// Returns the estimate as `tiles`, next to the number of tiles of the
+/// definition's bounding box as `boundingBoxTiles`.
+///
+/// This is only supported on Android.
+Future<Map<String, int>> estimateOfflineRegionTiles(
+    OfflineRegionDefinition definition) async {
+  final Map<dynamic, dynamic> result = await _globalChannel.invokeMethod(
+    'estimateOfflineRegionTiles',
+    <String, dynamic>{
+      'definition': definition.toMap(),
+    },
+  );
+  return result.cast<String, int>();
+}
+
+/// Enables keeping the JSON of `http` and `https` styles on disk, so maps
+/// open with the cached style instead of waiting for the network.
+///
+/// Cached styles are revalidated in the background, and applied again if the
+/// server returns a different style, which calls the style loaded callback
+/// again. Styles must not refer to sprites, glyphs or sources with relative
+/// URLs, as they are applied from their JSON.
+///
+/// This is only supported on Android.
+Future<void> setStyleCacheEnabled(bool enabled) {
+  return _globalChannel.invokeMethod(
+    'setStyleCacheEnabled',
+    <String, dynamic>{
+      'enabled': enabled,
+    },
+  );
+}
+
+/// Deletes all styles kept by [setStyleCacheEnabled].
+///
+/// This is only supported on Android.
+Future<void> clearStyleCache() {
+  return _globalChannel.invokeMethod('clearStyleCache');
+}
+
+/// Returns the counters of the style cache, such as `hits`, `misses` and
+/// `updated` styles, and the average time from setting a remote style until
+/// it was loaded, from the cache as `averageCachedLoadMillis` and from the
+/// network as `averageNetworkLoadMillis`.
+///
+/// This is only supported on Android.
+Future<Map<String, dynamic>> getStyleCacheStats() async {
+  final Map<dynamic, dynamic> result =
+      await _globalChannel.invokeMethod('getStyleCacheStats');
+  return result.cast<String, dynamic>();
+}
+
+/// Keeps the native views of up to [maxSize] disposed maps, so that the next
+/// maps are created faster, e.g. when switching between tabs that show maps.
+///
+/// Pooled views are released when the system is low on memory. Setting
+/// [maxSize] to 0 disables the pool and releases all pooled views.
+///
+/// This is only supported on Android.
+Future<void> setMapViewPoolSize(int maxSize) {
+  return _globalChannel.invokeMethod(
+    'setMapViewPoolSize',
+    <String, dynamic>{
+      'maxSize': maxSize,
+    },
+  );
+}
+
+/// Creates up to [count] native map views ahead of time, without exceeding
+/// the size set with [setMapViewPoolSize].
+///
+/// The style is only loaded once a view is used by a map. Returns the number
+/// of views that were created.
+///
+/// This is only supported on Android.
+Future<int> prewarmMapViews(int count) async {
+  final int created = await _globalChannel.invokeMethod(
+    'prewarmMapViews',
+    <String, dynamic>{
+      'count': count,
+    },
+  );
+  return created;
+}
+
+/// Returns the `size` and `maxSize` of the map view pool, and the number of
+/// views `created`, `reused` and `trimmed` since the app started.
+///
+/// This is only supported on Android.
+Future<Map<String, dynamic>> getMapViewPoolStats() async {
+  final Map<dynamic, dynamic> result =
+      await _globalChannel.invokeMethod('getMapViewPoolStats');
+  return result.cast<String, dynamic>();
+}
+
+/// Returns how long initializing MapLibre took, in milliseconds: loading the
+/// native library in the background as `libraryLoadMillis`, waiting for it
+/// on the main thread as `waitMillis` and creating the MapLibre instance as
+/// `initMillis`. The values are -1 until MapLibre is `initialized`.
+///
+/// This is only supported on Android.
+Future<Map<String, dynamic>> getInitStats() async {
+  final Map<dynamic, dynamic> result =
+      await _globalChannel.invokeMethod('getInitStats');
+  return result.cast<String, dynamic>();
+}
+
+/// Returns how often the system asked the plugin to release memory, as
+/// `trimsByLevel`, and the bytes its caches released, as `bytesByLevel` and
+/// `bytesByCache`, together with the `lastLevel` and its `lastBytes`. The
+/// number of registered `caches` is included too.
+///
+/// The bytes are estimates, memory released by the native map is not
+/// counted.
+///
+/// This is only supported on Android.
+Future<Map<String, dynamic>> getMemoryTrimStats() async {
+  final Map<dynamic, dynamic> result =
+      await _globalChannel.invokeMethod('getMemoryTrimStats');
+  return result.cast<String, dynamic>();
+}
+
+/// Returns the calls of every method of the plugin's method channels, keyed
+/// by method name in `methods`. Each entry has the number of `calls` and
+/// `errors`, the time the handler spent on the platform thread as
+/// `totalMicros`, `averageMicros` and `maxMicros`, and the `argumentBytes`
+/// of the strings and typed arrays passed to it. `bucketCounts[i]` is the
+/// number of calls that took up to `bucketMicros[i]` microseconds, the last
+/// count is for longer calls.
+///
+/// If [reset] is true, the counts start over after this call.
+///
+/// This is only supported on Android.
+Future<Map<String, dynamic>> getCallStats({bool reset = false}) async {
+  final Map<dynamic, dynamic> result = await _globalChannel.invokeMethod(
+    'getCallStats',
+    <String, dynamic>{
+      'reset': reset,
+    },
+  );
+  return result.cast<String, dynamic>();
+}
+
+/// The encoding of the images returned by [snapshotMap].
+enum SnapshotFormat { png, webp }
+
+/// Renders a static image of a map without creating a map view, e.g. for
+/// thumbnails in a list, and returns it encoded as [format].
+///
+/// The map shows [styleString], which is resolved like
+/// [MapLibreMap.styleString], at [cameraPosition] or fitted to [bounds]. The
+/// image is [width] by [height] logical pixels at [pixelRatio], which
+/// defaults to the ratio of the display. [quality] only applies to WebP.
+///
+/// Requests are queued and rendered by a small pool of reused snapshotters.
+/// Images are cached on disk by their style, camera, size and pixel ratio,
+/// so the same image is only rendered once, see [configureSnapshots].
+///
+/// A style URL is not loaded again for later images, so if the style behind
+/// it changes, call [clearSnapshotCache] or use a new URL, e.g. with a
+/// version parameter.
+///
+/// This is only supported on Android.
+Future<Uint8List> snapshotMap({
+  required String styleString,
+  required int width,
+  required int height,
+  CameraPosition? cameraPosition,
+  LatLngBounds? bounds,
+  double? pixelRatio,
+  SnapshotFormat format = SnapshotFormat.png,
+  int quality = 90,
+  bool showLogo = true,
+}) async {
+  assert(cameraPosition != null || bounds != null);
+  final Uint8List bytes = await _globalChannel.invokeMethod(
+    'snapshot',
+    <String, dynamic>{
+      'style': styleString,
+      'camera': cameraPosition?.toMap(),
+      'bounds': bounds?.toList(),
+      'width': width,
+      'height': height,
+      'pixelRatio': pixelRatio,
+      'format': format.name,
+      'quality': quality,
+      'logo': showLogo,
+    },
+  );
+  return bytes;
+}
+
+/// Sets the number of snapshotters [snapshotMap] keeps to [poolSize], and
+/// the size of its image cache to [cacheBytes]. The least recently used
+/// images are removed first.
+///
+/// This is only supported on Android.
+Future<void> configureSnapshots({
+  int poolSize = 2,
+  int cacheBytes = 50 * 1024 * 1024,
+}) {
+  return _globalChannel.invokeMethod(
+    'configureSnapshots',
+    <String, dynamic>{
+      'poolSize': poolSize,
+      'cacheBytes': cacheBytes,
+    },
+  );
+}
+
+/// Deletes all images cached by [snapshotMap], and the idle snapshotters with
+/// the styles they loaded.
+///
+/// This is only supported on Android.
+Future<void> clearSnapshotCache() {
+  return _globalChannel.invokeMethod('clearSnapshotCache');
+}
+
+/// Returns the counters of [snapshotMap]: cache `hits` and `misses`, images
+/// `rendered` and `errors`, the snapshotters `created` and `reused`, the
+/// current number of `snapshotters`, of `busy` ones and of `queued`
+/// requests, and the `cacheBytes` and `cacheEntries` on disk.
+///
+/// This is only supported on Android.
+Future<Map<String, dynamic>> getSnapshotStats() async {
+  final Map<dynamic, dynamic> result =
+      await _globalChannel.invokeMethod('getSnapshotStats');
+  return result.cast<String, dynamic>();
+}
+
+void _listenToDownloadEvents(
+    String channelName, Function(DownloadRegionStatus event) onEvent) {
+  EventChannel(channelName).receiveBroadcastStream().handleError((error) {
+    if (error is PlatformException) {
+      onEvent(Error(error));
+      return Error(error);
+    }
+    final unknownError = Error(
+      PlatformException(
+        code: 'UnknowException',
+        message:
+            'This error is unhandled by plugin. Please contact us if needed.',
+        details: error,
+      ),
+    );
+    onEvent(unknownError);
+    return unknownError;
+  }).listen((data) {
+    final Map<String, Object?> jsonData = json.decode(data);
+    final status = switch (jsonData['status']) {
+      'start' => InProgress(0.0),
+      'progress' => InProgress((jsonData['progress']! as num).toDouble()),
+      'success' => Success(),
+      _ => throw Exception('Invalid event status ${jsonData['status']}'),
+    };
+    onEvent(status);
+  });
+}
+
+/// Inserts the resources of a bundled resource pack into the ambient cache, so
+/// the first map frame can be rendered without waiting for the network.
+///
+/// [pack] is either a directory or a `.zip` archive, given as a Flutter asset
+/// path or as an absolute path on the file system. [resources] maps the URL
+/// of each resource to its path inside the pack. If it is omitted, the mapping
+/// is read from a `manifest.json` file at the root of the pack.
+///
+/// Inserted resources are considered fresh for [maxAge]. A pack whose
+/// resources were all inserted from the same version is skipped until then,
+/// and inserted again once they expired.
+///
+/// Returns the number of `inserted`, `skipped` and `failed` resources.
+///
+/// This is only supported on Android.
+Future<Map<String, int>> warmAmbientCache(
+  String pack, {
+  Map<String, String>? resources,
+  Duration maxAge = const Duration(days: 7),
+  Function(DownloadRegionStatus event)? onEvent,
+}) async {
+  final channelName =
+      'warmAmbientCache_${DateTime.now().microsecondsSinceEpoch}';
+
+  await _globalChannel
+      .invokeMethod('warmAmbientCache#setup', <String, dynamic>{
+    'channelName': channelName,
+  });
+
+  if (onEvent != null) {
+    _listenToDownloadEvents(channelName, onEvent);
+  }
+
+  final Map<dynamic, dynamic> result =
+      await _globalChannel.invokeMethod('warmAmbientCache', <String, dynamic>{
+    'pack': pack,
+    'resources': resources,
+    'maxAgeSeconds': maxAge.inSeconds,
+  });
+  return result.cast<String, int>();
+}
+
+/// Deletes the offline database, with all offline regions and the ambient
+/// cache, and forgets the packs inserted by [warmAmbientCache], so they are
+/// inserted again by the next call.
+///
+/// This is only supported on Android.
+Future<void> resetOfflineDatabase() {
+  return _globalChannel.invokeMethod('resetOfflineDatabase');
+}
@@ -2,6 +2,10 @@ part of '../maplibre_gl.dart';
 
 /// Description of region to be downloaded. Identifier will be generated when
 /// the download is initiated.
+///
+/// If [geometry] is set, only the tiles covering the geometry are downloaded
+/// instead of all tiles within [bounds]. Lines are buffered by [bufferMeters]
+/// on both sides. Geometries are only supported on Android.
 class OfflineRegionDefinition {
   const OfflineRegionDefinition({
     required this.bounds,
@@ -9,14 +13,63 @@ class OfflineRegionDefinition {
     required this.minZoom,
     required this.maxZoom,
     this.includeIdeographs = false,
+    this.geometry,
+    this.bufferMeters = 0,
   });
 
+  /// Creates a definition of the corridor within [bufferMeters] of [route],
+  /// e.g. to download the tiles along a planned trip.
+  factory OfflineRegionDefinition.corridor({
+    required List<LatLng> route,
+    required double bufferMeters,
+    required String mapStyleUrl,
+    required double minZoom,
+    required double maxZoom,
+    bool includeIdeographs = false,
+  }) {
+    assert(route.isNotEmpty);
+    var south = route.first.latitude;
+    var north = south;
+    var west = route.first.longitude;
+    var east = west;
+    for (final point in route) {
+      south = min(south, point.latitude);
+      north = max(north, point.latitude);
+      west = min(west, point.longitude);
+      east = max(east, point.longitude);
+    }
+    final latPadding = bufferMeters / 111320;
+    final maxLatitude = max(south.abs(), north.abs());
+    final lonPadding = latPadding / max(0.01, cos(maxLatitude * pi / 180));
+    return OfflineRegionDefinition(
+      bounds: LatLngBounds(
+        southwest: LatLng(south - latPadding, west - lonPadding),
+        northeast: LatLng(north + latPadding, east + lonPadding),
+      ),
+      mapStyleUrl: mapStyleUrl,
+      minZoom: minZoom,
+      maxZoom: maxZoom,
+      includeIdeographs: includeIdeographs,
+      geometry: <String, dynamic>{
+        'type': 'LineString',
+        'coordinates': route.map((p) => p.toGeoJsonCoordinates()).toList(),
+      },
+      bufferMeters: bufferMeters,
+    );
+  }
+
   final LatLngBounds bounds;
   final String mapStyleUrl;
   final double minZoom;
   final double maxZoom;
   final bool includeIdeographs;
 
+  /// A GeoJSON geometry limiting the region, e.g. a `LineString` or `Polygon`.
+  final Map<String, dynamic>? geometry;
+
+  /// The distance in meters by which lines in [geometry] are buffered.
+  final double bufferMeters;
+
   @override
   String toString() =>
       "OfflineRegionDefinition, bounds = $bounds, mapStyleUrl = $mapStyleUrl, minZoom = $minZoom, maxZoom = $maxZoom";
@@ -28,6 +81,10 @@ class OfflineRegionDefinition {
     data['minZoom'] = minZoom;
     data['maxZoom'] = maxZoom;
     data['includeIdeographs'] = includeIdeographs;
+    if (geometry != null) {
+      data['geometry'] = geometry;
+      data['bufferMeters'] = bufferMeters;
+    }
     return data;
   }
 
@@ -39,6 +96,7 @@ class OfflineRegionDefinition {
       minZoom: map['minZoom'].toDouble(),
       maxZoom: map['maxZoom'].toDouble(),
       includeIdeographs: map['includeIdeographs'] ?? false,
+      geometry: (map['geometry'] as Map?)?.cast<String, dynamic>(),
     );
   }
 
@@ -56,17 +114,24 @@ class OfflineRegion {
     required this.id,
     required this.definition,
     required this.metadata,
+    this.isSummary = false,
   });
 
   final int id;
   final OfflineRegionDefinition definition;
   final Map<String, dynamic> metadata;
 
+  /// Whether the region was returned by [getListOfRegions] with `summaryOnly`,
+  /// so its [metadata] is empty even if the stored metadata is not.
+  /// [getOfflineRegionMetadata] returns the stored metadata.
+  final bool isSummary;
+
   factory OfflineRegion.fromMap(Map<String, dynamic> json) {
     return OfflineRegion(
       id: json['id'],
       definition: OfflineRegionDefinition.fromMap(json['definition']),
       metadata: json['metadata'],
+      isSummary: json['summary'] ?? false,
     );
   }
 
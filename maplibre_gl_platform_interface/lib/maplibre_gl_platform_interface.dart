@@ -22,3 +22,5 @@ part 'src/ui.dart';
 part 'src/maplibre_gl_platform_interface.dart';
 part 'src/source_properties.dart';
 part 'src/location_engine_properties.dart';
+part 'src/geofence.dart';
+part 'src/flatgeobuf_source_properties.dart';
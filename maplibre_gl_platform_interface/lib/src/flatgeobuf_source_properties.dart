@@ -0,0 +1,54 @@
+part of '../maplibre_gl_platform_interface.dart';
+
+/// A geojson source that shows the features of a local FlatGeobuf file.
+///
+/// Only the features around the visible region are read from the file, with
+/// the spatial index of the file, and they are read again when the camera
+/// stops moving. Files without a spatial index are read from start to end
+/// each time. The layers of the source use it like a geojson source.
+///
+/// This is only supported on Android.
+@immutable
+class FlatGeobufSourceProperties implements SourceProperties {
+  /// The path of the `.fgb` file on the device.
+  final String path;
+
+  /// The most features to read for one visible region.
+  final int maxFeatures;
+
+  /// Maximum zoom level at which to create vector tiles.
+  final double? maxzoom;
+
+  /// Size of the tile buffer on each side.
+  final double? buffer;
+
+  /// Douglas-Peucker simplification tolerance.
+  final double? tolerance;
+
+  const FlatGeobufSourceProperties({
+    required this.path,
+    this.maxFeatures = 100000,
+    this.maxzoom = 18,
+    this.buffer = 128,
+    this.tolerance = 0.375,
+  });
+
+  @override
+  Map<String, dynamic> toJson() {
+    final json = <String, dynamic>{
+      'type': 'flatgeobuf',
+      'path': path,
+      'maxFeatures': maxFeatures,
+    };
+    if (maxzoom != null) {
+      json['maxzoom'] = maxzoom;
+    }
+    if (buffer != null) {
+      json['buffer'] = buffer;
+    }
+    if (tolerance != null) {
+      json['tolerance'] = tolerance;
+    }
+    return json;
+  }
+}
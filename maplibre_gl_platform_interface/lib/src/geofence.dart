@@ -0,0 +1,72 @@
+part of '../maplibre_gl_platform_interface.dart';
+
+/// A polygonal zone whose transitions are reported while the user location
+/// is tracked.
+@immutable
+class Geofence {
+  /// Creates a zone from the [rings] of a polygon, the first being the outer
+  /// ring and the others holes.
+  ///
+  /// If [dwellTime] is set, a [GeofenceTransition.dwell] event is reported
+  /// once the user stayed inside the zone for that long.
+  const Geofence({
+    required this.id,
+    required this.rings,
+    this.dwellTime,
+  });
+
+  /// The identifier reported with the events of this zone.
+  final String id;
+
+  /// The rings of the polygon, the first being the outer ring.
+  final List<List<LatLng>> rings;
+
+  /// The time after entering the zone until it reports a dwell event.
+  final Duration? dwellTime;
+
+  Map<String, dynamic> toJson() {
+    return <String, dynamic>{
+      'id': id,
+      'rings': rings.map((ring) {
+        final coordinates = Float64List(ring.length * 2);
+        for (var i = 0; i < ring.length; i++) {
+          coordinates[2 * i] = ring[i].latitude;
+          coordinates[2 * i + 1] = ring[i].longitude;
+        }
+        return coordinates;
+      }).toList(),
+      'dwell': dwellTime?.inMilliseconds ?? 0,
+    };
+  }
+
+  @override
+  String toString() => 'Geofence($id, ${rings.length} rings)';
+}
+
+enum GeofenceTransition { enter, exit, dwell }
+
+/// A transition of a [Geofence], reported with the location that caused it.
+@immutable
+class GeofenceEvent {
+  const GeofenceEvent({
+    required this.id,
+    required this.transition,
+    required this.position,
+    required this.timestamp,
+  });
+
+  /// The identifier of the [Geofence].
+  final String id;
+
+  final GeofenceTransition transition;
+
+  /// The user location that caused the transition.
+  final LatLng position;
+
+  /// The time of the user location.
+  final DateTime timestamp;
+
+  @override
+  String toString() =>
+      'GeofenceEvent($id, $transition, $position, $timestamp)';
+}
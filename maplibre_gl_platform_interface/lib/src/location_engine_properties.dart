@@ -40,10 +40,17 @@ class LocationEngineAndroidProperties {
   ///
   final LocationPriority priority;
 
+  /// Adapts the update interval and displacement to the observed speed and to
+  /// whether the camera is tracking the location, e.g. slow updates while
+  /// stationary and fast ones while driving. [interval] and [displacement] are
+  /// ignored in this mode, and the native GPS provider is used.
+  final bool adaptive;
+
   const LocationEngineAndroidProperties({
     required this.interval,
     required this.displacement,
     required this.priority,
+    this.adaptive = false,
   });
 
   static const LocationEngineAndroidProperties defaultProperties =
@@ -60,26 +67,32 @@ class LocationEngineAndroidProperties {
           runtimeType == other.runtimeType &&
           interval == other.interval &&
           displacement == other.displacement &&
-          priority == other.priority);
+          priority == other.priority &&
+          adaptive == other.adaptive);
 
   @override
   int get hashCode =>
-      interval.hashCode ^ displacement.hashCode ^ priority.hashCode;
+      interval.hashCode ^
+      displacement.hashCode ^
+      priority.hashCode ^
+      adaptive.hashCode;
 
   @override
   String toString() {
-    return 'LocationEngineAndroidProperties{ interval: $interval, displacement: $displacement, priority: $priority }';
+    return 'LocationEngineAndroidProperties{ interval: $interval, displacement: $displacement, priority: $priority, adaptive: $adaptive }';
   }
 
   LocationEngineAndroidProperties copyWith({
     int? interval,
     int? displacement,
     LocationPriority? priority,
+    bool? adaptive,
   }) {
     return LocationEngineAndroidProperties(
       interval: interval ?? this.interval,
       displacement: displacement ?? this.displacement,
       priority: priority ?? this.priority,
+      adaptive: adaptive ?? this.adaptive,
     );
   }
 
@@ -88,6 +101,7 @@ class LocationEngineAndroidProperties {
       interval,
       priority.index,
       displacement,
+      if (adaptive) 1 else 0,
     ];
   }
 }
@@ -44,6 +44,10 @@ abstract class MapLibrePlatform {
 
   final onUserLocationUpdatedPlatform = ArgumentCallbacks<UserLocation>();
 
+  final onGeofenceEventPlatform = ArgumentCallbacks<GeofenceEvent>();
+
+  final onRenderStatsPlatform = ArgumentCallbacks<Map<String, dynamic>>();
+
   Future<void> initPlatform(int id);
   Widget buildView(
       Map<String, dynamic> creationParams,
@@ -75,7 +79,33 @@ abstract class MapLibrePlatform {
       String sourceId, String? sourceLayerId, List<Object>? filter);
   Future invalidateAmbientCache();
   Future clearAmbientCache();
+  Future<void> setTilePrefetch({
+    required bool enabled,
+    required int maxConcurrency,
+    required int byteBudget,
+    required int ringSize,
+    required bool prefetchNextZoom,
+  });
   Future<LatLng?> requestMyLocationLatLng();
+  Future<Map<String, dynamic>?> getLocationEngineStats();
+  Future<Map<String, dynamic>?> getMapLanguageStats();
+  Future<Map<String, dynamic>?> getRenderStats(bool reset);
+  Future<void> setRenderStatsInterval(Duration? interval);
+  Future<void> setLocationReplay(String? track, double speed, bool loop);
+  Future<void> setLocationRecording(String? path, int capacity);
+  Future<void> addGeofences(List<Geofence> geofences);
+  Future<void> removeGeofences(List<String>? ids);
+  Future<void> setGeofenceOptions({
+    required double hysteresis,
+    required double maxAccuracy,
+  });
+  Future<void> setUserLocationForwarding({
+    required bool enabled,
+    required double minDistance,
+    required Duration minInterval,
+    required int batchSize,
+    required Duration maxBatchDelay,
+  });
 
   Future<LatLngBounds> getVisibleRegion();
 
@@ -127,6 +157,39 @@ abstract class MapLibrePlatform {
   Future<void> setFeatureForGeoJsonSource(
       String sourceId, Map<String, dynamic> geojsonFeature);
 
+  Future<void> addClusteredSource(
+    String sourceId,
+    Float64List coordinates, {
+    required int radius,
+    required int maxZoom,
+    required int minPoints,
+  });
+
+  Future<int> getClusterExpansionZoom(String sourceId, int clusterId);
+
+  Future<List<int>> getClusterLeaves(
+      String sourceId, int clusterId, int limit, int offset);
+
+  Future<void> setGeoJsonSourceLevelsOfDetail(
+      String sourceId, List<double> zooms, double tolerance);
+
+  Future<void> addTiledGeoJsonSource(
+    String sourceId,
+    Map<String, dynamic> geojson, {
+    required int minzoom,
+    required int maxzoom,
+    required double tolerance,
+    required int buffer,
+  });
+
+  Future<void> updateTiledGeoJsonSource(String sourceId,
+      {Map<String, dynamic>? geojson, List<String>? removeIds});
+
+  Future<int> addGeoJsonFileSource(String sourceId, String path,
+      {List<double>? bbox,
+      Map<String, dynamic>? where,
+      Map<String, dynamic>? properties});
+
   Future<void> removeSource(String sourceId);
 
   Future<void> addSymbolLayer(
@@ -219,5 +282,7 @@ abstract class MapLibrePlatform {
     onCameraTrackingDismissedPlatform.clear();
     onMapIdlePlatform.clear();
     onUserLocationUpdatedPlatform.clear();
+    onGeofenceEventPlatform.clear();
+    onRenderStatsPlatform.clear();
   }
 }
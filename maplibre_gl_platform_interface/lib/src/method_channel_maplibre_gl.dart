@@ -107,6 +107,37 @@ class MapLibreMethodChannel extends MapLibrePlatform {
                   ),
             timestamp: DateTime.fromMillisecondsSinceEpoch(
                 userLocation['timestamp'])));
+      case 'map#onUserLocationBatch':
+        final Float64List batch = call.arguments;
+        for (var i = 0; i + 8 <= batch.length; i += 8) {
+          onUserLocationUpdatedPlatform(UserLocation(
+              position: LatLng(batch[i], batch[i + 1]),
+              altitude: batch[i + 2],
+              bearing: batch[i + 3],
+              speed: batch[i + 4],
+              horizontalAccuracy: batch[i + 5],
+              verticalAccuracy: batch[i + 6].isNaN ? null : batch[i + 6],
+              heading: null,
+              timestamp:
+                  DateTime.fromMillisecondsSinceEpoch(batch[i + 7].toInt())));
+        }
+      case 'geofence#onEvent':
+        final List<dynamic> ids = call.arguments['ids'];
+        final List<dynamic> transitions = call.arguments['transitions'];
+        final List<dynamic> position = call.arguments['position'];
+        final timestamp =
+            DateTime.fromMillisecondsSinceEpoch(call.arguments['timestamp']);
+        for (var i = 0; i < ids.length; i++) {
+          onGeofenceEventPlatform(GeofenceEvent(
+            id: ids[i],
+            transition: GeofenceTransition.values[transitions[i]],
+            position: LatLng(position[0], position[1]),
+            timestamp: timestamp,
+          ));
+        }
+      case 'map#onRenderStats':
+        final Map<dynamic, dynamic> stats = call.arguments;
+        onRenderStatsPlatform(stats.cast<String, dynamic>());
       default:
         throw MissingPluginException();
     }
@@ -333,6 +364,160 @@ class MapLibreMethodChannel extends MapLibrePlatform {
     }
   }
 
+  @override
+  Future<void> setTilePrefetch({
+    required bool enabled,
+    required int maxConcurrency,
+    required int byteBudget,
+    required int ringSize,
+    required bool prefetchNextZoom,
+  }) async {
+    try {
+      await _channel.invokeMethod('map#setTilePrefetch', <String, dynamic>{
+        'enabled': enabled,
+        'maxConcurrency': maxConcurrency,
+        'byteBudget': byteBudget,
+        'ringSize': ringSize,
+        'prefetchNextZoom': prefetchNextZoom,
+      });
+    } on PlatformException catch (e) {
+      return Future.error(e);
+    }
+  }
+
+  @override
+  Future<void> setUserLocationForwarding({
+    required bool enabled,
+    required double minDistance,
+    required Duration minInterval,
+    required int batchSize,
+    required Duration maxBatchDelay,
+  }) async {
+    try {
+      await _channel
+          .invokeMethod('locationComponent#setForwarding', <String, dynamic>{
+        'enabled': enabled,
+        'minDistance': minDistance,
+        'minInterval': minInterval.inMilliseconds,
+        'batchSize': batchSize,
+        'maxBatchDelay': maxBatchDelay.inMilliseconds,
+      });
+    } on PlatformException catch (e) {
+      return Future.error(e);
+    }
+  }
+
+  @override
+  Future<void> setLocationReplay(String? track, double speed, bool loop) async {
+    try {
+      await _channel
+          .invokeMethod('locationComponent#setReplay', <String, dynamic>{
+        'track': track,
+        'speed': speed,
+        'loop': loop,
+      });
+    } on PlatformException catch (e) {
+      return Future.error(e);
+    }
+  }
+
+  @override
+  Future<void> setLocationRecording(String? path, int capacity) async {
+    try {
+      await _channel
+          .invokeMethod('locationComponent#setRecording', <String, dynamic>{
+        'path': path,
+        'capacity': capacity,
+      });
+    } on PlatformException catch (e) {
+      return Future.error(e);
+    }
+  }
+
+  @override
+  Future<void> addGeofences(List<Geofence> geofences) async {
+    try {
+      await _channel.invokeMethod('geofence#add', <String, dynamic>{
+        'geofences': geofences.map((geofence) => geofence.toJson()).toList(),
+      });
+    } on PlatformException catch (e) {
+      return Future.error(e);
+    }
+  }
+
+  @override
+  Future<void> removeGeofences(List<String>? ids) async {
+    try {
+      await _channel.invokeMethod('geofence#remove', <String, dynamic>{
+        'ids': ids,
+      });
+    } on PlatformException catch (e) {
+      return Future.error(e);
+    }
+  }
+
+  @override
+  Future<void> setGeofenceOptions({
+    required double hysteresis,
+    required double maxAccuracy,
+  }) async {
+    try {
+      await _channel.invokeMethod('geofence#setOptions', <String, dynamic>{
+        'hysteresis': hysteresis,
+        'maxAccuracy': maxAccuracy,
+      });
+    } on PlatformException catch (e) {
+      return Future.error(e);
+    }
+  }
+
+  @override
+  Future<Map<String, dynamic>?> getMapLanguageStats() async {
+    try {
+      final Map<dynamic, dynamic>? reply =
+          await _channel.invokeMethod('map#getMapLanguageStats');
+      return reply?.cast<String, dynamic>();
+    } on PlatformException catch (e) {
+      return Future.error(e);
+    }
+  }
+
+  @override
+  Future<Map<String, dynamic>?> getRenderStats(bool reset) async {
+    try {
+      final Map<dynamic, dynamic>? reply = await _channel
+          .invokeMethod('map#getRenderStats', <String, dynamic>{
+        'reset': reset,
+      });
+      return reply?.cast<String, dynamic>();
+    } on PlatformException catch (e) {
+      return Future.error(e);
+    }
+  }
+
+  @override
+  Future<void> setRenderStatsInterval(Duration? interval) async {
+    try {
+      await _channel
+          .invokeMethod('map#setRenderStatsInterval', <String, dynamic>{
+        'intervalMillis': interval?.inMilliseconds ?? 0,
+      });
+    } on PlatformException catch (e) {
+      return Future.error(e);
+    }
+  }
+
+  @override
+  Future<Map<String, dynamic>?> getLocationEngineStats() async {
+    try {
+      final Map<dynamic, dynamic>? reply =
+          await _channel.invokeMethod('locationComponent#getStats');
+      return reply?.cast<String, dynamic>();
+    } on PlatformException catch (e) {
+      return Future.error(e);
+    }
+  }
+
   @override
   Future<LatLng> requestMyLocationLatLng() async {
     try {
@@ -796,6 +981,130 @@ class MapLibreMethodChannel extends MapLibrePlatform {
     });
   }
 
+  @override
+  Future<void> addClusteredSource(
+    String sourceId,
+    Float64List coordinates, {
+    required int radius,
+    required int maxZoom,
+    required int minPoints,
+  }) async {
+    try {
+      await _channel.invokeMethod('source#addClustered', <String, dynamic>{
+        'sourceId': sourceId,
+        'coordinates': coordinates,
+        'radius': radius,
+        'maxZoom': maxZoom,
+        'minPoints': minPoints,
+      });
+    } on PlatformException catch (e) {
+      return Future.error(e);
+    }
+  }
+
+  @override
+  Future<int> getClusterExpansionZoom(String sourceId, int clusterId) async {
+    try {
+      final int zoom = await _channel
+          .invokeMethod('source#getClusterExpansionZoom', <String, dynamic>{
+        'sourceId': sourceId,
+        'clusterId': clusterId,
+      });
+      return zoom;
+    } on PlatformException catch (e) {
+      return Future.error(e);
+    }
+  }
+
+  @override
+  Future<List<int>> getClusterLeaves(
+      String sourceId, int clusterId, int limit, int offset) async {
+    try {
+      final Int32List leaves = await _channel
+          .invokeMethod('source#getClusterLeaves', <String, dynamic>{
+        'sourceId': sourceId,
+        'clusterId': clusterId,
+        'limit': limit,
+        'offset': offset,
+      });
+      return leaves;
+    } on PlatformException catch (e) {
+      return Future.error(e);
+    }
+  }
+
+  @override
+  Future<void> setGeoJsonSourceLevelsOfDetail(
+      String sourceId, List<double> zooms, double tolerance) async {
+    try {
+      await _channel.invokeMethod('source#setLevelsOfDetail', <String, dynamic>{
+        'sourceId': sourceId,
+        'zooms': zooms,
+        'tolerance': tolerance,
+      });
+    } on PlatformException catch (e) {
+      return Future.error(e);
+    }
+  }
+
+  @override
+  Future<void> addTiledGeoJsonSource(
+    String sourceId,
+    Map<String, dynamic> geojson, {
+    required int minzoom,
+    required int maxzoom,
+    required double tolerance,
+    required int buffer,
+  }) async {
+    try {
+      await _channel.invokeMethod('source#addTiledGeoJson', <String, dynamic>{
+        'sourceId': sourceId,
+        'geojson': jsonEncode(geojson),
+        'minzoom': minzoom,
+        'maxzoom': maxzoom,
+        'tolerance': tolerance,
+        'buffer': buffer,
+      });
+    } on PlatformException catch (e) {
+      return Future.error(e);
+    }
+  }
+
+  @override
+  Future<void> updateTiledGeoJsonSource(String sourceId,
+      {Map<String, dynamic>? geojson, List<String>? removeIds}) async {
+    try {
+      await _channel
+          .invokeMethod('source#updateTiledGeoJson', <String, dynamic>{
+        'sourceId': sourceId,
+        'geojson': geojson != null ? jsonEncode(geojson) : null,
+        'removeIds': removeIds,
+      });
+    } on PlatformException catch (e) {
+      return Future.error(e);
+    }
+  }
+
+  @override
+  Future<int> addGeoJsonFileSource(String sourceId, String path,
+      {List<double>? bbox,
+      Map<String, dynamic>? where,
+      Map<String, dynamic>? properties}) async {
+    try {
+      final int count = await _channel
+          .invokeMethod('source#addGeoJsonFile', <String, dynamic>{
+        'sourceId': sourceId,
+        'path': path,
+        'bbox': bbox,
+        'where': where,
+        'properties': properties,
+      });
+      return count;
+    } on PlatformException catch (e) {
+      return Future.error(e);
+    }
+  }
+
   @override
   Future<void> setLayerVisibility(String layerId, bool visible) async {
     await _channel.invokeMethod('layer#setVisibility', <String, dynamic>{
@@ -7,4 +7,16 @@ void main() {
       expect(LocationEnginePlatforms.defaultPlatform.toList(), isList);
     });
   });
+
+  group(LocationEngineAndroidProperties, () {
+    test('toList() encodes the adaptive flag last', () {
+      const properties = LocationEngineAndroidProperties(
+        interval: 1000,
+        displacement: 5,
+        priority: LocationPriority.highAccuracy,
+      );
+      expect(properties.toList(), [1000, 0, 5, 0]);
+      expect(properties.copyWith(adaptive: true).toList(), [1000, 0, 5, 1]);
+    });
+  });
 }
@@ -359,11 +359,81 @@ class MapLibreMapController extends MapLibrePlatform
     print('Offline storage not available in web');
   }
 
+  @override
+  Future<void> setTilePrefetch({
+    required bool enabled,
+    required int maxConcurrency,
+    required int byteBudget,
+    required int ringSize,
+    required bool prefetchNextZoom,
+  }) async {
+    throw UnimplementedError();
+  }
+
   @override
   Future<LatLng?> requestMyLocationLatLng() async {
     return _myLastLocation;
   }
 
+  @override
+  Future<Map<String, dynamic>?> getLocationEngineStats() async {
+    return null;
+  }
+
+  @override
+  Future<Map<String, dynamic>?> getMapLanguageStats() async {
+    return null;
+  }
+
+  @override
+  Future<Map<String, dynamic>?> getRenderStats(bool reset) async {
+    return null;
+  }
+
+  @override
+  Future<void> setRenderStatsInterval(Duration? interval) async {
+    throw UnimplementedError();
+  }
+
+  @override
+  Future<void> setLocationReplay(String? track, double speed, bool loop) async {
+    throw UnimplementedError();
+  }
+
+  @override
+  Future<void> setLocationRecording(String? path, int capacity) async {
+    throw UnimplementedError();
+  }
+
+  @override
+  Future<void> addGeofences(List<Geofence> geofences) async {
+    throw UnimplementedError();
+  }
+
+  @override
+  Future<void> removeGeofences(List<String>? ids) async {
+    throw UnimplementedError();
+  }
+
+  @override
+  Future<void> setGeofenceOptions({
+    required double hysteresis,
+    required double maxAccuracy,
+  }) async {
+    throw UnimplementedError();
+  }
+
+  @override
+  Future<void> setUserLocationForwarding({
+    required bool enabled,
+    required double minDistance,
+    required Duration minInterval,
+    required int batchSize,
+    required Duration maxBatchDelay,
+  }) async {
+    throw UnimplementedError();
+  }
+
   @override
   Future<LatLngBounds> getVisibleRegion() async {
     final bounds = _map.getBounds();
@@ -1120,6 +1190,60 @@ class MapLibreMapController extends MapLibrePlatform
     }
   }
 
+  @override
+  Future<void> addClusteredSource(
+    String sourceId,
+    Float64List coordinates, {
+    required int radius,
+    required int maxZoom,
+    required int minPoints,
+  }) async {
+    throw UnimplementedError();
+  }
+
+  @override
+  Future<int> getClusterExpansionZoom(String sourceId, int clusterId) async {
+    throw UnimplementedError();
+  }
+
+  @override
+  Future<List<int>> getClusterLeaves(
+      String sourceId, int clusterId, int limit, int offset) async {
+    throw UnimplementedError();
+  }
+
+  @override
+  Future<void> setGeoJsonSourceLevelsOfDetail(
+      String sourceId, List<double> zooms, double tolerance) async {
+    throw UnimplementedError();
+  }
+
+  @override
+  Future<void> addTiledGeoJsonSource(
+    String sourceId,
+    Map<String, dynamic> geojson, {
+    required int minzoom,
+    required int maxzoom,
+    required double tolerance,
+    required int buffer,
+  }) async {
+    throw UnimplementedError();
+  }
+
+  @override
+  Future<void> updateTiledGeoJsonSource(String sourceId,
+      {Map<String, dynamic>? geojson, List<String>? removeIds}) async {
+    throw UnimplementedError();
+  }
+
+  @override
+  Future<int> addGeoJsonFileSource(String sourceId, String path,
+      {List<double>? bbox,
+      Map<String, dynamic>? where,
+      Map<String, dynamic>? properties}) async {
+    throw UnimplementedError();
+  }
+
   @override
   void resizeWebMap() {
     _onMapResize();